@@ -0,0 +1,64 @@
+package com.ardor3d.example.android;
+
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.image.Image;
+import com.ardor3d.image.Texture;
+import com.ardor3d.image.Texture.MinificationFilter;
+import com.ardor3d.math.Vector3;
+import com.ardor3d.renderer.state.TextureState;
+import com.ardor3d.scenegraph.hint.DataMode;
+import com.ardor3d.scenegraph.shape.Sphere;
+import com.ardor3d.util.TextureManager;
+
+/**
+ * Renders the same grid of spheres from planar and from interleaved VBOs, switching every few seconds and logging the
+ * frame rate of each layout.
+ */
+public class AndroidInterleavedBenchmarkExample extends AndroidExampleBase {
+    private static final int GRID_SIZE = 6;
+    private static final double PHASE_SECONDS = 5;
+
+    private DataMode _mode = DataMode.VBO;
+    private double _phaseTime;
+    private int _phaseFrames;
+    private int _phases;
+
+    @Override
+    protected void setupExample() {
+        final Image img = getImageFromResources(R.drawable.ardor3d_white, getResources(), true);
+        final Texture t = TextureManager.loadFromImage(img, MinificationFilter.BilinearNearestMipMap);
+        final TextureState ts = new TextureState();
+        ts.setTexture(t);
+        rootNode.setRenderState(ts);
+
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                final Sphere sphere = new Sphere("sphere", 24, 24, 0.8);
+                sphere.setTranslation(new Vector3((x - GRID_SIZE / 2) * 2, (y - GRID_SIZE / 2) * 2, -10));
+                rootNode.attachChild(sphere);
+            }
+        }
+        rootNode.getSceneHints().setDataMode(_mode);
+    }
+
+    @Override
+    protected void updateExample(final double tpf) {
+        super.updateExample(tpf);
+
+        _phaseTime += tpf;
+        _phaseFrames++;
+        if (_phaseTime >= PHASE_SECONDS) {
+            // the first phase includes VBO creation and warm up, so don't report it.
+            if (_phases++ > 0) {
+                Log.i(AndroidCanvas.TAG, "AndroidInterleavedBenchmarkExample - " + _mode + ": " + _phaseFrames
+                        / _phaseTime + " fps");
+            }
+            _mode = _mode == DataMode.VBO ? DataMode.VBOInterleaved : DataMode.VBO;
+            rootNode.getSceneHints().setDataMode(_mode);
+            _phaseTime = 0;
+            _phaseFrames = 0;
+        }
+    }
+}
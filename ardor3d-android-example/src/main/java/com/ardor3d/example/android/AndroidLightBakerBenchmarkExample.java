@@ -0,0 +1,87 @@
+package com.ardor3d.example.android;
+
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.light.PointLight;
+import com.ardor3d.math.ColorRGBA;
+import com.ardor3d.math.Vector3;
+import com.ardor3d.renderer.RendererCallable;
+import com.ardor3d.renderer.android.AndroidLightBaker;
+import com.ardor3d.renderer.android.AndroidRenderer;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.shape.Sphere;
+import com.ardor3d.util.GameTaskQueueManager;
+
+/**
+ * Renders a lit grid of static spheres with dynamic lighting and with lighting baked by {@link AndroidLightBaker},
+ * switching every few seconds and logging the frame rate of each.
+ */
+public class AndroidLightBakerBenchmarkExample extends AndroidExampleBase {
+    private static final int GRID_SIZE = 6;
+    private static final double PHASE_SECONDS = 5;
+
+    private final AndroidLightBaker _baker = new AndroidLightBaker();
+    private boolean _baked;
+    private double _phaseTime;
+    private int _phaseFrames;
+    private int _phases;
+
+    @Override
+    protected void setupExample() {
+        // a second, attenuated light to give the fixed function pipeline some work.
+        final PointLight light = new PointLight();
+        light.setLocation(new Vector3(0, 0, -6));
+        light.setDiffuse(ColorRGBA.ORANGE);
+        light.setAttenuate(true);
+        light.setLinear(0.1f);
+        light.setEnabled(true);
+        lightState.attach(light);
+
+        final Mesh[] spheres = new Mesh[GRID_SIZE * GRID_SIZE];
+        for (int x = 0; x < GRID_SIZE; x++) {
+            for (int y = 0; y < GRID_SIZE; y++) {
+                final Sphere sphere = new Sphere("sphere", 24, 24, 0.8);
+                sphere.setTranslation(new Vector3((x - GRID_SIZE / 2) * 2, (y - GRID_SIZE / 2) * 2, -10));
+                rootNode.attachChild(sphere);
+                spheres[x * GRID_SIZE + y] = sphere;
+            }
+        }
+
+        GameTaskQueueManager.getManager(_canvas).render(new RendererCallable<Void>() {
+            public Void call() throws Exception {
+                for (final Mesh sphere : spheres) {
+                    _baker.setStatic(sphere, true);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    protected void updateExample(final double tpf) {
+        super.updateExample(tpf);
+
+        _phaseTime += tpf;
+        _phaseFrames++;
+        if (_phaseTime >= PHASE_SECONDS) {
+            // the first phase includes VBO creation and warm up, so don't report it.
+            if (_phases++ > 0) {
+                Log.i(AndroidCanvas.TAG, "AndroidLightBakerBenchmarkExample - " + (_baked ? "baked" : "dynamic")
+                        + ": " + _phaseFrames / _phaseTime + " fps");
+            }
+            _baked = !_baked;
+            final boolean baked = _baked;
+            GameTaskQueueManager.getManager(_canvas).render(new RendererCallable<Void>() {
+                public Void call() throws Exception {
+                    if (getRenderer() instanceof AndroidRenderer) {
+                        ((AndroidRenderer) getRenderer()).setLightBaker(baked ? _baker : null);
+                    }
+                    return null;
+                }
+            });
+            _phaseTime = 0;
+            _phaseFrames = 0;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 
 package com.ardor3d.example.android;
 
+import com.ardor3d.extension.effect.particle.Particle;
 import com.ardor3d.extension.effect.particle.ParticleFactory;
 import com.ardor3d.extension.effect.particle.ParticleSystem;
 import com.ardor3d.extension.effect.particle.ParticleSystem.ParticleType;
@@ -27,7 +28,9 @@ import com.ardor3d.renderer.RendererCallable;
 import com.ardor3d.renderer.state.BlendState;
 import com.ardor3d.renderer.state.TextureState;
 import com.ardor3d.renderer.state.ZBufferState;
+import com.ardor3d.scenegraph.Mesh;
 import com.ardor3d.scenegraph.Node;
+import com.ardor3d.scenegraph.android.AndroidPointSpriteMesh;
 import com.ardor3d.scenegraph.hint.CullHint;
 import com.ardor3d.scenegraph.shape.Arrow;
 import com.ardor3d.scenegraph.shape.Disk;
@@ -161,5 +164,35 @@ public class AndroidNewDynamicSmokerExample extends AndroidExampleBase {
         zstate.setWritable(false);
         smoke.setRenderState(zstate);
         rocketEntityNode.attachChild(smoke);
+
+        drawSmokeAsPoints();
+    }
+
+    /**
+     * Draw one point sprite per particle in place of the particle triangles, which remain as the fallback for
+     * contexts without point size arrays.
+     */
+    private void drawSmokeAsPoints() {
+        final Mesh triangles = smoke.getParticleGeometry();
+        triangles.getSceneHints().setCullHint(CullHint.Always);
+
+        final AndroidPointSpriteMesh points = new AndroidPointSpriteMesh("smoke-points", smoke.getNumParticles()) {
+            @Override
+            public void updateWorldTransform(final boolean recurse) {
+                super.updateWorldTransform(recurse);
+                // particles are positioned in the space of the triangles, which the system updates first.
+                setWorldTransform(triangles.getWorldTransform());
+                int count = 0;
+                for (final Particle particle : smoke.getParticles()) {
+                    if (particle.getStatus() == Particle.Status.Alive) {
+                        setPoint(count++, particle.getPosition(), particle.getCurrentColor(),
+                                (float) particle.getCurrentSize() * 2);
+                    }
+                }
+                setPointCount(count);
+            }
+        };
+        points.setFallback(triangles);
+        smoke.attachChild(points);
     }
 }
\ No newline at end of file
@@ -39,6 +39,12 @@ public class ExampleRunner extends Activity {
                     case 3:
                         intent = new Intent(ExampleRunner.this, AndroidNewDynamicSmokerExample.class);
                         break;
+                    case 4:
+                        intent = new Intent(ExampleRunner.this, AndroidInterleavedBenchmarkExample.class);
+                        break;
+                    case 5:
+                        intent = new Intent(ExampleRunner.this, AndroidLightBakerBenchmarkExample.class);
+                        break;
 
                 }
                 if (intent != null) {
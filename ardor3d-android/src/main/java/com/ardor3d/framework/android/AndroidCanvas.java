@@ -19,7 +19,12 @@
 
 package com.ardor3d.framework.android;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -33,6 +38,7 @@ import com.ardor3d.framework.DisplaySettings;
 import com.ardor3d.math.ColorRGBA;
 import com.ardor3d.renderer.Camera;
 import com.ardor3d.renderer.ContextManager;
+import com.ardor3d.renderer.android.AndroidGLCommandBuffer;
 
 public class AndroidCanvas extends GLSurfaceView implements com.ardor3d.framework.Canvas, GLSurfaceView.Renderer {
 
@@ -44,6 +50,33 @@ public class AndroidCanvas extends GLSurfaceView implements com.ardor3d.framewor
     private volatile boolean _updated = false;
     private CountDownLatch _latch = null;
 
+    // used when the canvas renderer records.
+    private final AndroidGLCommandBuffer _commands = new AndroidGLCommandBuffer();
+    // set once the GL surface exists.
+    private volatile boolean _ready = false;
+
+    // notified when the surface gets ready and when a frame drawn through drawAndWait is done.
+    private final Object _frameLock = new Object();
+    private int _framesDrawn;
+
+    /** A frame recorded by the pipelined loop, waiting to be or being replayed. */
+    private static class PipelinedFrame {
+        final AndroidGLCommandBuffer _commands = new AndroidGLCommandBuffer();
+        long _startTime;
+        AndroidFrameLatencyStats _stats;
+
+        PipelinedFrame() {
+            // the update of the next frame runs while this one is replayed, so data must be copied.
+            _commands.setCopyData(true);
+        }
+    }
+
+    private int _pipelineDepth = 0;
+    private int _pipelineFrames = 0;
+    private final BlockingQueue<PipelinedFrame> _freeFrames = new LinkedBlockingQueue<PipelinedFrame>();
+    private final BlockingQueue<PipelinedFrame> _queuedFrames = new LinkedBlockingQueue<PipelinedFrame>();
+    private final Map<Integer, AndroidFrameLatencyStats> _stats = new HashMap<Integer, AndroidFrameLatencyStats>();
+
     public AndroidCanvas(final DisplaySettings settings, final AndroidCanvasRenderer canvasRenderer,
             final Context context) {
         super(context);
@@ -53,6 +86,9 @@ public class AndroidCanvas extends GLSurfaceView implements com.ardor3d.framewor
         // Uncomment if you need to debug things.
         // setDebugFlags(GLSurfaceView.DEBUG_CHECK_GL_ERROR | GLSurfaceView.DEBUG_LOG_GL_CALLS);
 
+        if (_canvasRenderer.isUseGLES20()) {
+            setEGLContextClientVersion(2);
+        }
         setEGLConfigChooser(8, 8, 8, 8, _settings.getDepthBits(), _settings.getStencilBits());
         setRenderer(this);
         setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
@@ -63,12 +99,163 @@ public class AndroidCanvas extends GLSurfaceView implements com.ardor3d.framewor
             return;
         }
 
+        if (_canvasRenderer.isRecordingEnabled()) {
+            if (!_ready) {
+                if (latch != null) {
+                    latch.countDown();
+                }
+                return;
+            }
+            // traverse the scene here, leaving only the replay to the GL thread.
+            synchronized (_canvasRenderer) {
+                _canvasRenderer.record(_commands);
+            }
+        }
+
         _updated = true;
         _latch = latch;
 
         requestRender();
     }
 
+    /**
+     * Draw a frame like {@link #draw(CountDownLatch)} and wait for the GL thread to finish it, reusing one lock rather
+     * than a latch per frame.
+     *
+     * @return false if the GL surface is not ready, or the frame wasn't done within the given time.
+     */
+    public boolean drawAndWait(final long timeoutMillis) {
+        if (!_ready) {
+            return false;
+        }
+        final int frame;
+        synchronized (_frameLock) {
+            frame = _framesDrawn + 1;
+        }
+        draw(null);
+        return waitFor(frame, timeoutMillis);
+    }
+
+    public boolean isReady() {
+        return _ready;
+    }
+
+    /**
+     * Block until the GL surface is ready.
+     *
+     * @return false if it wasn't ready within the given time.
+     */
+    public boolean waitUntilReady(final long timeoutMillis) {
+        return waitFor(-1, timeoutMillis);
+    }
+
+    /**
+     * Wait until the given frame was drawn, or until the surface is ready for a negative frame.
+     */
+    private boolean waitFor(final int frame, final long timeoutMillis) {
+        final long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+        synchronized (_frameLock) {
+            while (frame < 0 ? !_ready : _framesDrawn - frame < 0) {
+                final long remaining = (deadline - System.nanoTime()) / 1000000L;
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    _frameLock.wait(remaining);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set how many recorded frames may be in flight between the game loop and the GL thread. 0 (the default) disables
+     * pipelining; frames are then drawn through {@link #draw(CountDownLatch)}. Pipelining requires a recording canvas
+     * renderer. Should be called from the game loop thread.
+     */
+    public void setPipelineDepth(final int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must be >= 0: " + depth);
+        }
+        if (depth > 0 && !_canvasRenderer.isRecordingEnabled()) {
+            Log.w(AndroidCanvas.TAG, "AndroidCanvas.setPipelineDepth - pipelining requires command recording.");
+            return;
+        }
+
+        while (_pipelineFrames > depth) {
+            // wait for frames in flight to come back.
+            try {
+                if (_freeFrames.poll(1, TimeUnit.SECONDS) == null) {
+                    Log.w(AndroidCanvas.TAG, "AndroidCanvas.setPipelineDepth - timed out waiting for queued frames.");
+                    break;
+                }
+            } catch (final InterruptedException e) {
+                break;
+            }
+            _pipelineFrames--;
+        }
+        while (_pipelineFrames < depth) {
+            _freeFrames.add(new PipelinedFrame());
+            _pipelineFrames++;
+        }
+        _pipelineDepth = depth;
+    }
+
+    public int getPipelineDepth() {
+        return _pipelineDepth;
+    }
+
+    /**
+     * @return latency stats of the frames queued while the pipeline had the given depth.
+     */
+    public AndroidFrameLatencyStats getLatencyStats(final int depth) {
+        synchronized (_stats) {
+            AndroidFrameLatencyStats stats = _stats.get(depth);
+            if (stats == null) {
+                stats = new AndroidFrameLatencyStats(depth);
+                _stats.put(depth, stats);
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Record the current state of the scene into a free pipelined frame and hand it to the GL thread. Blocks while all
+     * frames are in flight.
+     *
+     * @param startTime
+     *            the {@link System#nanoTime()} the update of this frame started at, used for the latency stats.
+     * @return false if no frame could be queued, e.g. because the GL surface is not ready.
+     */
+    public boolean queueFrame(final long startTime) {
+        if (!_ready) {
+            return false;
+        }
+
+        final PipelinedFrame frame;
+        try {
+            frame = _freeFrames.poll(1, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            return false;
+        }
+        if (frame == null) {
+            return false;
+        }
+
+        frame._startTime = startTime;
+        frame._stats = getLatencyStats(_pipelineDepth);
+        synchronized (_canvasRenderer) {
+            _canvasRenderer.record(frame._commands);
+        }
+        _queuedFrames.add(frame);
+
+        requestRender();
+        return true;
+    }
+
     public CanvasRenderer getCanvasRenderer() {
         return _canvasRenderer;
     }
@@ -79,6 +266,21 @@ public class AndroidCanvas extends GLSurfaceView implements com.ardor3d.framewor
     }
 
     public void onDrawFrame(final GL10 gl) {
+        final PipelinedFrame frame = _queuedFrames.poll();
+        if (frame != null) {
+            // the next frame may be recording meanwhile, so only the replaying side may change here.
+            _canvasRenderer.setReplayGL(gl);
+            _canvasRenderer.replay(frame._commands);
+            frame._stats.addSample(System.nanoTime() - frame._startTime);
+            _freeFrames.add(frame);
+
+            // render requests may have been merged, come back for the rest.
+            if (!_queuedFrames.isEmpty()) {
+                requestRender();
+            }
+            return;
+        }
+
         if (!_updated) {
             return;
         }
@@ -87,28 +289,56 @@ public class AndroidCanvas extends GLSurfaceView implements com.ardor3d.framewor
         _canvasRenderer.setGL(gl);
 
         // draw canvas
-        _canvasRenderer.draw();
+        if (_canvasRenderer.isRecordingEnabled()) {
+            _canvasRenderer.replay(_commands);
+        } else {
+            _canvasRenderer.draw();
+        }
 
         _updated = false;
         if (_latch != null) {
             _latch.countDown();
         }
+        synchronized (_frameLock) {
+            _framesDrawn++;
+            _frameLock.notifyAll();
+        }
     }
 
     public void onSurfaceChanged(final GL10 gl, final int width, final int height) {
         Log.d(AndroidCanvas.TAG, "AndroidCanvas.onSurfaceChanged - " + width + ", " + height);
 
-        // make sure GL is recent
-        _canvasRenderer.setGL(gl);
+        synchronized (_canvasRenderer) {
+            // make sure GL is recent
+            _canvasRenderer.setGL(gl);
 
-        final Camera cam = _canvasRenderer.getCamera();
-        cam.resize(width, height);
-        cam.setFrustumPerspective(cam.getFovY(), width / (float) height, cam.getFrustumNear(), cam.getFrustumFar());
+            final Camera cam = _canvasRenderer.getCamera();
+            cam.resize(width, height);
+            cam.setFrustumPerspective(cam.getFovY(), width / (float) height, cam.getFrustumNear(),
+                    cam.getFrustumFar());
+        }
     }
 
     public void onSurfaceCreated(final GL10 gl, final EGLConfig arg1) {
         Log.d(AndroidCanvas.TAG, "AndroidCanvas.onSurfaceCreated");
 
+        // a recording canvas renderer may be in use by the game loop thread.
+        synchronized (_canvasRenderer) {
+            surfaceCreated(gl);
+        }
+
+        // frames recorded against the old context refer to objects that no longer exist.
+        PipelinedFrame stale;
+        while ((stale = _queuedFrames.poll()) != null) {
+            _freeFrames.add(stale);
+        }
+        synchronized (_frameLock) {
+            _ready = true;
+            _frameLock.notifyAll();
+        }
+    }
+
+    private void surfaceCreated(final GL10 gl) {
         // make sure GL is recent
         _canvasRenderer.setGL(gl);
 
@@ -21,6 +21,7 @@ package com.ardor3d.framework.android;
 
 import javax.microedition.khronos.opengles.GL10;
 
+import android.os.Debug;
 import android.util.Log;
 
 import com.ardor3d.framework.CanvasRenderer;
@@ -34,6 +35,11 @@ import com.ardor3d.renderer.ContextManager;
 import com.ardor3d.renderer.RenderContext;
 import com.ardor3d.renderer.Renderer;
 import com.ardor3d.renderer.android.AndroidContextCapabilities;
+import com.ardor3d.renderer.android.AndroidGLCommandBuffer;
+import com.ardor3d.renderer.android.AndroidGLES20Renderer;
+import com.ardor3d.renderer.android.AndroidDebugGL;
+import com.ardor3d.renderer.android.AndroidRenderContext;
+import com.ardor3d.renderer.android.AndroidRecordingGL;
 import com.ardor3d.renderer.android.AndroidRenderer;
 
 public class AndroidCanvasRenderer implements CanvasRenderer {
@@ -44,10 +50,32 @@ public class AndroidCanvasRenderer implements CanvasRenderer {
     protected Object _context = new Object();
     protected int _frameClear = Renderer.BUFFER_COLOR_AND_DEPTH;
 
+    protected final boolean _useGLES20;
+    protected AndroidRecordingGL _recorder;
+    protected AndroidDebugGL _debugGL;
+
+    /** Frames drawn before allocation checks start complaining, giving caches and pools time to fill. */
+    public static final int ALLOCATION_CHECK_WARMUP_FRAMES = 60;
+
+    protected boolean _checkAllocations = false;
+    private int _allocationCheckedFrames;
+    private int _lastFrameAllocations = -1;
+
     private RenderContext _currentContext;
 
     public AndroidCanvasRenderer(final Scene scene) {
+        this(scene, false);
+    }
+
+    /**
+     * @param scene
+     *            the scene to render
+     * @param useGLES20
+     *            if true, render through an OpenGL ES 2.0 context using {@link AndroidGLES20Renderer}.
+     */
+    public AndroidCanvasRenderer(final Scene scene, final boolean useGLES20) {
         _scene = scene;
+        _useGLES20 = useGLES20;
         _renderer = createRenderer();
 
         /** Set up a default camera. */
@@ -63,24 +91,76 @@ public class AndroidCanvasRenderer implements CanvasRenderer {
 
     @Override
     public AndroidRenderer createRenderer() {
+        if (_useGLES20) {
+            return new AndroidGLES20Renderer();
+        }
         return new AndroidRenderer();
     }
 
+    public boolean isUseGLES20() {
+        return _useGLES20;
+    }
+
+    /**
+     * Enable recording, allowing {@link #record(AndroidGLCommandBuffer)} to run the scene off the GL thread. Must be
+     * set before the GL surface is created. Not supported with OpenGL ES 2.0, which is driven through static calls.
+     */
+    public void setRecordingEnabled(final boolean enabled) {
+        if (enabled && _useGLES20) {
+            Log.w(AndroidCanvas.TAG, "AndroidCanvasRenderer.setRecordingEnabled - not supported with OpenGL ES 2.0.");
+            return;
+        }
+        _recorder = enabled ? new AndroidRecordingGL() : null;
+    }
+
+    public boolean isRecordingEnabled() {
+        return _recorder != null;
+    }
+
+    /**
+     * Choose how GL errors are checked; see {@link AndroidDebugGL}. Takes effect with the next GL handed to
+     * {@link #setGL(GL10)}.
+     */
+    public void setDebugMode(final AndroidDebugGL.Mode mode) {
+        _debugGL = mode != AndroidDebugGL.Mode.OFF ? new AndroidDebugGL(mode) : null;
+    }
+
+    public AndroidDebugGL.Mode getDebugMode() {
+        return _debugGL != null ? _debugGL.getMode() : AndroidDebugGL.Mode.OFF;
+    }
+
+    /**
+     * @return the debug GL in use, or null if the debug mode is off.
+     */
+    public AndroidDebugGL getDebugGL() {
+        return _debugGL;
+    }
+
     public void init(final DisplaySettings settings, final boolean doSwap) {
         _doSwap = doSwap;
 
+        // a new context starts without any objects, so object names can be handed out from scratch.
+        if (_recorder != null) {
+            _recorder.reset();
+        }
+        if (_debugGL != null) {
+            _debugGL.reset();
+        }
+
         final AndroidContextCapabilities caps = new AndroidContextCapabilities(_renderer.getGL());
         Log.i(AndroidCanvas.TAG, "Display Vendor: " + caps.getDisplayVendor());
         Log.i(AndroidCanvas.TAG, "Display Renderer: " + caps.getDisplayRenderer());
         Log.i(AndroidCanvas.TAG, "Display Version: " + caps.getDisplayVersion());
         Log.i(AndroidCanvas.TAG, "Shading Language Version: " + caps.getShadingLanguageVersion());
 
-        _currentContext = new RenderContext(this, caps, null);
+        _currentContext = new AndroidRenderContext(this, caps);
 
         ContextManager.addContext(this, _currentContext);
         ContextManager.switchContext(this);
+        _renderer.resetFrameContext();
 
-        if (settings.getSamples() != 0 && caps.isMultisampleSupported()) {
+        // multisampling is always on in OpenGL ES 2.0 if the config has samples.
+        if (settings.getSamples() != 0 && caps.isMultisampleSupported() && !caps.isOES20Suported()) {
             _renderer.getGL().glEnable(GL10.GL_MULTISAMPLE);
         }
 
@@ -92,12 +172,78 @@ public class AndroidCanvasRenderer implements CanvasRenderer {
     }
 
     public void setGL(final GL10 gl) {
-        if (_renderer != null) {
-            _renderer.setGL(gl);
+        final GL10 wrapped = _debugGL != null ? _debugGL.wrap(gl) : gl;
+        if (_recorder != null) {
+            _recorder.setDelegate(wrapped);
+            if (_renderer != null) {
+                _renderer.setGL(_recorder.getGL());
+            }
+        } else if (_renderer != null) {
+            _renderer.setGL(wrapped);
         }
     }
 
+    /**
+     * Hand the given GL to the recorder for replaying, leaving the renderer alone. Its GL is always the recorder's while
+     * recording, and with pipelining it may be recording the next frame on another thread, so unlike
+     * {@link #setGL(GL10)} this is safe to call from the GL thread without holding this canvas renderer's lock.
+     */
+    public void setReplayGL(final GL10 gl) {
+        _recorder.setDelegate(_debugGL != null ? _debugGL.wrap(gl) : gl);
+    }
+
+    /**
+     * Run {@link #draw()}, capturing the resulting GL calls into the given buffer rather than issuing them. May be
+     * called from any thread, as long as it does not overlap other use of this canvas renderer.
+     */
+    public boolean record(final AndroidGLCommandBuffer buffer) {
+        _recorder.beginRecording(buffer);
+        try {
+            return draw();
+        } finally {
+            _recorder.endRecording();
+        }
+    }
+
+    /**
+     * Issue the calls captured by {@link #record(AndroidGLCommandBuffer)}. Must be called from the GL thread.
+     */
+    public void replay(final AndroidGLCommandBuffer buffer) {
+        _recorder.replay(buffer);
+        if (_debugGL != null) {
+            _debugGL.endFrame();
+        }
+    }
+
+    /**
+     * @param checkAllocations
+     *            if true, count the objects allocated on the drawing thread during each {@link #draw()} and log a
+     *            warning for every frame that allocates once past the warmup frames. Meant for catching garbage on the
+     *            render path during development, as counting slows allocation down.
+     */
+    public void setCheckAllocations(final boolean checkAllocations) {
+        _checkAllocations = checkAllocations;
+        _allocationCheckedFrames = 0;
+        _lastFrameAllocations = -1;
+    }
+
+    public boolean isCheckAllocations() {
+        return _checkAllocations;
+    }
+
+    /**
+     * @return the number of objects allocated by the last checked frame, or -1 if allocations are not checked.
+     */
+    public int getLastFrameAllocations() {
+        return _lastFrameAllocations;
+    }
+
     public boolean draw() {
+        final boolean checkAllocations = _checkAllocations;
+        if (checkAllocations) {
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocCount();
+        }
 
         // set up context for rendering this canvas
         makeCurrentContext();
@@ -113,10 +259,23 @@ public class AndroidCanvasRenderer implements CanvasRenderer {
 
         final boolean drew = _scene.renderUnto(_renderer);
         _renderer.flushFrame(drew && _doSwap);
+        // while recording, the frame ends once it is replayed.
+        if (_debugGL != null && (_recorder == null || !_recorder.isRecording())) {
+            _debugGL.endFrame();
+        }
 
         // release the context
         releaseCurrentContext();
 
+        if (checkAllocations) {
+            _lastFrameAllocations = Debug.getThreadAllocCount();
+            Debug.stopAllocCounting();
+            if (++_allocationCheckedFrames > ALLOCATION_CHECK_WARMUP_FRAMES && _lastFrameAllocations > 0) {
+                Log.w(AndroidCanvas.TAG, "AndroidCanvasRenderer.draw - frame allocated " + _lastFrameAllocations
+                        + " objects, " + Debug.getThreadAllocSize() + " bytes.");
+            }
+        }
+
         return drew;
     }
 
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.framework.android;
+
+/**
+ * Latency of pipelined frames, measured from the start of a frame's update to the end of its replay on the GL thread.
+ * Samples are added from the GL thread and may be read from any thread.
+ */
+public class AndroidFrameLatencyStats {
+    private final int _depth;
+    private long _frames;
+    private long _total;
+    private long _min = Long.MAX_VALUE;
+    private long _max;
+
+    public AndroidFrameLatencyStats(final int depth) {
+        _depth = depth;
+    }
+
+    /**
+     * @return the pipeline depth these stats were gathered at.
+     */
+    public int getDepth() {
+        return _depth;
+    }
+
+    public synchronized void addSample(final long nanos) {
+        _frames++;
+        _total += nanos;
+        if (nanos < _min) {
+            _min = nanos;
+        }
+        if (nanos > _max) {
+            _max = nanos;
+        }
+    }
+
+    public synchronized long getFrameCount() {
+        return _frames;
+    }
+
+    /**
+     * @return the average latency in nanoseconds, or 0 if no frames were measured.
+     */
+    public synchronized long getAverageLatency() {
+        return _frames != 0 ? _total / _frames : 0;
+    }
+
+    public synchronized long getMinLatency() {
+        return _frames != 0 ? _min : 0;
+    }
+
+    public synchronized long getMaxLatency() {
+        return _max;
+    }
+
+    public synchronized void reset() {
+        _frames = 0;
+        _total = 0;
+        _min = Long.MAX_VALUE;
+        _max = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "depth " + _depth + ": " + _frames + " frames, avg " + getAverageLatency() / 1000000.0 + " ms, min "
+                + getMinLatency() / 1000000.0 + " ms, max " + _max / 1000000.0 + " ms";
+    }
+}
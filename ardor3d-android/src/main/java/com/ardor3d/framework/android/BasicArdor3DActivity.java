@@ -19,9 +19,6 @@
 
 package com.ardor3d.framework.android;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
-
 import android.app.Activity;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
@@ -41,6 +38,7 @@ import com.ardor3d.input.android.AndroidKeyWrapper;
 import com.ardor3d.input.android.AndroidMouseWrapper;
 import com.ardor3d.input.logical.LogicalLayer;
 import com.ardor3d.renderer.ContextManager;
+import com.ardor3d.renderer.android.AndroidDebugGL;
 import com.ardor3d.renderer.state.TextureState;
 import com.ardor3d.scene.state.android.AndroidTextureStateUtil;
 import com.ardor3d.util.ContextGarbageCollector;
@@ -75,7 +73,9 @@ public abstract class BasicArdor3DActivity extends Activity implements Runnable
         Log.e(AndroidCanvas.TAG, "*******ONCREATE");
 
         // Create our renderer and canvas
-        _canvasRenderer = new AndroidCanvasRenderer(getScene());
+        _canvasRenderer = new AndroidCanvasRenderer(getScene(), useGLES20());
+        _canvasRenderer.setRecordingEnabled(useCommandRecording());
+        _canvasRenderer.setDebugMode(getDebugMode());
         _canvas = new AndroidCanvas(getSettings(), _canvasRenderer, this);
 
         // input
@@ -97,6 +97,38 @@ public abstract class BasicArdor3DActivity extends Activity implements Runnable
 
     protected abstract Scene getScene();
 
+    /**
+     * @return true to render through an OpenGL ES 2.0 context instead of the fixed function ES 1.x pipeline.
+     */
+    protected boolean useGLES20() {
+        return false;
+    }
+
+    /**
+     * @return true to traverse and record the scene on the game loop thread, leaving only the replay of the recorded
+     *         GL calls to the GL thread. Not available with OpenGL ES 2.0.
+     */
+    protected boolean useCommandRecording() {
+        return false;
+    }
+
+    /**
+     * @return how many frames the game loop may run ahead of the GL thread, updating the next frame while the previous
+     *         one is rendered. 0 runs update and render strictly in turn. Requires {@link #useCommandRecording()}; the
+     *         depth may be changed later through {@link AndroidCanvas#setPipelineDepth(int)} from the game loop.
+     */
+    protected int getPipelineDepth() {
+        return 0;
+    }
+
+    /**
+     * @return how GL errors are checked. {@link AndroidDebugGL.Mode#OFF} by default, so release builds never poll the
+     *         driver for errors.
+     */
+    protected AndroidDebugGL.Mode getDebugMode() {
+        return AndroidDebugGL.Mode.OFF;
+    }
+
     protected DisplaySettings getSettings() {
         return new DisplaySettings(100, 100, 16, 0, 0, 16, 0, 0, false, false);
     }
@@ -125,19 +157,28 @@ public abstract class BasicArdor3DActivity extends Activity implements Runnable
 
     public void run() {
         Log.i(AndroidCanvas.TAG, "Ardor3DActivity.run - starting game loop");
+        if (_canvas.getPipelineDepth() == 0 && getPipelineDepth() > 0) {
+            _canvas.setPipelineDepth(getPipelineDepth());
+        }
         while (!_endThread) {
+            // don't let the game run ahead while nothing can be drawn.
+            if (!_canvas.isReady()) {
+                _canvas.waitUntilReady(100);
+                _timer.reset();
+                continue;
+            }
+
             // update timer
             _timer.update();
 
+            final long frameStart = System.nanoTime();
             doUpdate(_timer.getTimePerFrame());
 
-            final CountDownLatch latch = new CountDownLatch(1);
-            _canvas.draw(latch);
-
-            try {
-                latch.await(1, TimeUnit.SECONDS);
-            } catch (final InterruptedException e) {
-                ; // ignore
+            if (_canvas.getPipelineDepth() > 0) {
+                // blocks only while all frames are in flight, so the update above overlaps earlier frames' rendering.
+                _canvas.queueFrame(frameStart);
+            } else {
+                _canvas.drawAndWait(1000);
             }
 
             Thread.yield();
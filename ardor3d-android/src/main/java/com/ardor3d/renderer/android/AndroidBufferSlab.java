@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.ardor3d.scenegraph.ByteBufferData;
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.IndexBufferData;
+import com.ardor3d.scenegraph.IntBufferData;
+import com.ardor3d.scenegraph.ShortBufferData;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * Hands out small direct buffers as slices of a few large ones, instead of a native allocation each, for scenes built
+ * from many small meshes; the Java side counterpart of {@link AndroidVBOArena}. Slabs are filled in order, and a slab
+ * is left to the garbage collector once every buffer sliced from it was collected.
+ * <p>
+ * Buffers larger than a quarter slab are allocated on their own through {@link BufferUtils}.
+ */
+public final class AndroidBufferSlab {
+
+    public static final int SLAB_BYTES = 1024 * 1024;
+
+    private static final int ALIGNMENT = 16;
+
+    private static class Slab {
+        private final ByteBuffer _buffer = ByteBuffer.allocateDirect(SLAB_BYTES).order(ByteOrder.nativeOrder());
+        private int _used;
+        private int _live;
+    }
+
+    private static class Slice extends WeakReference<Buffer> {
+        private final Slab _slab;
+
+        Slice(final Buffer view, final Slab slab) {
+            super(view, _queue);
+            _slab = slab;
+        }
+    }
+
+    private static final ReferenceQueue<Buffer> _queue = new ReferenceQueue<Buffer>();
+    // keeps the references themselves alive until their buffers are collected
+    private static final Set<Slice> _slices = new HashSet<Slice>();
+    private static Slab _current;
+
+    private AndroidBufferSlab() {}
+
+    public static synchronized ByteBuffer createByteBuffer(final int bytes) {
+        final ByteBuffer slice = slice(bytes);
+        return slice != null ? track(slice) : BufferUtils.createByteBuffer(bytes);
+    }
+
+    public static synchronized ShortBuffer createShortBuffer(final int shorts) {
+        final ByteBuffer slice = slice(shorts * 2);
+        return slice != null ? track(slice.asShortBuffer()) : BufferUtils.createShortBuffer(shorts);
+    }
+
+    public static synchronized IntBuffer createIntBuffer(final int ints) {
+        final ByteBuffer slice = slice(ints * 4);
+        return slice != null ? track(slice.asIntBuffer()) : BufferUtils.createIntBuffer(ints);
+    }
+
+    public static synchronized FloatBuffer createFloatBuffer(final int floats) {
+        final ByteBuffer slice = slice(floats * 4);
+        return slice != null ? track(slice.asFloatBuffer()) : BufferUtils.createFloatBuffer(floats);
+    }
+
+    public static FloatBufferData createFloatBufferData(final int tuples, final int valuesPerTuple) {
+        return new FloatBufferData(createFloatBuffer(tuples * valuesPerTuple), valuesPerTuple);
+    }
+
+    /**
+     * @return index data of the smallest type able to hold the given index.
+     */
+    public static IndexBufferData<?> createIndexBufferData(final int size, final int maxIndex) {
+        if (maxIndex < 256) {
+            return new ByteBufferData(createByteBuffer(size));
+        } else if (maxIndex < 65536) {
+            return new ShortBufferData(createShortBuffer(size));
+        }
+        return new IntBufferData(createIntBuffer(size));
+    }
+
+    /**
+     * @return a slice of the current slab, or null if the buffer should get its own allocation.
+     */
+    private static ByteBuffer slice(final int bytes) {
+        reclaim();
+        if (bytes > SLAB_BYTES / 4) {
+            return null;
+        }
+
+        final int size = bytes + ALIGNMENT - 1 & ~(ALIGNMENT - 1);
+        if (_current == null || _current._used + size > SLAB_BYTES) {
+            _current = new Slab();
+        }
+        final ByteBuffer whole = _current._buffer;
+        whole.limit(_current._used + bytes).position(_current._used);
+        // slices always start out big endian.
+        final ByteBuffer slice = whole.slice().order(ByteOrder.nativeOrder());
+        whole.clear();
+        _current._used += size;
+        return slice;
+    }
+
+    private static <T extends Buffer> T track(final T view) {
+        _slices.add(new Slice(view, _current));
+        _current._live++;
+        return view;
+    }
+
+    private static void reclaim() {
+        Slice slice;
+        while ((slice = (Slice) _queue.poll()) != null) {
+            _slices.remove(slice);
+            final Slab slab = slice._slab;
+            slab._live--;
+            if (slab._live == 0 && slab == _current) {
+                // nothing left in it, so fill it again from the start.
+                slab._used = 0;
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.nio.FloatBuffer;
 import javax.microedition.khronos.opengles.GL10;
 import javax.microedition.khronos.opengles.GL11;
 
+import android.opengl.GLES20;
 import android.util.Log;
 
 import com.ardor3d.framework.android.AndroidCanvas;
@@ -35,6 +36,9 @@ public class AndroidContextCapabilities extends ContextCapabilities {
     private final String _exts;
     private final boolean _supports_ES1_1;
     private final boolean _supports_ES1_0;
+    private final boolean _supports_ES2_0;
+    private final boolean _supportsElementIndexUint;
+    private final boolean _supportsPointSizeArray;
 
     /**
      * Detect supported extensions.
@@ -47,8 +51,9 @@ public class AndroidContextCapabilities extends ContextCapabilities {
         // Grab our version
         final String version = gl.glGetString(GL10.GL_VERSION);
         Log.i(AndroidCanvas.TAG, "AndroidContextCapabilities() - reported gl version: " + version);
-        _supports_ES1_1 = version.indexOf("1.1") >= 0;
-        _supports_ES1_0 = _supports_ES1_1 || version.indexOf("1.0") >= 0;
+        _supports_ES2_0 = version.indexOf("OpenGL ES 2") >= 0 || version.indexOf("OpenGL ES 3") >= 0;
+        _supports_ES1_1 = !_supports_ES2_0 && version.indexOf("1.1") >= 0;
+        _supports_ES1_0 = _supports_ES1_1 || !_supports_ES2_0 && version.indexOf("1.0") >= 0;
 
         // Grab our extensions
         _exts = gl.glGetString(GL10.GL_EXTENSIONS);
@@ -57,10 +62,11 @@ public class AndroidContextCapabilities extends ContextCapabilities {
         // Reusable buffer
         final int[] idBuffer = new int[1];
 
-        _supportsVBO = _supports_ES1_1 || isExtensionAvailable("GL_ARB_vertex_buffer_object")
+        _supportsVBO = _supports_ES1_1 || _supports_ES2_0 || isExtensionAvailable("GL_ARB_vertex_buffer_object")
                 || isExtensionAvailable("GL_OES_vertex_buffer_object");
+        _supportsElementIndexUint = isExtensionAvailable("GL_OES_element_index_uint");
 
-        _supportsMultisample = _supports_ES1_0;
+        _supportsMultisample = _supports_ES1_0 || _supports_ES2_0;
 
         _supportsConstantColor = false; // Not available in 1.0 or 1.1
         _supportsSeparateFunc = false;
@@ -77,8 +83,12 @@ public class AndroidContextCapabilities extends ContextCapabilities {
         _supportsFragmentProgram = false;
         _supportsVertexProgram = false;
 
-        _supportsPointSprites = isExtensionAvailable("GL_ARB_point_sprite");
-        _supportsPointParameters = isExtensionAvailable("GL_ARB_point_parameters");
+        // ES 1.1 has point parameters in core and exposes sprites and size arrays as OES extensions, while sprites are
+        // always available to ES 2.0 shaders through gl_PointCoord.
+        _supportsPointSprites = _supports_ES2_0 || isExtensionAvailable("GL_OES_point_sprite")
+                || isExtensionAvailable("GL_ARB_point_sprite");
+        _supportsPointParameters = _supports_ES1_1 || isExtensionAvailable("GL_ARB_point_parameters");
+        _supportsPointSizeArray = _supports_ES1_1 && isExtensionAvailable("GL_OES_point_size_array");
 
         _supportsTextureLodBias = false;
         if (_supportsTextureLodBias) {
@@ -88,22 +98,26 @@ public class AndroidContextCapabilities extends ContextCapabilities {
             _maxTextureLodBias = 0f;
         }
 
-        // max user clips
-        gl.glGetIntegerv(GL11.GL_MAX_CLIP_PLANES, idBuffer, 0);
-        _maxUserClipPlanes = idBuffer[0];
+        // max user clips - user clip planes are not part of OpenGL ES 2.0
+        if (_supports_ES2_0) {
+            _maxUserClipPlanes = 0;
+        } else {
+            gl.glGetIntegerv(GL11.GL_MAX_CLIP_PLANES, idBuffer, 0);
+            _maxUserClipPlanes = idBuffer[0];
+        }
 
-        _glslSupported = false;
+        _glslSupported = _supports_ES2_0;
 
         if (_glslSupported) {
-            // gl.glGetInteger(GL10.GL_MAX_VERTEX_ATTRIBS_ARB, buf);
-            // _maxGLSLVertexAttribs = buf.get(0);
+            GLES20.glGetIntegerv(GLES20.GL_MAX_VERTEX_ATTRIBS, idBuffer, 0);
+            _maxGLSLVertexAttribs = idBuffer[0];
         }
 
         // Pbuffer
         _pbufferSupported = false; // XXX: not sure here...
 
         // FBO
-        _fboSupported = isExtensionAvailable("GL_OES_framebuffer_object");
+        _fboSupported = _supports_ES2_0 || isExtensionAvailable("GL_OES_framebuffer_object");
         if (_fboSupported) {
             _maxFBOColorAttachments = 1;
         } else {
@@ -122,7 +136,7 @@ public class AndroidContextCapabilities extends ContextCapabilities {
         _maxTextureSize = idBuffer[0];
 
         // Check for support of multitextures.
-        _supportsMultiTexture = _supports_ES1_0;
+        _supportsMultiTexture = _supports_ES1_0 || _supports_ES2_0;
 
         // Check for support of fixed function dot3 environment settings
         _supportsEnvDot3 = _supports_ES1_1;
@@ -130,15 +144,19 @@ public class AndroidContextCapabilities extends ContextCapabilities {
         // Check for support of combine environment settings
         _supportsEnvCombine = _supports_ES1_1;
 
-        // Check for support of automatic mipmap generation
-        _automaticMipMaps = _supports_ES1_1;
+        // Check for support of automatic mipmap generation (glGenerateMipmap in 2.0)
+        _automaticMipMaps = _supports_ES1_1 || _supports_ES2_0;
 
         _supportsDepthTexture = false; // No GL_DEPTH_TEXTURE_MODE?
         _supportsShadow = false; // No GL_TEXTURE_COMPARE_MODE?
 
         // If we do support multitexturing, find out how many textures we
         // can handle.
-        if (_supportsMultiTexture) {
+        if (_supports_ES2_0) {
+            // no fixed function units - report what the fragment shader can sample from.
+            GLES20.glGetIntegerv(GLES20.GL_MAX_TEXTURE_IMAGE_UNITS, idBuffer, 0);
+            _numFixedTexUnits = idBuffer[0];
+        } else if (_supportsMultiTexture) {
             gl.glGetIntegerv(GL10.GL_MAX_TEXTURE_UNITS, idBuffer, 0);
             _numFixedTexUnits = idBuffer[0];
         } else {
@@ -184,7 +202,7 @@ public class AndroidContextCapabilities extends ContextCapabilities {
         _supportsTexture3D = false; // No support for GL_TEXTURE_3D in Android
 
         // Check for cubemap capability.
-        _supportsTextureCubeMap = isExtensionAvailable("GL_OES_texture_cube_map");
+        _supportsTextureCubeMap = _supports_ES2_0 || isExtensionAvailable("GL_OES_texture_cube_map");
 
         // See if we support anisotropic filtering
         _supportsAniso = isExtensionAvailable("GL_EXT_texture_filter_anisotropic");
@@ -206,11 +224,11 @@ public class AndroidContextCapabilities extends ContextCapabilities {
         // See if we support textures that do not have width == height.
         _supportsRectangular = false; // No support for GL_TEXTURE_RECTANGLE?
 
-        _supportsMirroredRepeat = isExtensionAvailable("GL_OES_texture_mirrored_repeat");
+        _supportsMirroredRepeat = _supports_ES2_0 || isExtensionAvailable("GL_OES_texture_mirrored_repeat");
         // No support for GL_MIRROR_CLAMP_XXX?
         _supportsMirrorClamp = _supportsMirrorEdgeClamp = _supportsMirrorBorderClamp = false;
         _supportsBorderClamp = false; // No support for GL_CLAMP_TO_BORDER?
-        _supportsEdgeClamp = _supports_ES1_0;
+        _supportsEdgeClamp = _supports_ES1_0 || _supports_ES2_0;
 
         try {
             _displayVendor = gl.glGetString(GL10.GL_VENDOR);
@@ -245,4 +263,22 @@ public class AndroidContextCapabilities extends ContextCapabilities {
     public boolean isOES11Suported() {
         return _supports_ES1_1;
     }
+
+    public boolean isOES20Suported() {
+        return _supports_ES2_0;
+    }
+
+    /**
+     * @return true if glDrawElements accepts GL_UNSIGNED_INT indices.
+     */
+    public boolean isElementIndexUintSupported() {
+        return _supportsElementIndexUint;
+    }
+
+    /**
+     * @return true if point sizes can be given per vertex through GL_POINT_SIZE_ARRAY_OES.
+     */
+    public boolean isPointSizeArraySupported() {
+        return _supportsPointSizeArray;
+    }
 }
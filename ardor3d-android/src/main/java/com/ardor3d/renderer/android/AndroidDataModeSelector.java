@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.ardor3d.scenegraph.AbstractBufferData;
+
+/**
+ * Picks client arrays or a kind of VBO for each buffer, from how often it was flagged for refresh while being drawn.
+ * Buffers start out as client arrays. Every {@link #getRevisitFrames()} frames, a buffer that was never refreshed
+ * moves to a static VBO, one refreshed on at least {@link #getFrequentRatio()} of the frames it was drawn in moves to
+ * client arrays, or a streaming VBO if {@link #isStreamFrequentUpdates()}, and anything in between to a dynamic VBO.
+ * <p>
+ * Used by {@link AndroidRenderer} for meshes drawn in {@code DataMode.Arrays}, once enabled with
+ * {@link AndroidRenderer#setAdaptiveDataMode(boolean)}.
+ */
+public class AndroidDataModeSelector {
+
+    public enum Mode {
+        ClientArrays, StaticVBO, DynamicVBO, StreamVBO;
+    }
+
+    public static final int DEFAULT_REVISIT_FRAMES = 60;
+    public static final float DEFAULT_FREQUENT_RATIO = 0.5f;
+
+    private static class Usage {
+        private Mode _mode = Mode.ClientArrays;
+        private int _windowStart;
+        private int _lastFrame = -1;
+        private int _framesDrawn;
+        private int _framesRefreshed;
+    }
+
+    // keyed by buffer data
+    private final Map<Object, Usage> _usages = new WeakHashMap<Object, Usage>();
+
+    private int _frame;
+    private int _revisitFrames = DEFAULT_REVISIT_FRAMES;
+    private float _frequentRatio = DEFAULT_FREQUENT_RATIO;
+    private boolean _streamFrequentUpdates = false;
+
+    public void nextFrame() {
+        _frame++;
+    }
+
+    /**
+     * Record that the given data is about to be drawn, and decide how.
+     *
+     * @return the mode to draw the data in. In {@link Mode#ClientArrays} the refresh flag is cleared here, as there is
+     *         no upload to consume it.
+     */
+    public Mode select(final AbstractBufferData<?> data) {
+        Usage usage = _usages.get(data);
+        if (usage == null) {
+            usage = new Usage();
+            usage._windowStart = _frame;
+            _usages.put(data, usage);
+        }
+        if (usage._lastFrame != _frame) {
+            usage._lastFrame = _frame;
+            usage._framesDrawn++;
+            if (data.isNeedsRefresh()) {
+                usage._framesRefreshed++;
+            }
+        }
+
+        if (_frame - usage._windowStart >= _revisitFrames) {
+            if (usage._framesRefreshed == 0) {
+                usage._mode = Mode.StaticVBO;
+            } else if (usage._framesRefreshed >= usage._framesDrawn * _frequentRatio) {
+                usage._mode = _streamFrequentUpdates ? Mode.StreamVBO : Mode.ClientArrays;
+            } else {
+                usage._mode = Mode.DynamicVBO;
+            }
+            usage._windowStart = _frame;
+            usage._framesDrawn = 0;
+            usage._framesRefreshed = 0;
+        }
+
+        if (usage._mode == Mode.ClientArrays) {
+            data.setNeedsRefresh(false);
+        }
+        return usage._mode;
+    }
+
+    /**
+     * @return the mode the given data was last drawn in, or null if it wasn't seen yet.
+     */
+    public Mode getMode(final AbstractBufferData<?> data) {
+        final Usage usage = _usages.get(data);
+        return usage != null ? usage._mode : null;
+    }
+
+    public void setRevisitFrames(final int revisitFrames) {
+        _revisitFrames = revisitFrames;
+    }
+
+    public int getRevisitFrames() {
+        return _revisitFrames;
+    }
+
+    /**
+     * @param frequentRatio
+     *            the share of frames, from 0 to 1, a buffer has to be refreshed in to count as updated every frame.
+     */
+    public void setFrequentRatio(final float frequentRatio) {
+        _frequentRatio = frequentRatio;
+    }
+
+    public float getFrequentRatio() {
+        return _frequentRatio;
+    }
+
+    /**
+     * @param streamFrequentUpdates
+     *            if true, buffers updated every frame are streamed through StreamDraw VBOs instead of drawn as client
+     *            arrays.
+     */
+    public void setStreamFrequentUpdates(final boolean streamFrequentUpdates) {
+        _streamFrequentUpdates = streamFrequentUpdates;
+    }
+
+    public boolean isStreamFrequentUpdates() {
+        return _streamFrequentUpdates;
+    }
+}
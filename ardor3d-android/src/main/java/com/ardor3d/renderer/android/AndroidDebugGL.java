@@ -0,0 +1,293 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+
+import android.opengl.GLU;
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.util.Ardor3dException;
+import com.ardor3d.util.Constants;
+import com.ardor3d.util.stat.StatCollector;
+
+/**
+ * A GL wrapper for tracking down driver and state problems. In {@link Mode#OFF} there is no error checking at all.
+ * {@link Mode#SAMPLED} polls glGetError once every few frames. Neither installs a wrapper, so individual calls carry no
+ * overhead. {@link Mode#STRICT} checks for errors after every call, counts calls per frame and flags calls that set
+ * state to the value it already had.
+ * <p>
+ * The wrapper implements every interface of the GL it wraps, so capability checks such as <code>gl instanceof
+ * GL11</code> answer as they would for the wrapped GL. Calls made through the static GLES20 class are not seen.
+ */
+public class AndroidDebugGL implements InvocationHandler {
+
+    public enum Mode {
+        /** No wrapper, no error checking. */
+        OFF,
+        /** Check glGetError every {@link AndroidDebugGL#getSampleInterval()} frames. */
+        SAMPLED,
+        /** Check glGetError after every call, count calls and flag redundant state changes. */
+        STRICT;
+    }
+
+    public static final int DEFAULT_SAMPLE_INTERVAL = 60;
+
+    /** State setting calls checked for redundancy in strict mode. */
+    private static final Set<String> _stateCalls = new HashSet<String>(Arrays.asList("glActiveTexture",
+            "glAlphaFunc", "glBlendFunc", "glClientActiveTexture", "glColor4f", "glColorMask", "glCullFace",
+            "glDepthFunc", "glDepthMask", "glFrontFace", "glLineWidth", "glMatrixMode", "glPointSize", "glShadeModel"));
+
+    private final Mode _mode;
+    private int _sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+    private GL10 _delegate;
+    private GL10 _proxy;
+
+    private int _frame;
+
+    // strict mode bookkeeping
+    private final Map<String, int[]> _calls = new HashMap<String, int[]>();
+    private final Map<String, Object> _state = new HashMap<String, Object>();
+    private final Set<String> _readbacks = new LinkedHashSet<String>();
+    private int _activeTexture = GL10.GL_TEXTURE0;
+    private int _frameCalls;
+    private int _frameRedundantCalls;
+    private int _lastFrameCalls;
+    private int _lastFrameRedundantCalls;
+    private String _firstError;
+
+    public AndroidDebugGL(final Mode mode) {
+        _mode = mode;
+    }
+
+    public Mode getMode() {
+        return _mode;
+    }
+
+    /**
+     * @param frames
+     *            how often glGetError is polled in {@link Mode#SAMPLED}.
+     */
+    public void setSampleInterval(final int frames) {
+        _sampleInterval = Math.max(1, frames);
+    }
+
+    public int getSampleInterval() {
+        return _sampleInterval;
+    }
+
+    /**
+     * Set the GL to wrap. Must be called from the GL thread.
+     *
+     * @return the GL to hand to the renderer in place of the given one.
+     */
+    public GL10 wrap(final GL10 gl) {
+        // only strict mode needs to see individual calls.
+        if (_mode != Mode.STRICT) {
+            _delegate = gl;
+            return gl;
+        }
+        if (_delegate == null || _delegate.getClass() != gl.getClass()) {
+            _proxy = (GL10) Proxy.newProxyInstance(gl.getClass().getClassLoader(), getInterfaces(gl.getClass()), this);
+        }
+        _delegate = gl;
+        return _proxy;
+    }
+
+    /**
+     * Forget all tracked state. Call when the GL context was (re)created.
+     */
+    public void reset() {
+        _state.clear();
+        _activeTexture = GL10.GL_TEXTURE0;
+        _firstError = null;
+    }
+
+    /**
+     * @return the number of GL calls made during the last frame, in {@link Mode#STRICT}.
+     */
+    public int getLastFrameCalls() {
+        return _lastFrameCalls;
+    }
+
+    /**
+     * @return the number of calls that set state to its current value during the last frame, in {@link Mode#STRICT}.
+     */
+    public int getLastFrameRedundantCalls() {
+        return _lastFrameRedundantCalls;
+    }
+
+    /**
+     * Finish the current frame, checking for errors as the mode requires. Must be called from the GL thread.
+     *
+     * @throws Ardor3dException
+     *             if the GL reported an error.
+     */
+    public void endFrame() {
+        _frame++;
+        if (_mode == Mode.SAMPLED) {
+            if (_frame % _sampleInterval == 0) {
+                final int error = _delegate.glGetError();
+                if (error != GL10.GL_NO_ERROR) {
+                    throw new Ardor3dException("Error in opengl within the last " + _sampleInterval + " frames: "
+                            + GLU.gluErrorString(error));
+                }
+            }
+        } else if (_mode == Mode.STRICT) {
+            _lastFrameCalls = _frameCalls;
+            _lastFrameRedundantCalls = _frameRedundantCalls;
+            if (Constants.stats) {
+                StatCollector.addStat(AndroidStatType.STAT_GL_CALLS, _frameCalls);
+                StatCollector.addStat(AndroidStatType.STAT_GL_REDUNDANT_CALLS, _frameRedundantCalls);
+            }
+            if (_frameRedundantCalls > 0 || !_readbacks.isEmpty()) {
+                Log.d(AndroidCanvas.TAG, "AndroidDebugGL - frame " + _frame + ": " + _frameCalls + " calls, "
+                        + _frameRedundantCalls + " redundant, readbacks " + _readbacks + ", by call " + callCounts());
+            }
+            _frameCalls = 0;
+            _frameRedundantCalls = 0;
+            _calls.clear();
+            _readbacks.clear();
+
+            final String error = _firstError;
+            _firstError = null;
+            if (error != null) {
+                throw new Ardor3dException("Error in opengl: " + error);
+            }
+        }
+    }
+
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final String name = method.getName();
+        if (name.equals("glGetError")) {
+            // the error was already consumed, and reported, by our own check.
+            return GL10.GL_NO_ERROR;
+        }
+
+        _frameCalls++;
+        int[] count = _calls.get(name);
+        if (count == null) {
+            count = new int[1];
+            _calls.put(name, count);
+        }
+        count[0]++;
+
+        if (name.startsWith("glGet") || name.startsWith("glIs") || name.equals("glReadPixels")) {
+            if (_readbacks.add(name)) {
+                Log.w(AndroidCanvas.TAG, "AndroidDebugGL - " + name + " stalls the pipeline.");
+            }
+        } else if (isRedundant(name, args)) {
+            _frameRedundantCalls++;
+        }
+
+        final Object result;
+        try {
+            result = method.invoke(_delegate, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+
+        final int error = _delegate.glGetError();
+        if (error != GL10.GL_NO_ERROR) {
+            final String message = name + Arrays.deepToString(args) + ": " + GLU.gluErrorString(error);
+            Log.e(AndroidCanvas.TAG, "AndroidDebugGL - " + message);
+            if (_firstError == null) {
+                _firstError = message;
+            }
+        }
+        return result;
+    }
+
+    private boolean isRedundant(final String name, final Object[] args) {
+        final String key;
+        final Object value;
+        if (name.equals("glEnable") || name.equals("glDisable")) {
+            key = "cap" + args[0];
+            value = name.equals("glEnable");
+        } else if (name.equals("glEnableClientState") || name.equals("glDisableClientState")) {
+            key = "client" + args[0];
+            value = name.equals("glEnableClientState");
+        } else if (name.equals("glBindTexture")) {
+            key = name + _activeTexture + ":" + args[0];
+            value = args[1];
+        } else if (name.equals("glBindBuffer")) {
+            key = name + args[0];
+            value = args[1];
+        } else if (name.startsWith("glDelete")) {
+            // deleting a bound object resets the binding.
+            _state.remove("glBindBuffer" + GL11.GL_ARRAY_BUFFER);
+            _state.remove("glBindBuffer" + GL11.GL_ELEMENT_ARRAY_BUFFER);
+            for (int i = 0; i < 32; i++) {
+                _state.remove("glBindTexture" + (GL10.GL_TEXTURE0 + i) + ":" + GL10.GL_TEXTURE_2D);
+            }
+            return false;
+        } else if (_stateCalls.contains(name)) {
+            if (name.equals("glActiveTexture")) {
+                _activeTexture = (Integer) args[0];
+            }
+            key = name;
+            value = Arrays.asList(args);
+        } else {
+            return false;
+        }
+
+        final Object old = _state.put(key, value);
+        if (value.equals(old)) {
+            if (Log.isLoggable(AndroidCanvas.TAG, Log.VERBOSE)) {
+                Log.v(AndroidCanvas.TAG, "AndroidDebugGL - redundant " + name + Arrays.deepToString(args));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private String callCounts() {
+        final StringBuilder sb = new StringBuilder("{");
+        for (final Map.Entry<String, int[]> entry : _calls.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('=').append(entry.getValue()[0]);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static Class<?>[] getInterfaces(final Class<?> type) {
+        final Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(c.getInterfaces()));
+        }
+        return interfaces.toArray(new Class<?>[interfaces.size()]);
+    }
+}
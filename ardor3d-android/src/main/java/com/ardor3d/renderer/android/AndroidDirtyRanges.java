@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.ardor3d.scenegraph.AbstractBufferData;
+
+/**
+ * The element ranges of a buffer that changed since it was last uploaded to its VBO. Mark changes through
+ * {@link #markDirty(AbstractBufferData, int, int)} instead of just flagging the data for refresh, and the renderer
+ * only uploads the marked ranges with glBufferSubData rather than the whole buffer. Data flagged for refresh without
+ * any marked ranges is uploaded whole, as before.
+ * <p>
+ * Ranges may be marked from any thread.
+ */
+public class AndroidDirtyRanges {
+
+    /** Past this many separate ranges, ranges are merged into one span. */
+    public static final int MAX_RANGES = 8;
+
+    // keyed by buffer data
+    private static final Map<Object, AndroidDirtyRanges> _ranges = new WeakHashMap<Object, AndroidDirtyRanges>();
+
+    private final int[] _starts = new int[MAX_RANGES];
+    private final int[] _ends = new int[MAX_RANGES];
+    private int _count;
+    private boolean _all;
+
+    /**
+     * Mark elements of the given data as changed, and flag the data for refresh.
+     *
+     * @param start
+     *            the first changed element (float or index, not tuple).
+     * @param count
+     *            the number of changed elements.
+     */
+    public static void markDirty(final AbstractBufferData<?> data, final int start, final int count) {
+        if (count <= 0) {
+            return;
+        }
+        final AndroidDirtyRanges ranges;
+        synchronized (_ranges) {
+            AndroidDirtyRanges existing = _ranges.get(data);
+            if (existing == null) {
+                existing = new AndroidDirtyRanges();
+                _ranges.put(data, existing);
+            }
+            ranges = existing;
+        }
+        synchronized (ranges) {
+            ranges.add(start, start + count);
+        }
+        data.setNeedsRefresh(true);
+    }
+
+    /**
+     * Mark all of the given data as changed, and flag it for refresh.
+     */
+    public static void markAllDirty(final AbstractBufferData<?> data) {
+        final AndroidDirtyRanges ranges = get(data);
+        if (ranges != null) {
+            synchronized (ranges) {
+                ranges._all = true;
+            }
+        }
+        data.setNeedsRefresh(true);
+    }
+
+    /**
+     * @return the ranges marked on the given data, or null if none ever were. Synchronize on the result while reading
+     *         and clearing it.
+     */
+    public static AndroidDirtyRanges get(final AbstractBufferData<?> data) {
+        synchronized (_ranges) {
+            return _ranges.get(data);
+        }
+    }
+
+    private void add(final int start, final int end) {
+        if (_all) {
+            return;
+        }
+
+        // merge with any range it overlaps or touches.
+        int newStart = start, newEnd = end;
+        for (int i = _count - 1; i >= 0; i--) {
+            if (_starts[i] <= newEnd && newStart <= _ends[i]) {
+                newStart = Math.min(newStart, _starts[i]);
+                newEnd = Math.max(newEnd, _ends[i]);
+                _count--;
+                _starts[i] = _starts[_count];
+                _ends[i] = _ends[_count];
+            }
+        }
+
+        if (_count == MAX_RANGES) {
+            for (int i = 0; i < _count; i++) {
+                newStart = Math.min(newStart, _starts[i]);
+                newEnd = Math.max(newEnd, _ends[i]);
+            }
+            _count = 0;
+        }
+        _starts[_count] = newStart;
+        _ends[_count] = newEnd;
+        _count++;
+    }
+
+    /**
+     * @return true if the whole buffer should be uploaded, either because it was marked so or because no ranges were
+     *         marked.
+     */
+    public boolean isAll() {
+        return _all || _count == 0;
+    }
+
+    public int getCount() {
+        return _count;
+    }
+
+    public int getStart(final int index) {
+        return _starts[index];
+    }
+
+    public int getEnd(final int index) {
+        return _ends[index];
+    }
+
+    /**
+     * @return the total number of elements in the marked ranges.
+     */
+    public int getDirtyElements() {
+        int total = 0;
+        for (int i = 0; i < _count; i++) {
+            total += _ends[i] - _starts[i];
+        }
+        return total;
+    }
+
+    public void clear() {
+        _count = 0;
+        _all = false;
+    }
+}
@@ -0,0 +1,886 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+import javax.microedition.khronos.opengles.GL11ExtensionPack;
+
+import android.graphics.Bitmap;
+import android.opengl.GLUtils;
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * A reusable list of recorded GL commands. Commands are stored as an opcode stream plus parallel int, float and object
+ * pools, so recording a frame into a buffer that has already grown to size does not allocate. Small parameter vectors
+ * (light colors, matrices, ...) are copied at record time since callers reuse their buffers; data buffers (vertex
+ * pointers, indices, VBO uploads) are kept by reference along with the position and limit they had when recorded,
+ * unless data copying is enabled, in which case their contents are copied into a staging area owned by this buffer.
+ */
+public class AndroidGLCommandBuffer {
+
+    // opcodes - the comment lists the encoded arguments (I=int, F=float, V=copied float vector, N=copied int vector,
+    // B=buffer reference)
+    static final int ENABLE = 0; // I
+    static final int DISABLE = 1; // I
+    static final int ENABLE_CLIENT_STATE = 2; // I
+    static final int DISABLE_CLIENT_STATE = 3; // I
+    static final int BLEND_FUNC = 4; // II
+    static final int ALPHA_FUNC = 5; // IF
+    static final int DEPTH_FUNC = 6; // I
+    static final int DEPTH_MASK = 7; // Z
+    static final int COLOR_MASK = 8; // ZZZZ
+    static final int CULL_FACE = 9; // I
+    static final int FRONT_FACE = 10; // I
+    static final int SHADE_MODEL = 11; // I
+    static final int MATRIX_MODE = 12; // I
+    static final int LOAD_IDENTITY = 13; //
+    static final int PUSH_MATRIX = 14; //
+    static final int POP_MATRIX = 15; //
+    static final int LOAD_MATRIXF = 16; // V
+    static final int MULT_MATRIXF = 17; // V
+    static final int ORTHOF = 18; // FFFFFF
+    static final int COLOR4F = 19; // FFFF
+    static final int ACTIVE_TEXTURE = 20; // I
+    static final int CLIENT_ACTIVE_TEXTURE = 21; // I
+    static final int BIND_TEXTURE = 22; // II
+    static final int BIND_BUFFER = 23; // II
+    static final int TEX_ENVX = 24; // III
+    static final int TEX_ENVF = 25; // IIF
+    static final int TEX_ENVFV = 26; // IIV
+    static final int TEX_PARAMETERX = 27; // III
+    static final int TEX_PARAMETERI = 28; // III
+    static final int VERTEX_POINTER = 29; // IIIB
+    static final int VERTEX_POINTER_VBO = 30; // IIII
+    static final int NORMAL_POINTER = 31; // IIB
+    static final int NORMAL_POINTER_VBO = 32; // III
+    static final int COLOR_POINTER = 33; // IIIB
+    static final int COLOR_POINTER_VBO = 34; // IIII
+    static final int TEX_COORD_POINTER = 35; // IIIB
+    static final int TEX_COORD_POINTER_VBO = 36; // IIII
+    static final int DRAW_ARRAYS = 37; // III
+    static final int DRAW_ELEMENTS = 38; // IIIB
+    static final int DRAW_ELEMENTS_VBO = 39; // IIII
+    static final int BUFFER_DATA = 40; // IIBI
+    static final int BUFFER_SUB_DATA = 41; // IIIB
+    static final int LIGHTF = 42; // IIF
+    static final int LIGHTFV = 43; // IIV
+    static final int LIGHT_MODELFV = 44; // IV
+    static final int LIGHT_MODELX = 45; // II
+    static final int MATERIALF = 46; // IIF
+    static final int MATERIALFV = 47; // IIV
+    static final int FOGF = 48; // IF
+    static final int FOGFV = 49; // IV
+    static final int FOGX = 50; // II
+    static final int HINT = 51; // II
+    static final int CLEAR = 52; // I
+    static final int CLEAR_COLOR = 53; // FFFF
+    static final int CLEAR_STENCIL = 54; // I
+    static final int STENCIL_MASK = 55; // I
+    static final int STENCIL_FUNC = 56; // III
+    static final int STENCIL_OP = 57; // III
+    static final int SCISSOR = 58; // IIII
+    static final int VIEWPORT = 59; // IIII
+    static final int LINE_WIDTH = 60; // F
+    static final int POINT_SIZE = 61; // F
+    static final int POLYGON_OFFSET = 62; // FF
+    static final int PIXEL_STOREI = 63; // II
+    static final int DEPTH_RANGEF = 64; // FF
+    static final int FLUSH = 65; //
+    static final int FINISH = 66; //
+    static final int POINT_PARAMETERF = 67; // IF
+    static final int POINT_PARAMETERFV = 68; // IV
+    static final int BLEND_EQUATION = 69; // I
+    static final int BLEND_EQUATION_SEPARATE = 70; // II
+    static final int BLEND_FUNC_SEPARATE = 71; // IIII
+    static final int CLIP_PLANEF = 72; // IV
+    static final int TEX_SUB_IMAGE_2D = 73; // IIIIIIIIB
+    static final int CLEAR_DEPTHF = 74; // F
+    static final int COMPRESSED_TEX_IMAGE_2D = 75; // IIIIIIIB
+    static final int COMPRESSED_TEX_SUB_IMAGE_2D = 76; // IIIIIIIIB
+    static final int COPY_TEX_IMAGE_2D = 77; // IIIIIIII
+    static final int COPY_TEX_SUB_IMAGE_2D = 78; // IIIIIIII
+    static final int DELETE_TEXTURES = 79; // N
+    static final int FRUSTUMF = 80; // FFFFFF
+    static final int LIGHT_MODELF = 81; // IF
+    static final int LOGIC_OP = 82; // I
+    static final int MULTI_TEX_COORD4F = 83; // IFFFF
+    static final int NORMAL3F = 84; // FFF
+    static final int ROTATEF = 85; // FFFF
+    static final int SAMPLE_COVERAGE = 86; // FZ
+    static final int SCALEF = 87; // FFF
+    static final int TRANSLATEF = 88; // FFF
+    static final int TEX_IMAGE_2D = 89; // IIIIIIIIB
+    static final int TEX_PARAMETERF = 90; // IIF
+    static final int TEX_PARAMETERFV = 91; // IIV
+    static final int TEX_PARAMETERIV = 92; // IIN
+    static final int TEX_ENVI = 93; // III
+    static final int TEX_ENVIV = 94; // IIN
+    static final int COLOR4UB = 95; // IIII
+    static final int DELETE_BUFFERS = 96; // N
+    static final int POINT_SIZE_POINTER = 97; // IIB
+    static final int BIND_FRAMEBUFFER = 98; // II
+    static final int BIND_RENDERBUFFER = 99; // II
+    static final int DELETE_FRAMEBUFFERS = 100; // N
+    static final int DELETE_RENDERBUFFERS = 101; // N
+    static final int FRAMEBUFFER_RENDERBUFFER = 102; // IIII
+    static final int FRAMEBUFFER_TEXTURE_2D = 103; // IIIII
+    static final int GENERATE_MIPMAP = 104; // I
+    static final int RENDERBUFFER_STORAGE = 105; // IIII
+    static final int TEX_GENF = 106; // IIF
+    static final int TEX_GENFV = 107; // IIV
+    static final int TEX_GENI = 108; // III
+    static final int TEX_GENIV = 109; // IIN
+    static final int POINT_SIZE_POINTER_VBO = 110; // III
+    static final int NUMBER_OF_CALL_OPS = 111;
+
+    // ops that are not plain GL calls
+    static final int TEX_IMAGE_2D_BITMAP = 200; // II + bitmap
+    static final int RECYCLE_BITMAP = 201; // bitmap
+    static final int GENERIC = 202; // method + args, replayed through reflection; only left for fixed point vectors
+
+    private int[] _ops = new int[256];
+    private int _opCount;
+    private int[] _ints = new int[1024];
+    private int _intCount;
+    private float[] _floats = new float[1024];
+    private int _floatCount;
+    private Object[] _objects = new Object[64];
+    private int _objectCount;
+
+    private FloatBuffer _values = BufferUtils.createFloatBuffer(16);
+
+    private boolean _copyData = false;
+    private ByteBuffer _staging;
+    private int _stagingUsed;
+
+    /**
+     * Forget all recorded commands, keeping the storage for the next frame.
+     */
+    public void reset() {
+        // drop references so recorded buffers and bitmaps can be collected.
+        for (int i = 0; i < _objectCount; i++) {
+            _objects[i] = null;
+        }
+        _opCount = 0;
+        _intCount = 0;
+        _floatCount = 0;
+        _objectCount = 0;
+        _stagingUsed = 0;
+    }
+
+    /**
+     * @param copyData
+     *            if true, data buffers are copied when recorded, so their owners may modify them before the replay.
+     */
+    public void setCopyData(final boolean copyData) {
+        _copyData = copyData;
+    }
+
+    public boolean isCopyData() {
+        return _copyData;
+    }
+
+    public int getCommandCount() {
+        return _opCount;
+    }
+
+    void putOp(final int op) {
+        if (_opCount == _ops.length) {
+            final int[] ops = new int[_ops.length * 2];
+            System.arraycopy(_ops, 0, ops, 0, _opCount);
+            _ops = ops;
+        }
+        _ops[_opCount++] = op;
+    }
+
+    void putInt(final int value) {
+        if (_intCount == _ints.length) {
+            final int[] ints = new int[_ints.length * 2];
+            System.arraycopy(_ints, 0, ints, 0, _intCount);
+            _ints = ints;
+        }
+        _ints[_intCount++] = value;
+    }
+
+    void putFloat(final float value) {
+        if (_floatCount == _floats.length) {
+            final float[] floats = new float[_floats.length * 2];
+            System.arraycopy(_floats, 0, floats, 0, _floatCount);
+            _floats = floats;
+        }
+        _floats[_floatCount++] = value;
+    }
+
+    void putObject(final Object value) {
+        if (_objectCount == _objects.length) {
+            final Object[] objects = new Object[_objects.length * 2];
+            System.arraycopy(_objects, 0, objects, 0, _objectCount);
+            _objects = objects;
+        }
+        _objects[_objectCount++] = value;
+    }
+
+    /**
+     * Store a data buffer by reference, remembering the window GL should read from.
+     */
+    void putBuffer(Buffer buffer) {
+        buffer = copyOf(buffer);
+        putObject(buffer);
+        putInt(buffer != null ? buffer.position() : 0);
+        putInt(buffer != null ? buffer.limit() : 0);
+    }
+
+    /**
+     * @return a copy of the remaining contents of the given buffer if data copying is enabled, otherwise the buffer
+     *         itself.
+     */
+    Buffer copyOf(final Buffer buffer) {
+        if (!_copyData || buffer == null) {
+            return buffer;
+        }
+
+        final int shift;
+        if (buffer instanceof FloatBuffer || buffer instanceof IntBuffer) {
+            shift = 2;
+        } else if (buffer instanceof ShortBuffer) {
+            shift = 1;
+        } else if (buffer instanceof ByteBuffer) {
+            shift = 0;
+        } else {
+            return buffer;
+        }
+
+        final int position = buffer.position();
+        final int bytes = buffer.remaining() << shift;
+        final ByteBuffer target = stage(bytes);
+        if (shift == 0) {
+            target.put((ByteBuffer) buffer);
+            buffer.position(position);
+            target.flip();
+            return target;
+        } else if (buffer instanceof FloatBuffer) {
+            final FloatBuffer copy = target.asFloatBuffer();
+            copy.put((FloatBuffer) buffer);
+            buffer.position(position);
+            copy.flip();
+            return copy;
+        } else if (buffer instanceof IntBuffer) {
+            final IntBuffer copy = target.asIntBuffer();
+            copy.put((IntBuffer) buffer);
+            buffer.position(position);
+            copy.flip();
+            return copy;
+        } else {
+            final ShortBuffer copy = target.asShortBuffer();
+            copy.put((ShortBuffer) buffer);
+            buffer.position(position);
+            copy.flip();
+            return copy;
+        }
+    }
+
+    private ByteBuffer stage(final int bytes) {
+        if (_staging == null || _staging.capacity() - _stagingUsed < bytes) {
+            // earlier copies keep referencing the old storage, so it is simply replaced.
+            _staging = ByteBuffer.allocateDirect(Math.max(bytes, _staging != null ? _staging.capacity() * 2 : 65536))
+                    .order(ByteOrder.nativeOrder());
+            _stagingUsed = 0;
+        }
+        _staging.limit(_stagingUsed + bytes);
+        _staging.position(_stagingUsed);
+        final ByteBuffer target = _staging.slice().order(ByteOrder.nativeOrder());
+        // keep every copy 4 byte aligned
+        _stagingUsed += (bytes + 3) & ~3;
+        return target;
+    }
+
+    /**
+     * Store a copy of the remaining values of a small parameter vector.
+     */
+    void putValues(final FloatBuffer values) {
+        final int start = values.position();
+        final int end = values.limit();
+        putInt(end - start);
+        for (int i = start; i < end; i++) {
+            putFloat(values.get(i));
+        }
+    }
+
+    /**
+     * Store a copy of up to max values of a small parameter vector held in an array.
+     */
+    void putValues(final float[] values, final int offset, final int max) {
+        final int count = Math.min(values.length - offset, max);
+        putInt(count);
+        for (int i = 0; i < count; i++) {
+            putFloat(values[offset + i]);
+        }
+    }
+
+    /**
+     * Store a copy of up to max ints from an array, such as the names to delete or an integer parameter vector.
+     */
+    void putInts(final int[] values, final int offset, final int max) {
+        final int count = Math.min(values.length - offset, max);
+        putInt(count);
+        for (int i = 0; i < count; i++) {
+            putInt(values[offset + i]);
+        }
+    }
+
+    /**
+     * Store a copy of up to max of the remaining ints of a buffer.
+     */
+    void putInts(final IntBuffer values, final int max) {
+        final int start = values.position();
+        final int count = Math.min(values.remaining(), max);
+        putInt(count);
+        for (int i = 0; i < count; i++) {
+            putInt(values.get(start + i));
+        }
+    }
+
+    /**
+     * Issue every recorded command against the given GL, without polling its error state, which stalls most drivers.
+     */
+    public void execute(final GL10 gl) {
+        final GL11 gl11 = gl instanceof GL11 ? (GL11) gl : null;
+        final GL11ExtensionPack glExt = gl instanceof GL11ExtensionPack ? (GL11ExtensionPack) gl : null;
+
+        final int[] ints = _ints;
+        final float[] floats = _floats;
+        final Object[] objects = _objects;
+        int i = 0, f = 0, o = 0;
+
+        for (int c = 0; c < _opCount; c++) {
+            switch (_ops[c]) {
+                case ENABLE:
+                    gl.glEnable(ints[i++]);
+                    break;
+                case DISABLE:
+                    gl.glDisable(ints[i++]);
+                    break;
+                case ENABLE_CLIENT_STATE:
+                    gl.glEnableClientState(ints[i++]);
+                    break;
+                case DISABLE_CLIENT_STATE:
+                    gl.glDisableClientState(ints[i++]);
+                    break;
+                case BLEND_FUNC:
+                    gl.glBlendFunc(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case ALPHA_FUNC:
+                    gl.glAlphaFunc(ints[i++], floats[f++]);
+                    break;
+                case DEPTH_FUNC:
+                    gl.glDepthFunc(ints[i++]);
+                    break;
+                case DEPTH_MASK:
+                    gl.glDepthMask(ints[i++] != 0);
+                    break;
+                case COLOR_MASK:
+                    gl.glColorMask(ints[i] != 0, ints[i + 1] != 0, ints[i + 2] != 0, ints[i + 3] != 0);
+                    i += 4;
+                    break;
+                case CULL_FACE:
+                    gl.glCullFace(ints[i++]);
+                    break;
+                case FRONT_FACE:
+                    gl.glFrontFace(ints[i++]);
+                    break;
+                case SHADE_MODEL:
+                    gl.glShadeModel(ints[i++]);
+                    break;
+                case MATRIX_MODE:
+                    gl.glMatrixMode(ints[i++]);
+                    break;
+                case LOAD_IDENTITY:
+                    gl.glLoadIdentity();
+                    break;
+                case PUSH_MATRIX:
+                    gl.glPushMatrix();
+                    break;
+                case POP_MATRIX:
+                    gl.glPopMatrix();
+                    break;
+                case LOAD_MATRIXF:
+                    f = loadValues(ints[i++], f);
+                    gl.glLoadMatrixf(_values);
+                    break;
+                case MULT_MATRIXF:
+                    f = loadValues(ints[i++], f);
+                    gl.glMultMatrixf(_values);
+                    break;
+                case ORTHOF:
+                    gl.glOrthof(floats[f], floats[f + 1], floats[f + 2], floats[f + 3], floats[f + 4], floats[f + 5]);
+                    f += 6;
+                    break;
+                case COLOR4F:
+                    gl.glColor4f(floats[f], floats[f + 1], floats[f + 2], floats[f + 3]);
+                    f += 4;
+                    break;
+                case ACTIVE_TEXTURE:
+                    gl.glActiveTexture(ints[i++]);
+                    break;
+                case CLIENT_ACTIVE_TEXTURE:
+                    gl.glClientActiveTexture(ints[i++]);
+                    break;
+                case BIND_TEXTURE:
+                    gl.glBindTexture(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case BIND_BUFFER:
+                    gl11.glBindBuffer(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case TEX_ENVX:
+                    gl.glTexEnvx(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case TEX_ENVF:
+                    gl.glTexEnvf(ints[i], ints[i + 1], floats[f++]);
+                    i += 2;
+                    break;
+                case TEX_ENVFV: {
+                    final int target = ints[i++], pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl.glTexEnvfv(target, pname, _values);
+                    break;
+                }
+                case TEX_PARAMETERX:
+                    gl.glTexParameterx(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case TEX_PARAMETERI:
+                    gl11.glTexParameteri(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case VERTEX_POINTER: {
+                    final int size = ints[i++], type = ints[i++], stride = ints[i++];
+                    gl.glVertexPointer(size, type, stride, restore((Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case VERTEX_POINTER_VBO:
+                    gl11.glVertexPointer(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case NORMAL_POINTER: {
+                    final int type = ints[i++], stride = ints[i++];
+                    gl.glNormalPointer(type, stride, restore((Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case NORMAL_POINTER_VBO:
+                    gl11.glNormalPointer(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case COLOR_POINTER: {
+                    final int size = ints[i++], type = ints[i++], stride = ints[i++];
+                    gl.glColorPointer(size, type, stride, restore((Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case COLOR_POINTER_VBO:
+                    gl11.glColorPointer(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case TEX_COORD_POINTER: {
+                    final int size = ints[i++], type = ints[i++], stride = ints[i++];
+                    gl.glTexCoordPointer(size, type, stride, restore((Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case TEX_COORD_POINTER_VBO:
+                    gl11.glTexCoordPointer(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case DRAW_ARRAYS:
+                    gl.glDrawArrays(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case DRAW_ELEMENTS: {
+                    final int mode = ints[i++], count = ints[i++], type = ints[i++];
+                    gl.glDrawElements(mode, count, type, restore((Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case DRAW_ELEMENTS_VBO:
+                    gl11.glDrawElements(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case BUFFER_DATA: {
+                    final int target = ints[i++], size = ints[i++];
+                    final Buffer data = restore((Buffer) objects[o++], ints[i++], ints[i++]);
+                    gl11.glBufferData(target, size, data, ints[i++]);
+                    break;
+                }
+                case BUFFER_SUB_DATA: {
+                    final int target = ints[i++], offset = ints[i++], size = ints[i++];
+                    gl11.glBufferSubData(target, offset, size, restore((Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case LIGHTF:
+                    gl.glLightf(ints[i], ints[i + 1], floats[f++]);
+                    i += 2;
+                    break;
+                case LIGHTFV: {
+                    final int light = ints[i++], pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl.glLightfv(light, pname, _values);
+                    break;
+                }
+                case LIGHT_MODELFV: {
+                    final int pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl.glLightModelfv(pname, _values);
+                    break;
+                }
+                case LIGHT_MODELX:
+                    gl.glLightModelx(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case MATERIALF:
+                    gl.glMaterialf(ints[i], ints[i + 1], floats[f++]);
+                    i += 2;
+                    break;
+                case MATERIALFV: {
+                    final int face = ints[i++], pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl.glMaterialfv(face, pname, _values);
+                    break;
+                }
+                case FOGF:
+                    gl.glFogf(ints[i++], floats[f++]);
+                    break;
+                case FOGFV: {
+                    final int pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl.glFogfv(pname, _values);
+                    break;
+                }
+                case FOGX:
+                    gl.glFogx(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case HINT:
+                    gl.glHint(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case CLEAR:
+                    gl.glClear(ints[i++]);
+                    break;
+                case CLEAR_COLOR:
+                    gl.glClearColor(floats[f], floats[f + 1], floats[f + 2], floats[f + 3]);
+                    f += 4;
+                    break;
+                case CLEAR_STENCIL:
+                    gl.glClearStencil(ints[i++]);
+                    break;
+                case STENCIL_MASK:
+                    gl.glStencilMask(ints[i++]);
+                    break;
+                case STENCIL_FUNC:
+                    gl.glStencilFunc(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case STENCIL_OP:
+                    gl.glStencilOp(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case SCISSOR:
+                    gl.glScissor(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case VIEWPORT:
+                    gl.glViewport(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case LINE_WIDTH:
+                    gl.glLineWidth(floats[f++]);
+                    break;
+                case POINT_SIZE:
+                    gl.glPointSize(floats[f++]);
+                    break;
+                case POLYGON_OFFSET:
+                    gl.glPolygonOffset(floats[f], floats[f + 1]);
+                    f += 2;
+                    break;
+                case PIXEL_STOREI:
+                    gl.glPixelStorei(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case DEPTH_RANGEF:
+                    gl.glDepthRangef(floats[f], floats[f + 1]);
+                    f += 2;
+                    break;
+                case FLUSH:
+                    gl.glFlush();
+                    break;
+                case FINISH:
+                    gl.glFinish();
+                    break;
+                case POINT_PARAMETERF:
+                    gl11.glPointParameterf(ints[i++], floats[f++]);
+                    break;
+                case POINT_PARAMETERFV: {
+                    final int pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl11.glPointParameterfv(pname, _values);
+                    break;
+                }
+                case BLEND_EQUATION:
+                    glExt.glBlendEquation(ints[i++]);
+                    break;
+                case BLEND_EQUATION_SEPARATE:
+                    glExt.glBlendEquationSeparate(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case BLEND_FUNC_SEPARATE:
+                    glExt.glBlendFuncSeparate(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case CLIP_PLANEF: {
+                    final int plane = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl11.glClipPlanef(plane, _values);
+                    break;
+                }
+                case TEX_SUB_IMAGE_2D: {
+                    final int target = ints[i++], level = ints[i++], x = ints[i++], y = ints[i++];
+                    final int width = ints[i++], height = ints[i++], format = ints[i++], type = ints[i++];
+                    gl.glTexSubImage2D(target, level, x, y, width, height, format, type, restore(
+                            (Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case CLEAR_DEPTHF:
+                    gl.glClearDepthf(floats[f++]);
+                    break;
+                case COMPRESSED_TEX_IMAGE_2D: {
+                    final int target = ints[i++], level = ints[i++], internalformat = ints[i++];
+                    final int width = ints[i++], height = ints[i++], border = ints[i++], imageSize = ints[i++];
+                    gl.glCompressedTexImage2D(target, level, internalformat, width, height, border, imageSize, restore(
+                            (Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case COMPRESSED_TEX_SUB_IMAGE_2D: {
+                    final int target = ints[i++], level = ints[i++], x = ints[i++], y = ints[i++];
+                    final int width = ints[i++], height = ints[i++], format = ints[i++], imageSize = ints[i++];
+                    gl.glCompressedTexSubImage2D(target, level, x, y, width, height, format, imageSize, restore(
+                            (Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case COPY_TEX_IMAGE_2D:
+                    gl.glCopyTexImage2D(ints[i], ints[i + 1], ints[i + 2], ints[i + 3], ints[i + 4], ints[i + 5],
+                            ints[i + 6], ints[i + 7]);
+                    i += 8;
+                    break;
+                case COPY_TEX_SUB_IMAGE_2D:
+                    gl.glCopyTexSubImage2D(ints[i], ints[i + 1], ints[i + 2], ints[i + 3], ints[i + 4], ints[i + 5],
+                            ints[i + 6], ints[i + 7]);
+                    i += 8;
+                    break;
+                case DELETE_TEXTURES:
+                    gl.glDeleteTextures(ints[i], ints, i + 1);
+                    i += 1 + ints[i];
+                    break;
+                case FRUSTUMF:
+                    gl.glFrustumf(floats[f], floats[f + 1], floats[f + 2], floats[f + 3], floats[f + 4], floats[f + 5]);
+                    f += 6;
+                    break;
+                case LIGHT_MODELF:
+                    gl.glLightModelf(ints[i++], floats[f++]);
+                    break;
+                case LOGIC_OP:
+                    gl.glLogicOp(ints[i++]);
+                    break;
+                case MULTI_TEX_COORD4F:
+                    gl.glMultiTexCoord4f(ints[i++], floats[f], floats[f + 1], floats[f + 2], floats[f + 3]);
+                    f += 4;
+                    break;
+                case NORMAL3F:
+                    gl.glNormal3f(floats[f], floats[f + 1], floats[f + 2]);
+                    f += 3;
+                    break;
+                case ROTATEF:
+                    gl.glRotatef(floats[f], floats[f + 1], floats[f + 2], floats[f + 3]);
+                    f += 4;
+                    break;
+                case SAMPLE_COVERAGE:
+                    gl.glSampleCoverage(floats[f++], ints[i++] != 0);
+                    break;
+                case SCALEF:
+                    gl.glScalef(floats[f], floats[f + 1], floats[f + 2]);
+                    f += 3;
+                    break;
+                case TRANSLATEF:
+                    gl.glTranslatef(floats[f], floats[f + 1], floats[f + 2]);
+                    f += 3;
+                    break;
+                case TEX_IMAGE_2D: {
+                    final int target = ints[i++], level = ints[i++], internalformat = ints[i++];
+                    final int width = ints[i++], height = ints[i++], border = ints[i++];
+                    final int format = ints[i++], type = ints[i++];
+                    gl.glTexImage2D(target, level, internalformat, width, height, border, format, type, restore(
+                            (Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case TEX_PARAMETERF:
+                    gl.glTexParameterf(ints[i], ints[i + 1], floats[f++]);
+                    i += 2;
+                    break;
+                case TEX_PARAMETERFV: {
+                    final int target = ints[i++], pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    gl11.glTexParameterfv(target, pname, _values);
+                    break;
+                }
+                case TEX_PARAMETERIV:
+                    gl11.glTexParameteriv(ints[i], ints[i + 1], ints, i + 3);
+                    i += 3 + ints[i + 2];
+                    break;
+                case TEX_ENVI:
+                    gl11.glTexEnvi(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case TEX_ENVIV:
+                    gl11.glTexEnviv(ints[i], ints[i + 1], ints, i + 3);
+                    i += 3 + ints[i + 2];
+                    break;
+                case COLOR4UB:
+                    gl11.glColor4ub((byte) ints[i], (byte) ints[i + 1], (byte) ints[i + 2], (byte) ints[i + 3]);
+                    i += 4;
+                    break;
+                case DELETE_BUFFERS:
+                    gl11.glDeleteBuffers(ints[i], ints, i + 1);
+                    i += 1 + ints[i];
+                    break;
+                case POINT_SIZE_POINTER: {
+                    final int type = ints[i++], stride = ints[i++];
+                    gl11.glPointSizePointerOES(type, stride, restore((Buffer) objects[o++], ints[i++], ints[i++]));
+                    break;
+                }
+                case BIND_FRAMEBUFFER:
+                    glExt.glBindFramebufferOES(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case BIND_RENDERBUFFER:
+                    glExt.glBindRenderbufferOES(ints[i], ints[i + 1]);
+                    i += 2;
+                    break;
+                case DELETE_FRAMEBUFFERS:
+                    glExt.glDeleteFramebuffersOES(ints[i], ints, i + 1);
+                    i += 1 + ints[i];
+                    break;
+                case DELETE_RENDERBUFFERS:
+                    glExt.glDeleteRenderbuffersOES(ints[i], ints, i + 1);
+                    i += 1 + ints[i];
+                    break;
+                case FRAMEBUFFER_RENDERBUFFER:
+                    glExt.glFramebufferRenderbufferOES(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case FRAMEBUFFER_TEXTURE_2D:
+                    glExt.glFramebufferTexture2DOES(ints[i], ints[i + 1], ints[i + 2], ints[i + 3], ints[i + 4]);
+                    i += 5;
+                    break;
+                case GENERATE_MIPMAP:
+                    glExt.glGenerateMipmapOES(ints[i++]);
+                    break;
+                case RENDERBUFFER_STORAGE:
+                    glExt.glRenderbufferStorageOES(ints[i], ints[i + 1], ints[i + 2], ints[i + 3]);
+                    i += 4;
+                    break;
+                case TEX_GENF:
+                    glExt.glTexGenf(ints[i], ints[i + 1], floats[f++]);
+                    i += 2;
+                    break;
+                case TEX_GENFV: {
+                    final int coord = ints[i++], pname = ints[i++];
+                    f = loadValues(ints[i++], f);
+                    glExt.glTexGenfv(coord, pname, _values);
+                    break;
+                }
+                case TEX_GENI:
+                    glExt.glTexGeni(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case TEX_GENIV:
+                    glExt.glTexGeniv(ints[i], ints[i + 1], ints, i + 3);
+                    i += 3 + ints[i + 2];
+                    break;
+                case POINT_SIZE_POINTER_VBO:
+                    AndroidRecordingGL.pointSizePointerOffset(ints[i], ints[i + 1], ints[i + 2]);
+                    i += 3;
+                    break;
+                case TEX_IMAGE_2D_BITMAP:
+                    GLUtils.texImage2D(ints[i], ints[i + 1], (Bitmap) objects[o++], 0);
+                    i += 2;
+                    break;
+                case RECYCLE_BITMAP:
+                    ((Bitmap) objects[o++]).recycle();
+                    break;
+                case GENERIC: {
+                    final Method method = (Method) objects[o++];
+                    final Object[] args = (Object[]) objects[o++];
+                    try {
+                        method.invoke(gl, args);
+                    } catch (final IllegalAccessException e) {
+                        Log.e(AndroidCanvas.TAG, "AndroidGLCommandBuffer.execute - unable to replay "
+                                + method.getName(), e);
+                    } catch (final InvocationTargetException e) {
+                        Log.e(AndroidCanvas.TAG, "AndroidGLCommandBuffer.execute - unable to replay "
+                                + method.getName(), e.getCause());
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown recorded op: " + _ops[c]);
+            }
+        }
+    }
+
+    private int loadValues(final int count, final int offset) {
+        if (_values.capacity() < count) {
+            _values = BufferUtils.createFloatBuffer(count);
+        }
+        _values.clear();
+        _values.put(_floats, offset, count);
+        _values.flip();
+        return offset + count;
+    }
+
+    private static Buffer restore(final Buffer buffer, final int position, final int limit) {
+        if (buffer != null) {
+            buffer.limit(limit);
+            buffer.position(position);
+        }
+        return buffer;
+    }
+}
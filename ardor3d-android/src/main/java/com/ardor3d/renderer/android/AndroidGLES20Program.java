@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.util.Ardor3dException;
+
+/**
+ * A linked shader program generated for one fixed function permutation, along with its uniform locations and the
+ * stamps of the values last uploaded to it.
+ */
+public class AndroidGLES20Program {
+
+    public static final int ATTRIB_POSITION = 0;
+    public static final int ATTRIB_NORMAL = 1;
+    public static final int ATTRIB_COLOR = 2;
+    public static final int ATTRIB_TEXCOORD0 = 3;
+
+    private final long _key;
+    private final int _programId;
+
+    int u_modelView;
+    int u_projection;
+    int u_normalMatrix;
+    int u_defaultColor;
+    int u_pointSize;
+    int u_globalAmbient;
+    int u_matAmbient;
+    int u_matDiffuse;
+    int u_matSpecular;
+    int u_matEmissive;
+    int u_matShininess;
+    final int[] u_lightPosition = new int[AndroidGLES20ShaderGenerator.MAX_LIGHTS];
+    final int[] u_lightAmbient = new int[AndroidGLES20ShaderGenerator.MAX_LIGHTS];
+    final int[] u_lightDiffuse = new int[AndroidGLES20ShaderGenerator.MAX_LIGHTS];
+    final int[] u_lightSpecular = new int[AndroidGLES20ShaderGenerator.MAX_LIGHTS];
+    final int[] u_lightAttenuation = new int[AndroidGLES20ShaderGenerator.MAX_LIGHTS];
+    final int[] u_lightSpotDirection = new int[AndroidGLES20ShaderGenerator.MAX_LIGHTS];
+    final int[] u_lightSpot = new int[AndroidGLES20ShaderGenerator.MAX_LIGHTS];
+    final int[] u_texture = new int[AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS];
+    final int[] u_textureMatrix = new int[AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS];
+    final int[] u_texEnvColor = new int[AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS];
+    int u_fogColor;
+    int u_fogParams;
+    int u_alphaRef;
+
+    // stamps of the values last sent to this program, compared against the renderer's current stamps.
+    int _lightStamp = -1;
+    int _materialStamp = -1;
+    int _fogStamp = -1;
+    int _textureStamp = -1;
+    int _blendStamp = -1;
+    int _projectionStamp = -1;
+    int _modelViewStamp = -1;
+    int _colorStamp = -1;
+    int _pointStamp = -1;
+
+    public AndroidGLES20Program(final long key, final String vertexSource, final String fragmentSource) {
+        _key = key;
+
+        final int vertexShader = compile(GLES20.GL_VERTEX_SHADER, vertexSource);
+        final int fragmentShader = compile(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+
+        _programId = GLES20.glCreateProgram();
+        GLES20.glAttachShader(_programId, vertexShader);
+        GLES20.glAttachShader(_programId, fragmentShader);
+
+        // fixed attribute slots let the renderer enable arrays without knowing which program will draw them.
+        GLES20.glBindAttribLocation(_programId, ATTRIB_POSITION, "a_position");
+        GLES20.glBindAttribLocation(_programId, ATTRIB_NORMAL, "a_normal");
+        GLES20.glBindAttribLocation(_programId, ATTRIB_COLOR, "a_color");
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+            GLES20.glBindAttribLocation(_programId, ATTRIB_TEXCOORD0 + i, "a_texCoord" + i);
+        }
+        GLES20.glLinkProgram(_programId);
+
+        // shaders are no longer needed once linked.
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+
+        final int[] status = new int[1];
+        GLES20.glGetProgramiv(_programId, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            final String log = GLES20.glGetProgramInfoLog(_programId);
+            GLES20.glDeleteProgram(_programId);
+            throw new Ardor3dException("Unable to link generated program " + Long.toHexString(key) + ": " + log);
+        }
+
+        u_modelView = GLES20.glGetUniformLocation(_programId, "u_modelView");
+        u_projection = GLES20.glGetUniformLocation(_programId, "u_projection");
+        u_normalMatrix = GLES20.glGetUniformLocation(_programId, "u_normalMatrix");
+        u_defaultColor = GLES20.glGetUniformLocation(_programId, "u_defaultColor");
+        u_pointSize = GLES20.glGetUniformLocation(_programId, "u_pointSize");
+        u_globalAmbient = GLES20.glGetUniformLocation(_programId, "u_globalAmbient");
+        u_matAmbient = GLES20.glGetUniformLocation(_programId, "u_matAmbient");
+        u_matDiffuse = GLES20.glGetUniformLocation(_programId, "u_matDiffuse");
+        u_matSpecular = GLES20.glGetUniformLocation(_programId, "u_matSpecular");
+        u_matEmissive = GLES20.glGetUniformLocation(_programId, "u_matEmissive");
+        u_matShininess = GLES20.glGetUniformLocation(_programId, "u_matShininess");
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_LIGHTS; i++) {
+            u_lightPosition[i] = GLES20.glGetUniformLocation(_programId, "u_lightPosition" + i);
+            u_lightAmbient[i] = GLES20.glGetUniformLocation(_programId, "u_lightAmbient" + i);
+            u_lightDiffuse[i] = GLES20.glGetUniformLocation(_programId, "u_lightDiffuse" + i);
+            u_lightSpecular[i] = GLES20.glGetUniformLocation(_programId, "u_lightSpecular" + i);
+            u_lightAttenuation[i] = GLES20.glGetUniformLocation(_programId, "u_lightAttenuation" + i);
+            u_lightSpotDirection[i] = GLES20.glGetUniformLocation(_programId, "u_lightSpotDirection" + i);
+            u_lightSpot[i] = GLES20.glGetUniformLocation(_programId, "u_lightSpot" + i);
+        }
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+            u_texture[i] = GLES20.glGetUniformLocation(_programId, "u_texture" + i);
+            u_textureMatrix[i] = GLES20.glGetUniformLocation(_programId, "u_textureMatrix" + i);
+            u_texEnvColor[i] = GLES20.glGetUniformLocation(_programId, "u_texEnvColor" + i);
+        }
+        u_fogColor = GLES20.glGetUniformLocation(_programId, "u_fogColor");
+        u_fogParams = GLES20.glGetUniformLocation(_programId, "u_fogParams");
+        u_alphaRef = GLES20.glGetUniformLocation(_programId, "u_alphaRef");
+
+        // samplers never change, so point them at their units once.
+        GLES20.glUseProgram(_programId);
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+            if (u_texture[i] >= 0) {
+                GLES20.glUniform1i(u_texture[i], i);
+            }
+        }
+    }
+
+    private static int compile(final int type, final String source) {
+        final int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+
+        final int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            final String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            Log.e(AndroidCanvas.TAG, "AndroidGLES20Program.compile - failed source:\n" + source);
+            throw new Ardor3dException("Unable to compile generated shader: " + log);
+        }
+        return shader;
+    }
+
+    public long getKey() {
+        return _key;
+    }
+
+    public int getProgramId() {
+        return _programId;
+    }
+
+    public void delete() {
+        GLES20.glDeleteProgram(_programId);
+    }
+}
@@ -0,0 +1,977 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.image.Texture;
+import com.ardor3d.image.Texture.WrapAxis;
+import com.ardor3d.image.Texture2D;
+import com.ardor3d.light.DirectionalLight;
+import com.ardor3d.light.Light;
+import com.ardor3d.light.PointLight;
+import com.ardor3d.light.SpotLight;
+import com.ardor3d.math.ColorRGBA;
+import com.ardor3d.math.MathUtils;
+import com.ardor3d.math.type.ReadOnlyColorRGBA;
+import com.ardor3d.math.type.ReadOnlyTransform;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.Camera;
+import com.ardor3d.renderer.ContextCapabilities;
+import com.ardor3d.renderer.ContextManager;
+import com.ardor3d.renderer.IndexMode;
+import com.ardor3d.renderer.RenderContext;
+import com.ardor3d.renderer.state.BlendState;
+import com.ardor3d.renderer.state.FogState;
+import com.ardor3d.renderer.state.LightState;
+import com.ardor3d.renderer.state.MaterialState;
+import com.ardor3d.renderer.state.MaterialState.ColorMaterial;
+import com.ardor3d.renderer.state.RenderState;
+import com.ardor3d.renderer.state.RenderState.StateType;
+import com.ardor3d.renderer.state.TextureState;
+import com.ardor3d.renderer.state.record.LineRecord;
+import com.ardor3d.renderer.state.record.RendererRecord;
+import com.ardor3d.renderer.state.record.TextureRecord;
+import com.ardor3d.renderer.state.record.TextureStateRecord;
+import com.ardor3d.renderer.state.record.TextureUnitRecord;
+import com.ardor3d.scene.state.android.AndroidBlendStateUtil;
+import com.ardor3d.scene.state.android.AndroidTextureStateUtil;
+import com.ardor3d.scene.state.android.util.AndroidTextureUtil;
+import com.ardor3d.scenegraph.AbstractBufferData.VBOAccessMode;
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.IndexBufferData;
+import com.ardor3d.scenegraph.hint.NormalsMode;
+import com.ardor3d.util.Ardor3dException;
+import com.ardor3d.util.Constants;
+import com.ardor3d.util.geom.BufferUtils;
+import com.ardor3d.util.stat.StatCollector;
+import com.ardor3d.util.stat.StatType;
+
+/**
+ * Renderer for OpenGL ES 2.0 contexts. Matrices are kept on the CPU, vertex data is fed through generic attributes and
+ * the fixed function stages requested by the current render states are emulated by generated shader programs, which
+ * are cached per permutation. States that have no ES 2.0 counterpart (lights, materials, fog, alpha test, texture
+ * environments) only record themselves as current and are consumed when the program for a draw is chosen.
+ */
+public class AndroidGLES20Renderer extends AndroidRenderer {
+
+    private static final int MATRIX_STACK_DEPTH = 32;
+
+    private final float[] _projection = new float[16];
+    private final float[] _view = new float[16];
+    private final float[] _modelView = new float[16];
+    private final float[] _modelViewStack = new float[16 * MATRIX_STACK_DEPTH];
+    private int _modelViewDepth = 0;
+
+    private final float[] _orthoSaveProjection = new float[16];
+    private final float[] _orthoSaveModelView = new float[16];
+
+    private final float[] _tempMatrix = new float[16];
+    private final float[] _tempMatrix2 = new float[16];
+    private final float[] _normalMatrix = new float[9];
+    private final float[] _tempVecIn = new float[4];
+    private final float[] _tempVecOut = new float[4];
+    private final FloatBuffer _transformBuffer = BufferUtils.createFloatBuffer(16);
+    private final FloatBuffer _textureMatrixBuffer = BufferUtils.createFloatBuffer(16);
+
+    private final float[] _defaultColor = new float[] { 1, 1, 1, 1 };
+    private float _pointSize = 1;
+
+    // stamps are drawn from a single counter so a fresh program (with -1 stamps) never matches by accident.
+    private int _stamp = 0;
+    private int _projectionStamp = 0;
+    private int _modelViewStamp = 0;
+    private int _lightStamp = 0;
+    private int _materialStamp = 0;
+    private int _fogStamp = 0;
+    private int _textureStamp = 0;
+    private int _blendStamp = 0;
+    private int _colorStamp = 0;
+    private int _pointStamp = 0;
+
+    private final Map<Long, AndroidGLES20Program> _programs = new HashMap<Long, AndroidGLES20Program>();
+    private AndroidGLES20Program _currentProgram;
+    private RenderContext _programContext;
+
+    private int _enabledAttribs = 0;
+    private boolean _colorArray = false;
+    private int _texCoordUnits = 0;
+    private int _boundTextureUnits = 0;
+
+    public AndroidGLES20Renderer() {
+        Log.i(AndroidCanvas.TAG, "AndroidGLES20Renderer() - AndroidGLES20Renderer created.");
+        Matrix.setIdentityM(_projection, 0);
+        Matrix.setIdentityM(_view, 0);
+        Matrix.setIdentityM(_modelView, 0);
+    }
+
+    /**
+     * Drops everything tied to a previous GL context. Called lazily whenever we notice the current context changed.
+     */
+    private void checkContext(final RenderContext context) {
+        if (context != _programContext) {
+            _programs.clear();
+            _currentProgram = null;
+            _enabledAttribs = 0;
+            _programContext = context;
+            final int attribs = AndroidGLES20Program.ATTRIB_TEXCOORD0 + AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS;
+            for (int i = 0; i < attribs; i++) {
+                GLES20.glDisableVertexAttribArray(i);
+            }
+        }
+    }
+
+    @Override
+    public void setOrtho() {
+        if (_inOrthoMode) {
+            throw new Ardor3dException("Already in Orthographic mode.");
+        }
+        System.arraycopy(_projection, 0, _orthoSaveProjection, 0, 16);
+        System.arraycopy(_modelView, 0, _orthoSaveModelView, 0, 16);
+
+        final Camera camera = Camera.getCurrentCamera();
+        final double viewportWidth = camera.getWidth() * (camera.getViewPortRight() - camera.getViewPortLeft());
+        final double viewportHeight = camera.getHeight() * (camera.getViewPortTop() - camera.getViewPortBottom());
+        Matrix.orthoM(_projection, 0, 0, (float) viewportWidth, 0, (float) viewportHeight, -1, 1);
+        Matrix.setIdentityM(_modelView, 0);
+        _projectionStamp = ++_stamp;
+        _modelViewStamp = ++_stamp;
+        _inOrthoMode = true;
+        viewChanged();
+    }
+
+    @Override
+    public void unsetOrtho() {
+        if (!_inOrthoMode) {
+            throw new Ardor3dException("Not in Orthographic mode.");
+        }
+        System.arraycopy(_orthoSaveProjection, 0, _projection, 0, 16);
+        System.arraycopy(_orthoSaveModelView, 0, _modelView, 0, 16);
+        _projectionStamp = ++_stamp;
+        _modelViewStamp = ++_stamp;
+        _inOrthoMode = false;
+        viewChanged();
+    }
+
+    /**
+     * Render lists record through the GL10 interface, and this renderer calls GLES20 statically, so they aren't
+     * available here.
+     *
+     * @return -1
+     */
+    @Override
+    public int startDisplayList() {
+        Log.w(AndroidCanvas.TAG, "AndroidGLES20Renderer.startDisplayList - display lists are not supported.");
+        return -1;
+    }
+
+    @Override
+    public void endDisplayList() {
+        Log.w(AndroidCanvas.TAG, "AndroidGLES20Renderer.endDisplayList - display lists are not supported.");
+    }
+
+    @Override
+    public void renderDisplayList(final int displayListID) {
+        Log.w(AndroidCanvas.TAG, "AndroidGLES20Renderer.renderDisplayList - display lists are not supported.");
+    }
+
+    @Override
+    public void applyNormalsMode(final NormalsMode normalsMode, final ReadOnlyTransform worldTransform) {
+        // generated programs always normalize.
+    }
+
+    @Override
+    public void applyDefaultColor(final ReadOnlyColorRGBA defaultColor) {
+        final ReadOnlyColorRGBA color = defaultColor != null ? defaultColor : ColorRGBA.WHITE;
+        if (_defaultColor[0] != color.getRed() || _defaultColor[1] != color.getGreen()
+                || _defaultColor[2] != color.getBlue() || _defaultColor[3] != color.getAlpha()) {
+            _defaultColor[0] = color.getRed();
+            _defaultColor[1] = color.getGreen();
+            _defaultColor[2] = color.getBlue();
+            _defaultColor[3] = color.getAlpha();
+            _colorStamp = ++_stamp;
+        }
+    }
+
+    @Override
+    public boolean doTransforms(final ReadOnlyTransform transform) {
+        // set world matrix
+        if (!transform.isIdentity()) {
+            if (_modelViewDepth == MATRIX_STACK_DEPTH) {
+                throw new Ardor3dException("ModelView matrix stack overflow.");
+            }
+            System.arraycopy(_modelView, 0, _modelViewStack, _modelViewDepth++ * 16, 16);
+
+            _transformBuffer.rewind();
+            transform.getGLApplyMatrix(_transformBuffer);
+            _transformBuffer.rewind();
+            _transformBuffer.get(_tempMatrix);
+            _transformBuffer.rewind();
+
+            Matrix.multiplyMM(_modelView, 0, _modelViewStack, (_modelViewDepth - 1) * 16, _tempMatrix, 0);
+            _modelViewStamp = ++_stamp;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void undoTransforms(final ReadOnlyTransform transform) {
+        if (_modelViewDepth == 0) {
+            throw new Ardor3dException("ModelView matrix stack underflow.");
+        }
+        System.arraycopy(_modelViewStack, --_modelViewDepth * 16, _modelView, 0, 16);
+        _modelViewStamp = ++_stamp;
+    }
+
+    @Override
+    protected void pushInstanceMatrix(final float[] matrix, final int offset) {
+        if (_modelViewDepth == MATRIX_STACK_DEPTH) {
+            throw new Ardor3dException("ModelView matrix stack overflow.");
+        }
+        System.arraycopy(_modelView, 0, _modelViewStack, _modelViewDepth++ * 16, 16);
+        Matrix.multiplyMM(_modelView, 0, _modelViewStack, (_modelViewDepth - 1) * 16, matrix, offset);
+        _modelViewStamp = ++_stamp;
+    }
+
+    @Override
+    protected void popInstanceMatrix() {
+        undoTransforms(null);
+    }
+
+    @Override
+    public void setModelViewMatrix(final FloatBuffer matrix) {
+        final int pos = matrix.position();
+        matrix.get(_view);
+        matrix.position(pos);
+        System.arraycopy(_view, 0, _modelView, 0, 16);
+        _modelViewStamp = ++_stamp;
+
+        // light positions are specified in eye space, so they follow the view.
+        _lightStamp = ++_stamp;
+        viewChanged();
+    }
+
+    @Override
+    public void setProjectionMatrix(final FloatBuffer matrix) {
+        final int pos = matrix.position();
+        matrix.get(_projection);
+        matrix.position(pos);
+        _projectionStamp = ++_stamp;
+    }
+
+    @Override
+    public FloatBuffer getModelViewMatrix(final FloatBuffer store) {
+        return storeMatrix(_modelView, store);
+    }
+
+    @Override
+    public FloatBuffer getProjectionMatrix(final FloatBuffer store) {
+        return storeMatrix(_projection, store);
+    }
+
+    private FloatBuffer storeMatrix(final float[] matrix, final FloatBuffer store) {
+        FloatBuffer result = store;
+        if (result == null || result.remaining() < 16) {
+            result = BufferUtils.createFloatBuffer(16);
+        }
+        final int pos = result.position();
+        result.put(matrix);
+        result.position(pos);
+        return result;
+    }
+
+    private void setAttribEnabled(final int index, final boolean enabled) {
+        final int bit = 1 << index;
+        if (enabled && (_enabledAttribs & bit) == 0) {
+            GLES20.glEnableVertexAttribArray(index);
+            _enabledAttribs |= bit;
+        } else if (!enabled && (_enabledAttribs & bit) != 0) {
+            GLES20.glDisableVertexAttribArray(index);
+            _enabledAttribs &= ~bit;
+        }
+    }
+
+    private void setBoundVBO(final RendererRecord rendRecord, final int id) {
+        if (!rendRecord.isVboValid() || rendRecord.getCurrentVboId() != id) {
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, id);
+            rendRecord.setCurrentVboId(id);
+            rendRecord.setVboValid(true);
+        }
+    }
+
+    private void setupAttribute(final int index, final FloatBufferData data, final int valuesPerTuple) {
+        if (isAdaptiveVBO(data)) {
+            setupAttributeVBO(index, data, valuesPerTuple);
+            return;
+        }
+        final RenderContext context = ContextManager.getCurrentContext();
+        checkContext(context);
+
+        final FloatBuffer buffer = data != null ? data.getBuffer() : null;
+        if (buffer == null) {
+            setAttribEnabled(index, false);
+        } else {
+            // client side pointers are only honored with no array buffer bound.
+            setBoundVBO(context.getRendererRecord(), 0);
+            setAttribEnabled(index, true);
+            buffer.rewind();
+            GLES20.glVertexAttribPointer(index, valuesPerTuple, GLES20.GL_FLOAT, false, 0, buffer);
+        }
+    }
+
+    private void setupAttributeVBO(final int index, final FloatBufferData data, final int valuesPerTuple) {
+        final RenderContext context = ContextManager.getCurrentContext();
+        checkContext(context);
+        final RendererRecord rendRecord = context.getRendererRecord();
+
+        final int vboID = setupVBO(data, context, rendRecord);
+        if (vboID != 0) {
+            setAttribEnabled(index, true);
+            setBoundVBO(rendRecord, vboID);
+            GLES20.glVertexAttribPointer(index, valuesPerTuple, GLES20.GL_FLOAT, false, 0, getVBOOffset(data));
+        } else {
+            setAttribEnabled(index, false);
+        }
+    }
+
+    @Override
+    public void setupVertexData(final FloatBufferData vertexBufferData) {
+        setupAttribute(AndroidGLES20Program.ATTRIB_POSITION, vertexBufferData,
+                vertexBufferData != null ? vertexBufferData.getValuesPerTuple() : 0);
+    }
+
+    @Override
+    public void setupNormalData(final FloatBufferData normalBufferData) {
+        setupAttribute(AndroidGLES20Program.ATTRIB_NORMAL, normalBufferData, 3);
+    }
+
+    @Override
+    public void setupColorData(final FloatBufferData colorBufferData) {
+        final FloatBufferData baked = getBakedColors();
+        if (baked != null && colorBufferData != baked) {
+            setupColorData(baked);
+            return;
+        }
+        _colorArray = colorBufferData != null && colorBufferData.getBuffer() != null;
+        setupAttribute(AndroidGLES20Program.ATTRIB_COLOR, colorBufferData,
+                colorBufferData != null ? colorBufferData.getValuesPerTuple() : 0);
+    }
+
+    @Override
+    public void setupFogData(final FloatBufferData fogBufferData) {
+        // Ignore, fog is computed from eye distance.
+    }
+
+    @Override
+    public void setupTextureData(final List<FloatBufferData> textureCoords) {
+        _texCoordUnits = 0;
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+            final FloatBufferData data = textureCoords != null && i < textureCoords.size() ? textureCoords.get(i)
+                    : null;
+            setupAttribute(AndroidGLES20Program.ATTRIB_TEXCOORD0 + i, data, data != null ? data.getValuesPerTuple()
+                    : 0);
+            if (data != null && data.getBuffer() != null) {
+                _texCoordUnits |= 1 << i;
+            }
+        }
+    }
+
+    @Override
+    public void setupVertexDataVBO(final FloatBufferData data) {
+        setupAttributeVBO(AndroidGLES20Program.ATTRIB_POSITION, data, data != null ? data.getValuesPerTuple() : 0);
+    }
+
+    @Override
+    public void setupNormalDataVBO(final FloatBufferData data) {
+        setupAttributeVBO(AndroidGLES20Program.ATTRIB_NORMAL, data, 3);
+    }
+
+    @Override
+    public void setupColorDataVBO(final FloatBufferData data) {
+        final FloatBufferData baked = getBakedColors();
+        if (baked != null && data != baked) {
+            setupColorDataVBO(baked);
+            return;
+        }
+        _colorArray = data != null && data.getBuffer() != null;
+        setupAttributeVBO(AndroidGLES20Program.ATTRIB_COLOR, data, data != null ? data.getValuesPerTuple() : 0);
+    }
+
+    @Override
+    public void setupFogDataVBO(final FloatBufferData data) {
+        // Ignore, fog is computed from eye distance.
+    }
+
+    @Override
+    public void setupTextureDataVBO(final List<FloatBufferData> textureCoords) {
+        _texCoordUnits = 0;
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+            final FloatBufferData data = textureCoords != null && i < textureCoords.size() ? textureCoords.get(i)
+                    : null;
+            setupAttributeVBO(AndroidGLES20Program.ATTRIB_TEXCOORD0 + i, data, data != null ? data
+                    .getValuesPerTuple() : 0);
+            if (data != null && data.getBuffer() != null) {
+                _texCoordUnits |= 1 << i;
+            }
+        }
+    }
+
+    @Override
+    public void setupInterleavedDataVBO(final FloatBufferData interleaved, final FloatBufferData vertexCoords,
+            final FloatBufferData normalCoords, final FloatBufferData colorCoords,
+            final List<FloatBufferData> textureCoords) {
+        // XXX: fall back to one buffer per attribute until the interleaved layout is shared with the base renderer.
+        setupVertexDataVBO(vertexCoords);
+        setupNormalDataVBO(normalCoords);
+        setupColorDataVBO(colorCoords);
+        setupTextureDataVBO(textureCoords);
+    }
+
+    /**
+     * OpenGL ES 2.0 has a stream draw hint of its own.
+     */
+    @Override
+    protected int getGLVBOAccessMode(final VBOAccessMode vboAccessMode) {
+        if (vboAccessMode == VBOAccessMode.StreamDraw) {
+            return GLES20.GL_STREAM_DRAW;
+        }
+        return super.getGLVBOAccessMode(vboAccessMode);
+    }
+
+    /**
+     * The generated shaders read float attributes only.
+     */
+    @Override
+    protected AndroidQuantizedAttribute getQuantization(final FloatBufferData data) {
+        return null;
+    }
+
+    /**
+     * Attributes are set through glVertexAttribPointer, which the fixed function pointer cache does not track, so int
+     * indices can only be drawn with GL_OES_element_index_uint.
+     */
+    @Override
+    protected boolean offsetVertexArrays(final int baseVertex, final long pointers) {
+        return false;
+    }
+
+    @Override
+    public void drawElements(final IndexBufferData<?> indices, final int[] indexLengths, final IndexMode[] indexModes,
+            final int primcount) {
+        prepareProgram(indexModes);
+        super.drawElements(indices, indexLengths, indexModes, primcount);
+    }
+
+    @Override
+    public void drawElementsVBO(final IndexBufferData<?> indices, final int[] indexLengths,
+            final IndexMode[] indexModes, final int primcount) {
+        prepareProgram(indexModes);
+        super.drawElementsVBO(indices, indexLengths, indexModes, primcount);
+    }
+
+    @Override
+    public void drawArrays(final FloatBufferData vertices, final int[] indexLengths, final IndexMode[] indexModes,
+            final int primcount) {
+        prepareProgram(indexModes);
+        super.drawArrays(vertices, indexLengths, indexModes, primcount);
+    }
+
+    @Override
+    public void setupLineParameters(final float lineWidth, final int stippleFactor, final short stipplePattern,
+            final boolean antialiased) {
+        final LineRecord lineRecord = ContextManager.getCurrentContext().getLineRecord();
+
+        if (!lineRecord.isValid() || lineRecord.width != lineWidth) {
+            GLES20.glLineWidth(lineWidth);
+            lineRecord.width = lineWidth;
+        }
+
+        // Stipple and smoothing are not available in OpenGL ES 2.0
+
+        if (!lineRecord.isValid()) {
+            lineRecord.validate();
+        }
+    }
+
+    @Override
+    public void setupPointParameters(final float pointSize, final boolean antialiased, final boolean isSprite,
+            final boolean useDistanceAttenuation, final FloatBuffer attenuationCoefficients, final float minPointSize,
+            final float maxPointSize) {
+        if (_pointSize != pointSize) {
+            _pointSize = pointSize;
+            _pointStamp = ++_stamp;
+        }
+    }
+
+    @Override
+    public void doApplyState(final RenderState state) {
+        if (state == null) {
+            Log.w(AndroidCanvas.TAG, "AndroidGLES20Renderer.doApplyState - tried to apply a null state.");
+            return;
+        }
+
+        final RenderContext context = ContextManager.getCurrentContext();
+        switch (state.getType()) {
+            case Texture:
+                applyTextureState((TextureState) state);
+                return;
+            case Light:
+                context.setCurrentState(StateType.Light, getLightState((LightState) state));
+                _lightStamp = ++_stamp;
+                return;
+            case Material:
+                context.setCurrentState(StateType.Material, state);
+                _materialStamp = ++_stamp;
+                return;
+            case Fog:
+                context.setCurrentState(StateType.Fog, state);
+                _fogStamp = ++_stamp;
+                return;
+            case Blend:
+                AndroidBlendStateUtil.apply(getGL(), (BlendState) state, false);
+                _blendStamp = ++_stamp;
+                return;
+            case Clip:
+            case Shading:
+                // No user clip planes or flat shading in OpenGL ES 2.0
+                context.setCurrentState(state.getType(), state);
+                return;
+        }
+        super.doApplyState(state);
+    }
+
+    private void applyTextureState(final TextureState state) {
+        final RenderContext context = ContextManager.getCurrentContext();
+        final ContextCapabilities caps = context.getCapabilities();
+        final TextureStateRecord record = (TextureStateRecord) context.getStateRecord(StateType.Texture);
+        context.setCurrentState(StateType.Texture, state);
+        _textureStamp = ++_stamp;
+        _boundTextureUnits = 0;
+
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+            final TextureUnitRecord unitRecord = record.units[i];
+
+            Texture texture = state.isEnabled() ? state.getTexture(i) : null;
+            if (texture != null && texture.getType() != Texture.Type.TwoDimensional) {
+                Log.w(AndroidCanvas.TAG, "AndroidGLES20Renderer.applyTextureState - " + texture.getType()
+                        + " not supported by this renderer.");
+                texture = null;
+            }
+
+            int textureId = texture != null ? texture.getTextureIdForContext(context.getGlContextRep()) : 0;
+            if (texture != null && textureId == 0 && texture.getImage() == null) {
+                texture = null;
+            }
+
+            if (texture == null) {
+                if (i < state._keyCache.length) {
+                    state._keyCache[i] = null;
+                }
+                continue;
+            }
+
+            if (textureId == 0) {
+                // this will load and bind and set the records...
+                AndroidTextureStateUtil.load(getGL(), texture, i);
+                textureId = texture.getTextureIdForContext(context.getGlContextRep());
+                if (textureId == 0) {
+                    continue;
+                }
+            } else if (texture.isDirty(context.getGlContextRep())) {
+                AndroidTextureStateUtil.update(getGL(), texture, i);
+            } else if (!unitRecord.isValid() || unitRecord.boundTexture != textureId) {
+                AndroidTextureStateUtil.checkAndSetUnit(getGL(), i, record, caps);
+                GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+                if (Constants.stats) {
+                    StatCollector.addStat(StatType.STAT_TEXTURE_BINDS, 1);
+                }
+                unitRecord.boundTexture = textureId;
+            }
+
+            state._keyCache[i] = texture.getTextureKey();
+            _boundTextureUnits |= 1 << i;
+
+            final TextureRecord texRecord = record.getTextureRecord(textureId, texture.getType());
+            applyFilterAndWrap((Texture2D) texture, texRecord, i, record, caps);
+            if (!texRecord.isValid()) {
+                texRecord.validate();
+            }
+        }
+
+        if (!record.isValid()) {
+            record.validate();
+        }
+    }
+
+    private void applyFilterAndWrap(final Texture2D texture, final TextureRecord texRecord, final int unit,
+            final TextureStateRecord record, final ContextCapabilities caps) {
+        final int magFilter = AndroidTextureUtil.getGLMagFilter(texture.getMagnificationFilter());
+        if (!texRecord.isValid() || texRecord.magFilter != magFilter) {
+            AndroidTextureStateUtil.checkAndSetUnit(getGL(), unit, record, caps);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, magFilter);
+            texRecord.magFilter = magFilter;
+        }
+
+        final int minFilter = AndroidTextureUtil.getGLMinFilter(texture.getMinificationFilter());
+        if (!texRecord.isValid() || texRecord.minFilter != minFilter) {
+            AndroidTextureStateUtil.checkAndSetUnit(getGL(), unit, record, caps);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, minFilter);
+            texRecord.minFilter = minFilter;
+        }
+
+        final int wrapS = AndroidTextureStateUtil.getGLWrap(texture.getWrap(WrapAxis.S), caps);
+        if (!texRecord.isValid() || texRecord.wrapS != wrapS) {
+            AndroidTextureStateUtil.checkAndSetUnit(getGL(), unit, record, caps);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, wrapS);
+            texRecord.wrapS = wrapS;
+        }
+
+        final int wrapT = AndroidTextureStateUtil.getGLWrap(texture.getWrap(WrapAxis.T), caps);
+        if (!texRecord.isValid() || texRecord.wrapT != wrapT) {
+            AndroidTextureStateUtil.checkAndSetUnit(getGL(), unit, record, caps);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, wrapT);
+            texRecord.wrapT = wrapT;
+        }
+    }
+
+    /**
+     * Pick (generating if needed) the program matching the current states and bring its uniforms up to date.
+     */
+    private void prepareProgram(final IndexMode[] indexModes) {
+        final RenderContext context = ContextManager.getCurrentContext();
+        checkContext(context);
+
+        final long key = buildKey(context, indexModes);
+        AndroidGLES20Program program = _currentProgram;
+        if (program == null || program.getKey() != key) {
+            program = _programs.get(key);
+            if (program == null) {
+                program = new AndroidGLES20Program(key, AndroidGLES20ShaderGenerator.generateVertexShader(key),
+                        AndroidGLES20ShaderGenerator.generateFragmentShader(key));
+                _programs.put(key, program);
+                Log.d(AndroidCanvas.TAG, "AndroidGLES20Renderer.prepareProgram - generated program for key 0x"
+                        + Long.toHexString(key) + " (" + _programs.size() + " cached)");
+            }
+            GLES20.glUseProgram(program.getProgramId());
+            _currentProgram = program;
+        }
+
+        updateUniforms(context, program, key);
+    }
+
+    private long buildKey(final RenderContext context, final IndexMode[] indexModes) {
+        long key = 0;
+
+        final LightState ls = (LightState) context.getCurrentState(StateType.Light);
+        if (ls != null && ls.isEnabled()) {
+            key |= AndroidGLES20ShaderGenerator.KEY_LIGHTING;
+            final int count = Math.min(ls.getNumberOfChildren(), AndroidGLES20ShaderGenerator.MAX_LIGHTS);
+            for (int i = 0; i < count; i++) {
+                final Light light = ls.get(i);
+                if (light == null || !light.isEnabled()) {
+                    continue;
+                }
+                final long type;
+                switch (light.getType()) {
+                    case Directional:
+                        type = AndroidGLES20ShaderGenerator.LIGHT_DIRECTIONAL;
+                        break;
+                    case Spot:
+                        type = AndroidGLES20ShaderGenerator.LIGHT_SPOT;
+                        break;
+                    case Point:
+                    default:
+                        type = AndroidGLES20ShaderGenerator.LIGHT_POINT;
+                        break;
+                }
+                key |= type << AndroidGLES20ShaderGenerator.KEY_LIGHT_TYPES_SHIFT + 2 * i;
+            }
+
+            final MaterialState ms = (MaterialState) context.getCurrentState(StateType.Material);
+            if (ms != null && ms.isEnabled() && ms.getColorMaterial() != ColorMaterial.None) {
+                key |= AndroidGLES20ShaderGenerator.KEY_COLOR_MATERIAL;
+            }
+        }
+
+        if (_colorArray) {
+            key |= AndroidGLES20ShaderGenerator.KEY_COLOR_ARRAY;
+        }
+
+        final FogState fs = (FogState) context.getCurrentState(StateType.Fog);
+        if (fs != null && fs.isEnabled()) {
+            final long fog;
+            switch (fs.getDensityFunction()) {
+                case Exponential:
+                    fog = AndroidGLES20ShaderGenerator.FOG_EXP;
+                    break;
+                case ExponentialSquared:
+                    fog = AndroidGLES20ShaderGenerator.FOG_EXP2;
+                    break;
+                case Linear:
+                default:
+                    fog = AndroidGLES20ShaderGenerator.FOG_LINEAR;
+                    break;
+            }
+            key |= fog << AndroidGLES20ShaderGenerator.KEY_FOG_SHIFT;
+        }
+
+        final BlendState bs = (BlendState) context.getCurrentState(StateType.Blend);
+        if (bs != null && bs.isEnabled() && bs.isTestEnabled()) {
+            final long test;
+            switch (bs.getTestFunction()) {
+                case Never:
+                    test = AndroidGLES20ShaderGenerator.TEST_NEVER;
+                    break;
+                case LessThan:
+                    test = AndroidGLES20ShaderGenerator.TEST_LESS;
+                    break;
+                case EqualTo:
+                    test = AndroidGLES20ShaderGenerator.TEST_EQUAL;
+                    break;
+                case LessThanOrEqualTo:
+                    test = AndroidGLES20ShaderGenerator.TEST_LEQUAL;
+                    break;
+                case GreaterThan:
+                    test = AndroidGLES20ShaderGenerator.TEST_GREATER;
+                    break;
+                case NotEqualTo:
+                    test = AndroidGLES20ShaderGenerator.TEST_NOTEQUAL;
+                    break;
+                case GreaterThanOrEqualTo:
+                    test = AndroidGLES20ShaderGenerator.TEST_GEQUAL;
+                    break;
+                case Always:
+                default:
+                    test = 0;
+                    break;
+            }
+            key |= test << AndroidGLES20ShaderGenerator.KEY_TEST_SHIFT;
+        }
+
+        for (final IndexMode mode : indexModes) {
+            if (mode == IndexMode.Points) {
+                key |= AndroidGLES20ShaderGenerator.KEY_POINTS;
+                break;
+            }
+        }
+
+        final TextureState ts = (TextureState) context.getCurrentState(StateType.Texture);
+        final int units = _boundTextureUnits & _texCoordUnits;
+        if (ts != null && units != 0) {
+            for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+                if ((units & 1 << i) == 0) {
+                    continue;
+                }
+                final long env;
+                switch (ts.getTexture(i).getApplyMode()) {
+                    case Replace:
+                        env = AndroidGLES20ShaderGenerator.ENV_REPLACE;
+                        break;
+                    case Decal:
+                        env = AndroidGLES20ShaderGenerator.ENV_DECAL;
+                        break;
+                    case Blend:
+                        env = AndroidGLES20ShaderGenerator.ENV_BLEND;
+                        break;
+                    case Add:
+                        env = AndroidGLES20ShaderGenerator.ENV_ADD;
+                        break;
+                    case Modulate:
+                    case Combine:
+                    default:
+                        // XXX: combiners are approximated by modulate.
+                        env = AndroidGLES20ShaderGenerator.ENV_MODULATE;
+                        break;
+                }
+                key |= env << AndroidGLES20ShaderGenerator.KEY_TEXTURE_SHIFT + 3 * i;
+            }
+        }
+
+        return key;
+    }
+
+    private void updateUniforms(final RenderContext context, final AndroidGLES20Program program, final long key) {
+        if (program._projectionStamp != _projectionStamp) {
+            GLES20.glUniformMatrix4fv(program.u_projection, 1, false, _projection, 0);
+            program._projectionStamp = _projectionStamp;
+        }
+
+        if (program._modelViewStamp != _modelViewStamp) {
+            GLES20.glUniformMatrix4fv(program.u_modelView, 1, false, _modelView, 0);
+            if (program.u_normalMatrix >= 0) {
+                // inverse transpose of the upper 3x3
+                Matrix.invertM(_tempMatrix, 0, _modelView, 0);
+                Matrix.transposeM(_tempMatrix2, 0, _tempMatrix, 0);
+                for (int c = 0; c < 3; c++) {
+                    for (int r = 0; r < 3; r++) {
+                        _normalMatrix[c * 3 + r] = _tempMatrix2[c * 4 + r];
+                    }
+                }
+                GLES20.glUniformMatrix3fv(program.u_normalMatrix, 1, false, _normalMatrix, 0);
+            }
+            program._modelViewStamp = _modelViewStamp;
+        }
+
+        if (program.u_defaultColor >= 0 && program._colorStamp != _colorStamp) {
+            GLES20.glUniform4fv(program.u_defaultColor, 1, _defaultColor, 0);
+            program._colorStamp = _colorStamp;
+        }
+
+        if (program.u_pointSize >= 0 && program._pointStamp != _pointStamp) {
+            GLES20.glUniform1f(program.u_pointSize, _pointSize);
+            program._pointStamp = _pointStamp;
+        }
+
+        if ((key & AndroidGLES20ShaderGenerator.KEY_LIGHTING) != 0) {
+            if (program._lightStamp != _lightStamp) {
+                uploadLights((LightState) context.getCurrentState(StateType.Light), program, key);
+                program._lightStamp = _lightStamp;
+            }
+            if (program._materialStamp != _materialStamp) {
+                uploadMaterial((MaterialState) context.getCurrentState(StateType.Material), program);
+                program._materialStamp = _materialStamp;
+            }
+        }
+
+        if (program.u_fogColor >= 0 && program._fogStamp != _fogStamp) {
+            final FogState fs = (FogState) context.getCurrentState(StateType.Fog);
+            final ReadOnlyColorRGBA color = fs.getColor();
+            GLES20.glUniform4f(program.u_fogColor, color.getRed(), color.getGreen(), color.getBlue(), color
+                    .getAlpha());
+            GLES20.glUniform3f(program.u_fogParams, fs.getStart(), fs.getEnd(), fs.getDensity());
+            program._fogStamp = _fogStamp;
+        }
+
+        if (program.u_alphaRef >= 0 && program._blendStamp != _blendStamp) {
+            final BlendState bs = (BlendState) context.getCurrentState(StateType.Blend);
+            GLES20.glUniform1f(program.u_alphaRef, bs.getReference());
+            program._blendStamp = _blendStamp;
+        }
+
+        if (program._textureStamp != _textureStamp) {
+            final TextureState ts = (TextureState) context.getCurrentState(StateType.Texture);
+            for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_TEXTURE_UNITS; i++) {
+                final int env = AndroidGLES20ShaderGenerator.getTextureEnv(key, i);
+                if (env == 0) {
+                    continue;
+                }
+                final Texture texture = ts.getTexture(i);
+                _textureMatrixBuffer.rewind();
+                texture.getTextureMatrix().toFloatBuffer(_textureMatrixBuffer, true);
+                _textureMatrixBuffer.rewind();
+                GLES20.glUniformMatrix4fv(program.u_textureMatrix[i], 1, false, _textureMatrixBuffer);
+                if (env == AndroidGLES20ShaderGenerator.ENV_BLEND) {
+                    final ReadOnlyColorRGBA blend = texture.getBlendColor();
+                    GLES20.glUniform4f(program.u_texEnvColor[i], blend.getRed(), blend.getGreen(), blend.getBlue(),
+                            blend.getAlpha());
+                }
+            }
+            program._textureStamp = _textureStamp;
+        }
+    }
+
+    private void uploadLights(final LightState state, final AndroidGLES20Program program, final long key) {
+        final ReadOnlyColorRGBA globalAmbient = (state.getLightMask() & LightState.MASK_GLOBALAMBIENT) == 0 ? state
+                .getGlobalAmbient() : ColorRGBA.BLACK_NO_ALPHA;
+        GLES20.glUniform4f(program.u_globalAmbient, globalAmbient.getRed(), globalAmbient.getGreen(), globalAmbient
+                .getBlue(), globalAmbient.getAlpha());
+
+        for (int i = 0; i < AndroidGLES20ShaderGenerator.MAX_LIGHTS; i++) {
+            final int type = AndroidGLES20ShaderGenerator.getLightType(key, i);
+            if (type == AndroidGLES20ShaderGenerator.LIGHT_NONE) {
+                continue;
+            }
+            final Light light = state.get(i);
+
+            uploadColor(program.u_lightAmbient[i], light.getAmbient(), state, light, LightState.MASK_AMBIENT);
+            uploadColor(program.u_lightDiffuse[i], light.getDiffuse(), state, light, LightState.MASK_DIFFUSE);
+            uploadColor(program.u_lightSpecular[i], light.getSpecular(), state, light, LightState.MASK_SPECULAR);
+
+            if (type == AndroidGLES20ShaderGenerator.LIGHT_DIRECTIONAL) {
+                final ReadOnlyVector3 direction = ((DirectionalLight) light).getDirection();
+                toEyeSpace(-direction.getXf(), -direction.getYf(), -direction.getZf(), 0);
+            } else {
+                final ReadOnlyVector3 location = ((PointLight) light).getLocation();
+                toEyeSpace(location.getXf(), location.getYf(), location.getZf(), 1);
+                if (light.isAttenuate()) {
+                    GLES20.glUniform3f(program.u_lightAttenuation[i], light.getConstant(), light.getLinear(), light
+                            .getQuadratic());
+                } else {
+                    GLES20.glUniform3f(program.u_lightAttenuation[i], 1, 0, 0);
+                }
+            }
+            GLES20.glUniform4fv(program.u_lightPosition[i], 1, _tempVecOut, 0);
+
+            if (type == AndroidGLES20ShaderGenerator.LIGHT_SPOT) {
+                final SpotLight spot = (SpotLight) light;
+                final ReadOnlyVector3 direction = spot.getDirection();
+                toEyeSpace(direction.getXf(), direction.getYf(), direction.getZf(), 0);
+                GLES20.glUniform3f(program.u_lightSpotDirection[i], _tempVecOut[0], _tempVecOut[1], _tempVecOut[2]);
+                GLES20.glUniform2f(program.u_lightSpot[i], (float) Math.cos(spot.getAngle() * MathUtils.DEG_TO_RAD),
+                        spot.getExponent());
+            }
+        }
+    }
+
+    private void uploadColor(final int location, final ReadOnlyColorRGBA color, final LightState state,
+            final Light light, final int mask) {
+        if ((state.getLightMask() & mask) == 0 && (light.getLightMask() & mask) == 0) {
+            GLES20.glUniform4f(location, color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+        } else {
+            GLES20.glUniform4f(location, 0, 0, 0, 0);
+        }
+    }
+
+    private void toEyeSpace(final float x, final float y, final float z, final float w) {
+        _tempVecIn[0] = x;
+        _tempVecIn[1] = y;
+        _tempVecIn[2] = z;
+        _tempVecIn[3] = w;
+        Matrix.multiplyMV(_tempVecOut, 0, _view, 0, _tempVecIn, 0);
+    }
+
+    private void uploadMaterial(final MaterialState state, final AndroidGLES20Program program) {
+        final boolean enabled = state != null && state.isEnabled();
+        final ReadOnlyColorRGBA ambient = enabled ? state.getAmbient() : MaterialState.DEFAULT_AMBIENT;
+        final ReadOnlyColorRGBA diffuse = enabled ? state.getDiffuse() : MaterialState.DEFAULT_DIFFUSE;
+        final ReadOnlyColorRGBA specular = enabled ? state.getSpecular() : MaterialState.DEFAULT_SPECULAR;
+        final ReadOnlyColorRGBA emissive = enabled ? state.getEmissive() : MaterialState.DEFAULT_EMISSIVE;
+        final float shininess = enabled ? state.getShininess() : MaterialState.DEFAULT_SHININESS;
+
+        GLES20.glUniform4f(program.u_matAmbient, ambient.getRed(), ambient.getGreen(), ambient.getBlue(), ambient
+                .getAlpha());
+        GLES20.glUniform4f(program.u_matDiffuse, diffuse.getRed(), diffuse.getGreen(), diffuse.getBlue(), diffuse
+                .getAlpha());
+        GLES20.glUniform4f(program.u_matSpecular, specular.getRed(), specular.getGreen(), specular.getBlue(),
+                specular.getAlpha());
+        GLES20.glUniform4f(program.u_matEmissive, emissive.getRed(), emissive.getGreen(), emissive.getBlue(),
+                emissive.getAlpha());
+        GLES20.glUniform1f(program.u_matShininess, shininess);
+    }
+}
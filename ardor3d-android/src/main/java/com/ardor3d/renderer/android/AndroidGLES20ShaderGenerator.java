@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+/**
+ * Builds GLSL ES 1.00 sources that emulate the fixed function pipeline for a single permutation of light, texture, fog
+ * and material settings. A permutation is packed into a long key (see the KEY_ constants), so only the stages a draw
+ * actually uses end up in the generated program.
+ */
+public final class AndroidGLES20ShaderGenerator {
+
+    public static final int MAX_LIGHTS = 8;
+    public static final int MAX_TEXTURE_UNITS = 4;
+
+    public static final int LIGHT_NONE = 0;
+    public static final int LIGHT_DIRECTIONAL = 1;
+    public static final int LIGHT_POINT = 2;
+    public static final int LIGHT_SPOT = 3;
+
+    public static final int FOG_NONE = 0;
+    public static final int FOG_LINEAR = 1;
+    public static final int FOG_EXP = 2;
+    public static final int FOG_EXP2 = 3;
+
+    /** texture environment values stored per unit in the key; 0 means the unit is off. */
+    public static final int ENV_REPLACE = 1;
+    public static final int ENV_DECAL = 2;
+    public static final int ENV_MODULATE = 3;
+    public static final int ENV_BLEND = 4;
+    public static final int ENV_ADD = 5;
+
+    /** alpha test functions stored in the key; 0 means no test. */
+    public static final int TEST_NEVER = 1;
+    public static final int TEST_LESS = 2;
+    public static final int TEST_EQUAL = 3;
+    public static final int TEST_LEQUAL = 4;
+    public static final int TEST_GREATER = 5;
+    public static final int TEST_NOTEQUAL = 6;
+    public static final int TEST_GEQUAL = 7;
+
+    public static final long KEY_LIGHTING = 1L;
+    public static final int KEY_LIGHT_TYPES_SHIFT = 1; // 2 bits per light, 8 lights
+    public static final long KEY_COLOR_ARRAY = 1L << 17;
+    public static final long KEY_COLOR_MATERIAL = 1L << 18;
+    public static final int KEY_FOG_SHIFT = 19; // 2 bits
+    public static final int KEY_TEST_SHIFT = 21; // 3 bits
+    public static final long KEY_POINTS = 1L << 24;
+    public static final int KEY_TEXTURE_SHIFT = 25; // 3 bits per unit, 4 units
+
+    private AndroidGLES20ShaderGenerator() {}
+
+    public static int getLightType(final long key, final int light) {
+        return (int) (key >>> KEY_LIGHT_TYPES_SHIFT + 2 * light) & 0x3;
+    }
+
+    public static int getFogMode(final long key) {
+        return (int) (key >>> KEY_FOG_SHIFT) & 0x3;
+    }
+
+    public static int getAlphaTest(final long key) {
+        return (int) (key >>> KEY_TEST_SHIFT) & 0x7;
+    }
+
+    public static int getTextureEnv(final long key, final int unit) {
+        return (int) (key >>> KEY_TEXTURE_SHIFT + 3 * unit) & 0x7;
+    }
+
+    public static String generateVertexShader(final long key) {
+        final boolean lighting = (key & KEY_LIGHTING) != 0;
+        final boolean colorArray = (key & KEY_COLOR_ARRAY) != 0;
+        final boolean colorMaterial = (key & KEY_COLOR_MATERIAL) != 0;
+        final int fog = getFogMode(key);
+
+        final StringBuilder sb = new StringBuilder(2048);
+        sb.append("uniform mat4 u_modelView;\n");
+        sb.append("uniform mat4 u_projection;\n");
+        sb.append("attribute vec4 a_position;\n");
+        sb.append("varying vec4 v_color;\n");
+        if (colorArray) {
+            sb.append("attribute vec4 a_color;\n");
+        } else {
+            sb.append("uniform vec4 u_defaultColor;\n");
+        }
+        if ((key & KEY_POINTS) != 0) {
+            sb.append("uniform float u_pointSize;\n");
+        }
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            if (getTextureEnv(key, i) != 0) {
+                sb.append("attribute vec4 a_texCoord").append(i).append(";\n");
+                sb.append("uniform mat4 u_textureMatrix").append(i).append(";\n");
+                sb.append("varying vec2 v_texCoord").append(i).append(";\n");
+            }
+        }
+        if (fog != FOG_NONE) {
+            sb.append("uniform vec3 u_fogParams;\n"); // start, end, density
+            sb.append("varying float v_fogFactor;\n");
+        }
+        if (lighting) {
+            sb.append("attribute vec3 a_normal;\n");
+            sb.append("uniform mat3 u_normalMatrix;\n");
+            sb.append("uniform vec4 u_globalAmbient;\n");
+            sb.append("uniform vec4 u_matAmbient;\n");
+            sb.append("uniform vec4 u_matDiffuse;\n");
+            sb.append("uniform vec4 u_matSpecular;\n");
+            sb.append("uniform vec4 u_matEmissive;\n");
+            sb.append("uniform float u_matShininess;\n");
+            for (int i = 0; i < MAX_LIGHTS; i++) {
+                final int type = getLightType(key, i);
+                if (type == LIGHT_NONE) {
+                    continue;
+                }
+                sb.append("uniform vec4 u_lightPosition").append(i).append(";\n");
+                sb.append("uniform vec4 u_lightAmbient").append(i).append(";\n");
+                sb.append("uniform vec4 u_lightDiffuse").append(i).append(";\n");
+                sb.append("uniform vec4 u_lightSpecular").append(i).append(";\n");
+                if (type != LIGHT_DIRECTIONAL) {
+                    sb.append("uniform vec3 u_lightAttenuation").append(i).append(";\n");
+                }
+                if (type == LIGHT_SPOT) {
+                    sb.append("uniform vec3 u_lightSpotDirection").append(i).append(";\n");
+                    sb.append("uniform vec2 u_lightSpot").append(i).append(";\n"); // cos(cutoff), exponent
+                }
+            }
+        }
+
+        sb.append("void main() {\n");
+        sb.append("  vec4 eyePos = u_modelView * a_position;\n");
+        sb.append("  gl_Position = u_projection * eyePos;\n");
+        sb.append(colorArray ? "  vec4 baseColor = a_color;\n" : "  vec4 baseColor = u_defaultColor;\n");
+        if (lighting) {
+            sb.append("  vec3 n = normalize(u_normalMatrix * a_normal);\n");
+            sb.append("  vec3 v = normalize(-eyePos.xyz);\n");
+            sb.append("  vec4 ambient = ").append(colorMaterial ? "baseColor" : "u_matAmbient").append(";\n");
+            sb.append("  vec4 diffuse = ").append(colorMaterial ? "baseColor" : "u_matDiffuse").append(";\n");
+            sb.append("  vec4 lit = u_matEmissive + u_globalAmbient * ambient;\n");
+            sb.append("  vec3 l; float att; float ndotl; vec3 h;\n");
+            for (int i = 0; i < MAX_LIGHTS; i++) {
+                final int type = getLightType(key, i);
+                if (type == LIGHT_NONE) {
+                    continue;
+                }
+                if (type == LIGHT_DIRECTIONAL) {
+                    sb.append("  l = normalize(u_lightPosition").append(i).append(".xyz);\n");
+                    sb.append("  att = 1.0;\n");
+                } else {
+                    sb.append("  l = u_lightPosition").append(i).append(".xyz - eyePos.xyz;\n");
+                    sb.append("  att = length(l);\n");
+                    sb.append("  l = l / att;\n");
+                    sb.append("  att = 1.0 / (u_lightAttenuation").append(i).append(".x + u_lightAttenuation")
+                            .append(i).append(".y * att + u_lightAttenuation").append(i).append(".z * att * att);\n");
+                    if (type == LIGHT_SPOT) {
+                        sb.append("  float spot").append(i).append(" = dot(-l, normalize(u_lightSpotDirection")
+                                .append(i).append("));\n");
+                        sb.append("  att *= spot").append(i).append(" < u_lightSpot").append(i)
+                                .append(".x ? 0.0 : pow(max(spot").append(i).append(", 0.0), u_lightSpot").append(i)
+                                .append(".y);\n");
+                    }
+                }
+                sb.append("  ndotl = max(dot(n, l), 0.0);\n");
+                sb.append("  h = normalize(l + v);\n");
+                sb.append("  lit += att * (u_lightAmbient").append(i).append(" * ambient + ndotl * u_lightDiffuse")
+                        .append(i).append(" * diffuse");
+                sb.append(" + (ndotl > 0.0 ? pow(max(dot(n, h), 0.0), u_matShininess) : 0.0) * u_lightSpecular")
+                        .append(i).append(" * u_matSpecular);\n");
+            }
+            sb.append("  v_color = vec4(lit.rgb, diffuse.a);\n");
+        } else {
+            sb.append("  v_color = baseColor;\n");
+        }
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            if (getTextureEnv(key, i) != 0) {
+                sb.append("  v_texCoord").append(i).append(" = (u_textureMatrix").append(i).append(" * a_texCoord")
+                        .append(i).append(").xy;\n");
+            }
+        }
+        switch (fog) {
+            case FOG_LINEAR:
+                sb.append("  v_fogFactor = (u_fogParams.y + eyePos.z) / (u_fogParams.y - u_fogParams.x);\n");
+                sb.append("  v_fogFactor = clamp(v_fogFactor, 0.0, 1.0);\n");
+                break;
+            case FOG_EXP:
+                sb.append("  v_fogFactor = clamp(exp(u_fogParams.z * eyePos.z), 0.0, 1.0);\n");
+                break;
+            case FOG_EXP2:
+                sb.append("  float fogDist = u_fogParams.z * eyePos.z;\n");
+                sb.append("  v_fogFactor = clamp(exp(-fogDist * fogDist), 0.0, 1.0);\n");
+                break;
+        }
+        if ((key & KEY_POINTS) != 0) {
+            sb.append("  gl_PointSize = u_pointSize;\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public static String generateFragmentShader(final long key) {
+        final int fog = getFogMode(key);
+        final int test = getAlphaTest(key);
+
+        final StringBuilder sb = new StringBuilder(1024);
+        sb.append("precision mediump float;\n");
+        sb.append("varying vec4 v_color;\n");
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            final int env = getTextureEnv(key, i);
+            if (env != 0) {
+                sb.append("uniform sampler2D u_texture").append(i).append(";\n");
+                sb.append("varying vec2 v_texCoord").append(i).append(";\n");
+                if (env == ENV_BLEND) {
+                    sb.append("uniform vec4 u_texEnvColor").append(i).append(";\n");
+                }
+            }
+        }
+        if (fog != FOG_NONE) {
+            sb.append("uniform vec4 u_fogColor;\n");
+            sb.append("varying float v_fogFactor;\n");
+        }
+        if (test != 0) {
+            sb.append("uniform float u_alphaRef;\n");
+        }
+
+        sb.append("void main() {\n");
+        sb.append("  vec4 color = v_color;\n");
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            final int env = getTextureEnv(key, i);
+            if (env == 0) {
+                continue;
+            }
+            sb.append("  vec4 tex").append(i).append(" = texture2D(u_texture").append(i).append(", v_texCoord")
+                    .append(i).append(");\n");
+            final String t = "tex" + i;
+            switch (env) {
+                case ENV_REPLACE:
+                    sb.append("  color = ").append(t).append(";\n");
+                    break;
+                case ENV_DECAL:
+                    sb.append("  color = vec4(mix(color.rgb, ").append(t).append(".rgb, ").append(t)
+                            .append(".a), color.a);\n");
+                    break;
+                case ENV_BLEND:
+                    sb.append("  color = vec4(mix(color.rgb, u_texEnvColor").append(i).append(".rgb, ").append(t)
+                            .append(".rgb), color.a * ").append(t).append(".a);\n");
+                    break;
+                case ENV_ADD:
+                    sb.append("  color = vec4(color.rgb + ").append(t).append(".rgb, color.a * ").append(t)
+                            .append(".a);\n");
+                    break;
+                case ENV_MODULATE:
+                default:
+                    sb.append("  color *= ").append(t).append(";\n");
+                    break;
+            }
+        }
+        switch (test) {
+            case TEST_NEVER:
+                sb.append("  discard;\n");
+                break;
+            case TEST_LESS:
+                sb.append("  if (color.a >= u_alphaRef) discard;\n");
+                break;
+            case TEST_EQUAL:
+                sb.append("  if (color.a != u_alphaRef) discard;\n");
+                break;
+            case TEST_LEQUAL:
+                sb.append("  if (color.a > u_alphaRef) discard;\n");
+                break;
+            case TEST_GREATER:
+                sb.append("  if (color.a <= u_alphaRef) discard;\n");
+                break;
+            case TEST_NOTEQUAL:
+                sb.append("  if (color.a == u_alphaRef) discard;\n");
+                break;
+            case TEST_GEQUAL:
+                sb.append("  if (color.a < u_alphaRef) discard;\n");
+                break;
+        }
+        if (fog != FOG_NONE) {
+            sb.append("  color.rgb = mix(u_fogColor.rgb, color.rgb, v_fogFactor);\n");
+        }
+        sb.append("  gl_FragColor = color;\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
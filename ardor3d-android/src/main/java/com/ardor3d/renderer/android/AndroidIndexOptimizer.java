@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.renderer.IndexMode;
+import com.ardor3d.scenegraph.IndexBufferData;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * Rewrites triangle indices for the post-transform vertex cache, the first time they are drawn. All sections of a
+ * mesh, whether triangles, strips or fans, are merged into one triangle list, which is then reordered following Tom
+ * Forsyth's linear-speed vertex cache optimization, so the mesh is drawn with a single call and far fewer vertices are
+ * transformed more than once.
+ * <p>
+ * Results are cached per source index data, and rebuilt when the source is flagged for refresh. Meshes with line or
+ * point sections are left alone. The average cache miss ratio (ACMR, vertices transformed per triangle) is logged and
+ * kept in each {@link Result}, measured against a FIFO cache of {@link #getSimulatedCacheSize()} entries.
+ */
+public class AndroidIndexOptimizer {
+
+    /** Size of the LRU cache the optimizer scores vertices for. */
+    public static final int OPTIMIZE_CACHE_SIZE = 32;
+    public static final int DEFAULT_SIMULATED_CACHE_SIZE = 16;
+
+    private static final IndexMode[] TRIANGLES = { IndexMode.Triangles };
+
+    private static final float[] CACHE_SCORES = new float[OPTIMIZE_CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[32];
+    static {
+        for (int i = 0; i < OPTIMIZE_CACHE_SIZE; i++) {
+            // the last triangle's vertices score the same, whatever order they were added in.
+            CACHE_SCORES[i] = i < 3 ? 0.75f : (float) Math.pow(1 - (i - 3) / (float) (OPTIMIZE_CACHE_SIZE - 3), 1.5);
+        }
+        for (int i = 1; i < VALENCE_SCORES.length; i++) {
+            VALENCE_SCORES[i] = (float) (2 * Math.pow(i, -0.5));
+        }
+    }
+
+    /**
+     * The optimized indices of one source.
+     */
+    public static class Result {
+        private final IndexBufferData<?> _indices;
+        private final int _sourceLimit;
+        private final float _acmrBefore, _acmrAfter;
+
+        Result(final IndexBufferData<?> indices, final int sourceLimit, final float acmrBefore, final float acmrAfter) {
+            _indices = indices;
+            _sourceLimit = sourceLimit;
+            _acmrBefore = acmrBefore;
+            _acmrAfter = acmrAfter;
+        }
+
+        /**
+         * @return a triangle list, or null if the source could not be optimized.
+         */
+        public IndexBufferData<?> getIndices() {
+            return _indices;
+        }
+
+        public IndexMode[] getIndexModes() {
+            return TRIANGLES;
+        }
+
+        public float getAcmrBefore() {
+            return _acmrBefore;
+        }
+
+        public float getAcmrAfter() {
+            return _acmrAfter;
+        }
+    }
+
+    // keyed by source index data
+    private final Map<Object, Result> _results = new WeakHashMap<Object, Result>();
+    // index data created by this optimizer, keyed by index data
+    private final Map<Object, Boolean> _created = new WeakHashMap<Object, Boolean>();
+
+    private int _simulatedCacheSize = DEFAULT_SIMULATED_CACHE_SIZE;
+
+    public void setSimulatedCacheSize(final int simulatedCacheSize) {
+        _simulatedCacheSize = simulatedCacheSize;
+    }
+
+    public int getSimulatedCacheSize() {
+        return _simulatedCacheSize;
+    }
+
+    /**
+     * @return the optimized version of the given indices, optimizing them now if needed, or null if they can't be
+     *         optimized and should be drawn as they are.
+     */
+    public Result get(final IndexBufferData<?> indices, final int[] indexLengths, final IndexMode[] indexModes) {
+        if (_created.containsKey(indices)) {
+            return null;
+        }
+        final Result cached = _results.get(indices);
+        if (cached != null && !indices.isNeedsRefresh() && cached._sourceLimit == indices.getBufferLimit()) {
+            return cached._indices != null ? cached : null;
+        }
+
+        final Result result = optimize(indices, indexLengths, indexModes);
+        _results.put(indices, result);
+        if (result._indices == null) {
+            return null;
+        }
+        // the source itself is never uploaded, so the flag is ours to clear.
+        indices.setNeedsRefresh(false);
+        _created.put(result._indices, Boolean.TRUE);
+        return result;
+    }
+
+    /**
+     * Forget the optimized version of the given indices, if any.
+     *
+     * @return the removed result, whose indices may still need their VBO deleted, or null.
+     */
+    public Result remove(final Object indices) {
+        final Result result = _results.remove(indices);
+        return result != null && result._indices != null ? result : null;
+    }
+
+    private Result optimize(final IndexBufferData<?> indices, final int[] indexLengths, final IndexMode[] indexModes) {
+        final int limit = indices.getBufferLimit();
+        final int sections = indexLengths != null ? indexLengths.length : 1;
+
+        // merge all sections into one list
+        int capacity = 0;
+        for (int i = 0, offset = 0; i < sections; i++) {
+            final IndexMode mode = indexModes[Math.min(i, indexModes.length - 1)];
+            final int length = indexLengths != null ? indexLengths[i] : limit;
+            if (mode != IndexMode.Triangles && mode != IndexMode.TriangleStrip && mode != IndexMode.TriangleFan
+                    || offset + length > limit) {
+                return new Result(null, limit, 0, 0);
+            }
+            capacity += mode == IndexMode.Triangles ? length : Math.max(0, length - 2) * 3;
+            offset += length;
+        }
+        final int[] triangles = new int[capacity];
+        int count = 0, vertexCount = 0;
+        for (int i = 0, offset = 0; i < sections; i++) {
+            final IndexMode mode = indexModes[Math.min(i, indexModes.length - 1)];
+            final int length = indexLengths != null ? indexLengths[i] : limit;
+            if (mode == IndexMode.Triangles) {
+                for (int j = 0; j + 2 < length; j += 3) {
+                    count = addTriangle(triangles, count, indices.get(offset + j), indices.get(offset + j + 1),
+                            indices.get(offset + j + 2));
+                }
+            } else {
+                for (int j = 2; j < length; j++) {
+                    final int a, b;
+                    if (mode == IndexMode.TriangleFan) {
+                        a = indices.get(offset);
+                        b = indices.get(offset + j - 1);
+                    } else if ((j & 1) == 0) {
+                        a = indices.get(offset + j - 2);
+                        b = indices.get(offset + j - 1);
+                    } else {
+                        // odd strip triangles are flipped to keep the winding.
+                        a = indices.get(offset + j - 1);
+                        b = indices.get(offset + j - 2);
+                    }
+                    count = addTriangle(triangles, count, a, b, indices.get(offset + j));
+                }
+            }
+            offset += length;
+        }
+        for (int i = 0; i < count; i++) {
+            vertexCount = Math.max(vertexCount, triangles[i] + 1);
+        }
+
+        final float before = acmr(indices, indexLengths, indexModes, vertexCount);
+        final int[] optimized = reorder(triangles, count, vertexCount);
+        final float after = acmr(optimized, count, vertexCount);
+
+        final IndexBufferData<?> result = BufferUtils.createIndexBufferData(count, vertexCount - 1);
+        for (int i = 0; i < count; i++) {
+            result.put(optimized[i]);
+        }
+        result.getBuffer().rewind();
+        result.setVboAccessMode(indices.getVboAccessMode());
+
+        Log.i(AndroidCanvas.TAG, "AndroidIndexOptimizer - " + count / 3 + " triangles in " + sections
+                + " sections, ACMR " + before + " -> " + after);
+        return new Result(result, limit, before, after);
+    }
+
+    private static int addTriangle(final int[] triangles, final int count, final int a, final int b, final int c) {
+        if (a == b || b == c || a == c) {
+            // degenerate, e.g. stitching strips together.
+            return count;
+        }
+        triangles[count] = a;
+        triangles[count + 1] = b;
+        triangles[count + 2] = c;
+        return count + 3;
+    }
+
+    /**
+     * @return the triangles reordered for the vertex cache.
+     */
+    private static int[] reorder(final int[] triangles, final int count, final int vertexCount) {
+        final int triangleCount = count / 3;
+
+        // triangles using each vertex
+        final int[] remaining = new int[vertexCount];
+        for (int i = 0; i < count; i++) {
+            remaining[triangles[i]]++;
+        }
+        final int[] adjacencyStart = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyStart[v + 1] = adjacencyStart[v] + remaining[v];
+        }
+        final int[] adjacency = new int[count];
+        final int[] filled = new int[vertexCount];
+        for (int i = 0; i < count; i++) {
+            final int v = triangles[i];
+            adjacency[adjacencyStart[v] + filled[v]++] = i / 3;
+        }
+
+        final int[] cachePosition = new int[vertexCount];
+        final float[] vertexScores = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            cachePosition[v] = -1;
+            vertexScores[v] = score(-1, remaining[v]);
+        }
+        final float[] triangleScores = new float[triangleCount];
+        final boolean[] added = new boolean[triangleCount];
+        int best = -1;
+        float bestScore = -1;
+        for (int t = 0; t < triangleCount; t++) {
+            triangleScores[t] = vertexScores[triangles[t * 3]] + vertexScores[triangles[t * 3 + 1]]
+                    + vertexScores[triangles[t * 3 + 2]];
+            if (triangleScores[t] > bestScore) {
+                bestScore = triangleScores[t];
+                best = t;
+            }
+        }
+
+        final int[] result = new int[count];
+        final int[] cache = new int[OPTIMIZE_CACHE_SIZE + 3];
+        final int[] newCache = new int[OPTIMIZE_CACHE_SIZE + 3];
+        int cacheSize = 0;
+        int scan = 0;
+        for (int out = 0; out < triangleCount; out++) {
+            if (best < 0) {
+                // nothing in the cache leads anywhere; continue with the next triangle left.
+                while (added[scan]) {
+                    scan++;
+                }
+                best = scan;
+            }
+            added[best] = true;
+
+            // new cache: the triangle's vertices first, then the rest in their old order.
+            int newSize = 0;
+            for (int i = 0; i < 3; i++) {
+                final int v = triangles[best * 3 + i];
+                result[out * 3 + i] = v;
+                newCache[newSize++] = v;
+
+                // take the triangle out of the vertex's adjacency
+                final int start = adjacencyStart[v], end = start + remaining[v];
+                for (int a = start; a < end; a++) {
+                    if (adjacency[a] == best) {
+                        adjacency[a] = adjacency[end - 1];
+                        break;
+                    }
+                }
+                remaining[v]--;
+            }
+            for (int i = 0; i < cacheSize; i++) {
+                final int v = cache[i];
+                if (v != newCache[0] && v != newCache[1] && v != newCache[2]) {
+                    newCache[newSize++] = v;
+                }
+            }
+
+            // rescore the vertices that moved, including those dropping out of the cache.
+            for (int i = 0; i < newSize; i++) {
+                final int v = newCache[i];
+                cachePosition[v] = i < OPTIMIZE_CACHE_SIZE ? i : -1;
+                vertexScores[v] = score(cachePosition[v], remaining[v]);
+            }
+
+            best = -1;
+            bestScore = -1;
+            for (int i = 0; i < newSize; i++) {
+                final int v = newCache[i];
+                for (int a = adjacencyStart[v], end = a + remaining[v]; a < end; a++) {
+                    final int t = adjacency[a];
+                    final float score = vertexScores[triangles[t * 3]] + vertexScores[triangles[t * 3 + 1]]
+                            + vertexScores[triangles[t * 3 + 2]];
+                    triangleScores[t] = score;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = t;
+                    }
+                }
+            }
+
+            cacheSize = Math.min(newSize, OPTIMIZE_CACHE_SIZE);
+            System.arraycopy(newCache, 0, cache, 0, cacheSize);
+        }
+        return result;
+    }
+
+    private static float score(final int cachePosition, final int remaining) {
+        if (remaining == 0) {
+            // no triangles left to use it
+            return -1;
+        }
+        final float cacheScore = cachePosition >= 0 ? CACHE_SCORES[cachePosition] : 0;
+        final float valenceScore = remaining < VALENCE_SCORES.length ? VALENCE_SCORES[remaining] : (float) (2 * Math
+                .pow(remaining, -0.5));
+        return cacheScore + valenceScore;
+    }
+
+    private float acmr(final IndexBufferData<?> indices, final int[] indexLengths, final IndexMode[] indexModes,
+            final int vertexCount) {
+        // the source is measured in its own order, strips and fans included.
+        final int limit = indices.getBufferLimit();
+        final int[] inserted = new int[vertexCount];
+        int misses = 0, triangles = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            inserted[v] = Integer.MIN_VALUE;
+        }
+        final int sections = indexLengths != null ? indexLengths.length : 1;
+        for (int i = 0, offset = 0; i < sections; i++) {
+            final IndexMode mode = indexModes[Math.min(i, indexModes.length - 1)];
+            final int length = indexLengths != null ? indexLengths[i] : limit;
+            for (int j = 0; j < length; j++) {
+                final int v = indices.get(offset + j);
+                if (v < vertexCount && misses - inserted[v] > _simulatedCacheSize - 1) {
+                    inserted[v] = misses++;
+                }
+            }
+            triangles += mode == IndexMode.Triangles ? length / 3 : Math.max(0, length - 2);
+            offset += length;
+        }
+        return triangles != 0 ? misses / (float) triangles : 0;
+    }
+
+    private float acmr(final int[] triangles, final int count, final int vertexCount) {
+        final int[] inserted = new int[vertexCount];
+        int misses = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            inserted[v] = Integer.MIN_VALUE;
+        }
+        for (int i = 0; i < count; i++) {
+            final int v = triangles[i];
+            if (misses - inserted[v] > _simulatedCacheSize - 1) {
+                inserted[v] = misses++;
+            }
+        }
+        return count != 0 ? misses / (count / 3f) : 0;
+    }
+}
@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.renderer.IndexMode;
+import com.ardor3d.scenegraph.IndexBufferData;
+import com.ardor3d.scenegraph.ShortBufferData;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * 32 bit indices converted into partitions that each address at most 65536 vertices, so they can be drawn with 16 bit
+ * indices where GL_OES_element_index_uint is missing. Each partition holds its indices relative to a base vertex; the
+ * renderer offsets the vertex arrays to that base before drawing it, so no vertex data is copied.
+ * <p>
+ * Independent primitives (triangles, lines, points) are regrouped so every partition spans as few vertices as possible.
+ * Strips, fans and loops are kept whole and can only be drawn if their indices span at most 65536 vertices.
+ * <p>
+ * Conversions run on a background thread, see {@link #get(IndexBufferData, int[], IndexMode[])}, and are cached until
+ * {@link #invalidate(IndexBufferData)} is called for the index data.
+ */
+public class AndroidIndexPartitions {
+
+    /** The most vertices a partition may address. */
+    public static final int MAX_VERTICES = 65536;
+
+    // keyed by index data
+    private static final Map<Object, AndroidIndexPartitions> _cache = new WeakHashMap<Object, AndroidIndexPartitions>();
+    private static final Set<Object> _pending = new HashSet<Object>();
+
+    private static final ExecutorService _executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "AndroidIndexPartitions");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private final IntBuffer _source;
+    private final int _sourceLimit;
+    private final ShortBufferData _indices;
+    private final int _count;
+    private final int[] _bases;
+    private final int[] _offsets;
+    private final int[] _counts;
+    private final IndexMode[] _modes;
+    private final int _dropped;
+
+    private AndroidIndexPartitions(final IntBuffer source, final ShortBuffer indices, final int count,
+            final int[] bases, final int[] offsets, final int[] counts, final IndexMode[] modes, final int dropped) {
+        _source = source;
+        _sourceLimit = source.limit();
+        _indices = new ShortBufferData(indices);
+        _count = count;
+        _bases = bases;
+        _offsets = offsets;
+        _counts = counts;
+        _modes = modes;
+        _dropped = dropped;
+    }
+
+    /**
+     * @return the converted partitions of the given index data, or null if they are not ready yet, in which case a
+     *         conversion is started on the background thread.
+     */
+    public static AndroidIndexPartitions get(final IndexBufferData<?> indices, final int[] indexLengths,
+            final IndexMode[] indexModes) {
+        final IntBuffer source = (IntBuffer) indices.getBuffer();
+        synchronized (_cache) {
+            final AndroidIndexPartitions partitions = _cache.get(indices);
+            if (partitions != null && partitions._source == source && partitions._sourceLimit == source.limit()) {
+                return partitions;
+            }
+            if (!_pending.add(indices)) {
+                return null;
+            }
+        }
+
+        final int[] lengths = indexLengths != null ? indexLengths.clone() : null;
+        final IndexMode[] modes = indexModes.clone();
+        _executor.execute(new Runnable() {
+            public void run() {
+                AndroidIndexPartitions partitions = null;
+                try {
+                    partitions = build(source, lengths, modes);
+                } finally {
+                    synchronized (_cache) {
+                        _pending.remove(indices);
+                        if (partitions != null) {
+                            _cache.put(indices, partitions);
+                        }
+                    }
+                }
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Forget the partitions of the given index data, e.g. because its contents changed.
+     */
+    public static void invalidate(final IndexBufferData<?> indices) {
+        synchronized (_cache) {
+            _cache.remove(indices);
+        }
+    }
+
+    /**
+     * Convert the given indices now, on the calling thread.
+     *
+     * @param indexLengths
+     *            the lengths of the sections of the indices, or null for a single section.
+     * @param indexModes
+     *            the mode of each section; the last one applies to any further sections.
+     */
+    public static AndroidIndexPartitions build(final IntBuffer source, final int[] indexLengths,
+            final IndexMode[] indexModes) {
+        final Builder builder = new Builder(source);
+        if (indexLengths == null) {
+            builder.addSection(0, source.limit(), indexModes[0]);
+        } else {
+            int offset = 0;
+            for (int i = 0; i < indexLengths.length; i++) {
+                builder.addSection(offset, indexLengths[i], indexModes[Math.min(i, indexModes.length - 1)]);
+                offset += indexLengths[i];
+            }
+        }
+        if (builder._dropped > 0) {
+            Log.w(AndroidCanvas.TAG, "AndroidIndexPartitions.build - " + builder._dropped
+                    + " primitives span more than " + MAX_VERTICES + " vertices and can not be drawn.");
+        }
+        return builder.toPartitions();
+    }
+
+    /**
+     * @return the indices of all partitions, relative to each partition's base vertex.
+     */
+    public ShortBufferData getIndices() {
+        return _indices;
+    }
+
+    public int getPartitionCount() {
+        return _count;
+    }
+
+    public int getBaseVertex(final int partition) {
+        return _bases[partition];
+    }
+
+    /**
+     * @return where the partition starts in {@link #getIndices()}, in indices.
+     */
+    public int getOffset(final int partition) {
+        return _offsets[partition];
+    }
+
+    public int getCount(final int partition) {
+        return _counts[partition];
+    }
+
+    public IndexMode getMode(final int partition) {
+        return _modes[partition];
+    }
+
+    /**
+     * @return the number of primitives left out because they span too many vertices.
+     */
+    public int getDroppedPrimitives() {
+        return _dropped;
+    }
+
+    private static class Builder {
+        private final IntBuffer _source;
+        private short[] _indices = new short[1024];
+        private int _indexCount;
+        private int[] _bases = new int[8];
+        private int[] _offsets = new int[8];
+        private int[] _counts = new int[8];
+        private IndexMode[] _modes = new IndexMode[8];
+        private int _count;
+        private int _dropped;
+
+        Builder(final IntBuffer source) {
+            _source = source;
+        }
+
+        void addSection(final int offset, final int length, final IndexMode mode) {
+            final int primitiveSize = mode == IndexMode.Triangles ? 3 : mode == IndexMode.Lines ? 2
+                    : mode == IndexMode.Points ? 1 : 0;
+            if (primitiveSize == 0) {
+                // connected primitives can not be regrouped.
+                int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+                for (int i = offset; i < offset + length; i++) {
+                    min = Math.min(min, _source.get(i));
+                    max = Math.max(max, _source.get(i));
+                }
+                if (length > 0 && max - min < MAX_VERTICES) {
+                    startPartition(min, mode);
+                    for (int i = offset; i < offset + length; i++) {
+                        addIndex(_source.get(i) - min);
+                    }
+                    endPartition();
+                } else if (length > 0) {
+                    _dropped++;
+                }
+                return;
+            }
+
+            // sort the primitives by their lowest vertex, then greedily fill partitions starting at the lowest vertex
+            // left, deferring primitives that reach too far to a later pass.
+            int primitives = length / primitiveSize;
+            final long[] order = new long[primitives];
+            for (int p = 0; p < primitives; p++) {
+                int min = Integer.MAX_VALUE;
+                for (int i = 0; i < primitiveSize; i++) {
+                    min = Math.min(min, _source.get(offset + p * primitiveSize + i));
+                }
+                order[p] = (long) min << 32 | p;
+            }
+            Arrays.sort(order);
+
+            while (primitives > 0) {
+                int deferred = 0;
+                final int base = (int) (order[0] >>> 32);
+                startPartition(base, mode);
+                for (int o = 0; o < primitives; o++) {
+                    final int start = offset + (int) order[o] * primitiveSize;
+                    int max = Integer.MIN_VALUE;
+                    for (int i = 0; i < primitiveSize; i++) {
+                        max = Math.max(max, _source.get(start + i));
+                    }
+                    final int min = (int) (order[o] >>> 32);
+                    if (max - min >= MAX_VERTICES) {
+                        _dropped++;
+                    } else if (max - base < MAX_VERTICES) {
+                        for (int i = 0; i < primitiveSize; i++) {
+                            addIndex(_source.get(start + i) - base);
+                        }
+                    } else {
+                        order[deferred++] = order[o];
+                    }
+                }
+                endPartition();
+                primitives = deferred;
+            }
+        }
+
+        private void startPartition(final int base, final IndexMode mode) {
+            if (_count == _bases.length) {
+                // Arrays.copyOf needs API level 9.
+                final int[] bases = new int[_count * 2], offsets = new int[_count * 2], counts = new int[_count * 2];
+                final IndexMode[] modes = new IndexMode[_count * 2];
+                System.arraycopy(_bases, 0, bases, 0, _count);
+                System.arraycopy(_offsets, 0, offsets, 0, _count);
+                System.arraycopy(_counts, 0, counts, 0, _count);
+                System.arraycopy(_modes, 0, modes, 0, _count);
+                _bases = bases;
+                _offsets = offsets;
+                _counts = counts;
+                _modes = modes;
+            }
+            _bases[_count] = base;
+            _offsets[_count] = _indexCount;
+            _modes[_count] = mode;
+        }
+
+        private void endPartition() {
+            _counts[_count] = _indexCount - _offsets[_count];
+            if (_counts[_count] > 0) {
+                _count++;
+            }
+        }
+
+        private void addIndex(final int index) {
+            if (_indexCount == _indices.length) {
+                final short[] indices = new short[_indexCount * 2];
+                System.arraycopy(_indices, 0, indices, 0, _indexCount);
+                _indices = indices;
+            }
+            _indices[_indexCount++] = (short) index;
+        }
+
+        AndroidIndexPartitions toPartitions() {
+            final ShortBuffer indices = BufferUtils.createShortBuffer(_indexCount);
+            indices.put(_indices, 0, _indexCount);
+            indices.rewind();
+            return new AndroidIndexPartitions(_source, indices, _count, _bases, _offsets, _counts, _modes, _dropped);
+        }
+    }
+}
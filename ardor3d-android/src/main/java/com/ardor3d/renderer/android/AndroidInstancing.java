@@ -0,0 +1,467 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.ardor3d.math.type.ReadOnlyTransform;
+import com.ardor3d.renderer.IndexMode;
+import com.ardor3d.renderer.Renderer;
+import com.ardor3d.renderer.state.GLSLShaderObjectsState;
+import com.ardor3d.renderer.state.RenderState;
+import com.ardor3d.renderer.state.RenderState.StateType;
+import com.ardor3d.scenegraph.AbstractBufferData;
+import com.ardor3d.scenegraph.AbstractBufferData.VBOAccessMode;
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.IndexBufferData;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.MeshData;
+import com.ardor3d.util.geom.BufferUtils;
+import com.ardor3d.util.shader.ShaderVariable;
+import com.ardor3d.util.shader.uniformtypes.ShaderVariableFloatArray;
+import com.ardor3d.util.shader.uniformtypes.ShaderVariableMatrix4Array;
+
+/**
+ * Emulates instanced draws, which OpenGL ES has no support for. Each instance is drawn with the mesh's own transform
+ * followed by an instance matrix; the matrices are the ones given to {@link #setTransforms(Mesh, float[])}, or else
+ * those in the mat4 array uniform named {@link #TRANSFORMS_UNIFORM} of the mesh's GLSL state, as set up for the
+ * desktop instancing shaders.
+ * <p>
+ * Per mesh, the instances are either replicated into one batch of pre-transformed geometry drawn with a single call,
+ * or drawn one by one from the mesh's own buffers with the instance matrix pushed on the modelview. Batches are used
+ * when the matrices have not changed for {@link #STATIC_FRAMES} draws, and are only packed and uploaded again when
+ * they do change; instances whose matrices keep changing are still batched, as a stream, if they have no more than
+ * {@link #getMaxStreamVertices()} vertices between them. Only meshes with a single section of triangles, lines or
+ * points are batched.
+ * <p>
+ * A batch is packed again when its matrices differ from a copy of those it was packed from, or when the mesh's
+ * vertices, normals, colors or texture coordinates are flagged with {@link AbstractBufferData#isNeedsRefresh()}.
+ * Refreshes consumed by the renderer's own uploads are passed on with {@link #refreshed(FloatBufferData)}.
+ */
+public class AndroidInstancing {
+
+    public static final String TRANSFORMS_UNIFORM = "transforms";
+
+    /** Most vertices in a batch, so its indices fit in 16 bits. */
+    public static final int MAX_BATCH_VERTICES = 65536;
+    public static final int DEFAULT_MAX_STREAM_VERTICES = 4096;
+
+    /** Draws without changes before the instances of a mesh are considered static. */
+    public static final int STATIC_FRAMES = 4;
+
+    // keyed by mesh
+    private static final Map<Object, float[]> _explicitTransforms = new WeakHashMap<Object, float[]>();
+
+    // keyed by mesh
+    private final Map<Object, Batch> _batches = new WeakHashMap<Object, Batch>();
+    private int _maxStreamVertices = DEFAULT_MAX_STREAM_VERTICES;
+    private float[] _uniformTransforms = new float[16];
+    private int _transformCount;
+
+    // keyed by buffer data, the refresh count when it was last refreshed.
+    private final Map<Object, Integer> _refreshes = new WeakHashMap<Object, Integer>();
+    private int _refreshCount;
+
+    /**
+     * The instances of a mesh, replicated into one set of buffers.
+     */
+    public static class Batch {
+        private FloatBufferData _vertices, _normals, _colors;
+        private final List<FloatBufferData> _texCoords = new ArrayList<FloatBufferData>();
+        private IndexBufferData<?> _indices;
+        private final IndexMode[] _modes = new IndexMode[1];
+
+        private FloatBuffer _source;
+        private IndexBufferData<?> _indexSource;
+        private int _instances;
+        private float[] _matrices = new float[0];
+        private int _refreshCount;
+        private int _stableFrames;
+        private boolean _built;
+
+        public FloatBufferData getVertices() {
+            return _vertices;
+        }
+
+        public FloatBufferData getNormals() {
+            return _normals;
+        }
+
+        public FloatBufferData getColors() {
+            return _colors;
+        }
+
+        public List<FloatBufferData> getTextureCoords() {
+            return _texCoords;
+        }
+
+        public IndexBufferData<?> getIndices() {
+            return _indices;
+        }
+
+        public IndexMode[] getIndexModes() {
+            return _modes;
+        }
+
+        /**
+         * @return true if the instances have been static long enough to be uploaded as static geometry.
+         */
+        public boolean isStatic() {
+            return _stableFrames >= STATIC_FRAMES;
+        }
+    }
+
+    /**
+     * Set the instance matrices of the given mesh, overriding any instancing shader uniform.
+     *
+     * @param matrices
+     *            column major 4x4 matrices, 16 floats per instance, or null to clear them.
+     */
+    public static void setTransforms(final Mesh mesh, final float[] matrices) {
+        synchronized (_explicitTransforms) {
+            if (matrices != null) {
+                _explicitTransforms.put(mesh, matrices);
+            } else {
+                _explicitTransforms.remove(mesh);
+            }
+        }
+    }
+
+    /**
+     * Set the instance matrices of the given mesh from transforms, overriding any instancing shader uniform.
+     */
+    public static void setTransforms(final Mesh mesh, final List<? extends ReadOnlyTransform> transforms) {
+        final float[] matrices = new float[transforms.size() * 16];
+        final FloatBuffer buffer = BufferUtils.createFloatBuffer(16);
+        for (int i = 0; i < transforms.size(); i++) {
+            buffer.clear();
+            transforms.get(i).getGLApplyMatrix(buffer);
+            buffer.rewind();
+            buffer.get(matrices, i * 16, 16);
+        }
+        setTransforms(mesh, matrices);
+    }
+
+    /**
+     * @param maxStreamVertices
+     *            the most vertices, over all instances, that are transformed on the CPU and uploaded again whenever
+     *            the instance matrices change. Meshes with more are drawn an instance at a time while they move.
+     */
+    public void setMaxStreamVertices(final int maxStreamVertices) {
+        _maxStreamVertices = maxStreamVertices;
+    }
+
+    public int getMaxStreamVertices() {
+        return _maxStreamVertices;
+    }
+
+    /**
+     * @return the instance matrices of the given mesh, 16 floats per instance, or null if it has none. The returned
+     *         array may be reused by the next call, and may be longer than {@link #getTransformCount()} matrices.
+     */
+    public float[] getTransforms(final Mesh mesh) {
+        synchronized (_explicitTransforms) {
+            final float[] explicit = _explicitTransforms.get(mesh);
+            if (explicit != null) {
+                _transformCount = explicit.length / 16;
+                return explicit;
+            }
+        }
+
+        final RenderState state = mesh.getWorldRenderState(StateType.GLSLShader);
+        if (!(state instanceof GLSLShaderObjectsState)) {
+            return null;
+        }
+        for (final ShaderVariable variable : ((GLSLShaderObjectsState) state).getShaderUniforms()) {
+            if (!TRANSFORMS_UNIFORM.equals(variable.name)) {
+                continue;
+            }
+            if (variable instanceof ShaderVariableMatrix4Array) {
+                final ShaderVariableMatrix4Array matrices = (ShaderVariableMatrix4Array) variable;
+                return copyMatrices(matrices.matrixBuffer, matrices.rowMajor);
+            } else if (variable instanceof ShaderVariableFloatArray) {
+                return copyMatrices(((ShaderVariableFloatArray) variable).value, false);
+            }
+        }
+        return null;
+    }
+
+    private float[] copyMatrices(final FloatBuffer source, final boolean rowMajor) {
+        if (source == null) {
+            return null;
+        }
+        final int floats = source.limit() / 16 * 16;
+        if (_uniformTransforms.length < floats) {
+            _uniformTransforms = new float[floats];
+        }
+        for (int i = 0; i < floats; i++) {
+            // transpose row major matrices, so all are column major as GL expects.
+            _uniformTransforms[i] = source.get(rowMajor ? i & ~15 | (i & 3) << 2 | (i & 15) >> 2 : i);
+        }
+        _transformCount = floats / 16;
+        return _uniformTransforms;
+    }
+
+    /**
+     * @return the number of matrices returned by the last {@link #getTransforms(Mesh)}.
+     */
+    public int getTransformCount() {
+        return _transformCount;
+    }
+
+    /**
+     * @return the batch to draw the instances of the given mesh with, packed from the given matrices if they changed,
+     *         or null to draw them one at a time.
+     */
+    public Batch prepare(final Renderer renderer, final Mesh mesh, final float[] matrices, final int instances) {
+        final MeshData data = mesh.getMeshData();
+        final IndexMode mode = data.getIndexMode(0);
+        final int vertexCount = data.getVertexCount();
+        if ((long) instances * vertexCount > MAX_BATCH_VERTICES || data.getVertexBuffer() == null
+                || data.getVertexCoords().getValuesPerTuple() != 3
+                || data.getIndexLengths() != null && data.getIndexLengths().length > 1
+                || mode != IndexMode.Triangles && mode != IndexMode.Lines && mode != IndexMode.Points) {
+            return null;
+        }
+
+        Batch batch = _batches.get(mesh);
+        if (batch == null) {
+            batch = new Batch();
+            _batches.put(mesh, batch);
+        }
+        // no short circuits, so every flagged refresh is consumed.
+        final boolean refreshed = isRefreshed(batch, data.getVertexCoords())
+                | isRefreshed(batch, data.getNormalCoords()) | isRefreshed(batch, data.getColorCoords())
+                | isTextureCoordsRefreshed(batch, data);
+        if (batch._instances != instances || !sameMatrices(batch._matrices, matrices, instances * 16)
+                || batch._source != data.getVertexBuffer() || refreshed) {
+            if (batch._matrices.length < instances * 16) {
+                batch._matrices = new float[instances * 16];
+            }
+            System.arraycopy(matrices, 0, batch._matrices, 0, instances * 16);
+            batch._instances = instances;
+            batch._source = data.getVertexBuffer();
+            batch._refreshCount = _refreshCount;
+            batch._stableFrames = 0;
+            batch._built = false;
+        } else if (batch._stableFrames < STATIC_FRAMES) {
+            batch._stableFrames++;
+        }
+
+        if (batch._built) {
+            return batch;
+        }
+        if (!batch.isStatic() && instances * vertexCount > _maxStreamVertices) {
+            return null;
+        }
+        build(renderer, batch, data, matrices, instances);
+        return batch;
+    }
+
+    /**
+     * Note that the renderer consumed the refresh flag of the given data, e.g. by uploading it to its own VBO, so that
+     * batches packed from it are packed again.
+     */
+    public void refreshed(final FloatBufferData data) {
+        if (!_batches.isEmpty()) {
+            _refreshes.put(data, ++_refreshCount);
+        }
+    }
+
+    private boolean isTextureCoordsRefreshed(final Batch batch, final MeshData data) {
+        boolean refreshed = false;
+        for (int unit = 0; unit < data.getNumberOfUnits(); unit++) {
+            refreshed |= isRefreshed(batch, data.getTextureCoords(unit));
+        }
+        return refreshed;
+    }
+
+    /**
+     * @return true if the given data was refreshed since the batch was packed. A refresh that is still flagged is
+     *         consumed here, as the mesh's own buffers are not drawn while it is batched.
+     */
+    private boolean isRefreshed(final Batch batch, final FloatBufferData data) {
+        if (data == null) {
+            return false;
+        }
+        if (data.isNeedsRefresh()) {
+            _refreshes.put(data, ++_refreshCount);
+            data.setNeedsRefresh(false);
+            return true;
+        }
+        final Integer count = _refreshes.get(data);
+        return count != null && count > batch._refreshCount;
+    }
+
+    private static boolean sameMatrices(final float[] a, final float[] b, final int length) {
+        if (a.length < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Float.floatToIntBits(a[i]) != Float.floatToIntBits(b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forget the batch of the given mesh, e.g. because its geometry was changed in place.
+     */
+    public void invalidate(final Mesh mesh) {
+        final Batch batch = _batches.get(mesh);
+        if (batch != null) {
+            batch._built = false;
+        }
+    }
+
+    private void build(final Renderer renderer, final Batch batch, final MeshData data, final float[] matrices,
+            final int instances) {
+        final int vertexCount = data.getVertexCount();
+        final int total = instances * vertexCount;
+        final VBOAccessMode accessMode = batch.isStatic() ? VBOAccessMode.StaticDraw : VBOAccessMode.StreamDraw;
+
+        batch._vertices = ensure(renderer, batch._vertices, total, 3, accessMode);
+        batch._normals = data.getNormalBuffer() != null ? ensure(renderer, batch._normals, total, 3, accessMode)
+                : release(renderer, batch._normals);
+        batch._colors = data.getColorBuffer() != null ? ensure(renderer, batch._colors, total, data
+                .getColorCoords().getValuesPerTuple(), accessMode) : release(renderer, batch._colors);
+        for (int unit = 0; unit < Math.max(data.getNumberOfUnits(), batch._texCoords.size()); unit++) {
+            final FloatBufferData coords = unit < data.getNumberOfUnits() ? data.getTextureCoords(unit) : null;
+            final FloatBufferData old = unit < batch._texCoords.size() ? batch._texCoords.get(unit) : null;
+            final FloatBufferData packed = coords != null && coords.getBuffer() != null ? ensure(renderer, old,
+                    total, coords.getValuesPerTuple(), accessMode) : release(renderer, old);
+            if (unit < batch._texCoords.size()) {
+                batch._texCoords.set(unit, packed);
+            } else {
+                batch._texCoords.add(packed);
+            }
+        }
+
+        final FloatBuffer vertices = batch._vertices.getBuffer();
+        final FloatBuffer normals = batch._normals != null ? batch._normals.getBuffer() : null;
+        final FloatBuffer srcVertices = data.getVertexBuffer();
+        final FloatBuffer srcNormals = data.getNormalBuffer();
+        for (int instance = 0; instance < instances; instance++) {
+            final int m = instance * 16;
+            for (int v = 0; v < vertexCount; v++) {
+                final float x = srcVertices.get(v * 3), y = srcVertices.get(v * 3 + 1), z = srcVertices.get(v * 3 + 2);
+                vertices.put(matrices[m] * x + matrices[m + 4] * y + matrices[m + 8] * z + matrices[m + 12]);
+                vertices.put(matrices[m + 1] * x + matrices[m + 5] * y + matrices[m + 9] * z + matrices[m + 13]);
+                vertices.put(matrices[m + 2] * x + matrices[m + 6] * y + matrices[m + 10] * z + matrices[m + 14]);
+                if (normals != null) {
+                    final float nx = srcNormals.get(v * 3), ny = srcNormals.get(v * 3 + 1);
+                    final float nz = srcNormals.get(v * 3 + 2);
+                    final float tx = matrices[m] * nx + matrices[m + 4] * ny + matrices[m + 8] * nz;
+                    final float ty = matrices[m + 1] * nx + matrices[m + 5] * ny + matrices[m + 9] * nz;
+                    final float tz = matrices[m + 2] * nx + matrices[m + 6] * ny + matrices[m + 10] * nz;
+                    final float length = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+                    final float scale = length != 0 ? 1 / length : 0;
+                    normals.put(tx * scale).put(ty * scale).put(tz * scale);
+                }
+            }
+        }
+        if (batch._colors != null) {
+            replicate(data.getColorBuffer(), batch._colors.getBuffer(), vertexCount
+                    * batch._colors.getValuesPerTuple(), instances);
+        }
+        for (int unit = 0; unit < batch._texCoords.size(); unit++) {
+            final FloatBufferData packed = batch._texCoords.get(unit);
+            if (packed != null) {
+                replicate(data.getTextureCoords(unit).getBuffer(), packed.getBuffer(), vertexCount
+                        * packed.getValuesPerTuple(), instances);
+            }
+        }
+
+        // the indices only depend on the index data and instance count, so keep them while those match.
+        final IndexBufferData<?> srcIndices = data.getIndices();
+        final int indexCount = (srcIndices != null ? srcIndices.getBufferLimit() : vertexCount) * instances;
+        if (batch._indices == null || batch._indices.getBufferLimit() != indexCount || batch._indexSource != srcIndices
+                || batch._modes[0] != data.getIndexMode(0)) {
+            release(renderer, batch._indices);
+            batch._indices = BufferUtils.createIndexBufferData(indexCount, total - 1);
+            for (int instance = 0; instance < instances; instance++) {
+                final int base = instance * vertexCount;
+                if (srcIndices != null) {
+                    for (int i = 0, max = srcIndices.getBufferLimit(); i < max; i++) {
+                        batch._indices.put(base + srcIndices.get(i));
+                    }
+                } else {
+                    for (int i = 0; i < vertexCount; i++) {
+                        batch._indices.put(base + i);
+                    }
+                }
+            }
+            batch._indices.getBuffer().rewind();
+            batch._modes[0] = data.getIndexMode(0);
+            batch._indexSource = srcIndices;
+        }
+
+        rewind(batch._vertices);
+        rewind(batch._normals);
+        rewind(batch._colors);
+        for (final FloatBufferData packed : batch._texCoords) {
+            rewind(packed);
+        }
+        batch._built = true;
+    }
+
+    private static FloatBufferData ensure(final Renderer renderer, final FloatBufferData data, final int tuples,
+            final int valuesPerTuple, final VBOAccessMode accessMode) {
+        final FloatBufferData result;
+        if (data != null && data.getValuesPerTuple() == valuesPerTuple
+                && data.getBuffer().capacity() == tuples * valuesPerTuple) {
+            result = data;
+            result.getBuffer().clear();
+        } else {
+            release(renderer, data);
+            result = new FloatBufferData(BufferUtils.createFloatBuffer(tuples * valuesPerTuple), valuesPerTuple);
+        }
+        result.setVboAccessMode(accessMode);
+        return result;
+    }
+
+    private static <T extends AbstractBufferData<?>> T release(final Renderer renderer, final T data) {
+        if (data != null) {
+            renderer.deleteVBOs(data);
+        }
+        return null;
+    }
+
+    private static void replicate(final FloatBuffer source, final FloatBuffer store, final int count,
+            final int instances) {
+        for (int instance = 0; instance < instances; instance++) {
+            for (int i = 0; i < count; i++) {
+                store.put(source.get(i));
+            }
+        }
+    }
+
+    private static void rewind(final FloatBufferData data) {
+        if (data != null) {
+            data.getBuffer().rewind();
+            data.setNeedsRefresh(true);
+        }
+    }
+}
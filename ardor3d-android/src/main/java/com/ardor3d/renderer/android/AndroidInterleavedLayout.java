@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import com.ardor3d.renderer.state.TextureState;
+import com.ardor3d.scenegraph.FloatBufferData;
+
+/**
+ * Array-of-structs layout for an interleaved VBO: for every vertex, its position followed by its normal, color and
+ * texture coordinates. Offsets and the stride are in floats; multiply by 4 for the byte values GL expects.
+ */
+public class AndroidInterleavedLayout {
+
+    public static final int VERTEX = 0;
+    public static final int NORMAL = 1;
+    public static final int COLOR = 2;
+    public static final int TEXCOORD0 = 3;
+    public static final int MAX_ATTRIBUTES = TEXCOORD0 + TextureState.MAX_TEXTURES;
+
+    /** values per tuple of each attribute, 0 if absent. */
+    private final int[] _sizes = new int[MAX_ATTRIBUTES];
+    private final int[] _offsets = new int[MAX_ATTRIBUTES];
+    private int _stride;
+    private int _vertexCount;
+
+    /**
+     * Lay out the given attributes.
+     *
+     * @param textureUnits
+     *            how many of the texture coordinates to include.
+     */
+    public void compute(final FloatBufferData vertexCoords, final FloatBufferData normalCoords,
+            final FloatBufferData colorCoords, final List<FloatBufferData> textureCoords, final int textureUnits) {
+        _vertexCount = 0;
+        _stride = 0;
+        add(VERTEX, vertexCoords);
+        add(NORMAL, normalCoords);
+        add(COLOR, colorCoords);
+        for (int i = 0; i < TextureState.MAX_TEXTURES; i++) {
+            add(TEXCOORD0 + i, textureCoords != null && i < textureUnits && i < textureCoords.size() ? textureCoords
+                    .get(i) : null);
+        }
+    }
+
+    private void add(final int attribute, final FloatBufferData data) {
+        if (data == null || data.getBuffer() == null) {
+            _sizes[attribute] = 0;
+            _offsets[attribute] = 0;
+            return;
+        }
+        _sizes[attribute] = data.getValuesPerTuple();
+        _offsets[attribute] = _stride;
+        _stride += _sizes[attribute];
+        if (_vertexCount == 0) {
+            _vertexCount = data.getTupleCount();
+        }
+    }
+
+    public boolean has(final int attribute) {
+        return _sizes[attribute] != 0;
+    }
+
+    public int getSize(final int attribute) {
+        return _sizes[attribute];
+    }
+
+    public int getOffset(final int attribute) {
+        return _offsets[attribute];
+    }
+
+    public int getStride() {
+        return _stride;
+    }
+
+    public int getVertexCount() {
+        return _vertexCount;
+    }
+
+    /**
+     * @return the floats needed to hold all vertices.
+     */
+    public int getFloatCount() {
+        return _vertexCount * _stride;
+    }
+
+    public boolean matches(final AndroidInterleavedLayout other) {
+        if (_stride != other._stride || _vertexCount != other._vertexCount) {
+            return false;
+        }
+        for (int i = 0; i < MAX_ATTRIBUTES; i++) {
+            if (_sizes[i] != other._sizes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void set(final AndroidInterleavedLayout other) {
+        System.arraycopy(other._sizes, 0, _sizes, 0, MAX_ATTRIBUTES);
+        System.arraycopy(other._offsets, 0, _offsets, 0, MAX_ATTRIBUTES);
+        _stride = other._stride;
+        _vertexCount = other._vertexCount;
+    }
+
+    /**
+     * Copy one attribute of the given vertices into the interleaved buffer.
+     *
+     * @param from
+     *            the first vertex to copy.
+     * @param to
+     *            one past the last vertex to copy.
+     */
+    public void pack(final int attribute, final FloatBufferData data, final FloatBuffer store, final int from,
+            final int to) {
+        final int size = _sizes[attribute];
+        if (size == 0) {
+            return;
+        }
+        final FloatBuffer source = data.getBuffer();
+        final int last = Math.min(to, Math.min(_vertexCount, source.limit() / size));
+        int src = from * size;
+        int dst = from * _stride + _offsets[attribute];
+        for (int v = from; v < last; v++, dst += _stride) {
+            for (int i = 0; i < size; i++) {
+                store.put(dst + i, source.get(src++));
+            }
+        }
+    }
+}
@@ -0,0 +1,508 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+import com.ardor3d.light.DirectionalLight;
+import com.ardor3d.light.Light;
+import com.ardor3d.light.PointLight;
+import com.ardor3d.light.SpotLight;
+import com.ardor3d.math.MathUtils;
+import com.ardor3d.math.Matrix4;
+import com.ardor3d.math.Transform;
+import com.ardor3d.math.type.ReadOnlyColorRGBA;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.state.LightState;
+import com.ardor3d.renderer.state.MaterialState;
+import com.ardor3d.renderer.state.MaterialState.ColorMaterial;
+import com.ardor3d.renderer.state.RenderState.StateType;
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.MeshData;
+import com.ardor3d.scenegraph.hint.DataMode;
+import com.ardor3d.util.Constants;
+import com.ardor3d.util.geom.BufferUtils;
+import com.ardor3d.util.stat.StatCollector;
+
+/**
+ * Evaluates the fixed function lighting of meshes marked static once, on worker threads, into per vertex colors, so
+ * they can be drawn with lighting off and the colors as their color array. A mesh is baked again whenever its world
+ * transform, vertex, normal or color data, material or any of its lights change; until a bake is ready it is lit as
+ * usual.
+ * <p>
+ * Only the view independent terms are baked: emissive, ambient and diffuse, for front faces. Meshes that would show
+ * specular highlights, with both a specular material and a specular light, are lit as usual unless dropping the
+ * highlights is allowed with {@link #setDropSpecular(boolean)}. Meshes drawn with interleaved data are not baked.
+ * <p>
+ * Used by {@link AndroidRenderer} once set with {@link AndroidRenderer#setLightBaker(AndroidLightBaker)}. To compare
+ * against dynamic lighting, watch the frame timer stats with the baker set and unset;
+ * {@link AndroidStatType#STAT_BAKED_VERTICES} counts the vertices drawn with baked lighting.
+ */
+public class AndroidLightBaker {
+
+    private static final int LIGHT_FLOATS = 18;
+    // global ambient rgb, then material ambient, diffuse and emissive rgba and the color material
+    private static final int HEADER_FLOATS = 16;
+
+    private static final int TYPE_DIRECTIONAL = 0;
+    private static final int TYPE_POINT = 1;
+    private static final int TYPE_SPOT = 2;
+
+    private static final ExecutorService _executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime()
+            .availableProcessors() - 1), new ThreadFactory() {
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "AndroidLightBaker");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private static class Bake {
+        private float[] _key;
+        private final Transform _transform = new Transform();
+        private FloatBufferData _vertices, _normals, _colors;
+        private boolean _refreshSeen;
+        private Future<float[]> _pending;
+        private FloatBufferData _baked;
+    }
+
+    // keyed by mesh
+    private final Map<Object, Bake> _bakes = new WeakHashMap<Object, Bake>();
+
+    private final LightState _unlit = new LightState();
+    private final Matrix4 _matrix = new Matrix4();
+    private float[] _scratchKey = new float[HEADER_FLOATS];
+
+    private int _bakedVertices;
+    private int _bakesDone;
+
+    private boolean _dropSpecular = false;
+
+    public AndroidLightBaker() {
+        _unlit.setEnabled(false);
+    }
+
+    /**
+     * @param dropSpecular
+     *            if true, also bake meshes with specular highlights, which then lose them. Otherwise such meshes are
+     *            lit as usual.
+     */
+    public void setDropSpecular(final boolean dropSpecular) {
+        _dropSpecular = dropSpecular;
+    }
+
+    public boolean isDropSpecular() {
+        return _dropSpecular;
+    }
+
+    /**
+     * @param isStatic
+     *            true to bake the mesh's lighting, false to light it as usual again.
+     */
+    public void setStatic(final Mesh mesh, final boolean isStatic) {
+        if (!isStatic) {
+            final Bake bake = _bakes.remove(mesh);
+            if (bake != null && bake._pending != null) {
+                bake._pending.cancel(false);
+            }
+        } else if (!_bakes.containsKey(mesh)) {
+            _bakes.put(mesh, new Bake());
+        }
+    }
+
+    public boolean isStatic(final Mesh mesh) {
+        return _bakes.containsKey(mesh);
+    }
+
+    /**
+     * @return the disabled light state baked meshes are drawn with.
+     */
+    public LightState getUnlitState() {
+        return _unlit;
+    }
+
+    /**
+     * Check the bake of the given mesh, starting a new one if anything it depends on changed.
+     *
+     * @return the baked colors to draw the mesh with, or null to light it as usual.
+     */
+    public FloatBufferData getColors(final AndroidRenderer renderer, final Mesh mesh) {
+        final Bake bake = _bakes.get(mesh);
+        if (bake == null || mesh.getSceneHints().getDataMode() == DataMode.VBOInterleaved) {
+            return null;
+        }
+        final LightState lights = (LightState) mesh.getWorldRenderState(StateType.Light);
+        final MeshData meshData = mesh.getMeshData();
+        final FloatBufferData vertices = meshData.getVertexCoords();
+        final FloatBufferData normals = meshData.getNormalCoords();
+        final FloatBufferData colors = meshData.getColorCoords();
+        if (lights == null || !lights.isEnabled() || !LightState.LIGHTS_ENABLED || vertices == null || normals == null
+                || vertices.getValuesPerTuple() != 3 || normals.getValuesPerTuple() != 3) {
+            return null;
+        }
+
+        final MaterialState material = (MaterialState) mesh.getWorldRenderState(StateType.Material);
+        if (!_dropSpecular && isSpecular(lights, material)) {
+            // lit as usual for as long as it shows highlights.
+            if (bake._pending != null) {
+                bake._pending.cancel(false);
+                bake._pending = null;
+            }
+            bake._key = null;
+            release(renderer, bake);
+            return null;
+        }
+
+        final int keyLength = writeKey(lights, material);
+        // data left flagged, e.g. when drawn from client memory, only counts as changed when first seen.
+        final boolean refresh = vertices.isNeedsRefresh() || normals.isNeedsRefresh() || colors != null
+                && colors.isNeedsRefresh();
+        final boolean changed = bake._key == null || bake._key.length != keyLength
+                || !equals(bake._key, _scratchKey, keyLength) || !bake._transform.equals(mesh.getWorldTransform())
+                || bake._vertices != vertices || bake._normals != normals || bake._colors != colors
+                || refresh && !bake._refreshSeen;
+        bake._refreshSeen = refresh;
+        if (changed) {
+            start(bake, mesh, vertices, normals, colors, keyLength);
+            release(renderer, bake);
+            return null;
+        }
+
+        if (bake._pending != null) {
+            if (!bake._pending.isDone()) {
+                return null;
+            }
+            finish(bake);
+        }
+        if (bake._baked != null) {
+            _bakedVertices += bake._baked.getTupleCount();
+        }
+        return bake._baked;
+    }
+
+    /**
+     * Add the frame's stats. Called at the end of each frame.
+     */
+    public void nextFrame() {
+        if (Constants.stats) {
+            StatCollector.addStat(AndroidStatType.STAT_BAKED_VERTICES, _bakedVertices);
+            StatCollector.addStat(AndroidStatType.STAT_LIGHT_BAKES, _bakesDone);
+        }
+        _bakedVertices = 0;
+        _bakesDone = 0;
+    }
+
+    private void start(final Bake bake, final Mesh mesh, final FloatBufferData vertices,
+            final FloatBufferData normals, final FloatBufferData colors, final int keyLength) {
+        if (bake._pending != null) {
+            bake._pending.cancel(false);
+        }
+        bake._key = new float[keyLength];
+        System.arraycopy(_scratchKey, 0, bake._key, 0, keyLength);
+        bake._transform.set(mesh.getWorldTransform());
+        bake._vertices = vertices;
+        bake._normals = normals;
+        bake._colors = colors;
+
+        // the worker gets copies, the buffers may be changed or uploaded meanwhile.
+        final float[] key = bake._key;
+        final float[] matrix = new float[16];
+        mesh.getWorldTransform().getHomogeneousMatrix(_matrix);
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                matrix[row * 4 + column] = (float) _matrix.getValue(row, column);
+            }
+        }
+        final int count = vertices.getTupleCount();
+        final float[] positions = copy(vertices.getBuffer(), count * 3);
+        final float[] normalValues = copy(normals.getBuffer(), count * 3);
+        final float[] colorValues = colors != null && colors.getValuesPerTuple() == 4 ? copy(colors.getBuffer(),
+                count * 4) : null;
+
+        bake._pending = _executor.submit(new Callable<float[]>() {
+            public float[] call() {
+                return bake(key, matrix, positions, normalValues, colorValues, count);
+            }
+        });
+    }
+
+    private void finish(final Bake bake) {
+        try {
+            final float[] baked = bake._pending.get();
+            final FloatBuffer buffer = BufferUtils.createFloatBuffer(baked.length);
+            buffer.put(baked).rewind();
+            bake._baked = new FloatBufferData(buffer, 4);
+            _bakesDone++;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            Log.w(AndroidCanvas.TAG, "AndroidLightBaker.finish - bake failed: " + e.getCause());
+        }
+        bake._pending = null;
+    }
+
+    private static void release(final AndroidRenderer renderer, final Bake bake) {
+        if (bake._baked != null) {
+            renderer.deleteVBOs(bake._baked);
+            bake._baked = null;
+        }
+    }
+
+    /**
+     * @return true if the fixed function pipeline would add specular highlights with the given lights and material.
+     */
+    private static boolean isSpecular(final LightState lights, final MaterialState material) {
+        final boolean enabled = material != null && material.isEnabled();
+        if (!(enabled && material.getColorMaterial() == ColorMaterial.Specular)
+                && isBlack(enabled ? material.getSpecular() : MaterialState.DEFAULT_SPECULAR)) {
+            return false;
+        }
+        if ((lights.getLightMask() & LightState.MASK_SPECULAR) != 0) {
+            return false;
+        }
+        for (int i = 0, max = lights.getNumberOfChildren(); i < max; i++) {
+            final Light light = lights.get(i);
+            if (light != null && light.isEnabled() && (light.getLightMask() & LightState.MASK_SPECULAR) == 0
+                    && !isBlack(light.getSpecular())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBlack(final ReadOnlyColorRGBA color) {
+        return color.getRed() <= 0 && color.getGreen() <= 0 && color.getBlue() <= 0;
+    }
+
+    /**
+     * Write what the lighting depends on into the scratch key.
+     *
+     * @return the length of the key.
+     */
+    private int writeKey(final LightState lights, final MaterialState material) {
+        final int count = lights.getNumberOfChildren();
+        final int length = HEADER_FLOATS + count * LIGHT_FLOATS;
+        if (_scratchKey.length < length) {
+            _scratchKey = new float[length];
+        }
+        final float[] key = _scratchKey;
+        Arrays.fill(key, 0, length, 0);
+
+        if ((lights.getLightMask() & LightState.MASK_GLOBALAMBIENT) == 0) {
+            putColor(key, 0, lights.getGlobalAmbient(), false);
+        }
+        final boolean enabled = material != null && material.isEnabled();
+        putColor(key, 3, enabled ? material.getAmbient() : MaterialState.DEFAULT_AMBIENT, true);
+        putColor(key, 7, enabled ? material.getDiffuse() : MaterialState.DEFAULT_DIFFUSE, true);
+        putColor(key, 11, enabled ? material.getEmissive() : MaterialState.DEFAULT_EMISSIVE, true);
+        key[15] = (enabled ? material.getColorMaterial() : MaterialState.DEFAULT_COLOR_MATERIAL).ordinal();
+
+        for (int i = 0; i < count; i++) {
+            final Light light = lights.get(i);
+            final int offset = HEADER_FLOATS + i * LIGHT_FLOATS;
+            if (light == null || !light.isEnabled()) {
+                // no contribution.
+                key[offset] = -1;
+                continue;
+            }
+            if (light.getType() == Light.Type.Directional) {
+                final ReadOnlyVector3 direction = ((DirectionalLight) light).getDirection();
+                key[offset] = TYPE_DIRECTIONAL;
+                key[offset + 1] = -direction.getXf();
+                key[offset + 2] = -direction.getYf();
+                key[offset + 3] = -direction.getZf();
+            } else {
+                final ReadOnlyVector3 location = ((PointLight) light).getLocation();
+                key[offset] = TYPE_POINT;
+                key[offset + 1] = location.getXf();
+                key[offset + 2] = location.getYf();
+                key[offset + 3] = location.getZf();
+            }
+            if ((lights.getLightMask() & LightState.MASK_AMBIENT) == 0
+                    && (light.getLightMask() & LightState.MASK_AMBIENT) == 0) {
+                putColor(key, offset + 4, light.getAmbient(), false);
+            }
+            if ((lights.getLightMask() & LightState.MASK_DIFFUSE) == 0
+                    && (light.getLightMask() & LightState.MASK_DIFFUSE) == 0) {
+                putColor(key, offset + 7, light.getDiffuse(), false);
+            }
+            final boolean attenuate = light.isAttenuate() && light.getType() != Light.Type.Directional;
+            key[offset + 10] = attenuate ? light.getConstant() : 1;
+            key[offset + 11] = attenuate ? light.getLinear() : 0;
+            key[offset + 12] = attenuate ? light.getQuadratic() : 0;
+            if (light.getType() == Light.Type.Spot) {
+                final SpotLight spot = (SpotLight) light;
+                final ReadOnlyVector3 direction = spot.getDirection();
+                key[offset] = TYPE_SPOT;
+                key[offset + 13] = direction.getXf();
+                key[offset + 14] = direction.getYf();
+                key[offset + 15] = direction.getZf();
+                key[offset + 16] = (float) Math.cos(spot.getAngle() * MathUtils.DEG_TO_RAD);
+                key[offset + 17] = spot.getExponent();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Light the given vertices, the same way the fixed function pipeline does without specular.
+     *
+     * @return rgba colors per vertex.
+     */
+    private static float[] bake(final float[] key, final float[] m, final float[] positions, final float[] normals,
+            final float[] colors, final int count) {
+        // the cofactors of the upper 3x3 are its inverse transpose, up to the determinant's scale.
+        final float n00 = m[5] * m[10] - m[6] * m[9], n01 = m[6] * m[8] - m[4] * m[10], n02 = m[4] * m[9] - m[5]
+                * m[8];
+        final float n10 = m[2] * m[9] - m[1] * m[10], n11 = m[0] * m[10] - m[2] * m[8], n12 = m[1] * m[8] - m[0]
+                * m[9];
+        final float n20 = m[1] * m[6] - m[2] * m[5], n21 = m[2] * m[4] - m[0] * m[6], n22 = m[0] * m[5] - m[1]
+                * m[4];
+        final float sign = m[0] * n00 + m[1] * n01 + m[2] * n02 < 0 ? -1 : 1;
+
+        final ColorMaterial colorMaterial = ColorMaterial.values()[(int) key[15]];
+        final boolean vertexAmbient = colors != null
+                && (colorMaterial == ColorMaterial.Ambient || colorMaterial == ColorMaterial.AmbientAndDiffuse);
+        final boolean vertexDiffuse = colors != null
+                && (colorMaterial == ColorMaterial.Diffuse || colorMaterial == ColorMaterial.AmbientAndDiffuse);
+        final boolean vertexEmissive = colors != null && colorMaterial == ColorMaterial.Emissive;
+        final int lightCount = (key.length - HEADER_FLOATS) / LIGHT_FLOATS;
+
+        final float[] result = new float[count * 4];
+        for (int v = 0; v < count; v++) {
+            final float x = positions[v * 3], y = positions[v * 3 + 1], z = positions[v * 3 + 2];
+            final float px = m[0] * x + m[1] * y + m[2] * z + m[3];
+            final float py = m[4] * x + m[5] * y + m[6] * z + m[7];
+            final float pz = m[8] * x + m[9] * y + m[10] * z + m[11];
+
+            final float nx0 = normals[v * 3], ny0 = normals[v * 3 + 1], nz0 = normals[v * 3 + 2];
+            float nx = (n00 * nx0 + n10 * ny0 + n20 * nz0) * sign;
+            float ny = (n01 * nx0 + n11 * ny0 + n21 * nz0) * sign;
+            float nz = (n02 * nx0 + n12 * ny0 + n22 * nz0) * sign;
+            final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length > 0) {
+                nx /= length;
+                ny /= length;
+                nz /= length;
+            }
+
+            final int c = v * 4;
+            final float ar = vertexAmbient ? colors[c] : key[3];
+            final float ag = vertexAmbient ? colors[c + 1] : key[4];
+            final float ab = vertexAmbient ? colors[c + 2] : key[5];
+            final float dr = vertexDiffuse ? colors[c] : key[7];
+            final float dg = vertexDiffuse ? colors[c + 1] : key[8];
+            final float db = vertexDiffuse ? colors[c + 2] : key[9];
+
+            float r = (vertexEmissive ? colors[c] : key[11]) + key[0] * ar;
+            float g = (vertexEmissive ? colors[c + 1] : key[12]) + key[1] * ag;
+            float b = (vertexEmissive ? colors[c + 2] : key[13]) + key[2] * ab;
+
+            for (int i = 0; i < lightCount; i++) {
+                final int o = HEADER_FLOATS + i * LIGHT_FLOATS;
+                final int type = (int) key[o];
+                if (type < 0) {
+                    continue;
+                }
+                float lx = key[o + 1], ly = key[o + 2], lz = key[o + 3];
+                float attenuation = 1;
+                if (type != TYPE_DIRECTIONAL) {
+                    lx -= px;
+                    ly -= py;
+                    lz -= pz;
+                    final float distance = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+                    if (distance > 0) {
+                        lx /= distance;
+                        ly /= distance;
+                        lz /= distance;
+                    }
+                    attenuation = 1 / Math.max(key[o + 10] + key[o + 11] * distance + key[o + 12] * distance
+                            * distance, 0.0001f);
+                    if (type == TYPE_SPOT) {
+                        final float cos = -(lx * key[o + 13] + ly * key[o + 14] + lz * key[o + 15]);
+                        attenuation = cos < key[o + 16] ? 0 : attenuation * (float) Math.pow(cos, key[o + 17]);
+                    }
+                } else {
+                    final float l = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+                    if (l > 0) {
+                        lx /= l;
+                        ly /= l;
+                        lz /= l;
+                    }
+                }
+                if (attenuation == 0) {
+                    continue;
+                }
+
+                final float diffuse = Math.max(nx * lx + ny * ly + nz * lz, 0);
+                r += attenuation * (key[o + 4] * ar + diffuse * key[o + 7] * dr);
+                g += attenuation * (key[o + 5] * ag + diffuse * key[o + 8] * dg);
+                b += attenuation * (key[o + 6] * ab + diffuse * key[o + 9] * db);
+            }
+
+            result[c] = Math.min(Math.max(r, 0), 1);
+            result[c + 1] = Math.min(Math.max(g, 0), 1);
+            result[c + 2] = Math.min(Math.max(b, 0), 1);
+            result[c + 3] = vertexDiffuse ? colors[c + 3] : key[10];
+        }
+        return result;
+    }
+
+    private static void putColor(final float[] key, final int offset, final ReadOnlyColorRGBA color,
+            final boolean alpha) {
+        key[offset] = color.getRed();
+        key[offset + 1] = color.getGreen();
+        key[offset + 2] = color.getBlue();
+        if (alpha) {
+            key[offset + 3] = color.getAlpha();
+        }
+    }
+
+    private static boolean equals(final float[] a, final float[] b, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float[] copy(final FloatBuffer buffer, final int length) {
+        final float[] values = new float[length];
+        final FloatBuffer source = buffer.duplicate();
+        source.rewind();
+        source.get(values, 0, Math.min(length, source.remaining()));
+        return values;
+    }
+}
@@ -0,0 +1,435 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.ardor3d.bounding.BoundingVolume;
+import com.ardor3d.light.Light;
+import com.ardor3d.light.PointLight;
+import com.ardor3d.math.type.ReadOnlyColorRGBA;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.state.LightState;
+import com.ardor3d.scenegraph.Mesh;
+
+/**
+ * Picks the lights that matter most for each mesh out of a light state, so the fixed function pipeline only has to
+ * light vertices with a few of them. Lights are scored by their diffuse brightness over their attenuation at the
+ * closest point of the mesh's world bound; directional and unattenuated lights don't fall off, attenuated point and
+ * spot lights are ignored beyond the distance their brightness drops below {@link #getCutoff()}. Spot cones are not
+ * considered.
+ * <p>
+ * Attenuated lights are kept in a uniform grid, rebuilt once per frame only if a light moved or changed its
+ * attenuation, and the selection for a mesh is kept until it or the lights move. Meshes given the same lights share
+ * one reduced light state, which copies the settings of the state it was made from.
+ * <p>
+ * Used by {@link AndroidRenderer} once set with {@link AndroidRenderer#setLightManager(AndroidLightManager)}.
+ */
+public class AndroidLightManager {
+
+    public static final int DEFAULT_MAX_LIGHTS = 3;
+    public static final float DEFAULT_CUTOFF = 1f / 256f;
+
+    private static final int MAX_REDUCED_STATES = 256;
+
+    /**
+     * The lights of one light state, with a grid over the attenuated ones.
+     */
+    private class LightIndex {
+        private final LightState _source;
+        private Light[] _lights = new Light[0];
+        private float[] _positions = new float[0];
+        private float[] _ranges = new float[0];
+        private int _count;
+        private int _version;
+        private int _frame = -1;
+
+        // cell key to the indices of the lights reaching into the cell, the first entry holding the count.
+        private final Map<Long, int[]> _cells = new HashMap<Long, int[]>();
+        private int[] _unbounded = new int[4];
+        private float _cellSize = 1;
+
+        // keyed by the list of lights selected
+        private final Map<List<Light>, LightState> _reduced = new HashMap<List<Light>, LightState>();
+
+        LightIndex(final LightState source) {
+            _source = source;
+        }
+
+        void refresh() {
+            _frame = _currentFrame;
+            if (_source.needsRefresh()) {
+                for (final LightState reduced : _reduced.values()) {
+                    copySettings(_source, reduced);
+                }
+                _source.setNeedsRefresh(false);
+            }
+
+            final int count = _source.getNumberOfChildren();
+            boolean changed = count != _count;
+            if (_lights.length < count) {
+                _lights = new Light[count];
+                _positions = new float[count * 3];
+                _ranges = new float[count];
+            }
+            for (int i = 0; i < count; i++) {
+                final Light light = _source.get(i);
+                float range = -1;
+                float x = 0, y = 0, z = 0;
+                if (light != null && light.isEnabled()) {
+                    range = range(light);
+                    if (light instanceof PointLight) {
+                        final ReadOnlyVector3 location = ((PointLight) light).getLocation();
+                        x = location.getXf();
+                        y = location.getYf();
+                        z = location.getZf();
+                    }
+                }
+                if (_lights[i] != light || _ranges[i] != range || _positions[i * 3] != x
+                        || _positions[i * 3 + 1] != y || _positions[i * 3 + 2] != z) {
+                    _lights[i] = light;
+                    _ranges[i] = range;
+                    _positions[i * 3] = x;
+                    _positions[i * 3 + 1] = y;
+                    _positions[i * 3 + 2] = z;
+                    changed = true;
+                }
+            }
+            for (int i = count; i < _count; i++) {
+                _lights[i] = null;
+            }
+            _count = count;
+
+            if (changed) {
+                rebuild();
+                _version++;
+            }
+        }
+
+        private void rebuild() {
+            _cells.clear();
+            _unbounded[0] = 0;
+
+            float maxRange = 0;
+            for (int i = 0; i < _count; i++) {
+                if (_ranges[i] != Float.POSITIVE_INFINITY) {
+                    maxRange = Math.max(maxRange, _ranges[i]);
+                }
+            }
+            // cells as large as the largest range put each light in at most 8 of them.
+            _cellSize = Math.max(maxRange, 0.001f);
+
+            for (int i = 0; i < _count; i++) {
+                final float range = _ranges[i];
+                if (range < 0) {
+                    continue;
+                } else if (range == Float.POSITIVE_INFINITY) {
+                    _unbounded = add(_unbounded, i);
+                    continue;
+                }
+                final int x0 = cell(_positions[i * 3] - range), x1 = cell(_positions[i * 3] + range);
+                final int y0 = cell(_positions[i * 3 + 1] - range), y1 = cell(_positions[i * 3 + 1] + range);
+                final int z0 = cell(_positions[i * 3 + 2] - range), z1 = cell(_positions[i * 3 + 2] + range);
+                for (int x = x0; x <= x1; x++) {
+                    for (int y = y0; y <= y1; y++) {
+                        for (int z = z0; z <= z1; z++) {
+                            final Long key = key(x, y, z);
+                            final int[] lights = _cells.get(key);
+                            _cells.put(key, add(lights != null ? lights : new int[4], i));
+                        }
+                    }
+                }
+            }
+        }
+
+        private int cell(final double value) {
+            return (int) Math.floor(value / _cellSize);
+        }
+
+        /**
+         * Select the lights for a sphere into the manager's scratch arrays.
+         *
+         * @return the number of lights selected.
+         */
+        int select(final double cx, final double cy, final double cz, final double radius) {
+            _selected = 0;
+            for (int i = 1; i <= _unbounded[0]; i++) {
+                consider(this, _unbounded[i], cx, cy, cz, radius);
+            }
+
+            final int x0 = cell(cx - radius), x1 = cell(cx + radius);
+            final int y0 = cell(cy - radius), y1 = cell(cy + radius);
+            final int z0 = cell(cz - radius), z1 = cell(cz + radius);
+            final long cells = (long) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+            if (cells > _count) {
+                // large compared to the lights, so just look at all of them.
+                for (int i = 0; i < _count; i++) {
+                    if (_ranges[i] >= 0 && _ranges[i] != Float.POSITIVE_INFINITY) {
+                        consider(this, i, cx, cy, cz, radius);
+                    }
+                }
+                return _selected;
+            }
+
+            _visitStamp++;
+            if (_visited.length < _count) {
+                _visited = new int[_count];
+            }
+            for (int x = x0; x <= x1; x++) {
+                for (int y = y0; y <= y1; y++) {
+                    for (int z = z0; z <= z1; z++) {
+                        final int[] lights = _cells.get(key(x, y, z));
+                        if (lights == null) {
+                            continue;
+                        }
+                        for (int i = 1; i <= lights[0]; i++) {
+                            final int light = lights[i];
+                            if (_visited[light] != _visitStamp) {
+                                _visited[light] = _visitStamp;
+                                consider(this, light, cx, cy, cz, radius);
+                            }
+                        }
+                    }
+                }
+            }
+            return _selected;
+        }
+
+        LightState getReduced(final int count) {
+            final List<Light> key = new ArrayList<Light>(count);
+            for (int i = 0; i < count; i++) {
+                key.add(_lights[_selectedLights[i]]);
+            }
+            LightState reduced = _reduced.get(key);
+            if (reduced == null) {
+                if (_reduced.size() >= MAX_REDUCED_STATES) {
+                    _reduced.clear();
+                }
+                reduced = new LightState();
+                for (int i = 0; i < count; i++) {
+                    reduced.attach(key.get(i));
+                }
+                copySettings(_source, reduced);
+                _reduced.put(key, reduced);
+            }
+            return reduced;
+        }
+    }
+
+    private static class Selection {
+        private LightIndex _index;
+        private int _version;
+        private double _x, _y, _z, _radius;
+        private LightState _state;
+    }
+
+    // keyed by source light state
+    private final Map<Object, LightIndex> _indices = new WeakHashMap<Object, LightIndex>();
+    // keyed by mesh
+    private final Map<Object, Selection> _selections = new WeakHashMap<Object, Selection>();
+
+    private int _maxLights = DEFAULT_MAX_LIGHTS;
+    private float _cutoff = DEFAULT_CUTOFF;
+    private int _currentFrame;
+
+    // scratch space for selecting, sorted by descending score.
+    private int[] _selectedLights = new int[DEFAULT_MAX_LIGHTS];
+    private float[] _selectedScores = new float[DEFAULT_MAX_LIGHTS];
+    private int _selected;
+    private int[] _visited = new int[0];
+    private int _visitStamp;
+
+    public void nextFrame() {
+        _currentFrame++;
+    }
+
+    /**
+     * @return a light state holding only the most influential of the given state's lights for the mesh, or the given
+     *         state itself if it doesn't hold more lights than {@link #getMaxLights()}.
+     */
+    public LightState getLightState(final Mesh mesh, final LightState source) {
+        if (!source.isEnabled() || source.getNumberOfChildren() <= _maxLights) {
+            return source;
+        }
+
+        LightIndex index = _indices.get(source);
+        if (index == null) {
+            index = new LightIndex(source);
+            _indices.put(source, index);
+        }
+        if (index._frame != _currentFrame) {
+            index.refresh();
+        }
+
+        final BoundingVolume bound = mesh.getWorldBound();
+        final ReadOnlyVector3 center = bound != null ? bound.getCenter() : mesh.getWorldTranslation();
+        final double radius = bound != null ? bound.getRadius() : 0;
+
+        Selection selection = _selections.get(mesh);
+        if (selection == null) {
+            selection = new Selection();
+            _selections.put(mesh, selection);
+        } else if (selection._index == index && selection._version == index._version
+                && selection._x == center.getX() && selection._y == center.getY() && selection._z == center.getZ()
+                && selection._radius == radius) {
+            return selection._state;
+        }
+
+        final int count = index.select(center.getX(), center.getY(), center.getZ(), radius);
+        selection._index = index;
+        selection._version = index._version;
+        selection._x = center.getX();
+        selection._y = center.getY();
+        selection._z = center.getZ();
+        selection._radius = radius;
+        selection._state = index.getReduced(count);
+        return selection._state;
+    }
+
+    /**
+     * Forget all selections and reduced states, e.g. after changing the settings.
+     */
+    public void clear() {
+        _indices.clear();
+        _selections.clear();
+    }
+
+    /**
+     * @param maxLights
+     *            the number of lights to keep per mesh, at least 1.
+     */
+    public void setMaxLights(final int maxLights) {
+        _maxLights = Math.max(maxLights, 1);
+        _selectedLights = new int[_maxLights];
+        _selectedScores = new float[_maxLights];
+        clear();
+    }
+
+    public int getMaxLights() {
+        return _maxLights;
+    }
+
+    /**
+     * @param cutoff
+     *            the share of its brightness below which an attenuated light is considered out of range.
+     */
+    public void setCutoff(final float cutoff) {
+        _cutoff = cutoff;
+        clear();
+    }
+
+    public float getCutoff() {
+        return _cutoff;
+    }
+
+    /**
+     * Add the given light to the selection if it scores high enough.
+     */
+    private void consider(final LightIndex index, final int light, final double cx, final double cy, final double cz,
+            final double radius) {
+        final Light l = index._lights[light];
+        float score = brightness(l);
+        if (l.isAttenuate() && l instanceof PointLight) {
+            final double dx = index._positions[light * 3] - cx;
+            final double dy = index._positions[light * 3 + 1] - cy;
+            final double dz = index._positions[light * 3 + 2] - cz;
+            final double distance = Math.max(0, Math.sqrt(dx * dx + dy * dy + dz * dz) - radius);
+            if (distance > index._ranges[light]) {
+                return;
+            }
+            score /= attenuation(l, distance);
+        }
+
+        int i = _selected;
+        if (i == _maxLights) {
+            if (score <= _selectedScores[i - 1]) {
+                return;
+            }
+            i--;
+        } else {
+            _selected++;
+        }
+        for (; i > 0 && _selectedScores[i - 1] < score; i--) {
+            _selectedLights[i] = _selectedLights[i - 1];
+            _selectedScores[i] = _selectedScores[i - 1];
+        }
+        _selectedLights[i] = light;
+        _selectedScores[i] = score;
+    }
+
+    /**
+     * @return the distance at which the light's brightness drops below the cutoff, infinity if it doesn't fall off.
+     */
+    private float range(final Light light) {
+        if (!light.isAttenuate() || !(light instanceof PointLight)) {
+            return Float.POSITIVE_INFINITY;
+        }
+        // solve constant + linear * d + quadratic * d^2 = brightness / cutoff
+        final double limit = brightness(light) / _cutoff;
+        final double c = light.getConstant() - limit;
+        final double l = light.getLinear();
+        final double q = light.getQuadratic();
+        if (c >= 0) {
+            return 0;
+        } else if (q > 0) {
+            return (float) ((-l + Math.sqrt(l * l - 4 * q * c)) / (2 * q));
+        } else if (l > 0) {
+            return (float) (-c / l);
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+
+    private static float attenuation(final Light light, final double distance) {
+        return (float) Math.max(light.getConstant() + light.getLinear() * distance + light.getQuadratic() * distance
+                * distance, 0.0001);
+    }
+
+    private static float brightness(final Light light) {
+        final ReadOnlyColorRGBA diffuse = light.getDiffuse();
+        return Math.max(diffuse.getRed(), Math.max(diffuse.getGreen(), diffuse.getBlue()));
+    }
+
+    private static void copySettings(final LightState source, final LightState target) {
+        target.setEnabled(source.isEnabled());
+        target.setTwoSidedLighting(source.getTwoSidedLighting());
+        target.setLocalViewer(source.getLocalViewer());
+        target.setSeparateSpecular(source.getSeparateSpecular());
+        target.setGlobalAmbient(source.getGlobalAmbient());
+        target.setLightMask(source.getLightMask());
+    }
+
+    private static int[] add(final int[] list, final int value) {
+        int[] result = list;
+        if (result[0] + 1 == result.length) {
+            result = new int[list.length * 2];
+            System.arraycopy(list, 0, result, 0, list.length);
+        }
+        result[++result[0]] = value;
+        return result;
+    }
+
+    private static Long key(final int x, final int y, final int z) {
+        return Long.valueOf((x & 0x1FFFFFL) << 42 | (y & 0x1FFFFFL) << 21 | z & 0x1FFFFFL);
+    }
+}
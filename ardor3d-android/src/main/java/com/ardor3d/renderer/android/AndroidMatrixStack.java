@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.FloatBuffer;
+
+import android.opengl.Matrix;
+
+/**
+ * A CPU-side copy of one of the GL matrix stacks, so the current matrix can be answered without a glGetFloatv.
+ * Multiplications are only carried out when the matrix is asked for, keeping the common push / multiply / pop per
+ * draw down to a few array copies.
+ */
+public class AndroidMatrixStack {
+
+    public static final int MAX_DEPTH = 32;
+
+    private final float[] _matrices = new float[MAX_DEPTH * 16];
+    // if set, the matrix at a depth is its stored value multiplied by the stored multiplier.
+    private final boolean[] _pending = new boolean[MAX_DEPTH];
+    private final float[] _multipliers = new float[MAX_DEPTH * 16];
+    private final boolean[] _valid = new boolean[MAX_DEPTH];
+    private final float[] _temp = new float[16];
+    private int _depth = 0;
+
+    public AndroidMatrixStack() {
+        Matrix.setIdentityM(_matrices, 0);
+        _valid[0] = true;
+    }
+
+    /**
+     * @return true if the current matrix is known.
+     */
+    public boolean isValid() {
+        return _valid[_depth];
+    }
+
+    /**
+     * Forget all matrices, e.g. because GL may have changed them behind our back.
+     */
+    public void invalidate() {
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            _valid[i] = false;
+            _pending[i] = false;
+        }
+    }
+
+    /**
+     * Reset to a fresh context's state: a single identity matrix.
+     */
+    public void reset() {
+        invalidate();
+        _depth = 0;
+        Matrix.setIdentityM(_matrices, 0);
+        _valid[0] = true;
+    }
+
+    public void load(final FloatBuffer matrix) {
+        final int pos = matrix.position();
+        final int offset = _depth * 16;
+        for (int i = 0; i < 16; i++) {
+            _matrices[offset + i] = matrix.get(pos + i);
+        }
+        _pending[_depth] = false;
+        _valid[_depth] = true;
+    }
+
+    public void load(final float[] matrix) {
+        System.arraycopy(matrix, 0, _matrices, _depth * 16, 16);
+        _pending[_depth] = false;
+        _valid[_depth] = true;
+    }
+
+    public void loadIdentity() {
+        Matrix.setIdentityM(_matrices, _depth * 16);
+        _pending[_depth] = false;
+        _valid[_depth] = true;
+    }
+
+    public void multiply(final FloatBuffer matrix) {
+        resolve(_depth);
+        final int pos = matrix.position();
+        final int offset = _depth * 16;
+        for (int i = 0; i < 16; i++) {
+            _multipliers[offset + i] = matrix.get(pos + i);
+        }
+        _pending[_depth] = true;
+    }
+
+    public void ortho(final float left, final float right, final float bottom, final float top, final float near,
+            final float far) {
+        resolve(_depth);
+        Matrix.orthoM(_multipliers, _depth * 16, left, right, bottom, top, near, far);
+        _pending[_depth] = true;
+    }
+
+    public void push() {
+        if (_depth + 1 >= MAX_DEPTH) {
+            // GL will raise a stack overflow and ignore the push, as do we.
+            return;
+        }
+        final int offset = _depth * 16;
+        System.arraycopy(_matrices, offset, _matrices, offset + 16, 16);
+        if (_pending[_depth]) {
+            System.arraycopy(_multipliers, offset, _multipliers, offset + 16, 16);
+        }
+        _pending[_depth + 1] = _pending[_depth];
+        _valid[_depth + 1] = _valid[_depth];
+        _depth++;
+    }
+
+    public void pop() {
+        if (_depth > 0) {
+            _depth--;
+        }
+    }
+
+    /**
+     * Copy the current matrix into the given buffer, starting at its position.
+     *
+     * @return false if the current matrix is not known, in which case store is left untouched.
+     */
+    public boolean get(final FloatBuffer store) {
+        if (!_valid[_depth]) {
+            return false;
+        }
+        resolve(_depth);
+        final int pos = store.position();
+        final int offset = _depth * 16;
+        for (int i = 0; i < 16; i++) {
+            store.put(pos + i, _matrices[offset + i]);
+        }
+        return true;
+    }
+
+    private void resolve(final int depth) {
+        if (_pending[depth]) {
+            final int offset = depth * 16;
+            Matrix.multiplyMM(_temp, 0, _matrices, offset, _multipliers, offset);
+            System.arraycopy(_temp, 0, _matrices, offset, 16);
+            _pending[depth] = false;
+        }
+    }
+}
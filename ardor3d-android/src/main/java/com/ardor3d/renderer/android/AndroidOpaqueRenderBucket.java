@@ -0,0 +1,426 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.util.Arrays;
+
+import com.ardor3d.bounding.BoundingVolume;
+import com.ardor3d.image.Texture;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.Camera;
+import com.ardor3d.renderer.ContextManager;
+import com.ardor3d.renderer.RenderContext;
+import com.ardor3d.renderer.queue.AbstractRenderBucket;
+import com.ardor3d.renderer.state.RenderState;
+import com.ardor3d.renderer.state.RenderState.StateType;
+import com.ardor3d.renderer.state.TextureState;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.Spatial;
+import com.ardor3d.util.Constants;
+import com.ardor3d.util.stat.StatCollector;
+
+/**
+ * Opaque bucket sorting by a 64 bit key per spatial instead of a comparator. From the most significant bits down, the
+ * key holds ids for the GL textures of units 0 and 1, then for the light, blend and material states and finally the
+ * distance to the camera, so that texture binds are grouped first and objects within a group are drawn front to back.
+ * The ids are handed out densely each frame, and each field gets just the bits needed for the ids in use, so distinct
+ * textures and states never share a key. The distance gets up to 16 of the remaining bits. Keys are sorted with an LSD
+ * radix sort, skipping the bytes all keys share.
+ * <p>
+ * If the same spatials are added in the same order as in the previous frame, the previous order is tried first and
+ * only sorted again if the keys have moved out of order.
+ * <p>
+ * Installed as the opaque bucket by {@link AndroidRenderer#setSortOpaqueByState(boolean)}.
+ */
+public class AndroidOpaqueRenderBucket extends AbstractRenderBucket {
+
+    // key fields, from the most significant down
+    private static final int TEXTURE0 = 0;
+    private static final int TEXTURE1 = 1;
+    private static final int LIGHT = 2;
+    private static final int BLEND = 3;
+    private static final int MATERIAL = 4;
+    private static final int FIELDS = 5;
+
+    private static final int MAX_DEPTH_BITS = 16;
+
+    /**
+     * Numbers the distinct keys met since the last clear from 1 up, with 0 standing for none. Keys are either GL ids
+     * or render states, compared by identity. Doesn't allocate once grown.
+     */
+    private static class DenseIds {
+        private Object[] _objects = new Object[64];
+        private int[] _values = new int[64];
+        private int[] _ids = new int[64];
+        // the slots in use, by id - 1
+        private int[] _used = new int[32];
+        private int _size;
+
+        void clear() {
+            for (int i = 0; i < _size; i++) {
+                _objects[_used[i]] = null;
+                _ids[_used[i]] = 0;
+            }
+            _size = 0;
+        }
+
+        int size() {
+            return _size;
+        }
+
+        int get(final int value) {
+            return value != 0 ? get(null, value) : 0;
+        }
+
+        int get(final Object object) {
+            return object != null ? get(object, 0) : 0;
+        }
+
+        private int get(final Object object, final int value) {
+            int mask = _ids.length - 1;
+            int slot = hash(object, value) & mask;
+            while (_ids[slot] != 0) {
+                if (_objects[slot] == object && _values[slot] == value) {
+                    return _ids[slot];
+                }
+                slot = slot + 1 & mask;
+            }
+            if ((_size + 1) * 2 > _ids.length) {
+                grow();
+                mask = _ids.length - 1;
+                slot = hash(object, value) & mask;
+                while (_ids[slot] != 0) {
+                    slot = slot + 1 & mask;
+                }
+            }
+            _objects[slot] = object;
+            _values[slot] = value;
+            _used[_size] = slot;
+            _ids[slot] = ++_size;
+            return _size;
+        }
+
+        private void grow() {
+            final Object[] objects = _objects;
+            final int[] values = _values;
+            final int[] used = _used;
+            final int capacity = _ids.length * 2;
+            _objects = new Object[capacity];
+            _values = new int[capacity];
+            _ids = new int[capacity];
+            _used = new int[capacity / 2];
+            for (int i = 0; i < _size; i++) {
+                int slot = hash(objects[used[i]], values[used[i]]) & capacity - 1;
+                while (_ids[slot] != 0) {
+                    slot = slot + 1 & capacity - 1;
+                }
+                _objects[slot] = objects[used[i]];
+                _values[slot] = values[used[i]];
+                _ids[slot] = i + 1;
+                _used[i] = slot;
+            }
+        }
+
+        private static int hash(final Object object, final int value) {
+            final int hash = (object != null ? System.identityHashCode(object) : value) * 0x9E3779B9;
+            return hash ^ hash >>> 16;
+        }
+    }
+
+    private final DenseIds[] _denseIds = new DenseIds[FIELDS];
+    // the dense ids of each spatial's fields, FIELDS per spatial, and its distance to the camera from 0 to 1.
+    private int[] _fields = new int[0];
+    private double[] _depths = new double[0];
+    private final int[] _shifts = new int[FIELDS];
+    private final int[] _maxIds = new int[FIELDS];
+
+    private final int[] _counts = new int[256];
+    private long[] _keys = new long[0];
+    private long[] _sortKeys = new long[0];
+    private long[] _tmpKeys = new long[0];
+    private int[] _order = new int[0];
+    private int[] _tmpOrder = new int[0];
+
+    // the previous frame's spatials, in the order they were added, and the order they were drawn in.
+    private Spatial[] _lastInput = new Spatial[0];
+    private int[] _lastOrder = new int[0];
+    private int _lastInputSize;
+
+    private int _textureSwitches;
+    private int _stateSwitches;
+    private boolean _reused;
+
+    public AndroidOpaqueRenderBucket() {
+        for (int i = 0; i < FIELDS; i++) {
+            _denseIds[i] = new DenseIds();
+        }
+    }
+
+    @Override
+    public void sort() {
+        final int size = _currentListSize;
+        if (size <= 1) {
+            _textureSwitches = 0;
+            _stateSwitches = 0;
+            _reused = false;
+            return;
+        }
+        ensureCapacity(size);
+
+        final Camera camera = Camera.getCurrentCamera();
+        final RenderContext context = ContextManager.getCurrentContext();
+        final Object glContext = context != null ? context.getGlContextRep() : null;
+        for (int i = 0; i < FIELDS; i++) {
+            _denseIds[i].clear();
+        }
+        for (int i = 0; i < size; i++) {
+            collect(i, _currentList[i], camera, glContext);
+        }
+        computeKeys(size);
+
+        _reused = isSameInput(size) && isSorted(_lastOrder, size);
+        if (_reused) {
+            System.arraycopy(_lastOrder, 0, _order, 0, size);
+        } else {
+            radixSort(size);
+        }
+
+        System.arraycopy(_currentList, 0, _lastInput, 0, size);
+        if (_lastInputSize > size) {
+            Arrays.fill(_lastInput, size, _lastInputSize, null);
+        }
+        System.arraycopy(_order, 0, _lastOrder, 0, size);
+        _lastInputSize = size;
+
+        if (_tempList == null || _tempList.length < _currentList.length) {
+            _tempList = new Spatial[_currentList.length];
+        }
+        for (int i = 0; i < size; i++) {
+            _tempList[i] = _currentList[_order[i]];
+        }
+        System.arraycopy(_tempList, 0, _currentList, 0, size);
+        Arrays.fill(_tempList, 0, size, null);
+
+        countSwitches(size);
+    }
+
+    /**
+     * @return the number of times the texture ids changed between consecutive spatials in the last sorted frame.
+     */
+    public int getTextureSwitches() {
+        return _textureSwitches;
+    }
+
+    /**
+     * @return the number of light, blend and material state changes between consecutive spatials in the last sorted
+     *         frame.
+     */
+    public int getStateSwitches() {
+        return _stateSwitches;
+    }
+
+    /**
+     * @return true if the last sort kept the previous frame's order.
+     */
+    public boolean isReused() {
+        return _reused;
+    }
+
+    private void collect(final int index, final Spatial spatial, final Camera camera, final Object glContext) {
+        final int base = index * FIELDS;
+        Arrays.fill(_fields, base, base + FIELDS, 0);
+        if (spatial instanceof Mesh) {
+            final Mesh mesh = (Mesh) spatial;
+            final TextureState ts = (TextureState) mesh.getWorldRenderState(StateType.Texture);
+            if (ts != null && ts.isEnabled()) {
+                _fields[base + TEXTURE0] = _denseIds[TEXTURE0].get(textureId(ts, 0, glContext));
+                _fields[base + TEXTURE1] = _denseIds[TEXTURE1].get(textureId(ts, 1, glContext));
+            }
+            _fields[base + LIGHT] = _denseIds[LIGHT].get(enabled(mesh.getWorldRenderState(StateType.Light)));
+            _fields[base + BLEND] = _denseIds[BLEND].get(enabled(mesh.getWorldRenderState(StateType.Blend)));
+            _fields[base + MATERIAL] = _denseIds[MATERIAL].get(enabled(mesh.getWorldRenderState(StateType.Material)));
+        }
+
+        double depth = 0;
+        if (camera != null) {
+            final BoundingVolume bound = spatial.getWorldBound();
+            final ReadOnlyVector3 center = bound != null ? bound.getCenter() : spatial.getWorldTranslation();
+            final double far = camera.getFrustumFar();
+            depth = far > 0 ? Math.min(Math.max(center.distance(camera.getLocation()) / far, 0), 1) : 0;
+        }
+        _depths[index] = depth;
+    }
+
+    /**
+     * Pack this frame's fields into keys, giving each field the bits its ids need. Keys never use the sign bit, so
+     * they compare as unsigned.
+     */
+    private void computeKeys(final int size) {
+        final int[] shifts = _shifts;
+        final int[] maxIds = _maxIds;
+        int free = 63;
+        for (int f = 0; f < FIELDS; f++) {
+            final int bits = Math.min(32 - Integer.numberOfLeadingZeros(_denseIds[f].size()), free);
+            free -= bits;
+            shifts[f] = free;
+            maxIds[f] = (1 << bits) - 1;
+        }
+        final double maxDepth = (1L << Math.min(free, MAX_DEPTH_BITS)) - 1;
+
+        for (int i = 0; i < size; i++) {
+            final int base = i * FIELDS;
+            long key = (long) (_depths[i] * maxDepth);
+            for (int f = 0; f < FIELDS; f++) {
+                // only clamped with more ids in use than bits to spare, which no frame gets close to.
+                key |= (long) Math.min(_fields[base + f], maxIds[f]) << shifts[f];
+            }
+            _keys[i] = key;
+        }
+    }
+
+    private static int textureId(final TextureState ts, final int unit, final Object glContext) {
+        final Texture texture = ts.getTexture(unit);
+        if (texture == null || glContext == null) {
+            return 0;
+        }
+        return texture.getTextureIdForContext(glContext);
+    }
+
+    private static RenderState enabled(final RenderState state) {
+        return state != null && state.isEnabled() ? state : null;
+    }
+
+    private boolean isSameInput(final int size) {
+        if (size != _lastInputSize) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (_currentList[i] != _lastInput[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSorted(final int[] order, final int size) {
+        for (int i = 1; i < size; i++) {
+            if (_keys[order[i - 1]] > _keys[order[i]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sort the indices of this frame's keys into _order. Keys never use the sign bit, so they compare as unsigned.
+     */
+    private void radixSort(final int size) {
+        long[] keys = _sortKeys;
+        long[] tmpKeys = _tmpKeys;
+        int[] order = _order;
+        int[] tmpOrder = _tmpOrder;
+
+        long differing = 0;
+        for (int i = 0; i < size; i++) {
+            keys[i] = _keys[i];
+            order[i] = i;
+            differing |= _keys[i] ^ _keys[0];
+        }
+
+        for (int shift = 0; shift < 64; shift += 8) {
+            if ((differing >>> shift & 0xFF) == 0) {
+                continue;
+            }
+            Arrays.fill(_counts, 0);
+            for (int i = 0; i < size; i++) {
+                _counts[(int) (keys[i] >>> shift) & 0xFF]++;
+            }
+            int sum = 0;
+            for (int b = 0; b < 256; b++) {
+                final int count = _counts[b];
+                _counts[b] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < size; i++) {
+                final int dst = _counts[(int) (keys[i] >>> shift) & 0xFF]++;
+                tmpKeys[dst] = keys[i];
+                tmpOrder[dst] = order[i];
+            }
+
+            final long[] swapKeys = keys;
+            keys = tmpKeys;
+            tmpKeys = swapKeys;
+            final int[] swapOrder = order;
+            order = tmpOrder;
+            tmpOrder = swapOrder;
+        }
+
+        if (order != _order) {
+            System.arraycopy(order, 0, _order, 0, size);
+        }
+    }
+
+    private void countSwitches(final int size) {
+        int textureSwitches = 0;
+        int stateSwitches = 0;
+        for (int i = 1; i < size; i++) {
+            final int last = _order[i - 1] * FIELDS;
+            final int next = _order[i] * FIELDS;
+            if (_fields[last + TEXTURE0] != _fields[next + TEXTURE0]
+                    || _fields[last + TEXTURE1] != _fields[next + TEXTURE1]) {
+                textureSwitches++;
+            }
+            for (int f = LIGHT; f < FIELDS; f++) {
+                if (_fields[last + f] != _fields[next + f]) {
+                    stateSwitches++;
+                }
+            }
+        }
+        _textureSwitches = textureSwitches;
+        _stateSwitches = stateSwitches;
+
+        if (Constants.stats) {
+            StatCollector.addStat(AndroidStatType.STAT_SORTED_TEXTURE_SWITCHES, textureSwitches);
+            StatCollector.addStat(AndroidStatType.STAT_SORTED_STATE_SWITCHES, stateSwitches);
+            StatCollector.addStat(AndroidStatType.STAT_SORT_ORDER_REUSED, _reused ? 1 : 0);
+        }
+    }
+
+    private void ensureCapacity(final int size) {
+        if (_keys.length >= size) {
+            return;
+        }
+        final int capacity = Math.max(size, _keys.length * 2);
+        _fields = new int[capacity * FIELDS];
+        _depths = new double[capacity];
+        _keys = new long[capacity];
+        _sortKeys = new long[capacity];
+        _tmpKeys = new long[capacity];
+        _order = new int[capacity];
+        _tmpOrder = new int[capacity];
+
+        final Spatial[] lastInput = new Spatial[capacity];
+        System.arraycopy(_lastInput, 0, lastInput, 0, _lastInputSize);
+        _lastInput = lastInput;
+        final int[] lastOrder = new int[capacity];
+        System.arraycopy(_lastOrder, 0, lastOrder, 0, _lastInputSize);
+        _lastOrder = lastOrder;
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.microedition.khronos.opengles.GL10;
+
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.MeshData;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * A compact GL type for one vertex attribute, used in place of floats when the attribute is uploaded to its VBO:
+ * positions and texture coordinates become shorts, normals signed bytes and colors unsigned bytes. Shorts span the
+ * attribute's bounds, and the scale and bias to get back to the original values are applied through the modelview and
+ * texture matrices when drawing, see {@link #getScale(int)} and {@link #getBias(int)}. Positions are scaled uniformly,
+ * so lit normals only need rescaling.
+ * <p>
+ * Quantizing is opt in, per mesh, with {@link #quantize(MeshData)}. It only applies to data drawn from VBOs, one
+ * buffer per attribute; interleaved VBOs keep their floats.
+ */
+public class AndroidQuantizedAttribute {
+
+    public static final int POSITION = 0;
+    public static final int NORMAL = 1;
+    public static final int COLOR = 2;
+    public static final int TEXCOORD = 3;
+
+    // keyed by buffer data
+    private static final Map<Object, AndroidQuantizedAttribute> _attributes =
+            new WeakHashMap<Object, AndroidQuantizedAttribute>();
+
+    private final int _kind;
+    private int _size;
+    private final float[] _scale = new float[3];
+    private final float[] _bias = new float[3];
+    private ByteBuffer _packed;
+
+    private AndroidQuantizedAttribute(final int kind) {
+        _kind = kind;
+    }
+
+    /**
+     * Quantize the attributes of the given mesh data the next time they are uploaded. Fog coordinates, and positions
+     * or texture coordinates with 4 values per vertex, are left alone.
+     */
+    public static void quantize(final MeshData data) {
+        synchronized (_attributes) {
+            put(data.getVertexCoords(), POSITION);
+            put(data.getNormalCoords(), NORMAL);
+            put(data.getColorCoords(), COLOR);
+            for (int unit = 0; unit < data.getNumberOfUnits(); unit++) {
+                put(data.getTextureCoords(unit), TEXCOORD);
+            }
+        }
+        markRefresh(data);
+    }
+
+    /**
+     * Upload the attributes of the given mesh data as floats again.
+     */
+    public static void unquantize(final MeshData data) {
+        synchronized (_attributes) {
+            _attributes.remove(data.getVertexCoords());
+            _attributes.remove(data.getNormalCoords());
+            _attributes.remove(data.getColorCoords());
+            for (int unit = 0; unit < data.getNumberOfUnits(); unit++) {
+                _attributes.remove(data.getTextureCoords(unit));
+            }
+        }
+        markRefresh(data);
+    }
+
+    private static void put(final FloatBufferData data, final int kind) {
+        if (data == null || (kind == POSITION || kind == TEXCOORD) && data.getValuesPerTuple() > 3) {
+            // shorts have no room for a fourth, homogeneous, coordinate.
+            return;
+        }
+        if (!_attributes.containsKey(data)) {
+            _attributes.put(data, new AndroidQuantizedAttribute(kind));
+        }
+    }
+
+    private static void markRefresh(final MeshData data) {
+        // their VBOs need to be filled with the other type.
+        final FloatBufferData[] all = { data.getVertexCoords(), data.getNormalCoords(), data.getColorCoords() };
+        for (final FloatBufferData attribute : all) {
+            if (attribute != null) {
+                attribute.setNeedsRefresh(true);
+            }
+        }
+        for (int unit = 0; unit < data.getNumberOfUnits(); unit++) {
+            if (data.getTextureCoords(unit) != null) {
+                data.getTextureCoords(unit).setNeedsRefresh(true);
+            }
+        }
+    }
+
+    /**
+     * @return the quantized format of the given data, or null if it is uploaded as floats.
+     */
+    public static AndroidQuantizedAttribute get(final FloatBufferData data) {
+        synchronized (_attributes) {
+            return _attributes.get(data);
+        }
+    }
+
+    public int getKind() {
+        return _kind;
+    }
+
+    public int getGLType() {
+        switch (_kind) {
+            case NORMAL:
+                return GL10.GL_BYTE;
+            case COLOR:
+                return GL10.GL_UNSIGNED_BYTE;
+            default:
+                return GL10.GL_SHORT;
+        }
+    }
+
+    /**
+     * @return the number of values per vertex GL reads. Colors always have 4.
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * @return bytes per vertex, padded to a multiple of 4 as most GPUs fetch attributes in words.
+     */
+    public int getStride() {
+        final int bytes = _size * (_kind == POSITION || _kind == TEXCOORD ? 2 : 1);
+        return bytes + 3 & ~3;
+    }
+
+    /**
+     * @return the factor to multiply a stored value of the given component with, after the last {@link #pack}.
+     */
+    public float getScale(final int component) {
+        return _scale[component];
+    }
+
+    /**
+     * @return the value to add to a scaled component, after the last {@link #pack}.
+     */
+    public float getBias(final int component) {
+        return _bias[component];
+    }
+
+    /**
+     * @return true if drawing this attribute needs a scale and bias applied through a matrix.
+     */
+    public boolean isScaled() {
+        return _kind == POSITION || _kind == TEXCOORD;
+    }
+
+    /**
+     * Convert the given data to this format.
+     *
+     * @return a buffer, owned by this attribute, holding the converted data, ready to upload.
+     */
+    public ByteBuffer pack(final FloatBufferData data) {
+        final FloatBuffer source = data.getBuffer();
+        final int valuesPerTuple = data.getValuesPerTuple();
+        final int tuples = source.limit() / valuesPerTuple;
+        _size = _kind == NORMAL ? 3 : _kind == COLOR ? 4 : valuesPerTuple;
+        final int stride = getStride();
+
+        if (_packed == null || _packed.capacity() < tuples * stride) {
+            _packed = BufferUtils.createByteBuffer(tuples * stride);
+        }
+        _packed.clear();
+
+        switch (_kind) {
+            case NORMAL:
+                for (int t = 0; t < tuples; t++) {
+                    for (int i = 0; i < 3; i++) {
+                        final float value = Math.max(-1, Math.min(1, source.get(t * valuesPerTuple + i)));
+                        _packed.put(t * stride + i, (byte) Math.round(value * 127));
+                    }
+                }
+                break;
+            case COLOR:
+                for (int t = 0; t < tuples; t++) {
+                    for (int i = 0; i < 4; i++) {
+                        final float value = i < valuesPerTuple ? source.get(t * valuesPerTuple + i) : 1;
+                        _packed.put(t * stride + i, (byte) Math.round(Math.max(0, Math.min(1, value)) * 255));
+                    }
+                }
+                break;
+            default:
+                computeBounds(source, valuesPerTuple, tuples);
+                for (int t = 0; t < tuples; t++) {
+                    for (int i = 0; i < _size; i++) {
+                        final float value = (source.get(t * valuesPerTuple + i) - _bias[i]) / _scale[i];
+                        _packed.putShort(t * stride + i * 2, (short) Math.round(value));
+                    }
+                }
+        }
+        _packed.limit(tuples * stride);
+        _packed.rewind();
+        return _packed;
+    }
+
+    private void computeBounds(final FloatBuffer source, final int valuesPerTuple, final int tuples) {
+        float maxExtent = 0;
+        for (int i = 0; i < _size; i++) {
+            float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+            for (int t = 0; t < tuples; t++) {
+                final float value = source.get(t * valuesPerTuple + i);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (tuples == 0) {
+                min = max = 0;
+            }
+            _bias[i] = (min + max) / 2;
+            _scale[i] = (max - min) / 2 / Short.MAX_VALUE;
+            maxExtent = Math.max(maxExtent, _scale[i]);
+        }
+        for (int i = 0; i < 3; i++) {
+            if (i >= _size) {
+                _scale[i] = 1;
+                _bias[i] = 0;
+            } else if (_kind == POSITION) {
+                // uniform, so normals are only scaled and not skewed by the position matrix.
+                _scale[i] = maxExtent;
+            }
+            if (_scale[i] == 0) {
+                _scale[i] = 1;
+            }
+        }
+    }
+}
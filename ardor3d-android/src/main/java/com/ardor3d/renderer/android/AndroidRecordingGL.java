@@ -0,0 +1,2705 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+import javax.microedition.khronos.opengles.GL11ExtensionPack;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES11;
+import android.opengl.GLUtils;
+import android.util.Log;
+
+import com.ardor3d.framework.android.AndroidCanvas;
+
+/**
+ * A GL front end that can record calls into an {@link AndroidGLCommandBuffer} instead of issuing them, so that scene
+ * traversal and state tracking can run on a thread other than the GL thread. Calls are written straight into the
+ * buffer's primitive pools and replayed through a switch, without boxing or reflection; only the fixed point variants
+ * of the GL calls, which nothing in the renderer uses, are kept as reflective calls.
+ * <p>
+ * While recording:
+ * <ul>
+ * <li>glGen* names are handed out by this class. OpenGL ES creates objects on first bind, so names never need a round
+ * trip to the GL thread. Since all names must come from one place, this holds even when not recording.</li>
+ * <li>glGetError returns GL_NO_ERROR. Replays don't poll the error state either, which stalls most drivers; use
+ * {@link AndroidDebugGL} on the delegate to check for errors.</li>
+ * <li>other queries (glGet*, glIs*, glReadPixels) can not be answered and return zero after logging a warning.</li>
+ * <li>bitmaps must be uploaded through {@link #texImage2D(GL10, int, int, Bitmap)} and released through
+ * {@link #recycle(GL10, Bitmap)} so they stay alive until replayed.</li>
+ * </ul>
+ * When not recording, calls go straight to the delegate GL.
+ * <p>
+ * When compiling a render list instead, see {@link #beginCompiling(AndroidGLCommandBuffer)}, calls creating, filling or
+ * querying GL objects go straight to the delegate GL, so names and data are shared with everything else drawn.
+ */
+public class AndroidRecordingGL implements GL11, GL11ExtensionPack {
+
+    // keyed by method name, the GL methods calls without an op of their own are recorded as.
+    private static final Map<String, Method[]> _genericMethods = new HashMap<String, Method[]>();
+
+    // GLES11.glPointSizePointerOES(int, int, int), which GL11 lacks and older platforms don't expose.
+    private static final Method _pointSizePointerOffset = findPointSizePointerOffset();
+
+    /**
+     * Hands out GL object names for one kind of object (textures, buffers, ...).
+     */
+    private static class NameAllocator {
+        private int _next = 1;
+        private int[] _free = new int[16];
+        private int _freeCount = 0;
+
+        int allocate() {
+            return _freeCount > 0 ? _free[--_freeCount] : _next++;
+        }
+
+        void allocate(final int n, final int[] names, final int offset) {
+            for (int i = 0; i < n; i++) {
+                names[offset + i] = allocate();
+            }
+        }
+
+        void allocate(final int n, final IntBuffer names) {
+            for (int i = 0; i < n; i++) {
+                names.put(names.position() + i, allocate());
+            }
+        }
+
+        void release(final int name) {
+            if (name == 0) {
+                return;
+            }
+            if (_freeCount == _free.length) {
+                final int[] free = new int[_free.length * 2];
+                System.arraycopy(_free, 0, free, 0, _freeCount);
+                _free = free;
+            }
+            _free[_freeCount++] = name;
+        }
+
+        void release(final int n, final int[] names, final int offset) {
+            for (int i = 0; i < n; i++) {
+                release(names[offset + i]);
+            }
+        }
+
+        void release(final int n, final IntBuffer names) {
+            for (int i = 0; i < n; i++) {
+                release(names.get(names.position() + i));
+            }
+        }
+
+        void reset() {
+            _next = 1;
+            _freeCount = 0;
+        }
+    }
+
+    private final NameAllocator _textureNames = new NameAllocator();
+    private final NameAllocator _bufferNames = new NameAllocator();
+    private final NameAllocator _framebufferNames = new NameAllocator();
+    private final NameAllocator _renderbufferNames = new NameAllocator();
+    private final Set<String> _warned = new HashSet<String>();
+
+    private GL10 _delegate;
+    private AndroidGLCommandBuffer _buffer;
+    private boolean _compiling;
+
+    /**
+     * @return the GL to hand to the renderer, which is this recorder itself.
+     */
+    public AndroidRecordingGL getGL() {
+        return this;
+    }
+
+    /**
+     * Set the real GL that immediate calls and replays are issued against. Must be called from the GL thread.
+     */
+    public void setDelegate(final GL10 gl) {
+        _delegate = gl;
+    }
+
+    public GL10 getDelegate() {
+        return _delegate;
+    }
+
+    /**
+     * Forget all object names. Call when the GL context was (re)created.
+     */
+    public void reset() {
+        _textureNames.reset();
+        _bufferNames.reset();
+        _framebufferNames.reset();
+        _renderbufferNames.reset();
+    }
+
+    /**
+     * Start appending calls to the given buffer. The buffer is reset first.
+     */
+    public void beginRecording(final AndroidGLCommandBuffer buffer) {
+        buffer.reset();
+        _buffer = buffer;
+    }
+
+    /**
+     * Start compiling a render list into the given buffer. Unlike recording, calls that generate, delete, fill or query
+     * GL objects are issued right away; texture and buffer bindings are issued and also recorded, as the recorded
+     * calls depend on them.
+     */
+    public void beginCompiling(final AndroidGLCommandBuffer buffer) {
+        beginRecording(buffer);
+        _compiling = true;
+    }
+
+    public void endRecording() {
+        _buffer = null;
+        _compiling = false;
+    }
+
+    public boolean isRecording() {
+        return _buffer != null;
+    }
+
+    /**
+     * Issue the given buffer's commands against the delegate GL. Must be called from the GL thread.
+     */
+    public void replay(final AndroidGLCommandBuffer buffer) {
+        buffer.execute(_delegate);
+    }
+
+    /**
+     * Upload a bitmap as a texture image, or record the upload while recording.
+     */
+    public void texImage2D(final int target, final int level, final Bitmap bitmap) {
+        if (_buffer == null || _compiling) {
+            texImage2D(_delegate, target, level, bitmap);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_IMAGE_2D_BITMAP);
+        _buffer.putInt(target);
+        _buffer.putInt(level);
+        _buffer.putObject(bitmap);
+    }
+
+    /**
+     * Recycle a bitmap, or record doing so while recording.
+     */
+    public void recycleBitmap(final Bitmap bitmap) {
+        if (_buffer == null || _compiling) {
+            recycle(_delegate, bitmap);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.RECYCLE_BITMAP);
+        _buffer.putObject(bitmap);
+    }
+
+    /**
+     * Record a fixed point call that has no op of its own, to be replayed through reflection.
+     */
+    private void recordGeneric(final String name, final Object... args) {
+        final Method method = findMethod(name, args);
+        if (method == null) {
+            unrecorded(name);
+            return;
+        }
+        // copy arrays (and data, if asked to), callers are free to reuse them once we return.
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof int[]) {
+                args[i] = ((int[]) args[i]).clone();
+            } else if (args[i] instanceof float[]) {
+                args[i] = ((float[]) args[i]).clone();
+            } else if (args[i] instanceof Buffer) {
+                args[i] = _buffer.copyOf((Buffer) args[i]);
+            }
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.GENERIC);
+        _buffer.putObject(method);
+        _buffer.putObject(args);
+    }
+
+    /**
+     * @return true if the point size pointer can be set to an offset into a VBO, through
+     *         {@link #glPointSizePointerOES(int, int, int)} or {@link #pointSizePointerOffset(int, int, int)}.
+     */
+    public static boolean isPointSizePointerOffsetSupported() {
+        return _pointSizePointerOffset != null;
+    }
+
+    /**
+     * Set the point size pointer of the current context to an offset into the bound VBO.
+     */
+    public static void pointSizePointerOffset(final int type, final int stride, final int offset) {
+        try {
+            _pointSizePointerOffset.invoke(null, type, stride, offset);
+        } catch (final IllegalAccessException e) {
+            Log.e(AndroidCanvas.TAG, "AndroidRecordingGL.pointSizePointerOffset - unable to set the pointer", e);
+        } catch (final InvocationTargetException e) {
+            Log.e(AndroidCanvas.TAG, "AndroidRecordingGL.pointSizePointerOffset - unable to set the pointer",
+                    e.getCause());
+        }
+    }
+
+    private static Method findPointSizePointerOffset() {
+        try {
+            return GLES11.class.getMethod("glPointSizePointerOES", int.class, int.class, int.class);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Method findMethod(final String name, final Object[] args) {
+        Method[] methods;
+        synchronized (_genericMethods) {
+            methods = _genericMethods.get(name);
+            if (methods == null) {
+                final List<Method> found = new ArrayList<Method>();
+                for (final Class<?> gl : new Class<?>[] { GL11.class, GL11ExtensionPack.class }) {
+                    for (final Method method : gl.getMethods()) {
+                        if (method.getName().equals(name)) {
+                            found.add(method);
+                        }
+                    }
+                }
+                methods = found.toArray(new Method[found.size()]);
+                _genericMethods.put(name, methods);
+            }
+        }
+        for (final Method method : methods) {
+            if (accepts(method.getParameterTypes(), args)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    // overloads only differ by taking a buffer or an offset into the bound buffer, so runtime types tell them apart.
+    private static boolean accepts(final Class<?>[] types, final Object[] args) {
+        if (types.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == int.class) {
+                if (!(args[i] instanceof Integer)) {
+                    return false;
+                }
+            } else if (types[i] == float.class) {
+                if (!(args[i] instanceof Float)) {
+                    return false;
+                }
+            } else if (types[i] == boolean.class) {
+                if (!(args[i] instanceof Boolean)) {
+                    return false;
+                }
+            } else if (args[i] != null && !types[i].isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void unanswered(final String name) {
+        if (_warned.add(name)) {
+            Log.w(AndroidCanvas.TAG, "AndroidRecordingGL - " + name
+                    + " can not be answered while recording, returning 0.");
+        }
+    }
+
+    private void unrecorded(final String name) {
+        if (_warned.add(name)) {
+            Log.w(AndroidCanvas.TAG, "AndroidRecordingGL - " + name + " can not be recorded, ignoring.");
+        }
+    }
+
+    /**
+     * Upload a bitmap as a texture image, deferring the upload if the given GL is recording.
+     */
+    public static void texImage2D(final GL10 gl, final int target, final int level, final Bitmap bitmap) {
+        if (gl instanceof AndroidRecordingGL) {
+            ((AndroidRecordingGL) gl).texImage2D(target, level, bitmap);
+        } else {
+            GLUtils.texImage2D(target, level, bitmap, 0);
+        }
+    }
+
+    /**
+     * Recycle a bitmap once any pending upload of it has been replayed.
+     */
+    public static void recycle(final GL10 gl, final Bitmap bitmap) {
+        if (gl instanceof AndroidRecordingGL) {
+            ((AndroidRecordingGL) gl).recycleBitmap(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    // GL calls below: recorded, issued right away or answered here, as described above.
+
+    public void glActiveTexture(final int texture) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glActiveTexture(texture);
+            return;
+        }
+        if (_compiling) {
+            _delegate.glActiveTexture(texture);
+        }
+        commands.putOp(AndroidGLCommandBuffer.ACTIVE_TEXTURE);
+        commands.putInt(texture);
+    }
+
+    public void glAlphaFunc(final int func, final float ref) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glAlphaFunc(func, ref);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.ALPHA_FUNC);
+        commands.putInt(func);
+        commands.putFloat(ref);
+    }
+
+    public void glAlphaFuncx(final int func, final int ref) {
+        if (_buffer == null) {
+            _delegate.glAlphaFuncx(func, ref);
+            return;
+        }
+        recordGeneric("glAlphaFuncx", func, ref);
+    }
+
+    public void glBindTexture(final int target, final int texture) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glBindTexture(target, texture);
+            return;
+        }
+        if (_compiling) {
+            _delegate.glBindTexture(target, texture);
+        }
+        commands.putOp(AndroidGLCommandBuffer.BIND_TEXTURE);
+        commands.putInt(target);
+        commands.putInt(texture);
+    }
+
+    public void glBlendFunc(final int sfactor, final int dfactor) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glBlendFunc(sfactor, dfactor);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.BLEND_FUNC);
+        commands.putInt(sfactor);
+        commands.putInt(dfactor);
+    }
+
+    public void glClear(final int mask) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glClear(mask);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.CLEAR);
+        commands.putInt(mask);
+    }
+
+    public void glClearColor(final float red, final float green, final float blue, final float alpha) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glClearColor(red, green, blue, alpha);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.CLEAR_COLOR);
+        commands.putFloat(red);
+        commands.putFloat(green);
+        commands.putFloat(blue);
+        commands.putFloat(alpha);
+    }
+
+    public void glClearColorx(final int red, final int green, final int blue, final int alpha) {
+        if (_buffer == null) {
+            _delegate.glClearColorx(red, green, blue, alpha);
+            return;
+        }
+        recordGeneric("glClearColorx", red, green, blue, alpha);
+    }
+
+    public void glClearDepthf(final float depth) {
+        if (_buffer == null) {
+            _delegate.glClearDepthf(depth);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.CLEAR_DEPTHF);
+        _buffer.putFloat(depth);
+    }
+
+    public void glClearDepthx(final int depth) {
+        if (_buffer == null) {
+            _delegate.glClearDepthx(depth);
+            return;
+        }
+        recordGeneric("glClearDepthx", depth);
+    }
+
+    public void glClearStencil(final int s) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glClearStencil(s);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.CLEAR_STENCIL);
+        commands.putInt(s);
+    }
+
+    public void glClientActiveTexture(final int texture) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glClientActiveTexture(texture);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.CLIENT_ACTIVE_TEXTURE);
+        commands.putInt(texture);
+    }
+
+    public void glColor4f(final float red, final float green, final float blue, final float alpha) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glColor4f(red, green, blue, alpha);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.COLOR4F);
+        commands.putFloat(red);
+        commands.putFloat(green);
+        commands.putFloat(blue);
+        commands.putFloat(alpha);
+    }
+
+    public void glColor4x(final int red, final int green, final int blue, final int alpha) {
+        if (_buffer == null) {
+            _delegate.glColor4x(red, green, blue, alpha);
+            return;
+        }
+        recordGeneric("glColor4x", red, green, blue, alpha);
+    }
+
+    public void glColorMask(final boolean red, final boolean green, final boolean blue, final boolean alpha) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glColorMask(red, green, blue, alpha);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.COLOR_MASK);
+        commands.putInt(red ? 1 : 0);
+        commands.putInt(green ? 1 : 0);
+        commands.putInt(blue ? 1 : 0);
+        commands.putInt(alpha ? 1 : 0);
+    }
+
+    public void glColorPointer(final int size, final int type, final int stride, final Buffer pointer) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glColorPointer(size, type, stride, pointer);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.COLOR_POINTER);
+        commands.putInt(size);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putBuffer(pointer);
+    }
+
+    public void glCompressedTexImage2D(final int target, final int level, final int internalformat, final int width,
+            final int height, final int border, final int imageSize, final Buffer data) {
+        if (_buffer == null || _compiling) {
+            _delegate.glCompressedTexImage2D(target, level, internalformat, width, height, border, imageSize, data);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.COMPRESSED_TEX_IMAGE_2D);
+        _buffer.putInt(target);
+        _buffer.putInt(level);
+        _buffer.putInt(internalformat);
+        _buffer.putInt(width);
+        _buffer.putInt(height);
+        _buffer.putInt(border);
+        _buffer.putInt(imageSize);
+        _buffer.putBuffer(data);
+    }
+
+    public void glCompressedTexSubImage2D(final int target, final int level, final int xoffset, final int yoffset,
+            final int width, final int height, final int format, final int imageSize, final Buffer data) {
+        if (_buffer == null || _compiling) {
+            _delegate.glCompressedTexSubImage2D(target, level, xoffset, yoffset, width, height, format, imageSize,
+                    data);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.COMPRESSED_TEX_SUB_IMAGE_2D);
+        _buffer.putInt(target);
+        _buffer.putInt(level);
+        _buffer.putInt(xoffset);
+        _buffer.putInt(yoffset);
+        _buffer.putInt(width);
+        _buffer.putInt(height);
+        _buffer.putInt(format);
+        _buffer.putInt(imageSize);
+        _buffer.putBuffer(data);
+    }
+
+    public void glCopyTexImage2D(final int target, final int level, final int internalformat, final int x,
+            final int y, final int width, final int height, final int border) {
+        if (_buffer == null || _compiling) {
+            _delegate.glCopyTexImage2D(target, level, internalformat, x, y, width, height, border);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.COPY_TEX_IMAGE_2D);
+        _buffer.putInt(target);
+        _buffer.putInt(level);
+        _buffer.putInt(internalformat);
+        _buffer.putInt(x);
+        _buffer.putInt(y);
+        _buffer.putInt(width);
+        _buffer.putInt(height);
+        _buffer.putInt(border);
+    }
+
+    public void glCopyTexSubImage2D(final int target, final int level, final int xoffset, final int yoffset,
+            final int x, final int y, final int width, final int height) {
+        if (_buffer == null || _compiling) {
+            _delegate.glCopyTexSubImage2D(target, level, xoffset, yoffset, x, y, width, height);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.COPY_TEX_SUB_IMAGE_2D);
+        _buffer.putInt(target);
+        _buffer.putInt(level);
+        _buffer.putInt(xoffset);
+        _buffer.putInt(yoffset);
+        _buffer.putInt(x);
+        _buffer.putInt(y);
+        _buffer.putInt(width);
+        _buffer.putInt(height);
+    }
+
+    public void glCullFace(final int mode) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glCullFace(mode);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.CULL_FACE);
+        commands.putInt(mode);
+    }
+
+    public void glDeleteTextures(final int n, final int[] textures, final int offset) {
+        if (_compiling) {
+            _delegate.glDeleteTextures(n, textures, offset);
+            return;
+        }
+        _textureNames.release(n, textures, offset);
+        if (_buffer == null) {
+            _delegate.glDeleteTextures(n, textures, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_TEXTURES);
+        _buffer.putInts(textures, offset, n);
+    }
+
+    public void glDeleteTextures(final int n, final IntBuffer textures) {
+        if (_compiling) {
+            _delegate.glDeleteTextures(n, textures);
+            return;
+        }
+        _textureNames.release(n, textures);
+        if (_buffer == null) {
+            _delegate.glDeleteTextures(n, textures);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_TEXTURES);
+        _buffer.putInts(textures, n);
+    }
+
+    public void glDepthFunc(final int func) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glDepthFunc(func);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DEPTH_FUNC);
+        commands.putInt(func);
+    }
+
+    public void glDepthMask(final boolean flag) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glDepthMask(flag);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DEPTH_MASK);
+        commands.putInt(flag ? 1 : 0);
+    }
+
+    public void glDepthRangef(final float zNear, final float zFar) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glDepthRangef(zNear, zFar);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DEPTH_RANGEF);
+        commands.putFloat(zNear);
+        commands.putFloat(zFar);
+    }
+
+    public void glDepthRangex(final int zNear, final int zFar) {
+        if (_buffer == null) {
+            _delegate.glDepthRangex(zNear, zFar);
+            return;
+        }
+        recordGeneric("glDepthRangex", zNear, zFar);
+    }
+
+    public void glDisable(final int cap) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glDisable(cap);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DISABLE);
+        commands.putInt(cap);
+    }
+
+    public void glDisableClientState(final int array) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glDisableClientState(array);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DISABLE_CLIENT_STATE);
+        commands.putInt(array);
+    }
+
+    public void glDrawArrays(final int mode, final int first, final int count) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glDrawArrays(mode, first, count);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DRAW_ARRAYS);
+        commands.putInt(mode);
+        commands.putInt(first);
+        commands.putInt(count);
+    }
+
+    public void glDrawElements(final int mode, final int count, final int type, final Buffer indices) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glDrawElements(mode, count, type, indices);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DRAW_ELEMENTS);
+        commands.putInt(mode);
+        commands.putInt(count);
+        commands.putInt(type);
+        commands.putBuffer(indices);
+    }
+
+    public void glEnable(final int cap) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glEnable(cap);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.ENABLE);
+        commands.putInt(cap);
+    }
+
+    public void glEnableClientState(final int array) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glEnableClientState(array);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.ENABLE_CLIENT_STATE);
+        commands.putInt(array);
+    }
+
+    public void glFinish() {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glFinish();
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.FINISH);
+    }
+
+    public void glFlush() {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glFlush();
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.FLUSH);
+    }
+
+    public void glFogf(final int pname, final float param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glFogf(pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.FOGF);
+        commands.putInt(pname);
+        commands.putFloat(param);
+    }
+
+    public void glFogfv(final int pname, final float[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glFogfv(pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.FOGFV);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glFogfv(final int pname, final FloatBuffer params) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glFogfv(pname, params);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.FOGFV);
+        commands.putInt(pname);
+        commands.putValues(params);
+    }
+
+    public void glFogx(final int pname, final int param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glFogx(pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.FOGX);
+        commands.putInt(pname);
+        commands.putInt(param);
+    }
+
+    public void glFogxv(final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glFogxv(pname, params, offset);
+            return;
+        }
+        recordGeneric("glFogxv", pname, params, offset);
+    }
+
+    public void glFogxv(final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            _delegate.glFogxv(pname, params);
+            return;
+        }
+        recordGeneric("glFogxv", pname, params);
+    }
+
+    public void glFrontFace(final int mode) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glFrontFace(mode);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.FRONT_FACE);
+        commands.putInt(mode);
+    }
+
+    public void glFrustumf(final float left, final float right, final float bottom, final float top,
+            final float zNear, final float zFar) {
+        if (_buffer == null) {
+            _delegate.glFrustumf(left, right, bottom, top, zNear, zFar);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.FRUSTUMF);
+        _buffer.putFloat(left);
+        _buffer.putFloat(right);
+        _buffer.putFloat(bottom);
+        _buffer.putFloat(top);
+        _buffer.putFloat(zNear);
+        _buffer.putFloat(zFar);
+    }
+
+    public void glFrustumx(final int left, final int right, final int bottom, final int top, final int zNear,
+            final int zFar) {
+        if (_buffer == null) {
+            _delegate.glFrustumx(left, right, bottom, top, zNear, zFar);
+            return;
+        }
+        recordGeneric("glFrustumx", left, right, bottom, top, zNear, zFar);
+    }
+
+    public void glGenTextures(final int n, final int[] textures, final int offset) {
+        if (_compiling) {
+            _delegate.glGenTextures(n, textures, offset);
+            return;
+        }
+        _textureNames.allocate(n, textures, offset);
+    }
+
+    public void glGenTextures(final int n, final IntBuffer textures) {
+        if (_compiling) {
+            _delegate.glGenTextures(n, textures);
+            return;
+        }
+        _textureNames.allocate(n, textures);
+    }
+
+    public int glGetError() {
+        if (_buffer != null && !_compiling) {
+            return GL10.GL_NO_ERROR;
+        }
+        return _delegate.glGetError();
+    }
+
+    public void glGetIntegerv(final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetIntegerv");
+            return;
+        }
+        _delegate.glGetIntegerv(pname, params, offset);
+    }
+
+    public void glGetIntegerv(final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetIntegerv");
+            return;
+        }
+        _delegate.glGetIntegerv(pname, params);
+    }
+
+    public String glGetString(final int name) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetString");
+            return null;
+        }
+        return _delegate.glGetString(name);
+    }
+
+    public void glHint(final int target, final int mode) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glHint(target, mode);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.HINT);
+        commands.putInt(target);
+        commands.putInt(mode);
+    }
+
+    public void glLightModelf(final int pname, final float param) {
+        if (_buffer == null) {
+            _delegate.glLightModelf(pname, param);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.LIGHT_MODELF);
+        _buffer.putInt(pname);
+        _buffer.putFloat(param);
+    }
+
+    public void glLightModelfv(final int pname, final float[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glLightModelfv(pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.LIGHT_MODELFV);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glLightModelfv(final int pname, final FloatBuffer params) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glLightModelfv(pname, params);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.LIGHT_MODELFV);
+        commands.putInt(pname);
+        commands.putValues(params);
+    }
+
+    public void glLightModelx(final int pname, final int param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glLightModelx(pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.LIGHT_MODELX);
+        commands.putInt(pname);
+        commands.putInt(param);
+    }
+
+    public void glLightModelxv(final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glLightModelxv(pname, params, offset);
+            return;
+        }
+        recordGeneric("glLightModelxv", pname, params, offset);
+    }
+
+    public void glLightModelxv(final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            _delegate.glLightModelxv(pname, params);
+            return;
+        }
+        recordGeneric("glLightModelxv", pname, params);
+    }
+
+    public void glLightf(final int light, final int pname, final float param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glLightf(light, pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.LIGHTF);
+        commands.putInt(light);
+        commands.putInt(pname);
+        commands.putFloat(param);
+    }
+
+    public void glLightfv(final int light, final int pname, final float[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glLightfv(light, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.LIGHTFV);
+        _buffer.putInt(light);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glLightfv(final int light, final int pname, final FloatBuffer params) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glLightfv(light, pname, params);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.LIGHTFV);
+        commands.putInt(light);
+        commands.putInt(pname);
+        commands.putValues(params);
+    }
+
+    public void glLightx(final int light, final int pname, final int param) {
+        if (_buffer == null) {
+            _delegate.glLightx(light, pname, param);
+            return;
+        }
+        recordGeneric("glLightx", light, pname, param);
+    }
+
+    public void glLightxv(final int light, final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glLightxv(light, pname, params, offset);
+            return;
+        }
+        recordGeneric("glLightxv", light, pname, params, offset);
+    }
+
+    public void glLightxv(final int light, final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            _delegate.glLightxv(light, pname, params);
+            return;
+        }
+        recordGeneric("glLightxv", light, pname, params);
+    }
+
+    public void glLineWidth(final float width) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glLineWidth(width);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.LINE_WIDTH);
+        commands.putFloat(width);
+    }
+
+    public void glLineWidthx(final int width) {
+        if (_buffer == null) {
+            _delegate.glLineWidthx(width);
+            return;
+        }
+        recordGeneric("glLineWidthx", width);
+    }
+
+    public void glLoadIdentity() {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glLoadIdentity();
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.LOAD_IDENTITY);
+    }
+
+    public void glLoadMatrixf(final float[] m, final int offset) {
+        if (_buffer == null) {
+            _delegate.glLoadMatrixf(m, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.LOAD_MATRIXF);
+        _buffer.putValues(m, offset, 16);
+    }
+
+    public void glLoadMatrixf(final FloatBuffer m) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glLoadMatrixf(m);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.LOAD_MATRIXF);
+        commands.putValues(m);
+    }
+
+    public void glLoadMatrixx(final int[] m, final int offset) {
+        if (_buffer == null) {
+            _delegate.glLoadMatrixx(m, offset);
+            return;
+        }
+        recordGeneric("glLoadMatrixx", m, offset);
+    }
+
+    public void glLoadMatrixx(final IntBuffer m) {
+        if (_buffer == null) {
+            _delegate.glLoadMatrixx(m);
+            return;
+        }
+        recordGeneric("glLoadMatrixx", m);
+    }
+
+    public void glLogicOp(final int opcode) {
+        if (_buffer == null) {
+            _delegate.glLogicOp(opcode);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.LOGIC_OP);
+        _buffer.putInt(opcode);
+    }
+
+    public void glMaterialf(final int face, final int pname, final float param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glMaterialf(face, pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.MATERIALF);
+        commands.putInt(face);
+        commands.putInt(pname);
+        commands.putFloat(param);
+    }
+
+    public void glMaterialfv(final int face, final int pname, final float[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glMaterialfv(face, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.MATERIALFV);
+        _buffer.putInt(face);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glMaterialfv(final int face, final int pname, final FloatBuffer params) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glMaterialfv(face, pname, params);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.MATERIALFV);
+        commands.putInt(face);
+        commands.putInt(pname);
+        commands.putValues(params);
+    }
+
+    public void glMaterialx(final int face, final int pname, final int param) {
+        if (_buffer == null) {
+            _delegate.glMaterialx(face, pname, param);
+            return;
+        }
+        recordGeneric("glMaterialx", face, pname, param);
+    }
+
+    public void glMaterialxv(final int face, final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glMaterialxv(face, pname, params, offset);
+            return;
+        }
+        recordGeneric("glMaterialxv", face, pname, params, offset);
+    }
+
+    public void glMaterialxv(final int face, final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            _delegate.glMaterialxv(face, pname, params);
+            return;
+        }
+        recordGeneric("glMaterialxv", face, pname, params);
+    }
+
+    public void glMatrixMode(final int mode) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glMatrixMode(mode);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.MATRIX_MODE);
+        commands.putInt(mode);
+    }
+
+    public void glMultMatrixf(final float[] m, final int offset) {
+        if (_buffer == null) {
+            _delegate.glMultMatrixf(m, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.MULT_MATRIXF);
+        _buffer.putValues(m, offset, 16);
+    }
+
+    public void glMultMatrixf(final FloatBuffer m) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glMultMatrixf(m);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.MULT_MATRIXF);
+        commands.putValues(m);
+    }
+
+    public void glMultMatrixx(final int[] m, final int offset) {
+        if (_buffer == null) {
+            _delegate.glMultMatrixx(m, offset);
+            return;
+        }
+        recordGeneric("glMultMatrixx", m, offset);
+    }
+
+    public void glMultMatrixx(final IntBuffer m) {
+        if (_buffer == null) {
+            _delegate.glMultMatrixx(m);
+            return;
+        }
+        recordGeneric("glMultMatrixx", m);
+    }
+
+    public void glMultiTexCoord4f(final int target, final float s, final float t, final float r, final float q) {
+        if (_buffer == null) {
+            _delegate.glMultiTexCoord4f(target, s, t, r, q);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.MULTI_TEX_COORD4F);
+        _buffer.putInt(target);
+        _buffer.putFloat(s);
+        _buffer.putFloat(t);
+        _buffer.putFloat(r);
+        _buffer.putFloat(q);
+    }
+
+    public void glMultiTexCoord4x(final int target, final int s, final int t, final int r, final int q) {
+        if (_buffer == null) {
+            _delegate.glMultiTexCoord4x(target, s, t, r, q);
+            return;
+        }
+        recordGeneric("glMultiTexCoord4x", target, s, t, r, q);
+    }
+
+    public void glNormal3f(final float nx, final float ny, final float nz) {
+        if (_buffer == null) {
+            _delegate.glNormal3f(nx, ny, nz);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.NORMAL3F);
+        _buffer.putFloat(nx);
+        _buffer.putFloat(ny);
+        _buffer.putFloat(nz);
+    }
+
+    public void glNormal3x(final int nx, final int ny, final int nz) {
+        if (_buffer == null) {
+            _delegate.glNormal3x(nx, ny, nz);
+            return;
+        }
+        recordGeneric("glNormal3x", nx, ny, nz);
+    }
+
+    public void glNormalPointer(final int type, final int stride, final Buffer pointer) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glNormalPointer(type, stride, pointer);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.NORMAL_POINTER);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putBuffer(pointer);
+    }
+
+    public void glOrthof(final float left, final float right, final float bottom, final float top, final float zNear,
+            final float zFar) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glOrthof(left, right, bottom, top, zNear, zFar);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.ORTHOF);
+        commands.putFloat(left);
+        commands.putFloat(right);
+        commands.putFloat(bottom);
+        commands.putFloat(top);
+        commands.putFloat(zNear);
+        commands.putFloat(zFar);
+    }
+
+    public void glOrthox(final int left, final int right, final int bottom, final int top, final int zNear,
+            final int zFar) {
+        if (_buffer == null) {
+            _delegate.glOrthox(left, right, bottom, top, zNear, zFar);
+            return;
+        }
+        recordGeneric("glOrthox", left, right, bottom, top, zNear, zFar);
+    }
+
+    public void glPixelStorei(final int pname, final int param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null || _compiling) {
+            _delegate.glPixelStorei(pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.PIXEL_STOREI);
+        commands.putInt(pname);
+        commands.putInt(param);
+    }
+
+    public void glPointSize(final float size) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glPointSize(size);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.POINT_SIZE);
+        commands.putFloat(size);
+    }
+
+    public void glPointSizex(final int size) {
+        if (_buffer == null) {
+            _delegate.glPointSizex(size);
+            return;
+        }
+        recordGeneric("glPointSizex", size);
+    }
+
+    public void glPolygonOffset(final float factor, final float units) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glPolygonOffset(factor, units);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.POLYGON_OFFSET);
+        commands.putFloat(factor);
+        commands.putFloat(units);
+    }
+
+    public void glPolygonOffsetx(final int factor, final int units) {
+        if (_buffer == null) {
+            _delegate.glPolygonOffsetx(factor, units);
+            return;
+        }
+        recordGeneric("glPolygonOffsetx", factor, units);
+    }
+
+    public void glPopMatrix() {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glPopMatrix();
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.POP_MATRIX);
+    }
+
+    public void glPushMatrix() {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glPushMatrix();
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.PUSH_MATRIX);
+    }
+
+    public void glReadPixels(final int x, final int y, final int width, final int height, final int format,
+            final int type, final Buffer pixels) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glReadPixels");
+            return;
+        }
+        _delegate.glReadPixels(x, y, width, height, format, type, pixels);
+    }
+
+    public void glRotatef(final float angle, final float x, final float y, final float z) {
+        if (_buffer == null) {
+            _delegate.glRotatef(angle, x, y, z);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.ROTATEF);
+        _buffer.putFloat(angle);
+        _buffer.putFloat(x);
+        _buffer.putFloat(y);
+        _buffer.putFloat(z);
+    }
+
+    public void glRotatex(final int angle, final int x, final int y, final int z) {
+        if (_buffer == null) {
+            _delegate.glRotatex(angle, x, y, z);
+            return;
+        }
+        recordGeneric("glRotatex", angle, x, y, z);
+    }
+
+    public void glSampleCoverage(final float value, final boolean invert) {
+        if (_buffer == null) {
+            _delegate.glSampleCoverage(value, invert);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.SAMPLE_COVERAGE);
+        _buffer.putFloat(value);
+        _buffer.putInt(invert ? 1 : 0);
+    }
+
+    public void glSampleCoveragex(final int value, final boolean invert) {
+        if (_buffer == null) {
+            _delegate.glSampleCoveragex(value, invert);
+            return;
+        }
+        recordGeneric("glSampleCoveragex", value, invert);
+    }
+
+    public void glScalef(final float x, final float y, final float z) {
+        if (_buffer == null) {
+            _delegate.glScalef(x, y, z);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.SCALEF);
+        _buffer.putFloat(x);
+        _buffer.putFloat(y);
+        _buffer.putFloat(z);
+    }
+
+    public void glScalex(final int x, final int y, final int z) {
+        if (_buffer == null) {
+            _delegate.glScalex(x, y, z);
+            return;
+        }
+        recordGeneric("glScalex", x, y, z);
+    }
+
+    public void glScissor(final int x, final int y, final int width, final int height) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glScissor(x, y, width, height);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.SCISSOR);
+        commands.putInt(x);
+        commands.putInt(y);
+        commands.putInt(width);
+        commands.putInt(height);
+    }
+
+    public void glShadeModel(final int mode) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glShadeModel(mode);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.SHADE_MODEL);
+        commands.putInt(mode);
+    }
+
+    public void glStencilFunc(final int func, final int ref, final int mask) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glStencilFunc(func, ref, mask);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.STENCIL_FUNC);
+        commands.putInt(func);
+        commands.putInt(ref);
+        commands.putInt(mask);
+    }
+
+    public void glStencilMask(final int mask) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glStencilMask(mask);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.STENCIL_MASK);
+        commands.putInt(mask);
+    }
+
+    public void glStencilOp(final int fail, final int zfail, final int zpass) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glStencilOp(fail, zfail, zpass);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.STENCIL_OP);
+        commands.putInt(fail);
+        commands.putInt(zfail);
+        commands.putInt(zpass);
+    }
+
+    public void glTexCoordPointer(final int size, final int type, final int stride, final Buffer pointer) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glTexCoordPointer(size, type, stride, pointer);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_COORD_POINTER);
+        commands.putInt(size);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putBuffer(pointer);
+    }
+
+    public void glTexEnvf(final int target, final int pname, final float param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glTexEnvf(target, pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_ENVF);
+        commands.putInt(target);
+        commands.putInt(pname);
+        commands.putFloat(param);
+    }
+
+    public void glTexEnvfv(final int target, final int pname, final float[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glTexEnvfv(target, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_ENVFV);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glTexEnvfv(final int target, final int pname, final FloatBuffer params) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glTexEnvfv(target, pname, params);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_ENVFV);
+        commands.putInt(target);
+        commands.putInt(pname);
+        commands.putValues(params);
+    }
+
+    public void glTexEnvx(final int target, final int pname, final int param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glTexEnvx(target, pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_ENVX);
+        commands.putInt(target);
+        commands.putInt(pname);
+        commands.putInt(param);
+    }
+
+    public void glTexEnvxv(final int target, final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            _delegate.glTexEnvxv(target, pname, params, offset);
+            return;
+        }
+        recordGeneric("glTexEnvxv", target, pname, params, offset);
+    }
+
+    public void glTexEnvxv(final int target, final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            _delegate.glTexEnvxv(target, pname, params);
+            return;
+        }
+        recordGeneric("glTexEnvxv", target, pname, params);
+    }
+
+    public void glTexImage2D(final int target, final int level, final int internalformat, final int width,
+            final int height, final int border, final int format, final int type, final Buffer pixels) {
+        if (_buffer == null || _compiling) {
+            _delegate.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_IMAGE_2D);
+        _buffer.putInt(target);
+        _buffer.putInt(level);
+        _buffer.putInt(internalformat);
+        _buffer.putInt(width);
+        _buffer.putInt(height);
+        _buffer.putInt(border);
+        _buffer.putInt(format);
+        _buffer.putInt(type);
+        _buffer.putBuffer(pixels);
+    }
+
+    public void glTexParameterf(final int target, final int pname, final float param) {
+        if (_buffer == null || _compiling) {
+            _delegate.glTexParameterf(target, pname, param);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_PARAMETERF);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putFloat(param);
+    }
+
+    public void glTexParameterx(final int target, final int pname, final int param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null || _compiling) {
+            _delegate.glTexParameterx(target, pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_PARAMETERX);
+        commands.putInt(target);
+        commands.putInt(pname);
+        commands.putInt(param);
+    }
+
+    public void glTexSubImage2D(final int target, final int level, final int xoffset, final int yoffset,
+            final int width, final int height, final int format, final int type, final Buffer pixels) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null || _compiling) {
+            _delegate.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_SUB_IMAGE_2D);
+        commands.putInt(target);
+        commands.putInt(level);
+        commands.putInt(xoffset);
+        commands.putInt(yoffset);
+        commands.putInt(width);
+        commands.putInt(height);
+        commands.putInt(format);
+        commands.putInt(type);
+        commands.putBuffer(pixels);
+    }
+
+    public void glTranslatef(final float x, final float y, final float z) {
+        if (_buffer == null) {
+            _delegate.glTranslatef(x, y, z);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TRANSLATEF);
+        _buffer.putFloat(x);
+        _buffer.putFloat(y);
+        _buffer.putFloat(z);
+    }
+
+    public void glTranslatex(final int x, final int y, final int z) {
+        if (_buffer == null) {
+            _delegate.glTranslatex(x, y, z);
+            return;
+        }
+        recordGeneric("glTranslatex", x, y, z);
+    }
+
+    public void glVertexPointer(final int size, final int type, final int stride, final Buffer pointer) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glVertexPointer(size, type, stride, pointer);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.VERTEX_POINTER);
+        commands.putInt(size);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putBuffer(pointer);
+    }
+
+    public void glViewport(final int x, final int y, final int width, final int height) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            _delegate.glViewport(x, y, width, height);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.VIEWPORT);
+        commands.putInt(x);
+        commands.putInt(y);
+        commands.putInt(width);
+        commands.putInt(height);
+    }
+
+    public void glGetPointerv(final int pname, final Buffer[] params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetPointerv");
+            return;
+        }
+        ((GL11) _delegate).glGetPointerv(pname, params);
+    }
+
+    public void glBindBuffer(final int target, final int buffer) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glBindBuffer(target, buffer);
+            return;
+        }
+        if (_compiling) {
+            ((GL11) _delegate).glBindBuffer(target, buffer);
+        }
+        commands.putOp(AndroidGLCommandBuffer.BIND_BUFFER);
+        commands.putInt(target);
+        commands.putInt(buffer);
+    }
+
+    public void glBufferData(final int target, final int size, final Buffer data, final int usage) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null || _compiling) {
+            ((GL11) _delegate).glBufferData(target, size, data, usage);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.BUFFER_DATA);
+        commands.putInt(target);
+        commands.putInt(size);
+        commands.putBuffer(data);
+        commands.putInt(usage);
+    }
+
+    public void glBufferSubData(final int target, final int offset, final int size, final Buffer data) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null || _compiling) {
+            ((GL11) _delegate).glBufferSubData(target, offset, size, data);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.BUFFER_SUB_DATA);
+        commands.putInt(target);
+        commands.putInt(offset);
+        commands.putInt(size);
+        commands.putBuffer(data);
+    }
+
+    public void glClipPlanef(final int plane, final float[] equation, final int offset) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glClipPlanef(plane, equation, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.CLIP_PLANEF);
+        _buffer.putInt(plane);
+        _buffer.putValues(equation, offset, 4);
+    }
+
+    public void glClipPlanef(final int plane, final FloatBuffer equation) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glClipPlanef(plane, equation);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.CLIP_PLANEF);
+        commands.putInt(plane);
+        commands.putValues(equation);
+    }
+
+    public void glClipPlanex(final int plane, final int[] equation, final int offset) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glClipPlanex(plane, equation, offset);
+            return;
+        }
+        recordGeneric("glClipPlanex", plane, equation, offset);
+    }
+
+    public void glClipPlanex(final int plane, final IntBuffer equation) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glClipPlanex(plane, equation);
+            return;
+        }
+        recordGeneric("glClipPlanex", plane, equation);
+    }
+
+    public void glColor4ub(final byte red, final byte green, final byte blue, final byte alpha) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glColor4ub(red, green, blue, alpha);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.COLOR4UB);
+        _buffer.putInt(red);
+        _buffer.putInt(green);
+        _buffer.putInt(blue);
+        _buffer.putInt(alpha);
+    }
+
+    public void glColorPointer(final int size, final int type, final int stride, final int offset) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glColorPointer(size, type, stride, offset);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.COLOR_POINTER_VBO);
+        commands.putInt(size);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putInt(offset);
+    }
+
+    public void glDeleteBuffers(final int n, final int[] buffers, final int offset) {
+        if (_compiling) {
+            ((GL11) _delegate).glDeleteBuffers(n, buffers, offset);
+            return;
+        }
+        _bufferNames.release(n, buffers, offset);
+        if (_buffer == null) {
+            ((GL11) _delegate).glDeleteBuffers(n, buffers, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_BUFFERS);
+        _buffer.putInts(buffers, offset, n);
+    }
+
+    public void glDeleteBuffers(final int n, final IntBuffer buffers) {
+        if (_compiling) {
+            ((GL11) _delegate).glDeleteBuffers(n, buffers);
+            return;
+        }
+        _bufferNames.release(n, buffers);
+        if (_buffer == null) {
+            ((GL11) _delegate).glDeleteBuffers(n, buffers);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_BUFFERS);
+        _buffer.putInts(buffers, n);
+    }
+
+    public void glDrawElements(final int mode, final int count, final int type, final int offset) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glDrawElements(mode, count, type, offset);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.DRAW_ELEMENTS_VBO);
+        commands.putInt(mode);
+        commands.putInt(count);
+        commands.putInt(type);
+        commands.putInt(offset);
+    }
+
+    public void glGenBuffers(final int n, final int[] buffers, final int offset) {
+        if (_compiling) {
+            ((GL11) _delegate).glGenBuffers(n, buffers, offset);
+            return;
+        }
+        _bufferNames.allocate(n, buffers, offset);
+    }
+
+    public void glGenBuffers(final int n, final IntBuffer buffers) {
+        if (_compiling) {
+            ((GL11) _delegate).glGenBuffers(n, buffers);
+            return;
+        }
+        _bufferNames.allocate(n, buffers);
+    }
+
+    public void glGetBooleanv(final int pname, final boolean[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetBooleanv");
+            return;
+        }
+        ((GL11) _delegate).glGetBooleanv(pname, params, offset);
+    }
+
+    public void glGetBooleanv(final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetBooleanv");
+            return;
+        }
+        ((GL11) _delegate).glGetBooleanv(pname, params);
+    }
+
+    public void glGetBufferParameteriv(final int target, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetBufferParameteriv");
+            return;
+        }
+        ((GL11) _delegate).glGetBufferParameteriv(target, pname, params, offset);
+    }
+
+    public void glGetBufferParameteriv(final int target, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetBufferParameteriv");
+            return;
+        }
+        ((GL11) _delegate).glGetBufferParameteriv(target, pname, params);
+    }
+
+    public void glGetClipPlanef(final int pname, final float[] eqn, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetClipPlanef");
+            return;
+        }
+        ((GL11) _delegate).glGetClipPlanef(pname, eqn, offset);
+    }
+
+    public void glGetClipPlanef(final int pname, final FloatBuffer eqn) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetClipPlanef");
+            return;
+        }
+        ((GL11) _delegate).glGetClipPlanef(pname, eqn);
+    }
+
+    public void glGetClipPlanex(final int pname, final int[] eqn, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetClipPlanex");
+            return;
+        }
+        ((GL11) _delegate).glGetClipPlanex(pname, eqn, offset);
+    }
+
+    public void glGetClipPlanex(final int pname, final IntBuffer eqn) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetClipPlanex");
+            return;
+        }
+        ((GL11) _delegate).glGetClipPlanex(pname, eqn);
+    }
+
+    public void glGetFixedv(final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetFixedv");
+            return;
+        }
+        ((GL11) _delegate).glGetFixedv(pname, params, offset);
+    }
+
+    public void glGetFixedv(final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetFixedv");
+            return;
+        }
+        ((GL11) _delegate).glGetFixedv(pname, params);
+    }
+
+    public void glGetFloatv(final int pname, final float[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetFloatv");
+            return;
+        }
+        ((GL11) _delegate).glGetFloatv(pname, params, offset);
+    }
+
+    public void glGetFloatv(final int pname, final FloatBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetFloatv");
+            return;
+        }
+        ((GL11) _delegate).glGetFloatv(pname, params);
+    }
+
+    public void glGetLightfv(final int light, final int pname, final float[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetLightfv");
+            return;
+        }
+        ((GL11) _delegate).glGetLightfv(light, pname, params, offset);
+    }
+
+    public void glGetLightfv(final int light, final int pname, final FloatBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetLightfv");
+            return;
+        }
+        ((GL11) _delegate).glGetLightfv(light, pname, params);
+    }
+
+    public void glGetLightxv(final int light, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetLightxv");
+            return;
+        }
+        ((GL11) _delegate).glGetLightxv(light, pname, params, offset);
+    }
+
+    public void glGetLightxv(final int light, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetLightxv");
+            return;
+        }
+        ((GL11) _delegate).glGetLightxv(light, pname, params);
+    }
+
+    public void glGetMaterialfv(final int face, final int pname, final float[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetMaterialfv");
+            return;
+        }
+        ((GL11) _delegate).glGetMaterialfv(face, pname, params, offset);
+    }
+
+    public void glGetMaterialfv(final int face, final int pname, final FloatBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetMaterialfv");
+            return;
+        }
+        ((GL11) _delegate).glGetMaterialfv(face, pname, params);
+    }
+
+    public void glGetMaterialxv(final int face, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetMaterialxv");
+            return;
+        }
+        ((GL11) _delegate).glGetMaterialxv(face, pname, params, offset);
+    }
+
+    public void glGetMaterialxv(final int face, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetMaterialxv");
+            return;
+        }
+        ((GL11) _delegate).glGetMaterialxv(face, pname, params);
+    }
+
+    public void glGetTexEnviv(final int env, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexEnviv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexEnviv(env, pname, params, offset);
+    }
+
+    public void glGetTexEnviv(final int env, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexEnviv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexEnviv(env, pname, params);
+    }
+
+    public void glGetTexEnvxv(final int env, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexEnvxv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexEnvxv(env, pname, params, offset);
+    }
+
+    public void glGetTexEnvxv(final int env, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexEnvxv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexEnvxv(env, pname, params);
+    }
+
+    public void glGetTexParameterfv(final int target, final int pname, final float[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexParameterfv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexParameterfv(target, pname, params, offset);
+    }
+
+    public void glGetTexParameterfv(final int target, final int pname, final FloatBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexParameterfv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexParameterfv(target, pname, params);
+    }
+
+    public void glGetTexParameteriv(final int target, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexParameteriv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexParameteriv(target, pname, params, offset);
+    }
+
+    public void glGetTexParameteriv(final int target, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexParameteriv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexParameteriv(target, pname, params);
+    }
+
+    public void glGetTexParameterxv(final int target, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexParameterxv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexParameterxv(target, pname, params, offset);
+    }
+
+    public void glGetTexParameterxv(final int target, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexParameterxv");
+            return;
+        }
+        ((GL11) _delegate).glGetTexParameterxv(target, pname, params);
+    }
+
+    public boolean glIsBuffer(final int buffer) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glIsBuffer");
+            return false;
+        }
+        return ((GL11) _delegate).glIsBuffer(buffer);
+    }
+
+    public boolean glIsEnabled(final int cap) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glIsEnabled");
+            return false;
+        }
+        return ((GL11) _delegate).glIsEnabled(cap);
+    }
+
+    public boolean glIsTexture(final int texture) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glIsTexture");
+            return false;
+        }
+        return ((GL11) _delegate).glIsTexture(texture);
+    }
+
+    public void glNormalPointer(final int type, final int stride, final int offset) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glNormalPointer(type, stride, offset);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.NORMAL_POINTER_VBO);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putInt(offset);
+    }
+
+    public void glPointParameterf(final int pname, final float param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glPointParameterf(pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.POINT_PARAMETERF);
+        commands.putInt(pname);
+        commands.putFloat(param);
+    }
+
+    public void glPointParameterfv(final int pname, final float[] params, final int offset) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glPointParameterfv(pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.POINT_PARAMETERFV);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glPointParameterfv(final int pname, final FloatBuffer params) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glPointParameterfv(pname, params);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.POINT_PARAMETERFV);
+        commands.putInt(pname);
+        commands.putValues(params);
+    }
+
+    public void glPointParameterx(final int pname, final int param) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glPointParameterx(pname, param);
+            return;
+        }
+        recordGeneric("glPointParameterx", pname, param);
+    }
+
+    public void glPointParameterxv(final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glPointParameterxv(pname, params, offset);
+            return;
+        }
+        recordGeneric("glPointParameterxv", pname, params, offset);
+    }
+
+    public void glPointParameterxv(final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glPointParameterxv(pname, params);
+            return;
+        }
+        recordGeneric("glPointParameterxv", pname, params);
+    }
+
+    public void glPointSizePointerOES(final int type, final int stride, final Buffer pointer) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glPointSizePointerOES(type, stride, pointer);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.POINT_SIZE_POINTER);
+        _buffer.putInt(type);
+        _buffer.putInt(stride);
+        _buffer.putBuffer(pointer);
+    }
+
+    /**
+     * Set the point size pointer to an offset into the bound VBO. GL11 has no such overload, so the call goes to the
+     * current context through GLES11, if the platform has it; see {@link #isPointSizePointerOffsetSupported()}.
+     */
+    public void glPointSizePointerOES(final int type, final int stride, final int offset) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            pointSizePointerOffset(type, stride, offset);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.POINT_SIZE_POINTER_VBO);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putInt(offset);
+    }
+
+    public void glTexCoordPointer(final int size, final int type, final int stride, final int offset) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glTexCoordPointer(size, type, stride, offset);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_COORD_POINTER_VBO);
+        commands.putInt(size);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putInt(offset);
+    }
+
+    public void glTexEnvi(final int target, final int pname, final int param) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glTexEnvi(target, pname, param);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_ENVI);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putInt(param);
+    }
+
+    public void glTexEnviv(final int target, final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glTexEnviv(target, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_ENVIV);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putInts(params, offset, 4);
+    }
+
+    public void glTexEnviv(final int target, final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            ((GL11) _delegate).glTexEnviv(target, pname, params);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_ENVIV);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putInts(params, 4);
+    }
+
+    public void glTexParameterfv(final int target, final int pname, final float[] params, final int offset) {
+        if (_buffer == null || _compiling) {
+            ((GL11) _delegate).glTexParameterfv(target, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_PARAMETERFV);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glTexParameterfv(final int target, final int pname, final FloatBuffer params) {
+        if (_buffer == null || _compiling) {
+            ((GL11) _delegate).glTexParameterfv(target, pname, params);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_PARAMETERFV);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putValues(params);
+    }
+
+    public void glTexParameteri(final int target, final int pname, final int param) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null || _compiling) {
+            ((GL11) _delegate).glTexParameteri(target, pname, param);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.TEX_PARAMETERI);
+        commands.putInt(target);
+        commands.putInt(pname);
+        commands.putInt(param);
+    }
+
+    public void glTexParameteriv(final int target, final int pname, final int[] params, final int offset) {
+        if (_buffer == null || _compiling) {
+            ((GL11) _delegate).glTexParameteriv(target, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_PARAMETERIV);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putInts(params, offset, 4);
+    }
+
+    public void glTexParameteriv(final int target, final int pname, final IntBuffer params) {
+        if (_buffer == null || _compiling) {
+            ((GL11) _delegate).glTexParameteriv(target, pname, params);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_PARAMETERIV);
+        _buffer.putInt(target);
+        _buffer.putInt(pname);
+        _buffer.putInts(params, 4);
+    }
+
+    public void glTexParameterxv(final int target, final int pname, final int[] params, final int offset) {
+        if (_buffer == null || _compiling) {
+            ((GL11) _delegate).glTexParameterxv(target, pname, params, offset);
+            return;
+        }
+        recordGeneric("glTexParameterxv", target, pname, params, offset);
+    }
+
+    public void glTexParameterxv(final int target, final int pname, final IntBuffer params) {
+        if (_buffer == null || _compiling) {
+            ((GL11) _delegate).glTexParameterxv(target, pname, params);
+            return;
+        }
+        recordGeneric("glTexParameterxv", target, pname, params);
+    }
+
+    public void glVertexPointer(final int size, final int type, final int stride, final int offset) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11) _delegate).glVertexPointer(size, type, stride, offset);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.VERTEX_POINTER_VBO);
+        commands.putInt(size);
+        commands.putInt(type);
+        commands.putInt(stride);
+        commands.putInt(offset);
+    }
+
+    public void glBindFramebufferOES(final int target, final int framebuffer) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glBindFramebufferOES(target, framebuffer);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.BIND_FRAMEBUFFER);
+        _buffer.putInt(target);
+        _buffer.putInt(framebuffer);
+    }
+
+    public void glBindRenderbufferOES(final int target, final int renderbuffer) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glBindRenderbufferOES(target, renderbuffer);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.BIND_RENDERBUFFER);
+        _buffer.putInt(target);
+        _buffer.putInt(renderbuffer);
+    }
+
+    public void glBlendEquation(final int mode) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11ExtensionPack) _delegate).glBlendEquation(mode);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.BLEND_EQUATION);
+        commands.putInt(mode);
+    }
+
+    public void glBlendEquationSeparate(final int modeRGB, final int modeAlpha) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11ExtensionPack) _delegate).glBlendEquationSeparate(modeRGB, modeAlpha);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.BLEND_EQUATION_SEPARATE);
+        commands.putInt(modeRGB);
+        commands.putInt(modeAlpha);
+    }
+
+    public void glBlendFuncSeparate(final int srcRGB, final int dstRGB, final int srcAlpha, final int dstAlpha) {
+        final AndroidGLCommandBuffer commands = _buffer;
+        if (commands == null) {
+            ((GL11ExtensionPack) _delegate).glBlendFuncSeparate(srcRGB, dstRGB, srcAlpha, dstAlpha);
+            return;
+        }
+        commands.putOp(AndroidGLCommandBuffer.BLEND_FUNC_SEPARATE);
+        commands.putInt(srcRGB);
+        commands.putInt(dstRGB);
+        commands.putInt(srcAlpha);
+        commands.putInt(dstAlpha);
+    }
+
+    public int glCheckFramebufferStatusOES(final int target) {
+        if (_buffer != null) {
+            unrecorded("glCheckFramebufferStatusOES");
+            return 0;
+        }
+        return ((GL11ExtensionPack) _delegate).glCheckFramebufferStatusOES(target);
+    }
+
+    public void glDeleteFramebuffersOES(final int n, final int[] framebuffers, final int offset) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glDeleteFramebuffersOES(n, framebuffers, offset);
+            return;
+        }
+        _framebufferNames.release(n, framebuffers, offset);
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glDeleteFramebuffersOES(n, framebuffers, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_FRAMEBUFFERS);
+        _buffer.putInts(framebuffers, offset, n);
+    }
+
+    public void glDeleteFramebuffersOES(final int n, final IntBuffer framebuffers) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glDeleteFramebuffersOES(n, framebuffers);
+            return;
+        }
+        _framebufferNames.release(n, framebuffers);
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glDeleteFramebuffersOES(n, framebuffers);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_FRAMEBUFFERS);
+        _buffer.putInts(framebuffers, n);
+    }
+
+    public void glDeleteRenderbuffersOES(final int n, final int[] renderbuffers, final int offset) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glDeleteRenderbuffersOES(n, renderbuffers, offset);
+            return;
+        }
+        _renderbufferNames.release(n, renderbuffers, offset);
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glDeleteRenderbuffersOES(n, renderbuffers, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_RENDERBUFFERS);
+        _buffer.putInts(renderbuffers, offset, n);
+    }
+
+    public void glDeleteRenderbuffersOES(final int n, final IntBuffer renderbuffers) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glDeleteRenderbuffersOES(n, renderbuffers);
+            return;
+        }
+        _renderbufferNames.release(n, renderbuffers);
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glDeleteRenderbuffersOES(n, renderbuffers);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.DELETE_RENDERBUFFERS);
+        _buffer.putInts(renderbuffers, n);
+    }
+
+    public void glFramebufferRenderbufferOES(final int target, final int attachment, final int renderbuffertarget,
+            final int renderbuffer) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glFramebufferRenderbufferOES(target, attachment, renderbuffertarget,
+                    renderbuffer);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.FRAMEBUFFER_RENDERBUFFER);
+        _buffer.putInt(target);
+        _buffer.putInt(attachment);
+        _buffer.putInt(renderbuffertarget);
+        _buffer.putInt(renderbuffer);
+    }
+
+    public void glFramebufferTexture2DOES(final int target, final int attachment, final int textarget,
+            final int texture, final int level) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glFramebufferTexture2DOES(target, attachment, textarget, texture, level);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.FRAMEBUFFER_TEXTURE_2D);
+        _buffer.putInt(target);
+        _buffer.putInt(attachment);
+        _buffer.putInt(textarget);
+        _buffer.putInt(texture);
+        _buffer.putInt(level);
+    }
+
+    public void glGenerateMipmapOES(final int target) {
+        if (_buffer == null || _compiling) {
+            ((GL11ExtensionPack) _delegate).glGenerateMipmapOES(target);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.GENERATE_MIPMAP);
+        _buffer.putInt(target);
+    }
+
+    public void glGenFramebuffersOES(final int n, final int[] framebuffers, final int offset) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glGenFramebuffersOES(n, framebuffers, offset);
+            return;
+        }
+        _framebufferNames.allocate(n, framebuffers, offset);
+    }
+
+    public void glGenFramebuffersOES(final int n, final IntBuffer framebuffers) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glGenFramebuffersOES(n, framebuffers);
+            return;
+        }
+        _framebufferNames.allocate(n, framebuffers);
+    }
+
+    public void glGenRenderbuffersOES(final int n, final int[] renderbuffers, final int offset) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glGenRenderbuffersOES(n, renderbuffers, offset);
+            return;
+        }
+        _renderbufferNames.allocate(n, renderbuffers, offset);
+    }
+
+    public void glGenRenderbuffersOES(final int n, final IntBuffer renderbuffers) {
+        if (_compiling) {
+            ((GL11ExtensionPack) _delegate).glGenRenderbuffersOES(n, renderbuffers);
+            return;
+        }
+        _renderbufferNames.allocate(n, renderbuffers);
+    }
+
+    public void glGetFramebufferAttachmentParameterivOES(final int target, final int attachment, final int pname,
+            final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetFramebufferAttachmentParameterivOES");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetFramebufferAttachmentParameterivOES(target, attachment, pname, params,
+                offset);
+    }
+
+    public void glGetFramebufferAttachmentParameterivOES(final int target, final int attachment, final int pname,
+            final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetFramebufferAttachmentParameterivOES");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetFramebufferAttachmentParameterivOES(target, attachment, pname, params);
+    }
+
+    public void glGetRenderbufferParameterivOES(final int target, final int pname, final int[] params,
+            final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetRenderbufferParameterivOES");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetRenderbufferParameterivOES(target, pname, params, offset);
+    }
+
+    public void glGetRenderbufferParameterivOES(final int target, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetRenderbufferParameterivOES");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetRenderbufferParameterivOES(target, pname, params);
+    }
+
+    public void glGetTexGenfv(final int coord, final int pname, final float[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexGenfv");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetTexGenfv(coord, pname, params, offset);
+    }
+
+    public void glGetTexGenfv(final int coord, final int pname, final FloatBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexGenfv");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetTexGenfv(coord, pname, params);
+    }
+
+    public void glGetTexGeniv(final int coord, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexGeniv");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetTexGeniv(coord, pname, params, offset);
+    }
+
+    public void glGetTexGeniv(final int coord, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexGeniv");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetTexGeniv(coord, pname, params);
+    }
+
+    public void glGetTexGenxv(final int coord, final int pname, final int[] params, final int offset) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexGenxv");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetTexGenxv(coord, pname, params, offset);
+    }
+
+    public void glGetTexGenxv(final int coord, final int pname, final IntBuffer params) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glGetTexGenxv");
+            return;
+        }
+        ((GL11ExtensionPack) _delegate).glGetTexGenxv(coord, pname, params);
+    }
+
+    public boolean glIsFramebufferOES(final int framebuffer) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glIsFramebufferOES");
+            return false;
+        }
+        return ((GL11ExtensionPack) _delegate).glIsFramebufferOES(framebuffer);
+    }
+
+    public boolean glIsRenderbufferOES(final int renderbuffer) {
+        if (_buffer != null && !_compiling) {
+            unanswered("glIsRenderbufferOES");
+            return false;
+        }
+        return ((GL11ExtensionPack) _delegate).glIsRenderbufferOES(renderbuffer);
+    }
+
+    public void glRenderbufferStorageOES(final int target, final int internalformat, final int width,
+            final int height) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glRenderbufferStorageOES(target, internalformat, width, height);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.RENDERBUFFER_STORAGE);
+        _buffer.putInt(target);
+        _buffer.putInt(internalformat);
+        _buffer.putInt(width);
+        _buffer.putInt(height);
+    }
+
+    public void glTexGenf(final int coord, final int pname, final float param) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGenf(coord, pname, param);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_GENF);
+        _buffer.putInt(coord);
+        _buffer.putInt(pname);
+        _buffer.putFloat(param);
+    }
+
+    public void glTexGenfv(final int coord, final int pname, final float[] params, final int offset) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGenfv(coord, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_GENFV);
+        _buffer.putInt(coord);
+        _buffer.putInt(pname);
+        _buffer.putValues(params, offset, 4);
+    }
+
+    public void glTexGenfv(final int coord, final int pname, final FloatBuffer params) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGenfv(coord, pname, params);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_GENFV);
+        _buffer.putInt(coord);
+        _buffer.putInt(pname);
+        _buffer.putValues(params);
+    }
+
+    public void glTexGeni(final int coord, final int pname, final int param) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGeni(coord, pname, param);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_GENI);
+        _buffer.putInt(coord);
+        _buffer.putInt(pname);
+        _buffer.putInt(param);
+    }
+
+    public void glTexGeniv(final int coord, final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGeniv(coord, pname, params, offset);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_GENIV);
+        _buffer.putInt(coord);
+        _buffer.putInt(pname);
+        _buffer.putInts(params, offset, 4);
+    }
+
+    public void glTexGeniv(final int coord, final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGeniv(coord, pname, params);
+            return;
+        }
+        _buffer.putOp(AndroidGLCommandBuffer.TEX_GENIV);
+        _buffer.putInt(coord);
+        _buffer.putInt(pname);
+        _buffer.putInts(params, 4);
+    }
+
+    public void glTexGenx(final int coord, final int pname, final int param) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGenx(coord, pname, param);
+            return;
+        }
+        recordGeneric("glTexGenx", coord, pname, param);
+    }
+
+    public void glTexGenxv(final int coord, final int pname, final int[] params, final int offset) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGenxv(coord, pname, params, offset);
+            return;
+        }
+        recordGeneric("glTexGenxv", coord, pname, params, offset);
+    }
+
+    public void glTexGenxv(final int coord, final int pname, final IntBuffer params) {
+        if (_buffer == null) {
+            ((GL11ExtensionPack) _delegate).glTexGenxv(coord, pname, params);
+            return;
+        }
+        recordGeneric("glTexGenxv", coord, pname, params);
+    }
+}
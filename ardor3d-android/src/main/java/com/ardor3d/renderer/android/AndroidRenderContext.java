@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import com.ardor3d.renderer.ContextCapabilities;
+import com.ardor3d.renderer.RenderContext;
+
+/**
+ * A RenderContext that also carries the {@link AndroidRendererRecord} shadowing Android specific GL state, the
+ * context's {@link AndroidVBOPool}, and optionally its {@link AndroidVBOArena}.
+ */
+public class AndroidRenderContext extends RenderContext {
+
+    private final AndroidRendererRecord _androidRendererRecord = new AndroidRendererRecord();
+    private final AndroidVBOPool _vboPool = new AndroidVBOPool();
+    private AndroidVBOArena _vboArena;
+
+    public AndroidRenderContext(final Object key, final ContextCapabilities caps) {
+        this(key, caps, null);
+    }
+
+    public AndroidRenderContext(final Object key, final ContextCapabilities caps, final RenderContext shared) {
+        super(key, caps, shared);
+    }
+
+    public AndroidRendererRecord getAndroidRendererRecord() {
+        return _androidRendererRecord;
+    }
+
+    public AndroidVBOPool getVBOPool() {
+        return _vboPool;
+    }
+
+    /**
+     * @param vboArena
+     *            the arena to suballocate this context's vertex and index data from, or null to give each its own VBO.
+     *            Set it before data is uploaded, or from the GL thread.
+     */
+    public void setVBOArena(final AndroidVBOArena vboArena) {
+        _vboArena = vboArena;
+    }
+
+    public AndroidVBOArena getVBOArena() {
+        return _vboArena;
+    }
+
+    @Override
+    public void invalidateStates() {
+        super.invalidateStates();
+        _androidRendererRecord.invalidate();
+    }
+}
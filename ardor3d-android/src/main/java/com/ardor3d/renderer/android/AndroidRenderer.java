@@ -24,13 +24,21 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.ShortBuffer;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import javax.microedition.khronos.opengles.GL10;
 import javax.microedition.khronos.opengles.GL11;
 
+import android.opengl.GLES20;
 import android.opengl.GLException;
+import android.opengl.Matrix;
 import android.util.Log;
+import android.util.SparseArray;
 
 import com.ardor3d.framework.android.AndroidCanvas;
 import com.ardor3d.image.ImageDataFormat;
@@ -43,6 +51,7 @@ import com.ardor3d.image.TextureCubeMap;
 import com.ardor3d.image.TextureCubeMap.Face;
 import com.ardor3d.math.Matrix4;
 import com.ardor3d.math.type.ReadOnlyColorRGBA;
+import com.ardor3d.math.type.ReadOnlyMatrix3;
 import com.ardor3d.math.type.ReadOnlyRectangle2;
 import com.ardor3d.math.type.ReadOnlyTransform;
 import com.ardor3d.math.type.ReadOnlyVector3;
@@ -54,6 +63,7 @@ import com.ardor3d.renderer.DrawBufferTarget;
 import com.ardor3d.renderer.IndexMode;
 import com.ardor3d.renderer.RenderContext;
 import com.ardor3d.renderer.Renderer;
+import com.ardor3d.renderer.queue.OpaqueRenderBucket;
 import com.ardor3d.renderer.queue.RenderBucketType;
 import com.ardor3d.renderer.state.BlendState;
 import com.ardor3d.renderer.state.ClipState;
@@ -74,6 +84,8 @@ import com.ardor3d.renderer.state.WireframeState;
 import com.ardor3d.renderer.state.ZBufferState;
 import com.ardor3d.renderer.state.record.LineRecord;
 import com.ardor3d.renderer.state.record.RendererRecord;
+import com.ardor3d.renderer.state.record.StateRecord;
+import com.ardor3d.renderer.state.record.TextureStateRecord;
 import com.ardor3d.scene.state.android.AndroidBlendStateUtil;
 import com.ardor3d.scene.state.android.AndroidClipStateUtil;
 import com.ardor3d.scene.state.android.AndroidColorMaskStateUtil;
@@ -91,11 +103,13 @@ import com.ardor3d.scene.state.android.AndroidVertexProgramStateUtil;
 import com.ardor3d.scene.state.android.AndroidWireframeStateUtil;
 import com.ardor3d.scene.state.android.AndroidZBufferStateUtil;
 import com.ardor3d.scene.state.android.util.AndroidRendererUtil;
+import com.ardor3d.scene.state.android.util.AndroidStateVersions;
 import com.ardor3d.scene.state.android.util.AndroidTextureUtil;
 import com.ardor3d.scenegraph.AbstractBufferData;
 import com.ardor3d.scenegraph.AbstractBufferData.VBOAccessMode;
 import com.ardor3d.scenegraph.FloatBufferData;
 import com.ardor3d.scenegraph.IndexBufferData;
+import com.ardor3d.scenegraph.Mesh;
 import com.ardor3d.scenegraph.Renderable;
 import com.ardor3d.scenegraph.Spatial;
 import com.ardor3d.scenegraph.hint.NormalsMode;
@@ -107,11 +121,102 @@ import com.ardor3d.util.stat.StatType;
 
 public class AndroidRenderer extends AbstractRenderer {
 
+    /** Floats per point given to {@link #drawPointSprites(FloatBufferData, int)}: position, rgba color and size. */
+    public static final int POINT_SPRITE_FLOATS = 8;
+
     private GL10 _gl;
 
     private final FloatBuffer _transformBuffer = BufferUtils.createFloatBuffer(16);
     private final Matrix4 _transformMatrix = new Matrix4();
 
+    private final AndroidRendererRecord _fallbackRecord = new AndroidRendererRecord();
+    private RenderContext _fallbackContext;
+    private int _avoidedCalls;
+
+    // the context and records used by the current frame, looked up once per frame.
+    private RenderContext _frameContext;
+    private RendererRecord _frameRendererRecord;
+    private AndroidRendererRecord _frameAndroidRecord;
+
+    private int[] _idScratch = new int[16];
+
+    private boolean _logReadbacks = false;
+
+    private final Set<VBOAccessMode> _warnedAccessModes = EnumSet.noneOf(VBOAccessMode.class);
+
+    private final AndroidInstancing _instancing = new AndroidInstancing();
+
+    private final AndroidStateVersions _stateVersions = new AndroidStateVersions();
+
+    // compiled render lists standing in for display lists, keyed by list id
+    private final SparseArray<RenderList> _renderLists = new SparseArray<RenderList>();
+    private int _nextRenderList = 1;
+    private AndroidRecordingGL _listCompiler;
+    private RenderList _compilingList;
+    private GL10 _compilingOver;
+    private boolean _compilingCpuMatrices;
+    private AndroidIndexOptimizer _indexOptimizer;
+    private AndroidOpaqueRenderBucket _opaqueBucket;
+
+    // without VBO offsets for point sizes, a view of the last point sprite buffer drawn, starting at its first size.
+    private FloatBuffer _pointSizes;
+    private FloatBuffer _pointSizesSource;
+    private AndroidLightManager _lightManager;
+    private AndroidLightBaker _lightBaker;
+    // the baked colors to draw the current renderable with, if any
+    private FloatBufferData _bakedColors;
+    private AndroidDataModeSelector _dataModes;
+    private Renderable _currentRenderable;
+
+    // the quantized format of each vertex pointer set up for the current mesh, null for floats
+    private final AndroidQuantizedAttribute[] _quantized =
+            new AndroidQuantizedAttribute[AndroidRendererRecord.MAX_POINTERS];
+    // data whose VBO holds quantized values, keyed by buffer data
+    private final Map<Object, Boolean> _quantizedVBOs = new WeakHashMap<Object, Boolean>();
+    // meshes drawn without instance transforms we already warned about, keyed by renderable
+    private final Map<Object, Boolean> _warnedInstancing = new WeakHashMap<Object, Boolean>();
+
+    // interleaved layouts, keyed by interleaved data
+    private final Map<Object, AndroidInterleavedLayout> _layouts = new WeakHashMap<Object, AndroidInterleavedLayout>();
+    private final AndroidInterleavedLayout _interleavedScratch = new AndroidInterleavedLayout();
+    private int _dirtyFrom, _dirtyTo;
+
+    private final int[] _partitionBaseOffsets = new int[AndroidRendererRecord.MAX_POINTERS];
+    // index data we already warned about, keyed by index data
+    private final Map<Object, Boolean> _warnedPartitions = new WeakHashMap<Object, Boolean>();
+
+    /** Transforms with cached float matrices before the cache is flushed. */
+    private static final int MAX_CACHED_MATRICES = 4096;
+
+    /** A transform converted to a float model matrix, along with the values it was converted from. */
+    private static class ModelMatrix {
+        final float[] _matrix = new float[16];
+        final double[] _source = new double[15];
+    }
+
+    /** A compiled render list, along with the render states it leaves behind. */
+    private static class RenderList {
+        final AndroidGLCommandBuffer _commands = new AndroidGLCommandBuffer();
+        // bit per state type the list applies, and the state of each type current at its end.
+        int _touchedStates;
+        final RenderState[] _endStates = new RenderState[RenderState.StateType.values.length];
+        // whether a draw was left out while compiling, as its data wasn't ready yet.
+        boolean _incomplete;
+    }
+
+    private boolean _cpuMatrices = false;
+    private final float[] _viewMatrix = new float[16];
+    private final float[] _orthoSavedViewMatrix = new float[16];
+    private final float[] _modelViewMatrix = new float[16];
+    private final FloatBuffer _modelViewBuffer = BufferUtils.createFloatBuffer(16);
+    // whether the GL modelview matrix currently holds _viewMatrix
+    private boolean _viewMatrixLoaded = false;
+
+    // bumped on view changes and each frame, see doApplyState.
+    private int _stateScope;
+
+    private final Map<ReadOnlyTransform, ModelMatrix> _matrices = new IdentityHashMap<ReadOnlyTransform, ModelMatrix>();
+
     /**
      * Constructor instantiates a new <code>AndroidRenderer</code> object.
      */
@@ -187,7 +292,7 @@ public class AndroidRenderer extends AbstractRenderer {
             // clear |= GL_ACCUM_BUFFER_BIT;
         }
 
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         final RendererRecord record = context.getRendererRecord();
 
         if (strict) {
@@ -212,7 +317,7 @@ public class AndroidRenderer extends AbstractRenderer {
 
         _gl.glFlush();
 
-        checkCardError();
+        // errors are polled by AndroidDebugGL, if enabled, rather than every frame.
         if (doSwap) {
             doApplyState(defaultStateList.get(RenderState.StateType.ColorMask));
 
@@ -228,9 +333,37 @@ public class AndroidRenderer extends AbstractRenderer {
             // XXX: Android handles this.
         }
 
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        _avoidedCalls = record.takeAvoidedCalls();
+        viewChanged();
+        if (_dataModes != null) {
+            _dataModes.nextFrame();
+        }
+        if (_lightManager != null) {
+            _lightManager.nextFrame();
+        }
+        if (_lightBaker != null) {
+            _lightBaker.nextFrame();
+        }
+        if (_gl instanceof AndroidRecordingGL) {
+            // a recorded frame may hold copies of client data that are gone by the time the next one replays.
+            record.invalidateClientPointers();
+        }
+
         if (Constants.stats) {
             StatCollector.addStat(StatType.STAT_FRAMES, 1);
+            StatCollector.addStat(AndroidStatType.STAT_GL_CALLS_AVOIDED, _avoidedCalls);
+        }
+        final AndroidVBOPool pool = getVBOPool();
+        if (pool != null) {
+            pool.endFrame();
         }
+        final AndroidVBOArena arena = getVBOArena();
+        if (arena != null) {
+            arena.endFrame(this);
+        }
+
+        resetFrameContext();
     }
 
     public void setOrtho() {
@@ -238,7 +371,8 @@ public class AndroidRenderer extends AbstractRenderer {
             throw new Ardor3dException("Already in Orthographic mode.");
         }
         // set up ortho mode
-        final RendererRecord matRecord = ContextManager.getCurrentContext().getRendererRecord();
+        final RendererRecord matRecord = getFrameRendererRecord();
+        final AndroidRendererRecord record = getFrameAndroidRecord();
         AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_PROJECTION);
         _gl.glPushMatrix();
         _gl.glLoadIdentity();
@@ -246,10 +380,24 @@ public class AndroidRenderer extends AbstractRenderer {
         final double viewportWidth = camera.getWidth() * (camera.getViewPortRight() - camera.getViewPortLeft());
         final double viewportHeight = camera.getHeight() * (camera.getViewPortTop() - camera.getViewPortBottom());
         _gl.glOrthof(0, (float) viewportWidth, 0, (float) viewportHeight, -1, 1);
+        record.projectionStack.push();
+        record.projectionStack.loadIdentity();
+        record.projectionStack.ortho(0, (float) viewportWidth, 0, (float) viewportHeight, -1, 1);
         AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_MODELVIEW);
-        _gl.glPushMatrix();
-        _gl.glLoadIdentity();
+        if (_cpuMatrices) {
+            // our modelview is never left on the GL stack, so just swap the view.
+            System.arraycopy(_viewMatrix, 0, _orthoSavedViewMatrix, 0, 16);
+            Matrix.setIdentityM(_viewMatrix, 0);
+            _gl.glLoadIdentity();
+            _viewMatrixLoaded = true;
+        } else {
+            _gl.glPushMatrix();
+            _gl.glLoadIdentity();
+            record.modelViewStack.push();
+        }
+        record.modelViewStack.loadIdentity();
         _inOrthoMode = true;
+        viewChanged();
     }
 
     public void unsetOrtho() {
@@ -258,12 +406,21 @@ public class AndroidRenderer extends AbstractRenderer {
         }
         // remove ortho mode, and go back to original
         // state
-        final RendererRecord matRecord = ContextManager.getCurrentContext().getRendererRecord();
+        final RendererRecord matRecord = getFrameRendererRecord();
+        final AndroidRendererRecord record = getFrameAndroidRecord();
         AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_PROJECTION);
         _gl.glPopMatrix();
+        record.projectionStack.pop();
         AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_MODELVIEW);
-        _gl.glPopMatrix();
+        if (_cpuMatrices) {
+            System.arraycopy(_orthoSavedViewMatrix, 0, _viewMatrix, 0, 16);
+            loadViewMatrix();
+        } else {
+            _gl.glPopMatrix();
+            record.modelViewStack.pop();
+        }
         _inOrthoMode = false;
+        viewChanged();
     }
 
     public void grabScreenContents(final ByteBuffer store, final ImageDataFormat format, final PixelDataType type,
@@ -298,8 +455,8 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void applyNormalsMode(final NormalsMode normalsMode, final ReadOnlyTransform worldTransform) {
-        final RenderContext context = ContextManager.getCurrentContext();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
         if (normalsMode != NormalsMode.Off) {
             final ContextCapabilities caps = context.getCapabilities();
             switch (normalsMode) {
@@ -381,23 +538,44 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void applyDefaultColor(final ReadOnlyColorRGBA defaultColor) {
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        final float r, g, b, a;
         if (defaultColor != null) {
-            _gl.glColor4f(defaultColor.getRed(), defaultColor.getGreen(), defaultColor.getBlue(),
-                    defaultColor.getAlpha());
+            r = defaultColor.getRed();
+            g = defaultColor.getGreen();
+            b = defaultColor.getBlue();
+            a = defaultColor.getAlpha();
         } else {
-            _gl.glColor4f(1, 1, 1, 1);
+            r = g = b = a = 1;
+        }
+
+        if (record.colorValid && record.colorR == r && record.colorG == g && record.colorB == b && record.colorA == a) {
+            record.avoided();
+            return;
         }
+        _gl.glColor4f(r, g, b, a);
+        record.colorR = r;
+        record.colorG = g;
+        record.colorB = b;
+        record.colorA = a;
+        record.colorValid = true;
     }
 
     public void deleteVBOs(final Collection<Integer> ids) {
-        if (!ContextManager.getCurrentContext().getCapabilities().isVBOSupported() || ids == null || ids.isEmpty()) {
+        if (!getFrameContext().getCapabilities().isVBOSupported() || ids == null || ids.isEmpty()) {
             return;
         }
-        final int idBuffer[] = new int[ids.size()];
+        final AndroidVBOPool pool = getVBOPool();
+        final AndroidVBOArena arena = getVBOArena();
+        final int idBuffer[] = getIdScratch(ids.size());
         int index = 0;
         for (final Integer i : ids) {
-            if (i != null && i != 0) {
-                idBuffer[index++] = i;
+            // arena blocks are shared, collected data's ranges are reclaimed by the arena itself.
+            if (i != null && i != 0 && (arena == null || !arena.isBlock(i))) {
+                forgetVBO(i);
+                if (pool == null || !pool.release(i)) {
+                    idBuffer[index++] = i;
+                }
             }
         }
         if (index != 0) {
@@ -406,12 +584,25 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void deleteVBOs(final AbstractBufferData<?> buffer) {
-        if (!ContextManager.getCurrentContext().getCapabilities().isVBOSupported() || buffer == null) {
+        if (!getFrameContext().getCapabilities().isVBOSupported() || buffer == null) {
             return;
         }
+        if (_indexOptimizer != null && buffer instanceof IndexBufferData<?>) {
+            // the optimized copy is what was actually uploaded
+            final AndroidIndexOptimizer.Result optimized = _indexOptimizer.remove(buffer);
+            if (optimized != null) {
+                deleteVBOs(optimized.getIndices());
+            }
+        }
 
         // ask for the current state record
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
+
+        final AndroidVBOArena arena = getVBOArena();
+        if (arena != null && arena.free(buffer)) {
+            buffer.removeVBOID(context.getGlContextRep());
+            return;
+        }
 
         final int id = buffer.getVBOID(context.getGlContextRep());
         if (id == 0) {
@@ -421,17 +612,53 @@ public class AndroidRenderer extends AbstractRenderer {
 
         buffer.removeVBOID(context.getGlContextRep());
 
-        final int[] idBuffer = new int[] { id };
-        ((GL11) _gl).glDeleteBuffers(1, idBuffer, 0);
+        forgetVBO(id);
+        final AndroidVBOPool pool = getVBOPool();
+        if (pool == null || !pool.release(id)) {
+            final int[] idBuffer = getIdScratch(1);
+            idBuffer[0] = id;
+            ((GL11) _gl).glDeleteBuffers(1, idBuffer, 0);
+        }
+    }
+
+    /**
+     * Deleted buffers are unbound by GL, and both deleted and pooled ids may be handed out again with new contents.
+     */
+    private void forgetVBO(final int id) {
+        getFrameAndroidRecord().invalidatePointers(id);
+        getFrameRendererRecord().invalidateVBO();
+    }
+
+    /**
+     * @return the VBO pool of the current context, or null if it is not an {@link AndroidRenderContext}.
+     */
+    protected AndroidVBOPool getVBOPool() {
+        final RenderContext context = getFrameContext();
+        return context instanceof AndroidRenderContext ? ((AndroidRenderContext) context).getVBOPool() : null;
+    }
+
+    /**
+     * @return the VBO arena of the current context, or null if each buffer gets its own VBO.
+     */
+    protected AndroidVBOArena getVBOArena() {
+        final RenderContext context = getFrameContext();
+        return context instanceof AndroidRenderContext ? ((AndroidRenderContext) context).getVBOArena() : null;
+    }
+
+    /**
+     * @return the byte offset of the given data within its VBO, which is only non zero for data in the VBO arena.
+     */
+    protected int getVBOOffset(final AbstractBufferData<?> data) {
+        final AndroidVBOArena arena = getVBOArena();
+        return arena != null ? arena.getOffset(data) : 0;
     }
 
     public void deleteDisplayLists(final Collection<Integer> ids) {
-        Log.w(AndroidCanvas.TAG, "AndroidRenderer.deleteDisplayLists - DisplayLists not supported.");
-        // for (final Integer i : ids) {
-        // if (i != null && i != 0) {
-        // _gl.glDeleteLists(i, 1);
-        // }
-        // }
+        for (final Integer i : ids) {
+            if (i != null && i != 0) {
+                _renderLists.remove(i);
+            }
+        }
     }
 
     public void updateTexture1DSubImage(final Texture1D destination, final int dstOffsetX, final int dstWidth,
@@ -467,7 +694,7 @@ public class AndroidRenderer extends AbstractRenderer {
             final int srcTotalHeight, final Face dstFace) {
 
         // Ignore textures that do not have an id set
-        if (destination.getTextureIdForContext(ContextManager.getCurrentContext().getGlContextRep()) == 0) {
+        if (destination.getTextureIdForContext(getFrameContext().getGlContextRep()) == 0) {
             Log.w(AndroidCanvas.TAG,
                     "AndroidRenderer.updateTexSubImage - Attempting to update a texture that is not currently on the card.");
             return;
@@ -475,9 +702,8 @@ public class AndroidRenderer extends AbstractRenderer {
 
         // Determine the original texture configuration, so that this method can
         // restore the texture configuration to its original state.
-        final int[] idBuffer = new int[1];
-        _gl.glGetIntegerv(GL10.GL_UNPACK_ALIGNMENT, idBuffer, 0);
-        final int origAlignment = idBuffer[0];
+        final RenderContext context = getFrameContext();
+        final int origAlignment = AndroidRendererUtil.getUnpackAlignment(context);
         // final int origRowLength = 0;
         // final int origImageHeight = 0;
         // final int origSkipPixels = 0;
@@ -518,9 +744,7 @@ public class AndroidRenderer extends AbstractRenderer {
 
         // Update the texture configuration (when necessary).
 
-        if (origAlignment != alignment) {
-            _gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, alignment);
-        }
+        AndroidRendererUtil.setUnpackAlignment(_gl, context, alignment);
 
         // NOTE: The below is unsupported... which might mean this whole method is not very useful.
 
@@ -567,9 +791,7 @@ public class AndroidRenderer extends AbstractRenderer {
         } finally {
             // Restore the texture configuration (when necessary)...
             // Restore alignment.
-            if (origAlignment != alignment) {
-                _gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, origAlignment);
-            }
+            AndroidRendererUtil.setUnpackAlignment(_gl, context, origAlignment);
             // // Restore row length.
             // if (origRowLength != rowLength) {
             // _gl.glPixelStorei(GL10.GL_UNPACK_ROW_LENGTH, origRowLength);
@@ -608,22 +830,345 @@ public class AndroidRenderer extends AbstractRenderer {
         if (renderLogic != null) {
             renderLogic.apply(renderable);
         }
+        final Renderable previous = _currentRenderable;
+        final FloatBufferData previousColors = _bakedColors;
+        _currentRenderable = renderable;
+        _bakedColors = _lightBaker != null && renderable instanceof Mesh ? _lightBaker.getColors(this,
+                (Mesh) renderable) : null;
         renderable.render(this);
+        _currentRenderable = previous;
+        _bakedColors = previousColors;
         if (renderLogic != null) {
             renderLogic.restore(renderable);
         }
     }
 
+    public AndroidInstancing getInstancing() {
+        return _instancing;
+    }
+
+    /**
+     * Emulate an instanced draw of the mesh being rendered, see {@link AndroidInstancing}. Either indices or vertices
+     * is given, depending on the draw call being emulated.
+     */
+    protected void drawInstances(final IndexBufferData<?> indices, final FloatBufferData vertices,
+            final int[] indexLengths, final IndexMode[] indexModes, final int primcount, final boolean useVBO) {
+        final Mesh mesh = _currentRenderable instanceof Mesh ? (Mesh) _currentRenderable : null;
+        final float[] matrices = mesh != null ? _instancing.getTransforms(mesh) : null;
+        if (matrices == null) {
+            if (_warnedInstancing.put(_currentRenderable != null ? _currentRenderable : this, Boolean.TRUE) == null) {
+                Log.w(AndroidCanvas.TAG, "AndroidRenderer.drawInstances - no instance transforms for "
+                        + _currentRenderable + ", drawing it once.");
+            }
+            drawInstance(indices, vertices, indexLengths, indexModes, useVBO);
+            return;
+        }
+
+        final int instances = Math.min(primcount, _instancing.getTransformCount());
+        final AndroidInstancing.Batch batch = _instancing.prepare(this, mesh, matrices, instances);
+        if (batch != null) {
+            if (useVBO) {
+                setupVertexDataVBO(batch.getVertices());
+                setupNormalDataVBO(batch.getNormals());
+                setupColorDataVBO(batch.getColors());
+                setupTextureDataVBO(batch.getTextureCoords());
+                drawElementsVBO(batch.getIndices(), null, batch.getIndexModes(), -1);
+            } else {
+                setupVertexData(batch.getVertices());
+                setupNormalData(batch.getNormals());
+                setupColorData(batch.getColors());
+                setupTextureData(batch.getTextureCoords());
+                drawElements(batch.getIndices(), null, batch.getIndexModes(), -1);
+            }
+            return;
+        }
+
+        for (int i = 0; i < instances; i++) {
+            pushInstanceMatrix(matrices, i * 16);
+            drawInstance(indices, vertices, indexLengths, indexModes, useVBO);
+            popInstanceMatrix();
+        }
+    }
+
+    private void drawInstance(final IndexBufferData<?> indices, final FloatBufferData vertices,
+            final int[] indexLengths, final IndexMode[] indexModes, final boolean useVBO) {
+        if (indices == null) {
+            drawArrays(vertices, indexLengths, indexModes, -1);
+        } else if (useVBO) {
+            drawElementsVBO(indices, indexLengths, indexModes, -1);
+        } else {
+            drawElements(indices, indexLengths, indexModes, -1);
+        }
+    }
+
+    /**
+     * Multiply the modelview by the given instance matrix, on top of the current mesh transform.
+     */
+    protected void pushInstanceMatrix(final float[] matrix, final int offset) {
+        AndroidRendererUtil.switchMode(_gl, getFrameRendererRecord(), GL10.GL_MODELVIEW);
+        _gl.glPushMatrix();
+        synchronized (_transformMatrix) {
+            _transformBuffer.clear();
+            _transformBuffer.put(matrix, offset, 16);
+            _transformBuffer.flip();
+            _gl.glMultMatrixf(_transformBuffer);
+
+            final AndroidMatrixStack stack = getFrameAndroidRecord().modelViewStack;
+            stack.push();
+            stack.multiply(_transformBuffer);
+        }
+    }
+
+    protected void popInstanceMatrix() {
+        AndroidRendererUtil.switchMode(_gl, getFrameRendererRecord(), GL10.GL_MODELVIEW);
+        _gl.glPopMatrix();
+        getFrameAndroidRecord().modelViewStack.pop();
+    }
+
+    /**
+     * @param cpuMatrices
+     *            if true, the view matrix is kept by the renderer and each transformed draw loads the complete
+     *            modelview with a single glLoadMatrixf, instead of pushing and multiplying the GL matrix stack. Float
+     *            world matrices are cached per transform and only recomputed when it changes. Set this before the
+     *            camera is applied for the frame.
+     */
+    public void setUseCpuMatrices(final boolean cpuMatrices) {
+        _cpuMatrices = cpuMatrices;
+        _viewMatrixLoaded = false;
+        _matrices.clear();
+    }
+
+    public boolean isUseCpuMatrices() {
+        return _cpuMatrices;
+    }
+
+    /**
+     * @param logReadbacks
+     *            if true, log whenever the renderer has to fall back to reading GL state with glGet*, which stalls
+     *            the pipeline on most mobile drivers.
+     */
+    public void setLogReadbacks(final boolean logReadbacks) {
+        _logReadbacks = logReadbacks;
+    }
+
+    public boolean isLogReadbacks() {
+        return _logReadbacks;
+    }
+
+    /**
+     * @param optimizeIndices
+     *            if true, triangle indices are merged into one list and reordered for the vertex cache the first time
+     *            they are drawn, see {@link AndroidIndexOptimizer}.
+     */
+    public void setOptimizeIndices(final boolean optimizeIndices) {
+        if (!optimizeIndices) {
+            _indexOptimizer = null;
+        } else if (_indexOptimizer == null) {
+            _indexOptimizer = new AndroidIndexOptimizer();
+        }
+    }
+
+    public boolean isOptimizeIndices() {
+        return _indexOptimizer != null;
+    }
+
+    /**
+     * @return the index optimizer, or null if indices are drawn as given.
+     */
+    public AndroidIndexOptimizer getIndexOptimizer() {
+        return _indexOptimizer;
+    }
+
+    /**
+     * @param lightManager
+     *            picks the lights to enable for each mesh drawn with a light state, or null to enable all of them.
+     */
+    public void setLightManager(final AndroidLightManager lightManager) {
+        _lightManager = lightManager;
+    }
+
+    public AndroidLightManager getLightManager() {
+        return _lightManager;
+    }
+
+    /**
+     * @param lightBaker
+     *            bakes the lighting of the meshes marked static with it into vertex colors, or null to light all
+     *            meshes as usual.
+     */
+    public void setLightBaker(final AndroidLightBaker lightBaker) {
+        _lightBaker = lightBaker;
+    }
+
+    public AndroidLightBaker getLightBaker() {
+        return _lightBaker;
+    }
+
+    /**
+     * @return the baked colors the current renderable is drawn with instead of its own, or null.
+     */
+    protected FloatBufferData getBakedColors() {
+        return _bakedColors;
+    }
+
+    /**
+     * @param sortOpaqueByState
+     *            if true, opaque objects are sorted by texture and render states before distance, see
+     *            {@link AndroidOpaqueRenderBucket}. Otherwise they are sorted by the default comparator. Set between
+     *            frames, as anything queued in the opaque bucket is dropped.
+     */
+    public void setSortOpaqueByState(final boolean sortOpaqueByState) {
+        if (sortOpaqueByState == (_opaqueBucket != null)) {
+            return;
+        }
+        _opaqueBucket = sortOpaqueByState ? new AndroidOpaqueRenderBucket() : null;
+        _queue.setRenderBucket(RenderBucketType.Opaque, sortOpaqueByState ? _opaqueBucket : new OpaqueRenderBucket());
+    }
+
+    public boolean isSortOpaqueByState() {
+        return _opaqueBucket != null;
+    }
+
+    /**
+     * @return the opaque bucket sorting by state, or null if the default one is in use.
+     */
+    public AndroidOpaqueRenderBucket getOpaqueBucket() {
+        return _opaqueBucket;
+    }
+
+    /**
+     * @param adaptiveDataMode
+     *            if true, the buffers of meshes drawn in {@code DataMode.Arrays} are moved between client arrays and
+     *            VBOs depending on how often they are refreshed, see {@link AndroidDataModeSelector}. Meshes asking
+     *            for VBOs are left alone.
+     */
+    public void setAdaptiveDataMode(final boolean adaptiveDataMode) {
+        if (!adaptiveDataMode) {
+            _dataModes = null;
+        } else if (_dataModes == null) {
+            _dataModes = new AndroidDataModeSelector();
+        }
+    }
+
+    public boolean isAdaptiveDataMode() {
+        return _dataModes != null;
+    }
+
+    /**
+     * @return the data mode selector, or null if client arrays are always drawn as such.
+     */
+    public AndroidDataModeSelector getDataModeSelector() {
+        return _dataModes;
+    }
+
+    /**
+     * @return true if the given client data should be drawn through the VBO path instead, as picked by the adaptive
+     *         data mode. Data moving to client arrays, or to another kind of VBO, has its current VBO deleted.
+     */
+    protected boolean isAdaptiveVBO(final AbstractBufferData<?> data) {
+        if (_dataModes == null || data == null || data.getBuffer() == null) {
+            return false;
+        }
+        final RenderContext context = getFrameContext();
+        if (!context.getCapabilities().isVBOSupported()) {
+            return false;
+        }
+
+        final VBOAccessMode accessMode;
+        switch (_dataModes.select(data)) {
+            case StaticVBO:
+                accessMode = VBOAccessMode.StaticDraw;
+                break;
+            case DynamicVBO:
+                accessMode = VBOAccessMode.DynamicDraw;
+                break;
+            case StreamVBO:
+                accessMode = VBOAccessMode.StreamDraw;
+                break;
+            default:
+                accessMode = null;
+        }
+        if (data.getVBOID(context.getGlContextRep()) != 0 && data.getVboAccessMode() != accessMode) {
+            // created with another usage hint, or not needed any more.
+            deleteVBOs(data);
+        }
+        if (accessMode == null) {
+            return false;
+        }
+        data.setVboAccessMode(accessMode);
+        return true;
+    }
+
+    /**
+     * @return true if all given texture coordinates should be drawn through the VBO path.
+     */
+    private boolean isAdaptiveVBO(final List<FloatBufferData> textureCoords) {
+        if (_dataModes == null || textureCoords == null) {
+            return false;
+        }
+        boolean useVBO = false, useClient = false;
+        for (int i = 0; i < textureCoords.size(); i++) {
+            final FloatBufferData data = textureCoords.get(i);
+            if (data != null && data.getBuffer() != null) {
+                if (isAdaptiveVBO(data)) {
+                    useVBO = true;
+                } else {
+                    useClient = true;
+                }
+            }
+        }
+        // units can't be split between the paths, so any unit drawn from client arrays keeps them all there.
+        return useVBO && !useClient;
+    }
+
+    /**
+     * With the adaptive data mode, client arrays and VBOs are mixed within a mesh, and client pointers are only honored
+     * with no VBO bound.
+     */
+    private void bindClientArrays(final boolean elements) {
+        if (_dataModes != null && getFrameContext().getCapabilities().isVBOSupported()) {
+            if (elements) {
+                AndroidRendererUtil.setBoundElementVBO((GL11) _gl, getFrameRendererRecord(), 0);
+            } else {
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, getFrameRendererRecord(), 0);
+            }
+        }
+    }
+
     public boolean doTransforms(final ReadOnlyTransform transform) {
+        if (_cpuMatrices) {
+            if (transform.isIdentity()) {
+                if (!_viewMatrixLoaded) {
+                    loadViewMatrix();
+                }
+                return false;
+            }
+            Matrix.multiplyMM(_modelViewMatrix, 0, _viewMatrix, 0, getModelMatrix(transform), 0);
+            _modelViewBuffer.clear();
+            _modelViewBuffer.put(_modelViewMatrix);
+            _modelViewBuffer.flip();
+
+            final RendererRecord matRecord = getFrameRendererRecord();
+            AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_MODELVIEW);
+            _gl.glLoadMatrixf(_modelViewBuffer);
+            getFrameAndroidRecord().modelViewStack.load(_modelViewMatrix);
+            _viewMatrixLoaded = false;
+            return true;
+        }
+
         // set world matrix
         if (!transform.isIdentity()) {
             synchronized (_transformMatrix) {
                 transform.getGLApplyMatrix(_transformBuffer);
 
-                final RendererRecord matRecord = ContextManager.getCurrentContext().getRendererRecord();
+                final RendererRecord matRecord = getFrameRendererRecord();
                 AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_MODELVIEW);
                 _gl.glPushMatrix();
                 _gl.glMultMatrixf(_transformBuffer);
+
+                final AndroidMatrixStack stack = getFrameAndroidRecord().modelViewStack;
+                stack.push();
+                stack.multiply(_transformBuffer);
                 return true;
             }
         }
@@ -631,44 +1176,139 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void undoTransforms(final ReadOnlyTransform transform) {
-        final RendererRecord matRecord = ContextManager.getCurrentContext().getRendererRecord();
+        if (_cpuMatrices) {
+            // the next draw loads its own modelview, so there is nothing to undo.
+            return;
+        }
+        final RendererRecord matRecord = getFrameRendererRecord();
         AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_MODELVIEW);
         _gl.glPopMatrix();
+        getFrameAndroidRecord().modelViewStack.pop();
+    }
+
+    private float[] getModelMatrix(final ReadOnlyTransform transform) {
+        ModelMatrix cached = _matrices.get(transform);
+        if (cached == null) {
+            if (_matrices.size() >= MAX_CACHED_MATRICES) {
+                _matrices.clear();
+            }
+            cached = new ModelMatrix();
+            _matrices.put(transform, cached);
+        } else if (isUnchanged(transform, cached._source)) {
+            return cached._matrix;
+        }
+
+        final double[] source = cached._source;
+        final ReadOnlyMatrix3 matrix = transform.getMatrix();
+        for (int i = 0; i < 9; i++) {
+            source[i] = matrix.getValue(i / 3, i % 3);
+        }
+        final ReadOnlyVector3 translation = transform.getTranslation();
+        source[9] = translation.getX();
+        source[10] = translation.getY();
+        source[11] = translation.getZ();
+        final ReadOnlyVector3 scale = transform.getScale();
+        source[12] = scale.getX();
+        source[13] = scale.getY();
+        source[14] = scale.getZ();
+
+        _transformBuffer.clear();
+        transform.getGLApplyMatrix(_transformBuffer);
+        _transformBuffer.rewind();
+        _transformBuffer.get(cached._matrix);
+        return cached._matrix;
+    }
+
+    private static boolean isUnchanged(final ReadOnlyTransform transform, final double[] source) {
+        final ReadOnlyMatrix3 matrix = transform.getMatrix();
+        for (int i = 0; i < 9; i++) {
+            if (source[i] != matrix.getValue(i / 3, i % 3)) {
+                return false;
+            }
+        }
+        final ReadOnlyVector3 translation = transform.getTranslation();
+        final ReadOnlyVector3 scale = transform.getScale();
+        return source[9] == translation.getX() && source[10] == translation.getY() && source[11] == translation.getZ()
+                && source[12] == scale.getX() && source[13] == scale.getY() && source[14] == scale.getZ();
+    }
+
+    private void loadViewMatrix() {
+        final RendererRecord matRecord = getFrameRendererRecord();
+        AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_MODELVIEW);
+        _modelViewBuffer.clear();
+        _modelViewBuffer.put(_viewMatrix);
+        _modelViewBuffer.flip();
+        _gl.glLoadMatrixf(_modelViewBuffer);
+        getFrameAndroidRecord().modelViewStack.load(_viewMatrix);
+        _viewMatrixLoaded = true;
     }
 
     public void setupVertexData(final FloatBufferData vertexBufferData) {
+        if (isAdaptiveVBO(vertexBufferData)) {
+            setupVertexDataVBO(vertexBufferData);
+            return;
+        }
+        _quantized[AndroidRendererRecord.POINTER_VERTEX] = null;
         final FloatBuffer vertexBuffer = vertexBufferData != null ? vertexBufferData.getBuffer() : null;
 
         if (vertexBuffer == null) {
-            _gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.VERTEX_ARRAY, GL10.GL_VERTEX_ARRAY, false);
         } else {
-            _gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-            vertexBuffer.rewind();
-            _gl.glVertexPointer(vertexBufferData.getValuesPerTuple(), GL10.GL_FLOAT, 0, vertexBuffer);
+            setClientArrayEnabled(AndroidRendererRecord.VERTEX_ARRAY, GL10.GL_VERTEX_ARRAY, true);
+            final AndroidRendererRecord record = getFrameAndroidRecord();
+            if (!record.isPointerSet(AndroidRendererRecord.POINTER_VERTEX, vertexBuffer, 0,
+                    vertexBufferData.getValuesPerTuple(), 0, 0)) {
+                bindClientArrays(false);
+                vertexBuffer.rewind();
+                _gl.glVertexPointer(vertexBufferData.getValuesPerTuple(), GL10.GL_FLOAT, 0, vertexBuffer);
+            }
         }
     }
 
     public void setupNormalData(final FloatBufferData normalBufferData) {
+        if (isAdaptiveVBO(normalBufferData)) {
+            setupNormalDataVBO(normalBufferData);
+            return;
+        }
+        _quantized[AndroidRendererRecord.POINTER_NORMAL] = null;
         final FloatBuffer normalBuffer = normalBufferData != null ? normalBufferData.getBuffer() : null;
 
         if (normalBuffer == null) {
-            _gl.glDisableClientState(GL10.GL_NORMAL_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.NORMAL_ARRAY, GL10.GL_NORMAL_ARRAY, false);
         } else {
-            _gl.glEnableClientState(GL10.GL_NORMAL_ARRAY);
-            normalBuffer.rewind();
-            _gl.glNormalPointer(GL10.GL_FLOAT, 0, normalBuffer);
+            setClientArrayEnabled(AndroidRendererRecord.NORMAL_ARRAY, GL10.GL_NORMAL_ARRAY, true);
+            final AndroidRendererRecord record = getFrameAndroidRecord();
+            if (!record.isPointerSet(AndroidRendererRecord.POINTER_NORMAL, normalBuffer, 0, 3, 0, 0)) {
+                bindClientArrays(false);
+                normalBuffer.rewind();
+                _gl.glNormalPointer(GL10.GL_FLOAT, 0, normalBuffer);
+            }
         }
     }
 
     public void setupColorData(final FloatBufferData colorBufferData) {
+        if (_bakedColors != null && colorBufferData != _bakedColors) {
+            setupColorData(_bakedColors);
+            return;
+        }
+        if (isAdaptiveVBO(colorBufferData)) {
+            setupColorDataVBO(colorBufferData);
+            return;
+        }
+        _quantized[AndroidRendererRecord.POINTER_COLOR] = null;
         final FloatBuffer colorBuffer = colorBufferData != null ? colorBufferData.getBuffer() : null;
 
         if (colorBuffer == null) {
-            _gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.COLOR_ARRAY, GL10.GL_COLOR_ARRAY, false);
         } else {
-            _gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
-            colorBuffer.rewind();
-            _gl.glColorPointer(colorBufferData.getValuesPerTuple(), GL10.GL_FLOAT, 0, colorBuffer);
+            setClientArrayEnabled(AndroidRendererRecord.COLOR_ARRAY, GL10.GL_COLOR_ARRAY, true);
+            final AndroidRendererRecord record = getFrameAndroidRecord();
+            if (!record.isPointerSet(AndroidRendererRecord.POINTER_COLOR, colorBuffer, 0,
+                    colorBufferData.getValuesPerTuple(), 0, 0)) {
+                bindClientArrays(false);
+                colorBuffer.rewind();
+                _gl.glColorPointer(colorBufferData.getValuesPerTuple(), GL10.GL_FLOAT, 0, colorBuffer);
+            }
         }
     }
 
@@ -689,9 +1329,15 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void setupTextureData(final List<FloatBufferData> textureCoords) {
-        final RenderContext context = ContextManager.getCurrentContext();
+        if (isAdaptiveVBO(textureCoords)) {
+            setupTextureDataVBO(textureCoords);
+            return;
+        }
+        clearQuantized(AndroidRendererRecord.POINTER_TEXCOORD0);
+        final RenderContext context = getFrameContext();
         final ContextCapabilities caps = context.getCapabilities();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        final AndroidRendererRecord androidRecord = getFrameAndroidRecord();
 
         final TextureState ts = (TextureState) context.getCurrentState(RenderState.StateType.Texture);
         int enabledTextures = rendRecord.getEnabledTextures();
@@ -733,9 +1379,12 @@ public class AndroidRenderer extends AbstractRenderer {
                     final FloatBufferData textureBufferData = textureCoords.get(i);
                     final FloatBuffer textureBuffer = textureBufferData != null ? textureBufferData.getBuffer() : null;
 
-                    _gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
-                    textureBuffer.rewind();
-                    _gl.glTexCoordPointer(textureBufferData.getValuesPerTuple(), GL10.GL_FLOAT, 0, textureBuffer);
+                    if (!androidRecord.isPointerSet(AndroidRendererRecord.POINTER_TEXCOORD0 + i, textureBuffer, 0,
+                            textureBufferData.getValuesPerTuple(), 0, 0)) {
+                        bindClientArrays(false);
+                        textureBuffer.rewind();
+                        _gl.glTexCoordPointer(textureBufferData.getValuesPerTuple(), GL10.GL_FLOAT, 0, textureBuffer);
+                    }
                 }
             }
         }
@@ -751,25 +1400,34 @@ public class AndroidRenderer extends AbstractRenderer {
             return;
         }
         if (primcount >= 0) {
-            throw new UnsupportedOperationException("No support for instancing.");
+            drawInstances(indices, null, indexLengths, indexModes, primcount, false);
+            return;
+        }
+        if (_indexOptimizer != null) {
+            final AndroidIndexOptimizer.Result optimized = _indexOptimizer.get(indices, indexLengths, indexModes);
+            if (optimized != null) {
+                drawElements(optimized.getIndices(), null, optimized.getIndexModes(), primcount);
+                return;
+            }
         }
 
+        final int dataFormat = getGLIndexType(indices.getBuffer());
+        if (dataFormat == 0) {
+            bindClientArrays(true);
+            drawPartitions(indices, indexLengths, indexModes, false);
+            return;
+        }
+        if (isAdaptiveVBO(indices)) {
+            drawElementsVBO(indices, indexLengths, indexModes, primcount);
+            return;
+        }
+        bindClientArrays(true);
+
         if (indexLengths == null) {
             final int glIndexMode = getGLIndexMode(indexModes[0]);
 
             indices.position(0);
 
-            int dataFormat;
-            if (indices.getBuffer() instanceof ByteBuffer) {
-                dataFormat = GL10.GL_UNSIGNED_BYTE;
-            } else if (indices.getBuffer() instanceof ShortBuffer) {
-                dataFormat = GL10.GL_UNSIGNED_SHORT;
-            } else {
-                Log.w(AndroidCanvas.TAG, "uh oh... Unable to render mesh with indices buffer of type: "
-                        + indices.getBuffer().getClass());
-                return;
-            }
-
             _gl.glDrawElements(glIndexMode, indices.getBufferLimit(), dataFormat, indices.getBuffer());
 
             if (Constants.stats) {
@@ -786,16 +1444,6 @@ public class AndroidRenderer extends AbstractRenderer {
                 indices.getBuffer().position(offset);
                 indices.getBuffer().limit(offset + count);
 
-                int dataFormat;
-                if (indices.getBuffer() instanceof ByteBuffer) {
-                    dataFormat = GL10.GL_UNSIGNED_BYTE;
-                } else if (indices.getBuffer() instanceof ShortBuffer) {
-                    dataFormat = GL10.GL_UNSIGNED_SHORT;
-                } else {
-                    Log.w(AndroidCanvas.TAG, "Unable to render mesh with indices buffer of type: "
-                            + indices.getBuffer().getClass() + " - section: " + i);
-                    return;
-                }
                 _gl.glDrawElements(glIndexMode, count, dataFormat, indices.getBuffer());
 
                 if (Constants.stats) {
@@ -811,14 +1459,30 @@ public class AndroidRenderer extends AbstractRenderer {
         }
     }
 
-    private int setupVBO(final FloatBufferData data, final RenderContext context, final RendererRecord rendRecord) {
+    protected int setupVBO(final FloatBufferData data, final RenderContext context, final RendererRecord rendRecord) {
         if (data == null) {
             return 0;
         }
+        noteRefreshed(data);
+
+        final AndroidQuantizedAttribute quantized = getQuantization(data);
+        if (quantized != null) {
+            return setupQuantizedVBO(data, quantized, context, rendRecord);
+        }
+        final AndroidVBOArena arena = getVBOArena();
+        final int arenaID = arena != null ? arena.setup(this, data, GL11.GL_ARRAY_BUFFER, 4) : 0;
+        if (arenaID != 0) {
+            return arenaID;
+        }
 
         int vboID = data.getVBOID(context.getGlContextRep());
         if (vboID != 0) {
-            updateVBO(data, rendRecord, vboID, 0);
+            if (data.isNeedsRefresh()) {
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+                // a VBO that held quantized values is too small for the floats.
+                uploadVBO(GL11.GL_ARRAY_BUFFER, vboID, data, 4, 0,
+                        isOrphaned(data) || _quantizedVBOs.remove(data) != null);
+            }
 
             return vboID;
         }
@@ -827,61 +1491,253 @@ public class AndroidRenderer extends AbstractRenderer {
         if (dataBuffer != null) {
             // XXX: should we be rewinding? Maybe make that the programmer's responsibility.
             dataBuffer.rewind();
-            vboID = makeVBOId(rendRecord);
-            data.setVBOID(context.getGlContextRep(), vboID);
-
-            rendRecord.invalidateVBO();
-            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
-            ((GL11) _gl).glBufferData(GL11.GL_ARRAY_BUFFER, dataBuffer.limit() * 4, dataBuffer,
+            vboID = createVBO(rendRecord, GL11.GL_ARRAY_BUFFER, dataBuffer.limit() * 4, dataBuffer,
                     getGLVBOAccessMode(data.getVboAccessMode()));
+            data.setVBOID(context.getGlContextRep(), vboID);
+            clearDirtyRanges(data);
         } else {
             throw new Ardor3dException("Attempting to create a vbo id for a FloatBufferData with no Buffer value.");
         }
         return vboID;
     }
 
-    private void updateVBO(final FloatBufferData data, final RendererRecord rendRecord, final int vboID,
-            final int offsetBytes) {
-        if (data.isNeedsRefresh()) {
-            final FloatBuffer dataBuffer = data.getBuffer();
-            dataBuffer.rewind();
-            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
-            ((GL11) _gl).glBufferSubData(GL11.GL_ARRAY_BUFFER, offsetBytes, dataBuffer.limit() * 4, dataBuffer);
-            data.setNeedsRefresh(false);
-        }
+    /**
+     * @return the compact format to upload the given data in, or null to upload floats.
+     */
+    protected AndroidQuantizedAttribute getQuantization(final FloatBufferData data) {
+        return AndroidQuantizedAttribute.get(data);
     }
 
-    private int setupIndicesVBO(final IndexBufferData<?> data, final RenderContext context,
-            final RendererRecord rendRecord) {
-        if (data == null) {
-            return 0;
-        }
-
+    private int setupQuantizedVBO(final FloatBufferData data, final AndroidQuantizedAttribute quantized,
+            final RenderContext context, final RendererRecord rendRecord) {
         int vboID = data.getVBOID(context.getGlContextRep());
-        if (vboID != 0) {
-            if (data.isNeedsRefresh()) {
-                final Buffer dataBuffer = data.getBuffer();
-                dataBuffer.rewind();
-                AndroidRendererUtil.setBoundElementVBO((GL11) _gl, rendRecord, vboID);
-                ((GL11) _gl).glBufferSubData(GL11.GL_ELEMENT_ARRAY_BUFFER, 0, dataBuffer.limit() * data.getByteCount(),
-                        dataBuffer);
-                data.setNeedsRefresh(false);
-            }
-
+        if (vboID != 0 && !data.isNeedsRefresh()) {
             return vboID;
         }
+        if (data.getBuffer() == null) {
+            throw new Ardor3dException("Attempting to create a vbo id for a FloatBufferData with no Buffer value.");
+        }
 
-        final Buffer dataBuffer = data.getBuffer();
-        if (dataBuffer != null) {
-            // XXX: should we be rewinding? Maybe make that the programmer's responsibility.
-            dataBuffer.rewind();
-            vboID = makeVBOId(rendRecord);
+        final ByteBuffer packed = quantized.pack(data);
+        final int usage = getGLVBOAccessMode(data.getVboAccessMode());
+        if (vboID == 0) {
+            vboID = createVBO(rendRecord, GL11.GL_ARRAY_BUFFER, packed.limit(), packed, usage);
             data.setVBOID(context.getGlContextRep(), vboID);
-
-            rendRecord.invalidateVBO();
-            AndroidRendererUtil.setBoundElementVBO((GL11) _gl, rendRecord, vboID);
-            ((GL11) _gl).glBufferData(GL11.GL_ELEMENT_ARRAY_BUFFER, dataBuffer.limit() * data.getByteCount(),
+        } else {
+            // the bounds, and with them every value, may have changed, so respecify the whole buffer.
+            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+            ((GL11) _gl).glBufferData(GL11.GL_ARRAY_BUFFER, packed.limit(), packed, usage);
+            final AndroidVBOPool pool = getVBOPool();
+            if (pool != null) {
+                pool.allocated(vboID, packed.limit(), usage);
+            }
+        }
+        _quantizedVBOs.put(data, Boolean.TRUE);
+        clearDirtyRanges(data);
+        data.setNeedsRefresh(false);
+        return vboID;
+    }
+
+    private void clearQuantized(final int fromSlot) {
+        for (int slot = fromSlot; slot < AndroidRendererRecord.MAX_POINTERS; slot++) {
+            _quantized[slot] = null;
+        }
+    }
+
+    /**
+     * Apply the scale and bias of quantized positions and texture coordinates through the modelview and texture
+     * matrices.
+     *
+     * @return true if any were applied and need to be undone with {@link #popQuantization()} after drawing.
+     */
+    protected boolean pushQuantization() {
+        boolean pushed = false;
+        for (int slot = 0; slot < AndroidRendererRecord.MAX_POINTERS; slot++) {
+            final AndroidQuantizedAttribute quantized = _quantized[slot];
+            if (quantized == null || !quantized.isScaled()) {
+                continue;
+            }
+            selectQuantizationMatrix(slot);
+            _gl.glPushMatrix();
+            _gl.glTranslatef(quantized.getBias(0), quantized.getBias(1), quantized.getBias(2));
+            _gl.glScalef(quantized.getScale(0), quantized.getScale(1), quantized.getScale(2));
+            if (slot == AndroidRendererRecord.POINTER_VERTEX) {
+                synchronized (_transformMatrix) {
+                    _transformBuffer.clear();
+                    _transformBuffer.put(quantized.getScale(0)).put(0).put(0).put(0);
+                    _transformBuffer.put(0).put(quantized.getScale(1)).put(0).put(0);
+                    _transformBuffer.put(0).put(0).put(quantized.getScale(2)).put(0);
+                    _transformBuffer.put(quantized.getBias(0)).put(quantized.getBias(1)).put(quantized.getBias(2))
+                            .put(1);
+                    _transformBuffer.flip();
+                    final AndroidMatrixStack stack = getFrameAndroidRecord().modelViewStack;
+                    stack.push();
+                    stack.multiply(_transformBuffer);
+                }
+                rescaleQuantizedNormals();
+            }
+            pushed = true;
+        }
+        if (pushed) {
+            AndroidRendererUtil.switchMode(_gl, getFrameRendererRecord(), GL10.GL_MODELVIEW);
+        }
+        return pushed;
+    }
+
+    protected void popQuantization() {
+        for (int slot = 0; slot < AndroidRendererRecord.MAX_POINTERS; slot++) {
+            final AndroidQuantizedAttribute quantized = _quantized[slot];
+            if (quantized == null || !quantized.isScaled()) {
+                continue;
+            }
+            selectQuantizationMatrix(slot);
+            _gl.glPopMatrix();
+            if (slot == AndroidRendererRecord.POINTER_VERTEX) {
+                getFrameAndroidRecord().modelViewStack.pop();
+            }
+        }
+        AndroidRendererUtil.switchMode(_gl, getFrameRendererRecord(), GL10.GL_MODELVIEW);
+    }
+
+    private void selectQuantizationMatrix(final int slot) {
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        if (slot == AndroidRendererRecord.POINTER_VERTEX) {
+            AndroidRendererUtil.switchMode(_gl, rendRecord, GL10.GL_MODELVIEW);
+        } else {
+            final RenderContext context = getFrameContext();
+            final TextureStateRecord texRecord = (TextureStateRecord) context
+                    .getStateRecord(RenderState.StateType.Texture);
+            AndroidTextureStateUtil.checkAndSetUnit(_gl, slot - AndroidRendererRecord.POINTER_TEXCOORD0, texRecord,
+                    context.getCapabilities());
+            AndroidRendererUtil.switchMode(_gl, rendRecord, GL10.GL_TEXTURE);
+        }
+    }
+
+    /**
+     * The position scale also scales normals, so make sure GL brings them back to unit length.
+     */
+    private void rescaleQuantizedNormals() {
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        if ((getFrameAndroidRecord().clientArrays & AndroidRendererRecord.NORMAL_ARRAY) != 0
+                && rendRecord.getNormalMode() == GL10.GL_ZERO) {
+            _gl.glEnable(GL10.GL_RESCALE_NORMAL);
+            rendRecord.setNormalMode(GL10.GL_RESCALE_NORMAL);
+        }
+    }
+
+    private void updateVBO(final FloatBufferData data, final RendererRecord rendRecord, final int vboID,
+            final int offsetBytes) {
+        if (data.isNeedsRefresh()) {
+            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+            uploadVBO(GL11.GL_ARRAY_BUFFER, vboID, data, 4, offsetBytes, false);
+        }
+    }
+
+    /**
+     * Upload refreshed data to its bound VBO. Orphaning respecifies the whole buffer with glBufferData, so the driver
+     * can hand out fresh storage rather than wait for draws still reading the old contents. Otherwise only the ranges
+     * marked in {@link AndroidDirtyRanges}, or the whole buffer if none were, are uploaded with glBufferSubData.
+     *
+     * @param elementBytes
+     *            the size of one element of the data's buffer.
+     * @param offsetBytes
+     *            where the data starts in the VBO. Must be 0 when orphaning.
+     */
+    protected void uploadVBO(final int target, final int vboID, final AbstractBufferData<?> data,
+            final int elementBytes, final int offsetBytes, final boolean orphan) {
+        final Buffer dataBuffer = data.getBuffer();
+        dataBuffer.rewind();
+        final int limit = dataBuffer.limit();
+        final AndroidDirtyRanges ranges = AndroidDirtyRanges.get(data);
+
+        if (orphan) {
+            final int usage = getGLVBOAccessMode(data.getVboAccessMode());
+            ((GL11) _gl).glBufferData(target, limit * elementBytes, dataBuffer, usage);
+            final AndroidVBOPool pool = getVBOPool();
+            if (pool != null) {
+                pool.allocated(vboID, limit * elementBytes, usage);
+            }
+            clearDirtyRanges(data);
+        } else if (ranges == null) {
+            ((GL11) _gl).glBufferSubData(target, offsetBytes, limit * elementBytes, dataBuffer);
+        } else {
+            synchronized (ranges) {
+                if (ranges.isAll()) {
+                    ((GL11) _gl).glBufferSubData(target, offsetBytes, limit * elementBytes, dataBuffer);
+                } else {
+                    for (int i = 0, max = ranges.getCount(); i < max; i++) {
+                        final int start = Math.min(ranges.getStart(i), limit);
+                        final int end = Math.min(ranges.getEnd(i), limit);
+                        if (start < end) {
+                            dataBuffer.limit(end).position(start);
+                            ((GL11) _gl).glBufferSubData(target, offsetBytes + start * elementBytes, (end - start)
+                                    * elementBytes, dataBuffer);
+                        }
+                    }
+                    dataBuffer.limit(limit).rewind();
+                }
+                ranges.clear();
+            }
+        }
+        data.setNeedsRefresh(false);
+    }
+
+    /**
+     * @return true if refreshed data should orphan its VBO: only for StreamDraw data with no dirty ranges marked, or
+     *         with ranges covering more than half of it. Fewer changes are cheaper to upload in place.
+     */
+    protected boolean isOrphaned(final AbstractBufferData<?> data) {
+        if (data.getVboAccessMode() != VBOAccessMode.StreamDraw) {
+            return false;
+        }
+        final AndroidDirtyRanges ranges = AndroidDirtyRanges.get(data);
+        if (ranges == null) {
+            return true;
+        }
+        synchronized (ranges) {
+            return ranges.isAll() || ranges.getDirtyElements() * 2 > data.getBuffer().limit();
+        }
+    }
+
+    private void clearDirtyRanges(final AbstractBufferData<?> data) {
+        final AndroidDirtyRanges ranges = AndroidDirtyRanges.get(data);
+        if (ranges != null) {
+            synchronized (ranges) {
+                ranges.clear();
+            }
+        }
+    }
+
+    protected int setupIndicesVBO(final IndexBufferData<?> data, final RenderContext context,
+            final RendererRecord rendRecord) {
+        if (data == null) {
+            return 0;
+        }
+        final AndroidVBOArena arena = getVBOArena();
+        final int arenaID = arena != null ? arena.setup(this, data, GL11.GL_ELEMENT_ARRAY_BUFFER, data.getByteCount())
+                : 0;
+        if (arenaID != 0) {
+            return arenaID;
+        }
+
+        int vboID = data.getVBOID(context.getGlContextRep());
+        if (vboID != 0) {
+            if (data.isNeedsRefresh()) {
+                AndroidRendererUtil.setBoundElementVBO((GL11) _gl, rendRecord, vboID);
+                uploadVBO(GL11.GL_ELEMENT_ARRAY_BUFFER, vboID, data, data.getByteCount(), 0, isOrphaned(data));
+            }
+
+            return vboID;
+        }
+
+        final Buffer dataBuffer = data.getBuffer();
+        if (dataBuffer != null) {
+            // XXX: should we be rewinding? Maybe make that the programmer's responsibility.
+            dataBuffer.rewind();
+            vboID = createVBO(rendRecord, GL11.GL_ELEMENT_ARRAY_BUFFER, dataBuffer.limit() * data.getByteCount(),
                     dataBuffer, getGLVBOAccessMode(data.getVboAccessMode()));
+            data.setVBOID(context.getGlContextRep(), vboID);
+            clearDirtyRanges(data);
         } else {
             throw new Ardor3dException("Attempting to create a vbo id for a IndexBufferData with no Buffer value.");
         }
@@ -889,55 +1745,85 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void setupVertexDataVBO(final FloatBufferData data) {
-        final RenderContext context = ContextManager.getCurrentContext();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
 
         final int vboID = setupVBO(data, context, rendRecord);
+        final AndroidQuantizedAttribute quantized = vboID != 0 ? getQuantization(data) : null;
+        _quantized[AndroidRendererRecord.POINTER_VERTEX] = quantized;
 
         if (vboID != 0) {
-            _gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
-            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
-            ((GL11) _gl).glVertexPointer(data.getValuesPerTuple(), GL10.GL_FLOAT, 0, 0);
+            setClientArrayEnabled(AndroidRendererRecord.VERTEX_ARRAY, GL10.GL_VERTEX_ARRAY, true);
+            final int size = quantized != null ? quantized.getSize() : data.getValuesPerTuple();
+            final int stride = quantized != null ? quantized.getStride() : 0;
+            final int offset = getVBOOffset(data);
+            if (!getFrameAndroidRecord().isPointerSet(AndroidRendererRecord.POINTER_VERTEX, null, vboID, size,
+                    stride, offset)) {
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+                ((GL11) _gl).glVertexPointer(size, quantized != null ? quantized.getGLType() : GL10.GL_FLOAT,
+                        stride, offset);
+            }
         } else {
-            _gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.VERTEX_ARRAY, GL10.GL_VERTEX_ARRAY, false);
             AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, 0);
         }
     }
 
     public void setupNormalDataVBO(final FloatBufferData data) {
-        final RenderContext context = ContextManager.getCurrentContext();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
 
         final int vboID = setupVBO(data, context, rendRecord);
+        final AndroidQuantizedAttribute quantized = vboID != 0 ? getQuantization(data) : null;
+        _quantized[AndroidRendererRecord.POINTER_NORMAL] = quantized;
 
         if (vboID != 0) {
-            _gl.glEnableClientState(GL10.GL_NORMAL_ARRAY);
-            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
-            ((GL11) _gl).glNormalPointer(GL10.GL_FLOAT, 0, 0);
+            setClientArrayEnabled(AndroidRendererRecord.NORMAL_ARRAY, GL10.GL_NORMAL_ARRAY, true);
+            final int stride = quantized != null ? quantized.getStride() : 0;
+            final int offset = getVBOOffset(data);
+            if (!getFrameAndroidRecord().isPointerSet(AndroidRendererRecord.POINTER_NORMAL, null, vboID, 3, stride,
+                    offset)) {
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+                ((GL11) _gl).glNormalPointer(quantized != null ? quantized.getGLType() : GL10.GL_FLOAT, stride,
+                        offset);
+            }
         } else {
-            _gl.glDisableClientState(GL10.GL_NORMAL_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.NORMAL_ARRAY, GL10.GL_NORMAL_ARRAY, false);
             AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, 0);
         }
     }
 
     public void setupColorDataVBO(final FloatBufferData data) {
-        final RenderContext context = ContextManager.getCurrentContext();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        if (_bakedColors != null && data != _bakedColors) {
+            setupColorDataVBO(_bakedColors);
+            return;
+        }
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
 
         final int vboID = setupVBO(data, context, rendRecord);
+        final AndroidQuantizedAttribute quantized = vboID != 0 ? getQuantization(data) : null;
+        _quantized[AndroidRendererRecord.POINTER_COLOR] = quantized;
 
         if (vboID != 0) {
-            _gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
-            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
-            ((GL11) _gl).glColorPointer(data.getValuesPerTuple(), GL10.GL_FLOAT, 0, 0);
+            setClientArrayEnabled(AndroidRendererRecord.COLOR_ARRAY, GL10.GL_COLOR_ARRAY, true);
+            final int size = quantized != null ? quantized.getSize() : data.getValuesPerTuple();
+            final int stride = quantized != null ? quantized.getStride() : 0;
+            final int offset = getVBOOffset(data);
+            if (!getFrameAndroidRecord().isPointerSet(AndroidRendererRecord.POINTER_COLOR, null, vboID, size,
+                    stride, offset)) {
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+                ((GL11) _gl).glColorPointer(size, quantized != null ? quantized.getGLType() : GL10.GL_FLOAT, stride,
+                        offset);
+            }
         } else {
-            _gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.COLOR_ARRAY, GL10.GL_COLOR_ARRAY, false);
             AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, 0);
         }
     }
 
     public void setupFogDataVBO(final FloatBufferData data) {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         final ContextCapabilities caps = context.getCapabilities();
 
         if (!caps.isFogCoordinatesSupported()) {
@@ -945,7 +1831,7 @@ public class AndroidRenderer extends AbstractRenderer {
         }
 
         // Not supported
-        // final RendererRecord rendRecord = context.getRendererRecord();
+        // final RendererRecord rendRecord = getFrameRendererRecord();
         // final int vboID = setupVBO(data, context, rendRecord);
         //
         // if (vboID != 0) {
@@ -959,8 +1845,11 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void setupTextureDataVBO(final List<FloatBufferData> textureCoords) {
-        final RenderContext context = ContextManager.getCurrentContext();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        clearQuantized(AndroidRendererRecord.POINTER_TEXCOORD0);
+
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        final AndroidRendererRecord androidRecord = getFrameAndroidRecord();
         final ContextCapabilities caps = context.getCapabilities();
 
         final TextureState ts = (TextureState) context.getCurrentState(RenderState.StateType.Texture);
@@ -994,6 +1883,8 @@ public class AndroidRenderer extends AbstractRenderer {
                     // grab a vboID and make sure it exists and is up to date.
                     final FloatBufferData data = textureCoords.get(i);
                     final int vboID = setupVBO(data, context, rendRecord);
+                    final AndroidQuantizedAttribute quantized = vboID != 0 ? getQuantization(data) : null;
+                    _quantized[AndroidRendererRecord.POINTER_TEXCOORD0 + i] = quantized;
 
                     // Found good vbo
                     if (vboID != 0) {
@@ -1005,11 +1896,17 @@ public class AndroidRenderer extends AbstractRenderer {
                             _gl.glEnableClientState(GL10.GL_TEXTURE_COORD_ARRAY);
                         }
 
-                        // set our active vbo
-                        AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+                        final int stride = quantized != null ? quantized.getStride() : 0;
+                        final int offset = getVBOOffset(data);
+                        if (!androidRecord.isPointerSet(AndroidRendererRecord.POINTER_TEXCOORD0 + i, null, vboID,
+                                data.getValuesPerTuple(), stride, offset)) {
+                            // set our active vbo
+                            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
 
-                        // send data
-                        ((GL11) _gl).glTexCoordPointer(data.getValuesPerTuple(), GL10.GL_FLOAT, 0, 0);
+                            // send data
+                            ((GL11) _gl).glTexCoordPointer(data.getValuesPerTuple(), quantized != null ? quantized
+                                    .getGLType() : GL10.GL_FLOAT, stride, offset);
+                        }
                     }
                     // Not a good vbo, disable it.
                     else {
@@ -1035,58 +1932,67 @@ public class AndroidRenderer extends AbstractRenderer {
     public void setupInterleavedDataVBO(final FloatBufferData interleaved, final FloatBufferData vertexCoords,
             final FloatBufferData normalCoords, final FloatBufferData colorCoords,
             final List<FloatBufferData> textureCoords) {
-        final RenderContext context = ContextManager.getCurrentContext();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        clearQuantized(AndroidRendererRecord.POINTER_VERTEX);
+
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        final AndroidRendererRecord androidRecord = getFrameAndroidRecord();
         final ContextCapabilities caps = context.getCapabilities();
 
-        final int lengthBytes = getTotalInterleavedSize(context, vertexCoords, normalCoords, colorCoords, textureCoords);
-        int currLengthBytes = 0;
-        if (interleaved.getBufferLimit() > 0) {
-            interleaved.getBuffer().rewind();
-            currLengthBytes = Math.round(interleaved.getBuffer().get());
+        final TextureState ts = (TextureState) context.getCurrentState(RenderState.StateType.Texture);
+        final int maxUnits = caps.isMultitextureSupported() ? Math.min(caps.getNumberOfFragmentTexCoordUnits(),
+                TextureState.MAX_TEXTURES) : 1;
+        final int textureUnits = ts != null ? Math.min(maxUnits, ts.getMaxTextureIndexUsed() + 1) : 0;
+        noteRefreshed(vertexCoords);
+        noteRefreshed(normalCoords);
+        noteRefreshed(colorCoords);
+        if (textureCoords != null) {
+            for (final FloatBufferData coords : textureCoords) {
+                noteRefreshed(coords);
+            }
         }
+        _interleavedScratch.compute(vertexCoords, normalCoords, colorCoords, textureCoords, textureUnits);
 
-        if (lengthBytes != currLengthBytes || interleaved.getVBOID(context.getGlContextRep()) <= 0
-                || interleaved.isNeedsRefresh()) {
-            initializeInterleavedVBO(context, interleaved, vertexCoords, normalCoords, colorCoords, textureCoords,
-                    lengthBytes);
-        }
+        final AndroidInterleavedLayout layout = updateInterleavedVBO(context, rendRecord, interleaved, vertexCoords,
+                normalCoords, colorCoords, textureCoords);
 
         final int vboID = interleaved.getVBOID(context.getGlContextRep());
         AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
 
-        int offsetBytes = 0;
+        final int stride = layout.getStride() * 4;
+        int offsetBytes;
 
-        if (normalCoords != null) {
-            updateVBO(normalCoords, rendRecord, vboID, offsetBytes);
-            ((GL11) _gl).glNormalPointer(GL10.GL_FLOAT, 0, offsetBytes);
-            _gl.glEnableClientState(GL10.GL_NORMAL_ARRAY);
-            offsetBytes += normalCoords.getBufferLimit() * 4;
+        if (layout.has(AndroidInterleavedLayout.NORMAL)) {
+            offsetBytes = layout.getOffset(AndroidInterleavedLayout.NORMAL) * 4;
+            if (!androidRecord.isPointerSet(AndroidRendererRecord.POINTER_NORMAL, null, vboID, 3, stride,
+                    offsetBytes)) {
+                ((GL11) _gl).glNormalPointer(GL10.GL_FLOAT, stride, offsetBytes);
+            }
+            setClientArrayEnabled(AndroidRendererRecord.NORMAL_ARRAY, GL10.GL_NORMAL_ARRAY, true);
         } else {
-            _gl.glDisableClientState(GL10.GL_NORMAL_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.NORMAL_ARRAY, GL10.GL_NORMAL_ARRAY, false);
         }
 
-        if (colorCoords != null) {
-            updateVBO(colorCoords, rendRecord, vboID, offsetBytes);
-            ((GL11) _gl).glColorPointer(colorCoords.getValuesPerTuple(), GL10.GL_FLOAT, 0, offsetBytes);
-            _gl.glEnableClientState(GL10.GL_COLOR_ARRAY);
-            offsetBytes += colorCoords.getBufferLimit() * 4;
+        if (layout.has(AndroidInterleavedLayout.COLOR)) {
+            final int size = layout.getSize(AndroidInterleavedLayout.COLOR);
+            offsetBytes = layout.getOffset(AndroidInterleavedLayout.COLOR) * 4;
+            if (!androidRecord.isPointerSet(AndroidRendererRecord.POINTER_COLOR, null, vboID, size, stride,
+                    offsetBytes)) {
+                ((GL11) _gl).glColorPointer(size, GL10.GL_FLOAT, stride, offsetBytes);
+            }
+            setClientArrayEnabled(AndroidRendererRecord.COLOR_ARRAY, GL10.GL_COLOR_ARRAY, true);
         } else {
-            _gl.glDisableClientState(GL10.GL_COLOR_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.COLOR_ARRAY, GL10.GL_COLOR_ARRAY, false);
         }
 
         if (textureCoords != null) {
-            final TextureState ts = (TextureState) context.getCurrentState(RenderState.StateType.Texture);
             int enabledTextures = rendRecord.getEnabledTextures();
             final boolean valid = rendRecord.isTexturesValid();
             boolean exists, wasOn;
             if (ts != null) {
-                final int max = caps.isMultitextureSupported() ? Math.min(caps.getNumberOfFragmentTexCoordUnits(),
-                        TextureState.MAX_TEXTURES) : 1;
-                for (int i = 0; i < max; i++) {
+                for (int i = 0; i < maxUnits; i++) {
                     wasOn = (enabledTextures & 2 << i) != 0;
-                    exists = i < textureCoords.size() && textureCoords.get(i) != null
-                            && i <= ts.getMaxTextureIndexUsed();
+                    exists = layout.has(AndroidInterleavedLayout.TEXCOORD0 + i);
 
                     if (!exists) {
                         if (valid && !wasOn) {
@@ -1107,10 +2013,6 @@ public class AndroidRenderer extends AbstractRenderer {
 
                     checkAndSetTextureArrayUnit(i, rendRecord, caps);
 
-                    // grab a vboID and make sure it exists and is up to date.
-                    final FloatBufferData textureBufferData = textureCoords.get(i);
-                    updateVBO(textureBufferData, rendRecord, vboID, offsetBytes);
-
                     if (!valid || !wasOn) {
                         // enable bit in tracking int
                         enabledTextures |= 2 << i;
@@ -1120,9 +2022,12 @@ public class AndroidRenderer extends AbstractRenderer {
                     }
 
                     // send data
-                    ((GL11) _gl)
-                            .glTexCoordPointer(textureBufferData.getValuesPerTuple(), GL10.GL_FLOAT, 0, offsetBytes);
-                    offsetBytes += textureBufferData.getBufferLimit() * 4;
+                    final int size = layout.getSize(AndroidInterleavedLayout.TEXCOORD0 + i);
+                    offsetBytes = layout.getOffset(AndroidInterleavedLayout.TEXCOORD0 + i) * 4;
+                    if (!androidRecord.isPointerSet(AndroidRendererRecord.POINTER_TEXCOORD0 + i, null, vboID, size,
+                            stride, offsetBytes)) {
+                        ((GL11) _gl).glTexCoordPointer(size, GL10.GL_FLOAT, stride, offsetBytes);
+                    }
                 }
             }
 
@@ -1130,102 +2035,179 @@ public class AndroidRenderer extends AbstractRenderer {
             rendRecord.setTexturesValid(true);
         }
 
-        if (vertexCoords != null) {
-            updateVBO(vertexCoords, rendRecord, vboID, offsetBytes);
-            ((GL11) _gl).glVertexPointer(vertexCoords.getValuesPerTuple(), GL10.GL_FLOAT, 0, offsetBytes);
-            _gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
+        if (layout.has(AndroidInterleavedLayout.VERTEX)) {
+            final int size = layout.getSize(AndroidInterleavedLayout.VERTEX);
+            offsetBytes = layout.getOffset(AndroidInterleavedLayout.VERTEX) * 4;
+            if (!androidRecord.isPointerSet(AndroidRendererRecord.POINTER_VERTEX, null, vboID, size, stride,
+                    offsetBytes)) {
+                ((GL11) _gl).glVertexPointer(size, GL10.GL_FLOAT, stride, offsetBytes);
+            }
+            setClientArrayEnabled(AndroidRendererRecord.VERTEX_ARRAY, GL10.GL_VERTEX_ARRAY, true);
         } else {
-            _gl.glDisableClientState(GL10.GL_VERTEX_ARRAY);
+            setClientArrayEnabled(AndroidRendererRecord.VERTEX_ARRAY, GL10.GL_VERTEX_ARRAY, false);
         }
 
         AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, 0);
     }
 
-    private void initializeInterleavedVBO(final RenderContext context, final FloatBufferData interleaved,
-            final FloatBufferData vertexCoords, final FloatBufferData normalCoords, final FloatBufferData colorCoords,
-            final List<FloatBufferData> textureCoords, final int bufferSize) {
+    private void noteRefreshed(final FloatBufferData data) {
+        if (data != null && data.isNeedsRefresh()) {
+            _instancing.refreshed(data);
+        }
+    }
 
-        // keep around buffer size
-        if (interleaved.getBufferCapacity() != 1) {
-            final FloatBuffer buffer = BufferUtils.createFloatBufferOnHeap(1);
-            interleaved.setBuffer(buffer);
+    /**
+     * Make sure the interleaved VBO holds the current data in the layout held in {@link #_interleavedScratch}. The
+     * interleaved data's own buffer is used as the staging copy: it is packed whole when the layout changes, and
+     * afterwards only the vertices of refreshed attributes are repacked and uploaded, reusing the same VBO.
+     *
+     * @return the layout of the VBO.
+     */
+    private AndroidInterleavedLayout updateInterleavedVBO(final RenderContext context,
+            final RendererRecord rendRecord, final FloatBufferData interleaved, final FloatBufferData vertexCoords,
+            final FloatBufferData normalCoords, final FloatBufferData colorCoords,
+            final List<FloatBufferData> textureCoords) {
+        AndroidInterleavedLayout layout = _layouts.get(interleaved);
+        if (layout == null) {
+            layout = new AndroidInterleavedLayout();
+            _layouts.put(interleaved, layout);
         }
-        interleaved.getBuffer().rewind();
-        interleaved.getBuffer().put(bufferSize);
 
-        final RendererRecord rendRecord = context.getRendererRecord();
-        final ContextCapabilities caps = context.getCapabilities();
+        int vboID = interleaved.getVBOID(context.getGlContextRep());
+        FloatBuffer store = interleaved.getBuffer();
+        final int floats = _interleavedScratch.getFloatCount();
 
-        final int vboID = makeVBOId(rendRecord);
-        interleaved.setVBOID(context.getGlContextRep(), vboID);
+        if (vboID <= 0 || store == null || interleaved.isNeedsRefresh() || !layout.matches(_interleavedScratch)) {
+            final boolean sameSize = store != null && store.limit() == floats;
+            layout.set(_interleavedScratch);
 
-        rendRecord.invalidateVBO();
-        AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
-        ((GL11) _gl).glBufferData(GL11.GL_ARRAY_BUFFER, bufferSize, null,
-                getGLVBOAccessMode(interleaved.getVboAccessMode()));
-
-        int offsetBytes = 0;
-        if (normalCoords != null) {
-            normalCoords.getBuffer().rewind();
-            ((GL11) _gl).glBufferSubData(GL11.GL_ARRAY_BUFFER, offsetBytes, normalCoords.getBufferLimit() * 4,
-                    normalCoords.getBuffer());
-            offsetBytes += normalCoords.getBufferLimit() * 4;
-        }
-        if (colorCoords != null) {
-            colorCoords.getBuffer().rewind();
-            ((GL11) _gl).glBufferSubData(GL11.GL_ARRAY_BUFFER, offsetBytes, colorCoords.getBufferLimit() * 4,
-                    colorCoords.getBuffer());
-            offsetBytes += colorCoords.getBufferLimit() * 4;
-        }
-        if (textureCoords != null) {
-            final TextureState ts = (TextureState) context.getCurrentState(RenderState.StateType.Texture);
-            if (ts != null) {
-                for (int i = 0; i <= ts.getMaxTextureIndexUsed() && i < caps.getNumberOfFragmentTexCoordUnits(); i++) {
-                    if (textureCoords == null || i >= textureCoords.size()) {
-                        continue;
-                    }
+            if (store == null || store.capacity() < floats || !store.isDirect()) {
+                store = BufferUtils.createFloatBuffer(floats);
+                interleaved.setBuffer(store);
+            }
+            store.clear().limit(floats);
+            final int count = layout.getVertexCount();
+            packInterleaved(layout, AndroidInterleavedLayout.VERTEX, vertexCoords, store, 0, count);
+            packInterleaved(layout, AndroidInterleavedLayout.NORMAL, normalCoords, store, 0, count);
+            packInterleaved(layout, AndroidInterleavedLayout.COLOR, colorCoords, store, 0, count);
+            for (int i = 0; i < TextureState.MAX_TEXTURES && textureCoords != null && i < textureCoords.size(); i++) {
+                packInterleaved(layout, AndroidInterleavedLayout.TEXCOORD0 + i, textureCoords.get(i), store, 0, count);
+            }
 
-                    final FloatBufferData textureBufferData = textureCoords.get(i);
-                    final FloatBuffer textureBuffer = textureBufferData != null ? textureBufferData.getBuffer() : null;
-                    if (textureBuffer != null) {
-                        textureBuffer.rewind();
-                        ((GL11) _gl).glBufferSubData(GL11.GL_ARRAY_BUFFER, offsetBytes,
-                                textureBufferData.getBufferLimit() * 4, textureBuffer);
-                        offsetBytes += textureBufferData.getBufferLimit() * 4;
-                    }
+            if (vboID > 0 && sameSize) {
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+                ((GL11) _gl).glBufferSubData(GL11.GL_ARRAY_BUFFER, 0, floats * 4, store);
+            } else {
+                if (vboID > 0) {
+                    deleteVBOs(interleaved);
                 }
+                vboID = createVBO(rendRecord, GL11.GL_ARRAY_BUFFER, floats * 4, store,
+                        getGLVBOAccessMode(interleaved.getVboAccessMode()));
+                interleaved.setVBOID(context.getGlContextRep(), vboID);
             }
+            interleaved.setNeedsRefresh(false);
+            return layout;
+        }
+
+        // repack refreshed attributes in place, then upload the span of vertices they touched.
+        _dirtyFrom = Integer.MAX_VALUE;
+        _dirtyTo = 0;
+        repackInterleaved(layout, AndroidInterleavedLayout.VERTEX, vertexCoords, store);
+        repackInterleaved(layout, AndroidInterleavedLayout.NORMAL, normalCoords, store);
+        repackInterleaved(layout, AndroidInterleavedLayout.COLOR, colorCoords, store);
+        for (int i = 0; i < TextureState.MAX_TEXTURES && textureCoords != null && i < textureCoords.size(); i++) {
+            repackInterleaved(layout, AndroidInterleavedLayout.TEXCOORD0 + i, textureCoords.get(i), store);
+        }
+        if (_dirtyFrom < _dirtyTo) {
+            final int stride = layout.getStride();
+            store.limit(_dirtyTo * stride).position(_dirtyFrom * stride);
+            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+            ((GL11) _gl).glBufferSubData(GL11.GL_ARRAY_BUFFER, _dirtyFrom * stride * 4, (_dirtyTo - _dirtyFrom)
+                    * stride * 4, store);
+            store.limit(floats).rewind();
         }
-        if (vertexCoords != null) {
-            vertexCoords.getBuffer().rewind();
-            ((GL11) _gl).glBufferSubData(GL11.GL_ARRAY_BUFFER, offsetBytes, vertexCoords.getBufferLimit() * 4,
-                    vertexCoords.getBuffer());
+        return layout;
+    }
+
+    private void packInterleaved(final AndroidInterleavedLayout layout, final int attribute,
+            final FloatBufferData data, final FloatBuffer store, final int from, final int to) {
+        if (data != null && layout.has(attribute)) {
+            layout.pack(attribute, data, store, from, to);
+            data.setNeedsRefresh(false);
+            clearDirtyRanges(data);
         }
+    }
 
-        interleaved.setNeedsRefresh(false);
+    /**
+     * Repack the vertices of a refreshed attribute marked in {@link AndroidDirtyRanges}, or all of them if none were,
+     * widening the dirty vertex span.
+     */
+    private void repackInterleaved(final AndroidInterleavedLayout layout, final int attribute,
+            final FloatBufferData data, final FloatBuffer store) {
+        if (data == null || !data.isNeedsRefresh() || !layout.has(attribute)) {
+            return;
+        }
+        final int size = layout.getSize(attribute);
+        final AndroidDirtyRanges ranges = AndroidDirtyRanges.get(data);
+        if (ranges != null) {
+            synchronized (ranges) {
+                if (!ranges.isAll()) {
+                    for (int i = 0, max = ranges.getCount(); i < max; i++) {
+                        final int from = ranges.getStart(i) / size;
+                        final int to = Math.min((ranges.getEnd(i) + size - 1) / size, layout.getVertexCount());
+                        layout.pack(attribute, data, store, from, to);
+                        _dirtyFrom = Math.min(_dirtyFrom, from);
+                        _dirtyTo = Math.max(_dirtyTo, to);
+                    }
+                    ranges.clear();
+                    data.setNeedsRefresh(false);
+                    return;
+                }
+                ranges.clear();
+            }
+        }
+        layout.pack(attribute, data, store, 0, layout.getVertexCount());
+        _dirtyFrom = 0;
+        _dirtyTo = layout.getVertexCount();
+        data.setNeedsRefresh(false);
     }
 
     public void drawElementsVBO(final IndexBufferData<?> indices, final int[] indexLengths,
             final IndexMode[] indexModes, final int primcount) {
         if (primcount >= 0) {
-            throw new UnsupportedOperationException("No support for instancing.");
+            drawInstances(indices, null, indexLengths, indexModes, primcount, true);
+            return;
+        }
+        if (_indexOptimizer != null) {
+            final AndroidIndexOptimizer.Result optimized = _indexOptimizer.get(indices, indexLengths, indexModes);
+            if (optimized != null) {
+                drawElementsVBO(optimized.getIndices(), null, optimized.getIndexModes(), primcount);
+                return;
+            }
         }
 
-        final RenderContext context = ContextManager.getCurrentContext();
-        final RendererRecord rendRecord = context.getRendererRecord();
+        final boolean quantized = pushQuantization();
+        final int dataFormat = getGLIndexType(indices.getBuffer());
+        if (dataFormat == 0) {
+            drawPartitions(indices, indexLengths, indexModes, true);
+            if (quantized) {
+                popQuantization();
+            }
+            return;
+        }
+
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
 
         final int vboID = setupIndicesVBO(indices, context, rendRecord);
+        final int baseOffset = getVBOOffset(indices);
 
         AndroidRendererUtil.setBoundElementVBO((GL11) _gl, rendRecord, vboID);
 
         if (indexLengths == null) {
             final int glIndexMode = getGLIndexMode(indexModes[0]);
 
-            if (indices.getBuffer() instanceof ByteBuffer) {
-                ((GL11) _gl).glDrawElements(glIndexMode, indices.getBufferLimit(), GL10.GL_UNSIGNED_BYTE, 0);
-            } else {
-                ((GL11) _gl).glDrawElements(glIndexMode, indices.getBufferLimit(), GL10.GL_UNSIGNED_SHORT, 0);
-            }
+            ((GL11) _gl).glDrawElements(glIndexMode, indices.getBufferLimit(), dataFormat, baseOffset);
             if (Constants.stats) {
                 addStats(indexModes[0], indices.getBufferLimit());
             }
@@ -1238,11 +2220,8 @@ public class AndroidRenderer extends AbstractRenderer {
                 final int glIndexMode = getGLIndexMode(indexModes[indexModeCounter]);
 
                 // offset in this call is done in bytes.
-                if (indices.getBuffer() instanceof ByteBuffer) {
-                    ((GL11) _gl).glDrawElements(glIndexMode, count, GL10.GL_UNSIGNED_BYTE, offset);
-                } else {
-                    ((GL11) _gl).glDrawElements(glIndexMode, count, GL10.GL_UNSIGNED_SHORT, offset * 2);
-                }
+                ((GL11) _gl).glDrawElements(glIndexMode, count, dataFormat, baseOffset + offset
+                        * indices.getByteCount());
 
                 if (Constants.stats) {
                     addStats(indexModes[indexModeCounter], count);
@@ -1255,13 +2234,181 @@ public class AndroidRenderer extends AbstractRenderer {
                 }
             }
         }
+        if (quantized) {
+            popQuantization();
+        }
+    }
+
+    /**
+     * @return the GL type of the given indices, or 0 for int indices that have to be split into 16 bit partitions
+     *         because GL_OES_element_index_uint is not available.
+     */
+    protected int getGLIndexType(final Buffer indices) {
+        if (indices instanceof ByteBuffer) {
+            return GL10.GL_UNSIGNED_BYTE;
+        } else if (indices instanceof ShortBuffer) {
+            return GL10.GL_UNSIGNED_SHORT;
+        }
+        final ContextCapabilities caps = getFrameContext().getCapabilities();
+        if (caps instanceof AndroidContextCapabilities
+                && ((AndroidContextCapabilities) caps).isElementIndexUintSupported()) {
+            return GLES20.GL_UNSIGNED_INT;
+        }
+        return 0;
+    }
+
+    /**
+     * Draw int indices through their {@link AndroidIndexPartitions}, offsetting the vertex arrays to each partition's
+     * base vertex. Nothing is drawn until the partitions were converted in the background.
+     */
+    protected void drawPartitions(final IndexBufferData<?> indices, final int[] indexLengths,
+            final IndexMode[] indexModes, final boolean useVBO) {
+        if (indices.isNeedsRefresh()) {
+            // the int data itself is never uploaded, so the flag is ours to clear.
+            AndroidIndexPartitions.invalidate(indices);
+            indices.setNeedsRefresh(false);
+        }
+        final AndroidIndexPartitions partitions = AndroidIndexPartitions.get(indices, indexLengths, indexModes);
+        if (partitions == null) {
+            if (_compilingList != null) {
+                _compilingList._incomplete = true;
+            }
+            return;
+        }
+
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        System.arraycopy(record.pointerOffsets, 0, _partitionBaseOffsets, 0, AndroidRendererRecord.MAX_POINTERS);
+        final long pointers = record.pointersValid;
+
+        final ShortBuffer buffer = partitions.getIndices().getBuffer();
+        int baseOffset = 0;
+        if (useVBO) {
+            final int vboID = setupIndicesVBO(partitions.getIndices(), context, rendRecord);
+            baseOffset = getVBOOffset(partitions.getIndices());
+            AndroidRendererUtil.setBoundElementVBO((GL11) _gl, rendRecord, vboID);
+        }
+
+        for (int i = 0, max = partitions.getPartitionCount(); i < max; i++) {
+            if (!offsetVertexArrays(partitions.getBaseVertex(i), pointers)) {
+                if (_warnedPartitions.put(indices, Boolean.TRUE) == null) {
+                    Log.w(AndroidCanvas.TAG, "AndroidRenderer.drawPartitions - unable to offset the vertex arrays,"
+                            + " int indices can not be drawn.");
+                }
+                return;
+            }
+
+            final int glIndexMode = getGLIndexMode(partitions.getMode(i));
+            final int offset = partitions.getOffset(i);
+            final int count = partitions.getCount(i);
+            if (useVBO) {
+                ((GL11) _gl).glDrawElements(glIndexMode, count, GL10.GL_UNSIGNED_SHORT, baseOffset + offset * 2);
+            } else {
+                buffer.limit(offset + count).position(offset);
+                _gl.glDrawElements(glIndexMode, count, GL10.GL_UNSIGNED_SHORT, buffer);
+            }
+
+            if (Constants.stats) {
+                addStats(partitions.getMode(i), count);
+            }
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Point the enabled vertex arrays at the given vertex, relative to where they were set up for the current mesh.
+     *
+     * @param pointers
+     *            the pointers valid when the mesh was set up; their offsets must be in {@link #_partitionBaseOffsets}.
+     * @return false if the arrays can not be offset.
+     */
+    protected boolean offsetVertexArrays(final int baseVertex, final long pointers) {
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        final ContextCapabilities caps = getFrameContext().getCapabilities();
+        final int enabledTextures = rendRecord.getEnabledTextures();
+
+        for (int slot = 0; slot < AndroidRendererRecord.MAX_POINTERS; slot++) {
+            final boolean enabled;
+            if (slot == AndroidRendererRecord.POINTER_VERTEX) {
+                enabled = (record.clientArrays & AndroidRendererRecord.VERTEX_ARRAY) != 0;
+            } else if (slot == AndroidRendererRecord.POINTER_NORMAL) {
+                enabled = (record.clientArrays & AndroidRendererRecord.NORMAL_ARRAY) != 0;
+            } else if (slot == AndroidRendererRecord.POINTER_COLOR) {
+                enabled = (record.clientArrays & AndroidRendererRecord.COLOR_ARRAY) != 0;
+            } else if (slot == AndroidRendererRecord.POINTER_POINT_SIZE) {
+                // only enabled within drawPointSprites
+                enabled = false;
+            } else {
+                enabled = (enabledTextures & 2 << slot - AndroidRendererRecord.POINTER_TEXCOORD0) != 0;
+            }
+            if (!enabled) {
+                continue;
+            }
+            if ((pointers & 1L << slot) == 0) {
+                return false;
+            }
+
+            final int size = record.pointerSizes[slot];
+            final int stride = record.pointerStrides[slot];
+            final int vboID = record.pointerVBOs[slot];
+            final Buffer pointerBuffer = record.pointerBuffers[slot];
+            final int offset = _partitionBaseOffsets[slot] + baseVertex * (stride != 0 ? stride : size * 4);
+            if (record.isPointerSet(slot, pointerBuffer, vboID, size, stride, offset)) {
+                continue;
+            }
+
+            if (slot >= AndroidRendererRecord.POINTER_TEXCOORD0) {
+                checkAndSetTextureArrayUnit(slot - AndroidRendererRecord.POINTER_TEXCOORD0, rendRecord, caps);
+            }
+            if (vboID != 0) {
+                final int type = _quantized[slot] != null ? _quantized[slot].getGLType() : GL10.GL_FLOAT;
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+                switch (slot) {
+                    case AndroidRendererRecord.POINTER_VERTEX:
+                        ((GL11) _gl).glVertexPointer(size, type, stride, offset);
+                        break;
+                    case AndroidRendererRecord.POINTER_NORMAL:
+                        ((GL11) _gl).glNormalPointer(type, stride, offset);
+                        break;
+                    case AndroidRendererRecord.POINTER_COLOR:
+                        ((GL11) _gl).glColorPointer(size, type, stride, offset);
+                        break;
+                    default:
+                        ((GL11) _gl).glTexCoordPointer(size, type, stride, offset);
+                }
+            } else {
+                // client arrays are tracked with a 0 offset; the buffer position carries it.
+                AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, 0);
+                pointerBuffer.position(offset / 4);
+                switch (slot) {
+                    case AndroidRendererRecord.POINTER_VERTEX:
+                        _gl.glVertexPointer(size, GL10.GL_FLOAT, stride, pointerBuffer);
+                        break;
+                    case AndroidRendererRecord.POINTER_NORMAL:
+                        _gl.glNormalPointer(GL10.GL_FLOAT, stride, pointerBuffer);
+                        break;
+                    case AndroidRendererRecord.POINTER_COLOR:
+                        _gl.glColorPointer(size, GL10.GL_FLOAT, stride, pointerBuffer);
+                        break;
+                    default:
+                        _gl.glTexCoordPointer(size, GL10.GL_FLOAT, stride, pointerBuffer);
+                }
+                pointerBuffer.rewind();
+            }
+        }
+        return true;
     }
 
     public void drawArrays(final FloatBufferData vertices, final int[] indexLengths, final IndexMode[] indexModes,
             final int primcount) {
         if (primcount >= 0) {
-            throw new UnsupportedOperationException("No support for instancing.");
+            drawInstances(null, vertices, indexLengths, indexModes, primcount, vertices.getVBOID(getFrameContext()
+                    .getGlContextRep()) != 0);
+            return;
         }
+        final boolean quantized = pushQuantization();
         if (indexLengths == null) {
             final int glIndexMode = getGLIndexMode(indexModes[0]);
 
@@ -1291,63 +2438,93 @@ public class AndroidRenderer extends AbstractRenderer {
                 }
             }
         }
+        if (quantized) {
+            popQuantization();
+        }
     }
 
     public int makeVBOId(final RendererRecord rendRecord) {
-        final int[] buffer = new int[1];
+        final AndroidVBOPool pool = getVBOPool();
+        if (pool != null) {
+            return pool.newId((GL11) _gl);
+        }
+        final int[] buffer = getIdScratch(1);
         ((GL11) _gl).glGenBuffers(1, buffer, 0);
         return buffer[0];
     }
 
+    /**
+     * Create a VBO holding the given bytes and leave it bound, reusing the storage of a released buffer if the pool has
+     * one of a fitting size and usage.
+     *
+     * @param data
+     *            the contents, or null to leave them to later glBufferSubData calls.
+     */
+    protected int createVBO(final RendererRecord rendRecord, final int target, final int bytes, final Buffer data,
+            final int usage) {
+        final AndroidVBOPool pool = getVBOPool();
+        final int pooledID = pool != null ? pool.acquire(bytes, usage) : 0;
+        final int vboID = pooledID != 0 ? pooledID : makeVBOId(rendRecord);
+
+        rendRecord.invalidateVBO();
+        if (target == GL11.GL_ELEMENT_ARRAY_BUFFER) {
+            AndroidRendererUtil.setBoundElementVBO((GL11) _gl, rendRecord, vboID);
+        } else {
+            AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, vboID);
+        }
+
+        if (pooledID != 0) {
+            if (data != null) {
+                ((GL11) _gl).glBufferSubData(target, 0, bytes, data);
+            }
+        } else {
+            ((GL11) _gl).glBufferData(target, bytes, data, usage);
+            if (pool != null) {
+                pool.allocated(vboID, bytes, usage);
+            }
+        }
+        return vboID;
+    }
+
     public void unbindVBO() {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         if (context.getCapabilities().isVBOSupported()) {
-            final RendererRecord rendRecord = context.getRendererRecord();
+            final RendererRecord rendRecord = getFrameRendererRecord();
             AndroidRendererUtil.setBoundVBO((GL11) _gl, rendRecord, 0);
             AndroidRendererUtil.setBoundElementVBO((GL11) _gl, rendRecord, 0);
         }
     }
 
-    private int getGLVBOAccessMode(final VBOAccessMode vboAccessMode) {
-        int glMode = GL11.GL_STATIC_DRAW;
+    /**
+     * OpenGL ES 1.1 only knows the static and dynamic draw hints. StreamDraw maps to dynamic draw, its buffers being
+     * orphaned on refreshes that change most of them instead; read and copy modes fall back to the matching draw hint
+     * with a warning.
+     */
+    protected int getGLVBOAccessMode(final VBOAccessMode vboAccessMode) {
         switch (vboAccessMode) {
             case StaticDraw:
-                glMode = GL11.GL_STATIC_DRAW;
-                break;
+                return GL11.GL_STATIC_DRAW;
             case DynamicDraw:
-                glMode = GL11.GL_DYNAMIC_DRAW;
-                break;
+            case StreamDraw:
+                return GL11.GL_DYNAMIC_DRAW;
             case StaticRead:
-                // glMode = GL11.GL_STATIC_READ;
-                // break;
             case StaticCopy:
-                // glMode = GL11.GL_STATIC_COPY;
-                // break;
-            case DynamicRead:
-                // glMode = GL11.GL_DYNAMIC_READ;
-                // break;
-            case DynamicCopy:
-                // glMode = GL11.GL_DYNAMIC_COPY;
-                // break;
-            case StreamDraw:
-                // glMode = GL11.GL_STREAM_DRAW;
-                // break;
-            case StreamRead:
-                // glMode = GL11.GL_STREAM_READ;
-                // break;
-            case StreamCopy:
-                // glMode = GL11.GL_STREAM_COPY;
-                // break;
+                warnAccessMode(vboAccessMode);
+                return GL11.GL_STATIC_DRAW;
             default:
-                Log.e(AndroidCanvas.TAG,
-                        "AndroidRenderer.getGLVBOAccessMode - This renderer does not support VBO mode: "
-                                + vboAccessMode);
-                throw new Ardor3dException("This renderer does not support VBO mode: " + vboAccessMode);
+                warnAccessMode(vboAccessMode);
+                return GL11.GL_DYNAMIC_DRAW;
         }
-        return glMode;
     }
 
-    private int getGLIndexMode(final IndexMode indexMode) {
+    protected void warnAccessMode(final VBOAccessMode vboAccessMode) {
+        if (_warnedAccessModes.add(vboAccessMode)) {
+            Log.w(AndroidCanvas.TAG, "AndroidRenderer.getGLVBOAccessMode - VBO mode " + vboAccessMode
+                    + " is not supported by OpenGL ES, using the matching draw mode.");
+        }
+    }
+
+    protected int getGLIndexMode(final IndexMode indexMode) {
         int glMode = GL10.GL_TRIANGLES;
         switch (indexMode) {
             case Triangles:
@@ -1379,15 +2556,26 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void setModelViewMatrix(final FloatBuffer matrix) {
-        final RendererRecord matRecord = ContextManager.getCurrentContext().getRendererRecord();
+        final RendererRecord matRecord = getFrameRendererRecord();
         AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_MODELVIEW);
         loadMatrix(matrix);
+        getFrameAndroidRecord().modelViewStack.load(matrix);
+        viewChanged();
+
+        if (_cpuMatrices) {
+            final int pos = matrix.position();
+            for (int i = 0; i < 16; i++) {
+                _viewMatrix[i] = matrix.get(pos + i);
+            }
+            _viewMatrixLoaded = true;
+        }
     }
 
     public void setProjectionMatrix(final FloatBuffer matrix) {
-        final RendererRecord matRecord = ContextManager.getCurrentContext().getRendererRecord();
+        final RendererRecord matRecord = getFrameRendererRecord();
         AndroidRendererUtil.switchMode(_gl, matRecord, GL10.GL_PROJECTION);
         loadMatrix(matrix);
+        getFrameAndroidRecord().projectionStack.load(matrix);
     }
 
     private void loadMatrix(final FloatBuffer matrix) {
@@ -1395,6 +2583,18 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public FloatBuffer getModelViewMatrix(final FloatBuffer store) {
+        if (_cpuMatrices) {
+            // outside of a draw the modelview is the view.
+            FloatBuffer result = store;
+            if (result.remaining() < 16) {
+                result = BufferUtils.createFloatBuffer(16);
+            }
+            final int pos = result.position();
+            for (int i = 0; i < 16; i++) {
+                result.put(pos + i, _viewMatrix[i]);
+            }
+            return result;
+        }
         return getMatrix(GL11.GL_MODELVIEW_MATRIX, store);
     }
 
@@ -1407,7 +2607,20 @@ public class AndroidRenderer extends AbstractRenderer {
         if (result.remaining() < 16) {
             result = BufferUtils.createFloatBuffer(16);
         }
-        ((GL11) _gl).glGetFloatv(matrixType, store);
+
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        final AndroidMatrixStack stack = matrixType == GL11.GL_MODELVIEW_MATRIX ? record.modelViewStack
+                : record.projectionStack;
+        if (stack.get(result)) {
+            return result;
+        }
+
+        // not shadowed, e.g. right after the context was invalidated.
+        if (_logReadbacks) {
+            Log.w(AndroidCanvas.TAG, "AndroidRenderer.getMatrix - matrix " + matrixType
+                    + " not shadowed, reading back.");
+        }
+        ((GL11) _gl).glGetFloatv(matrixType, result);
         return result;
     }
 
@@ -1421,7 +2634,7 @@ public class AndroidRenderer extends AbstractRenderer {
 
     public void setDrawBuffer(final DrawBufferTarget target) {
         Log.w(AndroidCanvas.TAG, "AndroidRenderer.setDrawBuffer - Not supported by this renderer.");
-        // final RendererRecord record = ContextManager.getCurrentContext().getRendererRecord();
+        // final RendererRecord record = getFrameRendererRecord();
         // if (record.getDrawBufferTarget() != target) {
         // int buffer = GL10.GL_BACK;
         // switch (target) {
@@ -1474,7 +2687,7 @@ public class AndroidRenderer extends AbstractRenderer {
 
     public void setupLineParameters(final float lineWidth, final int stippleFactor, final short stipplePattern,
             final boolean antialiased) {
-        final LineRecord lineRecord = ContextManager.getCurrentContext().getLineRecord();
+        final LineRecord lineRecord = getFrameContext().getLineRecord();
 
         if (!lineRecord.isValid() || lineRecord.width != lineWidth) {
             _gl.glLineWidth(lineWidth);
@@ -1521,46 +2734,261 @@ public class AndroidRenderer extends AbstractRenderer {
     public void setupPointParameters(final float pointSize, final boolean antialiased, final boolean isSprite,
             final boolean useDistanceAttenuation, final FloatBuffer attenuationCoefficients, final float minPointSize,
             final float maxPointSize) {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
+        final AndroidRendererRecord record = getFrameAndroidRecord();
 
-        // TODO: make a record for point states
-        _gl.glPointSize(pointSize);
+        if (!record.pointSizeValid || record.pointSize != pointSize) {
+            _gl.glPointSize(pointSize);
+            record.pointSize = pointSize;
+            record.pointSizeValid = true;
+        } else {
+            record.avoided();
+        }
 
-        if (isSprite && context.getCapabilities().isPointSpritesSupported()) {
-            _gl.glEnable(GL11.GL_POINT_SPRITE_OES);
-            _gl.glTexEnvx(GL11.GL_POINT_SPRITE_OES, GL11.GL_COORD_REPLACE_OES, GL10.GL_TRUE);
+        if (context.getCapabilities().isPointSpritesSupported()) {
+            if (!record.pointSpriteValid || record.pointSprite != isSprite) {
+                if (isSprite) {
+                    _gl.glEnable(GL11.GL_POINT_SPRITE_OES);
+                } else {
+                    _gl.glDisable(GL11.GL_POINT_SPRITE_OES);
+                }
+                record.pointSprite = isSprite;
+                record.pointSpriteValid = true;
+            } else {
+                record.avoided();
+            }
+
+            if (isSprite) {
+                // coordinate replacement is texture unit state
+                final TextureStateRecord texRecord = (TextureStateRecord) context
+                        .getStateRecord(RenderState.StateType.Texture);
+                final int unitBit = texRecord.currentUnit >= 0 ? 1 << texRecord.currentUnit : 0;
+                if (unitBit == 0 || (record.coordReplaceUnitsValid & unitBit) == 0
+                        || (record.coordReplaceUnits & unitBit) == 0) {
+                    _gl.glTexEnvx(GL11.GL_POINT_SPRITE_OES, GL11.GL_COORD_REPLACE_OES, GL10.GL_TRUE);
+                    record.coordReplaceUnits |= unitBit;
+                    record.coordReplaceUnitsValid |= unitBit;
+                } else {
+                    record.avoided();
+                }
+            }
         }
 
         if (useDistanceAttenuation && context.getCapabilities().isPointParametersSupported()) {
-            ((GL11) _gl).glPointParameterfv(GL11.GL_POINT_DISTANCE_ATTENUATION, attenuationCoefficients);
-            ((GL11) _gl).glPointParameterf(GL11.GL_POINT_SIZE_MIN, minPointSize);
-            ((GL11) _gl).glPointParameterf(GL11.GL_POINT_SIZE_MAX, maxPointSize);
+            final float[] attenuation = record.pointAttenuation;
+            final int pos = attenuationCoefficients.position();
+            if (!record.pointAttenuationValid || attenuation[0] != attenuationCoefficients.get(pos)
+                    || attenuation[1] != attenuationCoefficients.get(pos + 1)
+                    || attenuation[2] != attenuationCoefficients.get(pos + 2)) {
+                ((GL11) _gl).glPointParameterfv(GL11.GL_POINT_DISTANCE_ATTENUATION, attenuationCoefficients);
+                attenuation[0] = attenuationCoefficients.get(pos);
+                attenuation[1] = attenuationCoefficients.get(pos + 1);
+                attenuation[2] = attenuationCoefficients.get(pos + 2);
+            } else {
+                record.avoided();
+            }
+            if (!record.pointAttenuationValid || record.pointSizeMin != minPointSize) {
+                ((GL11) _gl).glPointParameterf(GL11.GL_POINT_SIZE_MIN, minPointSize);
+                record.pointSizeMin = minPointSize;
+            } else {
+                record.avoided();
+            }
+            if (!record.pointAttenuationValid || record.pointSizeMax != maxPointSize) {
+                ((GL11) _gl).glPointParameterf(GL11.GL_POINT_SIZE_MAX, maxPointSize);
+                record.pointSizeMax = maxPointSize;
+            } else {
+                record.avoided();
+            }
+            record.pointAttenuationValid = true;
         }
 
+        if (!record.pointSmoothValid || record.pointSmooth != antialiased) {
+            if (antialiased) {
+                _gl.glEnable(GL10.GL_POINT_SMOOTH);
+            } else {
+                _gl.glDisable(GL10.GL_POINT_SMOOTH);
+            }
+            record.pointSmooth = antialiased;
+            record.pointSmoothValid = true;
+        } else {
+            record.avoided();
+        }
         if (antialiased) {
-            _gl.glEnable(GL10.GL_POINT_SMOOTH);
-            _gl.glHint(GL10.GL_POINT_SMOOTH_HINT, GL10.GL_NICEST);
+            if (record.pointSmoothHint != GL10.GL_NICEST) {
+                _gl.glHint(GL10.GL_POINT_SMOOTH_HINT, GL10.GL_NICEST);
+                record.pointSmoothHint = GL10.GL_NICEST;
+            } else {
+                record.avoided();
+            }
+        }
+    }
+
+    /**
+     * @return true if {@link #drawPointSprites(FloatBufferData, int)} can be used in the current context.
+     */
+    public boolean isPointSizeArraySupported() {
+        final ContextCapabilities caps = getFrameContext().getCapabilities();
+        return caps instanceof AndroidContextCapabilities
+                && ((AndroidContextCapabilities) caps).isPointSizeArraySupported() && caps.isVBOSupported()
+                && caps.isPointSpritesSupported() && caps.isPointParametersSupported();
+    }
+
+    /**
+     * Draw points from interleaved data holding {@link #POINT_SPRITE_FLOATS} floats per point: the position, an rgba
+     * color and the point size, streamed through a single VBO. Render states, point parameters and transforms must
+     * already be set up, and the context must pass {@link #isPointSizeArraySupported()}.
+     * <p>
+     * GL11 only takes the point size pointer as a buffer, so the sizes are pointed to in the VBO through GLES11, see
+     * {@link AndroidRecordingGL#isPointSizePointerOffsetSupported()}. Platforms without that overload read the sizes
+     * from the buffer in client memory instead.
+     *
+     * @param points
+     *            the interleaved data, preferably with the StreamDraw access mode and flagged for refresh when changed.
+     * @param count
+     *            the number of points to draw.
+     */
+    public void drawPointSprites(final FloatBufferData points, final int count) {
+        if (count == 0) {
+            return;
         }
+        final RenderContext context = getFrameContext();
+        final RendererRecord rendRecord = getFrameRendererRecord();
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        final GL11 gl11 = (GL11) _gl;
+        final int stride = POINT_SPRITE_FLOATS * 4;
+
+        final int vboID = setupVBO(points, context, rendRecord);
+        clearQuantized(AndroidRendererRecord.POINTER_VERTEX);
+
+        setClientArrayEnabled(AndroidRendererRecord.VERTEX_ARRAY, GL10.GL_VERTEX_ARRAY, true);
+        if (!record.isPointerSet(AndroidRendererRecord.POINTER_VERTEX, null, vboID, 3, stride, 0)) {
+            AndroidRendererUtil.setBoundVBO(gl11, rendRecord, vboID);
+            gl11.glVertexPointer(3, GL10.GL_FLOAT, stride, 0);
+        }
+        setClientArrayEnabled(AndroidRendererRecord.COLOR_ARRAY, GL10.GL_COLOR_ARRAY, true);
+        if (!record.isPointerSet(AndroidRendererRecord.POINTER_COLOR, null, vboID, 4, stride, 12)) {
+            AndroidRendererUtil.setBoundVBO(gl11, rendRecord, vboID);
+            gl11.glColorPointer(4, GL10.GL_FLOAT, stride, 12);
+        }
+        setClientArrayEnabled(AndroidRendererRecord.POINT_SIZE_ARRAY, GL11.GL_POINT_SIZE_ARRAY_OES, true);
+        if (!AndroidRecordingGL.isPointSizePointerOffsetSupported()) {
+            final FloatBuffer pointSizes = getPointSizes(points.getBuffer());
+            if (!record.isPointerSet(AndroidRendererRecord.POINTER_POINT_SIZE, pointSizes, 0, 1, stride, 0)) {
+                AndroidRendererUtil.setBoundVBO(gl11, rendRecord, 0);
+                gl11.glPointSizePointerOES(GL10.GL_FLOAT, stride, pointSizes);
+            }
+        } else if (!record.isPointerSet(AndroidRendererRecord.POINTER_POINT_SIZE, null, vboID, 1, stride, 28)) {
+            AndroidRendererUtil.setBoundVBO(gl11, rendRecord, vboID);
+            if (_gl instanceof AndroidRecordingGL) {
+                ((AndroidRecordingGL) _gl).glPointSizePointerOES(GL10.GL_FLOAT, stride, 28);
+            } else {
+                AndroidRecordingGL.pointSizePointerOffset(GL10.GL_FLOAT, stride, 28);
+            }
+        }
+        setClientArrayEnabled(AndroidRendererRecord.NORMAL_ARRAY, GL10.GL_NORMAL_ARRAY, false);
+        // sprites generate their texture coordinates.
+        setupTextureDataVBO(null);
+
+        _gl.glDrawArrays(GL10.GL_POINTS, 0, count);
+        if (Constants.stats) {
+            addStats(IndexMode.Points, count);
+        }
+
+        // other points take their size from glPointSize again.
+        setClientArrayEnabled(AndroidRendererRecord.POINT_SIZE_ARRAY, GL11.GL_POINT_SIZE_ARRAY_OES, false);
     }
 
+    /**
+     * @return a view of the given points starting at the first size, kept at position 0 so a recorded pointer reads
+     *         the same window when replayed.
+     */
+    private FloatBuffer getPointSizes(final FloatBuffer points) {
+        if (_pointSizesSource != points) {
+            final FloatBuffer view = points.duplicate();
+            view.clear();
+            view.position(POINT_SPRITE_FLOATS - 1);
+            _pointSizes = view.slice();
+            _pointSizesSource = points;
+        }
+        return _pointSizes;
+    }
+
+    /**
+     * Apply the given state, unless the context's record shows the same state at the same version was the last of its
+     * type applied. Light, clip and texture states are also applied again after a view change and in each new frame,
+     * as lights and clip planes are transformed by the view when set, and lights and texture images can change without
+     * the state being flagged.
+     */
     @Override
-    public void doApplyState(final RenderState state) {
-        if (state == null) {
+    public void doApplyState(final RenderState renderState) {
+        if (renderState == null) {
             Log.w(AndroidCanvas.TAG, "AndroidRenderer.doApplyState - tried to apply a null state.");
             return;
         }
 
+        final RenderState state = renderState.getType() == RenderState.StateType.Light ? getLightState(
+                (LightState) renderState) : renderState;
+        final RenderContext context = getFrameContext();
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        final RenderState.StateType type = state.getType();
+        if (_compilingList != null) {
+            _compilingList._touchedStates |= 1 << type.ordinal();
+        }
+        final int version = _stateVersions.getVersion(state);
+        final int scope = type == RenderState.StateType.Light || type == RenderState.StateType.Clip
+                || type == RenderState.StateType.Texture ? _stateScope : 0;
+        final StateRecord stateRecord = context.getStateRecord(type);
+        if (record.isApplied(state, version, scope) && (stateRecord == null || stateRecord.isValid())) {
+            context.setCurrentState(type, state);
+            record.avoided();
+            return;
+        }
+
+        applyStateToGL(state);
+        state.setNeedsRefresh(false);
+        record.setApplied(state, version, scope);
+    }
+
+    /**
+     * @return the light state to use for the current renderable in place of the given one: a disabled state if its
+     *         lighting is baked, or the lights picked by the light manager, if set.
+     */
+    protected LightState getLightState(final LightState state) {
+        if (_bakedColors != null) {
+            return _lightBaker.getUnlitState();
+        } else if (_lightManager != null && _currentRenderable instanceof Mesh) {
+            return _lightManager.getLightState((Mesh) _currentRenderable, state);
+        }
+        return state;
+    }
+
+    /**
+     * Make light, clip and texture states count as changed from here on.
+     */
+    protected void viewChanged() {
+        _stateScope++;
+    }
+
+    private void applyStateToGL(final RenderState state) {
         switch (state.getType()) {
             case Texture:
                 AndroidTextureStateUtil.apply(_gl, (TextureState) state);
                 return;
             case Light:
+                // light positions are transformed by the modelview when set.
+                if (_cpuMatrices && !_viewMatrixLoaded) {
+                    loadViewMatrix();
+                }
                 AndroidLightStateUtil.apply(_gl, (LightState) state);
                 return;
             case Blend:
                 AndroidBlendStateUtil.apply(_gl, (BlendState) state);
                 return;
             case Clip:
+                // as are clip planes.
+                if (_cpuMatrices && !_viewMatrixLoaded) {
+                    loadViewMatrix();
+                }
                 AndroidClipStateUtil.apply(_gl, (ClipState) state);
                 return;
             case ColorMask:
@@ -1616,42 +3044,110 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     /**
-     * Start a new display list. All further renderer commands that can be stored in a display list are part of this new
-     * list until {@link #endDisplayList()} is called.
+     * Start a new display list. OpenGL ES has none, so this compiles a render list instead: until
+     * {@link #endDisplayList()} is called, state changes, VBO bindings and draw calls are recorded into a command
+     * buffer rather than issued, while buffers and textures are still created and filled right away. All state is
+     * invalidated first, so the list sets everything it relies on.
+     * <p>
+     * Only renderables reaching this renderer while compiling are recorded; ones queued in render buckets are not
+     * drawn until the buckets are rendered. Transforms are recorded relative to the view, so the camera may move
+     * between replays, but any change to the recorded meshes needs the list compiled again.
      * 
-     * @return id of new display list
+     * @return id of new display list, or -1 if one is already being compiled
      */
     public int startDisplayList() {
-        Log.w(AndroidCanvas.TAG, "startDisplayList - Display Lists not supported by this renderer.");
-        // final int id = GL11.glGenLists(1);
-        //
-        // GL11.glNewList(id, GL11.GL_COMPILE);
-        //
-        // return id;
-        return -1;
+        if (_compilingOver != null) {
+            Log.w(AndroidCanvas.TAG, "AndroidRenderer.startDisplayList - already compiling a display list.");
+            return -1;
+        }
+        final RenderList list = new RenderList();
+        final int id = _nextRenderList++;
+        _renderLists.put(id, list);
+        _compilingList = list;
+
+        if (_listCompiler == null) {
+            _listCompiler = new AndroidRecordingGL();
+        }
+        _listCompiler.setDelegate(_gl);
+        _listCompiler.beginCompiling(list._commands);
+        _compilingOver = _gl;
+        _gl = _listCompiler.getGL();
+
+        // a list replayed at any time can't hold a view matrix baked into each model matrix.
+        _compilingCpuMatrices = _cpuMatrices;
+        _cpuMatrices = false;
+        getFrameContext().invalidateStates();
+        return id;
     }
 
     /**
-     * Ends a display list. Will likely cause an OpenGL exception is a display list is not currently being generated.
+     * Ends the display list being compiled.
      */
     public void endDisplayList() {
-        Log.w(AndroidCanvas.TAG, "endDisplayList - Display Lists not supported by this renderer.");
-        // _gl.glEndList();
+        if (_compilingOver == null) {
+            Log.w(AndroidCanvas.TAG, "AndroidRenderer.endDisplayList - no display list is being compiled.");
+            return;
+        }
+        _listCompiler.endRecording();
+        _gl = _compilingOver;
+        _compilingOver = null;
+        _cpuMatrices = _compilingCpuMatrices;
+
+        final RenderContext context = getFrameContext();
+        final RenderList list = _compilingList;
+        _compilingList = null;
+        for (final RenderState.StateType type : RenderState.StateType.values) {
+            if ((list._touchedStates & 1 << type.ordinal()) != 0) {
+                list._endStates[type.ordinal()] = context.getCurrentState(type);
+            }
+        }
+        // the state records describe the list's end, not what was issued.
+        context.invalidateStates();
     }
 
     /**
-     * Draw the given display list.
+     * @return false if a draw was left out of the given display list while compiling because its data wasn't ready
+     *         yet, such as int indices still being converted in the background, so the list should be compiled again.
      */
-    public void renderDisplayList(final int displayListID) {
-        Log.w(AndroidCanvas.TAG, "AndroidRenderer.renderDisplayList - Display Lists not supported by this renderer.");
-        // _gl.glCallList(displayListID);
+    public boolean isDisplayListComplete(final int displayListID) {
+        final RenderList list = _renderLists.get(displayListID);
+        return list != null && !list._incomplete;
+    }
 
-        // invalidate "current arrays"
-        // reset();
+    /**
+     * Draw the given display list, by replaying its recorded commands. Afterwards, the render states the list applies
+     * are current, and only their records and the arrays and bindings used for drawing need setting again.
+     */
+    public void renderDisplayList(final int displayListID) {
+        final RenderList list = _renderLists.get(displayListID);
+        if (list == null) {
+            Log.w(AndroidCanvas.TAG, "AndroidRenderer.renderDisplayList - unknown display list " + displayListID);
+            return;
+        }
+        if (_cpuMatrices && !_viewMatrixLoaded) {
+            loadViewMatrix();
+        }
+        list._commands.execute(_gl);
+
+        // transforms are pushed and popped in pairs, so the matrix stacks still hold.
+        final RenderContext context = getFrameContext();
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        context.getRendererRecord().invalidate();
+        record.invalidateDrawing();
+        for (final RenderState.StateType type : RenderState.StateType.values) {
+            if ((list._touchedStates & 1 << type.ordinal()) != 0) {
+                final StateRecord stateRecord = context.getStateRecord(type);
+                if (stateRecord != null) {
+                    stateRecord.invalidate();
+                }
+                record.invalidateApplied(type);
+                context.setCurrentState(type, list._endStates[type.ordinal()]);
+            }
+        }
     }
 
     public void clearClips() {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         final RendererRecord record = context.getRendererRecord();
         record.getScissorClips().clear();
 
@@ -1659,7 +3155,7 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void popClip() {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         final RendererRecord record = context.getRendererRecord();
         record.getScissorClips().pop();
 
@@ -1667,7 +3163,7 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void pushClip(final ReadOnlyRectangle2 rectangle) {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         final RendererRecord record = context.getRendererRecord();
         record.getScissorClips().push(rectangle);
 
@@ -1675,7 +3171,7 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void pushEmptyClip() {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         final RendererRecord record = context.getRendererRecord();
         record.getScissorClips().push(null);
 
@@ -1683,14 +3179,104 @@ public class AndroidRenderer extends AbstractRenderer {
     }
 
     public void setClipTestEnabled(final boolean enabled) {
-        final RenderContext context = ContextManager.getCurrentContext();
+        final RenderContext context = getFrameContext();
         final RendererRecord record = context.getRendererRecord();
 
         AndroidRendererUtil.setClippingEnabled(_gl, record, enabled);
     }
 
+    /**
+     * @return the record of Android specific GL state for the given context.
+     */
+    public AndroidRendererRecord getAndroidRendererRecord(final RenderContext context) {
+        if (context instanceof AndroidRenderContext) {
+            return ((AndroidRenderContext) context).getAndroidRendererRecord();
+        }
+
+        // plain contexts get a record of our own, which can not survive a switch to another context.
+        if (_fallbackContext != context) {
+            _fallbackRecord.invalidate();
+            _fallbackContext = context;
+        }
+        return _fallbackRecord;
+    }
+
+    /**
+     * @return the number of GL calls skipped in the last frame because the shadowed state already matched.
+     */
+    public int getAvoidedCallCount() {
+        return _avoidedCalls;
+    }
+
+    protected void setClientArrayEnabled(final int array, final int glArray, final boolean enabled) {
+        final AndroidRendererRecord record = getFrameAndroidRecord();
+        if (array == AndroidRendererRecord.COLOR_ARRAY && enabled) {
+            // the current color is undefined after drawing with a color array.
+            record.colorValid = false;
+        }
+
+        if ((record.clientArraysValid & array) != 0 && ((record.clientArrays & array) != 0) == enabled) {
+            record.avoided();
+            return;
+        }
+        if (enabled) {
+            _gl.glEnableClientState(glArray);
+            record.clientArrays |= array;
+        } else {
+            _gl.glDisableClientState(glArray);
+            record.clientArrays &= ~array;
+        }
+        record.clientArraysValid |= array;
+    }
+
+    /**
+     * @return the current render context, looked up once per frame.
+     */
+    protected RenderContext getFrameContext() {
+        if (_frameContext == null) {
+            _frameContext = ContextManager.getCurrentContext();
+            _frameRendererRecord = _frameContext.getRendererRecord();
+            _frameAndroidRecord = getAndroidRendererRecord(_frameContext);
+        }
+        return _frameContext;
+    }
+
+    protected RendererRecord getFrameRendererRecord() {
+        if (_frameContext == null) {
+            getFrameContext();
+        }
+        return _frameRendererRecord;
+    }
+
+    protected AndroidRendererRecord getFrameAndroidRecord() {
+        if (_frameContext == null) {
+            getFrameContext();
+        }
+        return _frameAndroidRecord;
+    }
+
+    /**
+     * Drop the cached frame context, e.g. because another context was made current.
+     */
+    public void resetFrameContext() {
+        _frameContext = null;
+        _frameRendererRecord = null;
+        _frameAndroidRecord = null;
+    }
+
+    /**
+     * @return a scratch array for passing GL object ids, valid until the next call.
+     */
+    protected int[] getIdScratch(final int size) {
+        if (_idScratch.length < size) {
+            _idScratch = new int[Math.max(size, _idScratch.length * 2)];
+        }
+        return _idScratch;
+    }
+
     public void setGL(final GL10 gl) {
         _gl = gl;
+        resetFrameContext();
     }
 
     public GL10 getGL() {
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.Buffer;
+
+import com.ardor3d.renderer.state.RenderState;
+import com.ardor3d.renderer.state.RenderState.StateType;
+import com.ardor3d.renderer.state.TextureState;
+import com.ardor3d.renderer.state.record.StateRecord;
+
+/**
+ * Shadows the GL state AndroidRenderer sets outside of render states: client array enables, the current color, point
+ * parameters, unpack alignment, the modelview and projection stacks and a
+ * VAO-like cache of the array pointers last set. Also remembers the render state last applied per type, and counts the
+ * GL calls it allowed the renderer to skip.
+ */
+public class AndroidRendererRecord extends StateRecord {
+
+    public static final int VERTEX_ARRAY = 1;
+    public static final int NORMAL_ARRAY = 2;
+    public static final int COLOR_ARRAY = 4;
+    public static final int POINT_SIZE_ARRAY = 8;
+
+    public static final int POINTER_VERTEX = 0;
+    public static final int POINTER_NORMAL = 1;
+    public static final int POINTER_COLOR = 2;
+    public static final int POINTER_TEXCOORD0 = 3;
+    public static final int POINTER_POINT_SIZE = POINTER_TEXCOORD0 + TextureState.MAX_TEXTURES;
+    public static final int MAX_POINTERS = POINTER_POINT_SIZE + 1;
+
+    // client arrays, excluding texture coordinates which RendererRecord already tracks.
+    public int clientArrays;
+    public int clientArraysValid;
+
+    public float colorR, colorG, colorB, colorA;
+    public boolean colorValid;
+
+    public float pointSize;
+    public boolean pointSizeValid;
+    public boolean pointSprite;
+    public boolean pointSpriteValid;
+    // bit per texture unit with COORD_REPLACE_OES enabled
+    public int coordReplaceUnits;
+    public int coordReplaceUnitsValid;
+    public boolean pointSmooth;
+    public boolean pointSmoothValid;
+    public int pointSmoothHint = -1;
+    public final float[] pointAttenuation = new float[3];
+    public float pointSizeMin, pointSizeMax;
+    public boolean pointAttenuationValid;
+
+    // -1 when unknown
+    public int unpackAlignment = -1;
+
+    public final AndroidMatrixStack modelViewStack = new AndroidMatrixStack();
+    public final AndroidMatrixStack projectionStack = new AndroidMatrixStack();
+
+    // array pointers, keyed by client buffer (null when sourced from a VBO), VBO id, offset, stride and size.
+    public final Buffer[] pointerBuffers = new Buffer[MAX_POINTERS];
+    public final int[] pointerVBOs = new int[MAX_POINTERS];
+    public final int[] pointerSizes = new int[MAX_POINTERS];
+    public final int[] pointerStrides = new int[MAX_POINTERS];
+    public final int[] pointerOffsets = new int[MAX_POINTERS];
+    public long pointersValid;
+
+    // the state last applied per state type, with its version and the renderer's scope at the time.
+    private final RenderState[] _appliedStates = new RenderState[StateType.values().length];
+    private final int[] _appliedVersions = new int[StateType.values().length];
+    private final int[] _appliedScopes = new int[StateType.values().length];
+
+    private int _avoidedCalls;
+
+    /**
+     * Check whether the given pointer is already set for an array. If not, it is remembered as set, so the caller is
+     * expected to issue it.
+     *
+     * @return true if the pointer call can be skipped.
+     */
+    public boolean isPointerSet(final int slot, final Buffer buffer, final int vboId, final int size, final int stride,
+            final int offset) {
+        final long bit = 1L << slot;
+        if ((pointersValid & bit) != 0 && pointerBuffers[slot] == buffer && pointerVBOs[slot] == vboId
+                && pointerSizes[slot] == size && pointerStrides[slot] == stride && pointerOffsets[slot] == offset) {
+            avoided();
+            return true;
+        }
+        pointerBuffers[slot] = buffer;
+        pointerVBOs[slot] = vboId;
+        pointerSizes[slot] = size;
+        pointerStrides[slot] = stride;
+        pointerOffsets[slot] = offset;
+        pointersValid |= bit;
+        return false;
+    }
+
+    /**
+     * Forget the pointers into client memory, keeping those into VBOs.
+     */
+    public void invalidateClientPointers() {
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            if (pointerVBOs[i] == 0) {
+                pointersValid &= ~(1L << i);
+                pointerBuffers[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Forget the pointers into the given VBO, e.g. because it was deleted.
+     */
+    public void invalidatePointers(final int vboId) {
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            if (pointerVBOs[i] == vboId) {
+                pointersValid &= ~(1L << i);
+            }
+        }
+    }
+
+    /**
+     * @return true if the given state was the last of its type applied, at the given version and scope.
+     */
+    public boolean isApplied(final RenderState state, final int version, final int scope) {
+        final int type = state.getType().ordinal();
+        return _appliedStates[type] == state && _appliedVersions[type] == version && _appliedScopes[type] == scope;
+    }
+
+    public void setApplied(final RenderState state, final int version, final int scope) {
+        final int type = state.getType().ordinal();
+        _appliedStates[type] = state;
+        _appliedVersions[type] = version;
+        _appliedScopes[type] = scope;
+    }
+
+    public void invalidateApplied(final StateType type) {
+        _appliedStates[type.ordinal()] = null;
+    }
+
+    public void avoided() {
+        _avoidedCalls++;
+    }
+
+    public void avoided(final int calls) {
+        _avoidedCalls += calls;
+    }
+
+    /**
+     * @return the number of calls avoided since the last call, resetting the count.
+     */
+    public int takeAvoidedCalls() {
+        final int calls = _avoidedCalls;
+        _avoidedCalls = 0;
+        return calls;
+    }
+
+    /**
+     * Forget the state set while drawing, keeping the matrix stacks and the render states last applied.
+     */
+    public void invalidateDrawing() {
+        clientArraysValid = 0;
+        colorValid = false;
+        pointSizeValid = false;
+        pointSpriteValid = false;
+        coordReplaceUnitsValid = 0;
+        pointSmoothValid = false;
+        pointSmoothHint = -1;
+        pointAttenuationValid = false;
+        unpackAlignment = -1;
+        pointersValid = 0;
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            pointerBuffers[i] = null;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+
+        invalidateDrawing();
+        modelViewStack.invalidate();
+        projectionStack.invalidate();
+        for (int i = 0; i < _appliedStates.length; i++) {
+            _appliedStates[i] = null;
+        }
+    }
+}
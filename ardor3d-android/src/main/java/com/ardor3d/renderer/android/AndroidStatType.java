@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import com.ardor3d.util.stat.StatType;
+
+/**
+ * Stat types specific to the Android renderers.
+ */
+public class AndroidStatType {
+
+    /** GL calls skipped per frame because the shadowed state already matched. */
+    public static final StatType STAT_GL_CALLS_AVOIDED = new StatType("_glCallsAvoided");
+
+    /** GL calls issued per frame, counted by {@link AndroidDebugGL} in strict mode. */
+    public static final StatType STAT_GL_CALLS = new StatType("_glCalls");
+
+    /** GL calls per frame that set state to the value it already had, counted by {@link AndroidDebugGL}. */
+    public static final StatType STAT_GL_REDUNDANT_CALLS = new StatType("_glRedundantCalls");
+
+    /** VBOs per frame given storage left behind by a released buffer. */
+    public static final StatType STAT_VBO_POOL_HITS = new StatType("_vboPoolHits");
+
+    /** VBOs per frame that needed new storage. */
+    public static final StatType STAT_VBO_POOL_MISSES = new StatType("_vboPoolMisses");
+
+    /** Bytes of VBO storage allocated through the pool, in use or pooled. */
+    public static final StatType STAT_VBO_RESIDENT_BYTES = new StatType("_vboResidentBytes");
+
+    /** Shared VBO blocks held by the {@link AndroidVBOArena}. */
+    public static final StatType STAT_VBO_ARENA_BLOCKS = new StatType("_vboArenaBlocks");
+
+    /** Arena blocks compacted per frame. */
+    public static final StatType STAT_VBO_ARENA_COMPACTIONS = new StatType("_vboArenaCompactions");
+
+    /** Texture changes per frame between consecutive objects in the {@link AndroidOpaqueRenderBucket}. */
+    public static final StatType STAT_SORTED_TEXTURE_SWITCHES = new StatType("_sortedTextureSwitches");
+
+    /** Light, blend and material state changes per frame between consecutive opaque objects. */
+    public static final StatType STAT_SORTED_STATE_SWITCHES = new StatType("_sortedStateSwitches");
+
+    /** Frames in which the opaque bucket kept the previous frame's order. */
+    public static final StatType STAT_SORT_ORDER_REUSED = new StatType("_sortOrderReused");
+
+    /** Vertices per frame drawn with lighting baked by the {@link AndroidLightBaker}. */
+    public static final StatType STAT_BAKED_VERTICES = new StatType("_bakedVertices");
+
+    /** Light bakes finished per frame. */
+    public static final StatType STAT_LIGHT_BAKES = new StatType("_lightBakes");
+
+    private AndroidStatType() {}
+}
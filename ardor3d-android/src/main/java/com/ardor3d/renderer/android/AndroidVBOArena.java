@@ -0,0 +1,398 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.lang.ref.WeakReference;
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.microedition.khronos.opengles.GL11;
+
+import com.ardor3d.renderer.state.record.RendererRecord;
+import com.ardor3d.scene.state.android.util.AndroidRendererUtil;
+import com.ardor3d.scenegraph.AbstractBufferData;
+import com.ardor3d.scenegraph.AbstractBufferData.VBOAccessMode;
+import com.ardor3d.util.Constants;
+import com.ardor3d.util.stat.StatCollector;
+
+/**
+ * Suballocates vertex and index data of one GL context from a few large shared VBOs, so scenes of many small meshes
+ * don't need a GL buffer each, nor a bind for every mesh drawn. Data shares its block's VBO id, and is found at
+ * {@link #getOffset(AbstractBufferData)} bytes into it.
+ * <p>
+ * Blocks of {@link #getBlockBytes()} are filled first fit. Once more than {@link #getCompactThreshold()} of a block is
+ * lost to holes left by deleted data, it is compacted at the end of a frame, respecifying the block and uploading the
+ * remaining data again from its buffers, as GLES has no buffer to buffer copies.
+ * <p>
+ * Data larger than {@link #getMaxRangeBytes()}, streamed data and data that already has a VBO of its own are left to
+ * the regular path. Must only be used from the thread issuing the context's GL calls.
+ */
+public class AndroidVBOArena {
+
+    public static final int DEFAULT_BLOCK_BYTES = 4 * 1024 * 1024;
+    public static final float DEFAULT_COMPACT_THRESHOLD = 0.25f;
+
+    private static final int ALIGNMENT = 4;
+
+    private static class Range {
+        private final Block _block;
+        private int _offset;
+        private final int _capacity;
+        private final WeakReference<AbstractBufferData<?>> _data;
+        private final int _elementBytes;
+
+        Range(final Block block, final int offset, final int capacity, final AbstractBufferData<?> data,
+                final int elementBytes) {
+            _block = block;
+            _offset = offset;
+            _capacity = capacity;
+            _data = new WeakReference<AbstractBufferData<?>>(data);
+            _elementBytes = elementBytes;
+        }
+    }
+
+    private static class Block {
+        private final int _target;
+        private final int _id;
+        private final int _capacity;
+        // sorted by offset
+        private final List<Range> _ranges = new ArrayList<Range>();
+        private int _liveBytes;
+
+        Block(final int target, final int id, final int capacity) {
+            _target = target;
+            _id = id;
+            _capacity = capacity;
+        }
+
+        int getTail() {
+            if (_ranges.isEmpty()) {
+                return 0;
+            }
+            final Range last = _ranges.get(_ranges.size() - 1);
+            return last._offset + last._capacity;
+        }
+
+        int getHoleBytes() {
+            return getTail() - _liveBytes;
+        }
+
+        /**
+         * @return a new range of the given bytes, or null if there is no room.
+         */
+        Range insert(final int bytes, final AbstractBufferData<?> data, final int elementBytes) {
+            final int tail = getTail();
+            if (getHoleBytes() >= bytes) {
+                int end = 0;
+                for (int i = 0, max = _ranges.size(); i < max; i++) {
+                    final Range next = _ranges.get(i);
+                    if (next._offset - end >= bytes) {
+                        final Range range = new Range(this, end, bytes, data, elementBytes);
+                        _ranges.add(i, range);
+                        _liveBytes += bytes;
+                        return range;
+                    }
+                    end = next._offset + next._capacity;
+                }
+            }
+            if (_capacity - tail >= bytes) {
+                final Range range = new Range(this, tail, bytes, data, elementBytes);
+                _ranges.add(range);
+                _liveBytes += bytes;
+                return range;
+            }
+            return null;
+        }
+
+        void remove(final Range range) {
+            if (_ranges.remove(range)) {
+                _liveBytes -= range._capacity;
+            }
+        }
+    }
+
+    private final List<Block> _blocks = new ArrayList<Block>();
+    // keyed by buffer data
+    private final Map<Object, Range> _ranges = new WeakHashMap<Object, Range>();
+
+    private int _blockBytes = DEFAULT_BLOCK_BYTES;
+    private int _maxRangeBytes = DEFAULT_BLOCK_BYTES / 16;
+    private float _compactThreshold = DEFAULT_COMPACT_THRESHOLD;
+    private int _compactions;
+
+    /**
+     * @param blockBytes
+     *            the size of blocks created from now on. Ranges are capped to it.
+     */
+    public void setBlockBytes(final int blockBytes) {
+        _blockBytes = blockBytes;
+        _maxRangeBytes = Math.min(_maxRangeBytes, blockBytes);
+    }
+
+    public int getBlockBytes() {
+        return _blockBytes;
+    }
+
+    /**
+     * @param maxRangeBytes
+     *            the largest data, in bytes, suballocated from a block.
+     */
+    public void setMaxRangeBytes(final int maxRangeBytes) {
+        _maxRangeBytes = Math.min(maxRangeBytes, _blockBytes);
+    }
+
+    public int getMaxRangeBytes() {
+        return _maxRangeBytes;
+    }
+
+    /**
+     * @param compactThreshold
+     *            the fraction of a block, from 0 to 1, left in holes before it is compacted.
+     */
+    public void setCompactThreshold(final float compactThreshold) {
+        _compactThreshold = compactThreshold;
+    }
+
+    public float getCompactThreshold() {
+        return _compactThreshold;
+    }
+
+    /**
+     * Make sure the given data has an up to date range in a block, if it belongs in the arena.
+     *
+     * @param target
+     *            GL_ARRAY_BUFFER or GL_ELEMENT_ARRAY_BUFFER
+     * @return the id of the data's block, or 0 if the data should get a VBO of its own.
+     */
+    public int setup(final AndroidRenderer renderer, final AbstractBufferData<?> data, final int target,
+            final int elementBytes) {
+        final Buffer buffer = data.getBuffer();
+        Range range = _ranges.get(data);
+        if (range == null) {
+            if (buffer == null || data.getVboAccessMode() == VBOAccessMode.StreamDraw
+                    || data.getVBOID(renderer.getFrameContext().getGlContextRep()) != 0) {
+                return 0;
+            }
+            final int bytes = buffer.limit() * elementBytes;
+            if (bytes == 0 || bytes > _maxRangeBytes) {
+                return 0;
+            }
+            range = allocate(renderer, target, bytes, data, elementBytes);
+            data.setVBOID(renderer.getFrameContext().getGlContextRep(), range._block._id);
+            upload(renderer, range, data);
+        } else if (data.isNeedsRefresh() && buffer != null) {
+            final int bytes = buffer.limit() * elementBytes;
+            if (bytes > range._capacity) {
+                // grown, move it to a larger range.
+                range._block.remove(range);
+                range = allocate(renderer, target, bytes, data, elementBytes);
+                data.setVBOID(renderer.getFrameContext().getGlContextRep(), range._block._id);
+            }
+            upload(renderer, range, data);
+        }
+        return range._block._id;
+    }
+
+    private Range allocate(final AndroidRenderer renderer, final int target, final int bytes,
+            final AbstractBufferData<?> data, final int elementBytes) {
+        final int size = bytes + ALIGNMENT - 1 & ~(ALIGNMENT - 1);
+        for (int i = 0, max = _blocks.size(); i < max; i++) {
+            final Block block = _blocks.get(i);
+            if (block._target == target) {
+                final Range range = block.insert(size, data, elementBytes);
+                if (range != null) {
+                    _ranges.put(data, range);
+                    return range;
+                }
+            }
+        }
+
+        final int id = renderer.createVBO(renderer.getFrameRendererRecord(), target, _blockBytes, null,
+                GL11.GL_STATIC_DRAW);
+        final Block block = new Block(target, id, _blockBytes);
+        _blocks.add(block);
+        final Range range = block.insert(size, data, elementBytes);
+        _ranges.put(data, range);
+        return range;
+    }
+
+    private void upload(final AndroidRenderer renderer, final Range range, final AbstractBufferData<?> data) {
+        final GL11 gl = (GL11) renderer.getGL();
+        bind(gl, renderer.getFrameRendererRecord(), range._block);
+
+        final Buffer buffer = data.getBuffer();
+        buffer.rewind();
+        gl.glBufferSubData(range._block._target, range._offset, buffer.limit() * range._elementBytes, buffer);
+
+        final AndroidDirtyRanges dirty = AndroidDirtyRanges.get(data);
+        if (dirty != null) {
+            synchronized (dirty) {
+                dirty.clear();
+            }
+        }
+        data.setNeedsRefresh(false);
+    }
+
+    private static void bind(final GL11 gl, final RendererRecord rendRecord, final Block block) {
+        if (block._target == GL11.GL_ELEMENT_ARRAY_BUFFER) {
+            AndroidRendererUtil.setBoundElementVBO(gl, rendRecord, block._id);
+        } else {
+            AndroidRendererUtil.setBoundVBO(gl, rendRecord, block._id);
+        }
+    }
+
+    /**
+     * @return the byte offset of the given data in its block's VBO, or 0 if it is not in the arena.
+     */
+    public int getOffset(final AbstractBufferData<?> data) {
+        final Range range = _ranges.get(data);
+        return range != null ? range._offset : 0;
+    }
+
+    /**
+     * @return true if the given VBO id is one of this arena's blocks, so it must not be deleted with any one data.
+     */
+    public boolean isBlock(final int id) {
+        for (int i = 0, max = _blocks.size(); i < max; i++) {
+            if (_blocks.get(i)._id == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Give the given data's range back to its block.
+     *
+     * @return false if the data was not in the arena.
+     */
+    public boolean free(final AbstractBufferData<?> data) {
+        final Range range = _ranges.remove(data);
+        if (range == null) {
+            return false;
+        }
+        range._block.remove(range);
+        return true;
+    }
+
+    /**
+     * Compact at most one fragmented block, and add the arena's stats to the {@link StatCollector}. Called at the end
+     * of every frame.
+     */
+    public void endFrame(final AndroidRenderer renderer) {
+        for (int i = 0, max = _blocks.size(); i < max; i++) {
+            final Block block = _blocks.get(i);
+            reclaim(block);
+            if (block.getHoleBytes() > block._capacity * _compactThreshold) {
+                compact(renderer, block);
+                break;
+            }
+        }
+        if (Constants.stats) {
+            StatCollector.addStat(AndroidStatType.STAT_VBO_ARENA_BLOCKS, _blocks.size());
+            StatCollector.addStat(AndroidStatType.STAT_VBO_ARENA_COMPACTIONS, _compactions);
+        }
+        _compactions = 0;
+    }
+
+    /**
+     * Drop the ranges of data that was garbage collected without being deleted.
+     */
+    private void reclaim(final Block block) {
+        for (int i = block._ranges.size() - 1; i >= 0; i--) {
+            final Range range = block._ranges.get(i);
+            final AbstractBufferData<?> data = range._data.get();
+            if (data == null || data.getBuffer() == null) {
+                block._ranges.remove(i);
+                block._liveBytes -= range._capacity;
+                if (data != null) {
+                    _ranges.remove(data);
+                }
+            }
+        }
+    }
+
+    private void compact(final AndroidRenderer renderer, final Block block) {
+        final GL11 gl = (GL11) renderer.getGL();
+        bind(gl, renderer.getFrameRendererRecord(), block);
+        // orphan the storage, so the driver doesn't wait on draws still reading the old layout.
+        gl.glBufferData(block._target, block._capacity, null, GL11.GL_STATIC_DRAW);
+
+        int offset = 0;
+        for (int i = 0, max = block._ranges.size(); i < max; i++) {
+            final Range range = block._ranges.get(i);
+            range._offset = offset;
+            offset += range._capacity;
+
+            final AbstractBufferData<?> data = range._data.get();
+            if (data != null) {
+                final Buffer buffer = data.getBuffer();
+                buffer.rewind();
+                gl.glBufferSubData(block._target, range._offset, buffer.limit() * range._elementBytes, buffer);
+                data.setNeedsRefresh(false);
+            }
+        }
+        renderer.getFrameAndroidRecord().invalidatePointers(block._id);
+        _compactions++;
+    }
+
+    /**
+     * @return bytes held by data in the arena's blocks.
+     */
+    public long getLiveBytes() {
+        long bytes = 0;
+        for (int i = 0, max = _blocks.size(); i < max; i++) {
+            bytes += _blocks.get(i)._liveBytes;
+        }
+        return bytes;
+    }
+
+    public int getBlockCount() {
+        return _blocks.size();
+    }
+
+    /**
+     * Delete all blocks. Data that was in the arena will be uploaded again when next drawn.
+     */
+    public void clear(final AndroidRenderer renderer) {
+        final Object glContextRep = renderer.getFrameContext().getGlContextRep();
+        for (final Range range : _ranges.values()) {
+            final AbstractBufferData<?> data = range._data.get();
+            if (data != null) {
+                data.removeVBOID(glContextRep);
+            }
+        }
+        _ranges.clear();
+
+        final int[] ids = new int[_blocks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = _blocks.get(i)._id;
+            renderer.getFrameAndroidRecord().invalidatePointers(ids[i]);
+        }
+        _blocks.clear();
+        if (ids.length != 0) {
+            ((GL11) renderer.getGL()).glDeleteBuffers(ids.length, ids, 0);
+            renderer.getFrameRendererRecord().invalidateVBO();
+        }
+    }
+}
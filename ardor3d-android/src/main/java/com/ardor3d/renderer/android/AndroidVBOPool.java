@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import javax.microedition.khronos.opengles.GL11;
+
+import android.util.SparseIntArray;
+
+import com.ardor3d.util.Constants;
+import com.ardor3d.util.stat.StatCollector;
+
+/**
+ * Hands out VBO ids for one GL context, generating them in batches, and keeps released buffers around so their
+ * storage can be refilled with glBufferSubData instead of being deleted and allocated again. Released buffers are kept
+ * in free lists by usage and power of two size class, up to {@link #getMaxPooledBytes()} bytes in total.
+ * <p>
+ * Must only be used from the thread issuing the context's GL calls.
+ */
+public class AndroidVBOPool {
+
+    public static final int ID_BATCH_SIZE = 16;
+    public static final int DEFAULT_MAX_POOLED_BYTES = 2 * 1024 * 1024;
+
+    private static final int SIZE_CLASSES = 32;
+    private static final int USAGES = 3;
+
+    /**
+     * A growable list of pooled buffers of one usage and size class.
+     */
+    private static class FreeList {
+        private int[] _ids = new int[4];
+        private int[] _capacities = new int[4];
+        private int _size;
+
+        void add(final int id, final int capacity) {
+            if (_size == _ids.length) {
+                final int[] ids = new int[_size * 2];
+                final int[] capacities = new int[_size * 2];
+                System.arraycopy(_ids, 0, ids, 0, _size);
+                System.arraycopy(_capacities, 0, capacities, 0, _size);
+                _ids = ids;
+                _capacities = capacities;
+            }
+            _ids[_size] = id;
+            _capacities[_size] = capacity;
+            _size++;
+        }
+
+        /**
+         * @return the index of the most recently released buffer holding at least the given bytes, or -1.
+         */
+        int find(final int bytes) {
+            for (int i = _size - 1; i >= 0; i--) {
+                if (_capacities[i] >= bytes) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void remove(final int index) {
+            _size--;
+            _ids[index] = _ids[_size];
+            _capacities[index] = _capacities[_size];
+        }
+    }
+
+    private final int[] _newIds = new int[ID_BATCH_SIZE];
+    private int _newIdCount;
+
+    private final FreeList[] _free = new FreeList[USAGES * SIZE_CLASSES];
+
+    /** capacity and usage, packed, of every buffer with storage we know of, in use or pooled. */
+    private final SparseIntArray _buffers = new SparseIntArray();
+
+    private int _maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+    private long _pooledBytes;
+    private long _residentBytes;
+
+    private int _hits, _misses;
+    private long _totalHits, _totalMisses;
+
+    private final int[] _deleteScratch = new int[1];
+
+    /**
+     * @param maxPooledBytes
+     *            the most bytes kept in released buffers; buffers released beyond that are deleted. 0 disables reuse.
+     */
+    public void setMaxPooledBytes(final int maxPooledBytes) {
+        _maxPooledBytes = maxPooledBytes;
+    }
+
+    public int getMaxPooledBytes() {
+        return _maxPooledBytes;
+    }
+
+    /**
+     * @return a new buffer id, without storage.
+     */
+    public int newId(final GL11 gl) {
+        if (_newIdCount == 0) {
+            gl.glGenBuffers(ID_BATCH_SIZE, _newIds, 0);
+            _newIdCount = ID_BATCH_SIZE;
+        }
+        return _newIds[--_newIdCount];
+    }
+
+    /**
+     * @return the id of a released buffer with storage for at least the given bytes and the given usage, or 0 if there
+     *         is none. The caller only needs to fill the buffer with glBufferSubData.
+     */
+    public int acquire(final int bytes, final int usage) {
+        if (bytes > 0) {
+            final int base = usageIndex(usage) * SIZE_CLASSES;
+            final int sizeClass = sizeClass(bytes);
+            // a buffer from the next class up wastes at most three quarters of its storage.
+            for (int c = sizeClass; c <= sizeClass + 1 && c < SIZE_CLASSES; c++) {
+                final FreeList list = _free[base + c];
+                final int index = list != null ? list.find(bytes) : -1;
+                if (index >= 0) {
+                    final int id = list._ids[index];
+                    _pooledBytes -= list._capacities[index];
+                    list.remove(index);
+                    _hits++;
+                    return id;
+                }
+            }
+        }
+        _misses++;
+        return 0;
+    }
+
+    /**
+     * Note that the given buffer was given storage with glBufferData.
+     */
+    public void allocated(final int id, final int bytes, final int usage) {
+        final int old = _buffers.get(id, -1);
+        if (old != -1) {
+            _residentBytes -= old >>> 2;
+        }
+        _buffers.put(id, bytes << 2 | usageIndex(usage));
+        _residentBytes += bytes;
+    }
+
+    /**
+     * Give a buffer that is no longer used back to the pool.
+     *
+     * @return false if the buffer was not kept and should be deleted by the caller.
+     */
+    public boolean release(final int id) {
+        final int info = _buffers.get(id, -1);
+        if (info == -1) {
+            return false;
+        }
+        final int capacity = info >>> 2;
+        if (_pooledBytes + capacity > _maxPooledBytes) {
+            _buffers.delete(id);
+            _residentBytes -= capacity;
+            return false;
+        }
+
+        final int slot = (info & 3) * SIZE_CLASSES + sizeClass(capacity);
+        if (_free[slot] == null) {
+            _free[slot] = new FreeList();
+        }
+        _free[slot].add(id, capacity);
+        _pooledBytes += capacity;
+        return true;
+    }
+
+    /**
+     * Delete all pooled buffers and unused ids.
+     */
+    public void clear(final GL11 gl) {
+        for (final FreeList list : _free) {
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list._size; i++) {
+                _deleteScratch[0] = list._ids[i];
+                gl.glDeleteBuffers(1, _deleteScratch, 0);
+                _residentBytes -= list._capacities[i];
+                _buffers.delete(list._ids[i]);
+            }
+            list._size = 0;
+        }
+        _pooledBytes = 0;
+        if (_newIdCount > 0) {
+            gl.glDeleteBuffers(_newIdCount, _newIds, 0);
+            _newIdCount = 0;
+        }
+    }
+
+    /**
+     * @return bytes of buffer storage allocated through this pool, whether in use or pooled.
+     */
+    public long getResidentBytes() {
+        return _residentBytes;
+    }
+
+    /**
+     * @return bytes of buffer storage held in released buffers.
+     */
+    public long getPooledBytes() {
+        return _pooledBytes;
+    }
+
+    /**
+     * @return the fraction of buffer requests served from the pool since it was created.
+     */
+    public double getHitRate() {
+        final long total = _totalHits + _totalMisses + _hits + _misses;
+        return total != 0 ? (double) (_totalHits + _hits) / total : 0;
+    }
+
+    /**
+     * Add this frame's pool hits and misses and the resident bytes to the {@link StatCollector}.
+     */
+    public void endFrame() {
+        if (Constants.stats) {
+            StatCollector.addStat(AndroidStatType.STAT_VBO_POOL_HITS, _hits);
+            StatCollector.addStat(AndroidStatType.STAT_VBO_POOL_MISSES, _misses);
+            StatCollector.addStat(AndroidStatType.STAT_VBO_RESIDENT_BYTES, _residentBytes);
+        }
+        _totalHits += _hits;
+        _totalMisses += _misses;
+        _hits = 0;
+        _misses = 0;
+    }
+
+    private static int usageIndex(final int usage) {
+        switch (usage) {
+            case GL11.GL_STATIC_DRAW:
+                return 0;
+            case GL11.GL_DYNAMIC_DRAW:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    /**
+     * @return the power of two size class holding the given bytes, so class c holds sizes up to 2^c.
+     */
+    private static int sizeClass(final int bytes) {
+        return bytes <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(bytes - 1);
+    }
+}
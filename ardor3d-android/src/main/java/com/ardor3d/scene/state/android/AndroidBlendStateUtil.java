@@ -35,6 +35,15 @@ import com.ardor3d.renderer.state.record.BlendStateRecord;
 public abstract class AndroidBlendStateUtil {
 
     public static void apply(final GL10 gl, final BlendState state) {
+        AndroidBlendStateUtil.apply(gl, state, true);
+    }
+
+    /**
+     * @param fixedFunctionTest
+     *            if false, the alpha test portion of the state is left to the caller. OpenGL ES 2.0 has no
+     *            GL_ALPHA_TEST, so the shader based renderer does its test in the fragment shader.
+     */
+    public static void apply(final GL10 gl, final BlendState state, final boolean fixedFunctionTest) {
         // ask for the current state record
         final RenderContext context = ContextManager.getCurrentContext();
         final BlendStateRecord record = (BlendStateRecord) context.getStateRecord(StateType.Blend);
@@ -46,13 +55,17 @@ public abstract class AndroidBlendStateUtil {
             AndroidBlendStateUtil.applyBlendColor(gl, state.isBlendEnabled(), state, record, caps);
             AndroidBlendStateUtil.applyBlendFunctions(gl, state.isBlendEnabled(), state, record, caps);
 
-            AndroidBlendStateUtil.applyTest(gl, state.isTestEnabled(), state, record);
+            if (fixedFunctionTest) {
+                AndroidBlendStateUtil.applyTest(gl, state.isTestEnabled(), state, record);
+            }
         } else {
             // disable blend
             AndroidBlendStateUtil.applyBlendEquations(gl, false, state, record, caps);
 
             // disable alpha test
-            AndroidBlendStateUtil.applyTest(gl, false, state, record);
+            if (fixedFunctionTest) {
+                AndroidBlendStateUtil.applyTest(gl, false, state, record);
+            }
         }
 
         if (!record.isValid()) {
@@ -27,7 +27,7 @@ import javax.microedition.khronos.opengles.GL11;
 import javax.microedition.khronos.opengles.GL11ExtensionPack;
 
 import android.graphics.Bitmap;
-import android.opengl.GLUtils;
+import android.opengl.GLES20;
 import android.util.Log;
 
 import com.ardor3d.extension.android.AndroidImage;
@@ -48,6 +48,8 @@ import com.ardor3d.math.type.ReadOnlyColorRGBA;
 import com.ardor3d.renderer.ContextCapabilities;
 import com.ardor3d.renderer.ContextManager;
 import com.ardor3d.renderer.RenderContext;
+import com.ardor3d.renderer.android.AndroidContextCapabilities;
+import com.ardor3d.renderer.android.AndroidRecordingGL;
 import com.ardor3d.renderer.state.RenderState.StateType;
 import com.ardor3d.renderer.state.TextureState;
 import com.ardor3d.renderer.state.record.RendererRecord;
@@ -56,6 +58,7 @@ import com.ardor3d.renderer.state.record.TextureStateRecord;
 import com.ardor3d.renderer.state.record.TextureUnitRecord;
 import com.ardor3d.scene.state.android.util.AndroidImageConverter;
 import com.ardor3d.scene.state.android.util.AndroidRendererUtil;
+import com.ardor3d.scene.state.android.util.AndroidStateVersions;
 import com.ardor3d.scene.state.android.util.AndroidTextureUtil;
 import com.ardor3d.util.Constants;
 import com.ardor3d.util.TextureManager;
@@ -66,6 +69,7 @@ import com.ardor3d.util.stat.StatType;
 public abstract class AndroidTextureStateUtil {
 
     private static FloatBuffer tmp_matrixBuffer = BufferUtils.createFloatBuffer(16);
+    private static int[] tmp_idBuffer = new int[16];
 
     public final static void load(final GL10 gl, final Texture texture, final int unit) {
         if (texture == null) {
@@ -100,7 +104,7 @@ public abstract class AndroidTextureStateUtil {
             }
         }
 
-        final int[] buffer = new int[1];
+        final int[] buffer = getIdBuffer(1);
         gl.glGenTextures(1, buffer, 0);
         final int textureId = buffer[0];
 
@@ -118,6 +122,7 @@ public abstract class AndroidTextureStateUtil {
         final ContextCapabilities caps = context.getCapabilities();
 
         texture.getTextureKey().setClean(context.getGlContextRep());
+        AndroidStateVersions.invalidateApplied(context, StateType.Texture);
 
         // our texture type:
         final Texture.Type type = texture.getType();
@@ -157,7 +162,7 @@ public abstract class AndroidTextureStateUtil {
 
         // set alignment to support images with width % 4 != 0, as images are
         // not aligned
-        gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, 1);
+        AndroidRendererUtil.setUnpackAlignment(gl, context, 1);
 
         // Get texture image data. Not all textures have image data.
         // For example, ApplyMode.Combine modes can use primary colors,
@@ -204,7 +209,7 @@ public abstract class AndroidTextureStateUtil {
                 for (int i = 0; i < image.getBitmaps().size(); i++) {
                     final Bitmap bm = image.getBitmap(i);
                     image.getBitmaps().set(i, Bitmap.createScaledBitmap(bm, w, h, true));
-                    bm.recycle();
+                    AndroidRecordingGL.recycle(gl, bm);
                 }
 
                 image.setWidth(w);
@@ -217,14 +222,14 @@ public abstract class AndroidTextureStateUtil {
 
                 switch (texture.getType()) {
                     case TwoDimensional:
-                        GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, image.getBitmap(0), 0);
+                        AndroidRecordingGL.texImage2D(gl, GL10.GL_TEXTURE_2D, 0, image.getBitmap(0));
                         break;
                     case CubeMap:
                         if (caps.isTextureCubeMapSupported()) {
                             for (final TextureCubeMap.Face face : TextureCubeMap.Face.values()) {
                                 // send top level to card
-                                GLUtils.texImage2D(AndroidTextureStateUtil.getGLCubeMapFace(face), 0,
-                                        image.getBitmap(face.ordinal()), 0);
+                                AndroidRecordingGL.texImage2D(gl, AndroidTextureStateUtil.getGLCubeMapFace(face), 0,
+                                        image.getBitmap(face.ordinal()));
                             }
                         } else {
                             Log.w(AndroidCanvas.TAG, "AndroidTextureState.load - This card does not support Cubemaps.");
@@ -241,7 +246,10 @@ public abstract class AndroidTextureStateUtil {
                 // For textures which need mipmaps auto-generating and which aren't using compressed images, generate
                 // the mipmaps. A new mipmap builder may be needed to build mipmaps for compressed textures.
 
-                if (caps.isAutomaticMipmapsSupported()) {
+                // OpenGL ES 2.0 dropped the GENERATE_MIPMAP parameter in favor of an explicit glGenerateMipmap
+                final boolean explicitMipmaps = caps instanceof AndroidContextCapabilities
+                        && ((AndroidContextCapabilities) caps).isOES20Suported();
+                if (caps.isAutomaticMipmapsSupported() && !explicitMipmaps) {
                     // Flag the card to generate mipmaps
                     gl.glTexParameterx(AndroidTextureStateUtil.getGLType(type), GL11.GL_GENERATE_MIPMAP, GL10.GL_TRUE);
                 }
@@ -249,10 +257,13 @@ public abstract class AndroidTextureStateUtil {
                 switch (type) {
                     case TwoDimensional:
                         if (caps.isAutomaticMipmapsSupported()) {
-                            GLUtils.texImage2D(GL10.GL_TEXTURE_2D, 0, image.getBitmap(0), 0);
+                            AndroidRecordingGL.texImage2D(gl, GL10.GL_TEXTURE_2D, 0, image.getBitmap(0));
                         } else {
                             AndroidTextureStateUtil.buildMipmaps(gl, GL10.GL_TEXTURE_2D, image.getBitmap(0));
                         }
+                        if (explicitMipmaps) {
+                            GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+                        }
                         break;
                     case CubeMap:
                         // NOTE: Cubemaps MUST be square, so height is ignored
@@ -260,14 +271,17 @@ public abstract class AndroidTextureStateUtil {
                         if (caps.isTextureCubeMapSupported()) {
                             for (final TextureCubeMap.Face face : TextureCubeMap.Face.values()) {
                                 if (caps.isAutomaticMipmapsSupported()) {
-                                    GLUtils.texImage2D(AndroidTextureStateUtil.getGLCubeMapFace(face), 0,
-                                            image.getBitmap(face.ordinal()), 0);
+                                    AndroidRecordingGL.texImage2D(gl, AndroidTextureStateUtil.getGLCubeMapFace(face), 0,
+                                            image.getBitmap(face.ordinal()));
                                 } else {
                                     AndroidTextureStateUtil.buildMipmaps(gl,
                                             AndroidTextureStateUtil.getGLCubeMapFace(face),
                                             image.getBitmap(face.ordinal()));
                                 }
                             }
+                            if (explicitMipmaps) {
+                                GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_CUBE_MAP);
+                            }
                         } else {
                             Log.w(AndroidCanvas.TAG,
                                     "AndroidTextureState.update - This card does not support Cubemaps.");
@@ -910,18 +924,28 @@ public abstract class AndroidTextureStateUtil {
             return;
         }
 
-        final int[] buffer = new int[] { id };
+        final int[] buffer = getIdBuffer(1);
+        buffer[0] = id;
         gl.glDeleteTextures(1, buffer, 0);
         record.removeTextureRecord(id);
+        AndroidStateVersions.invalidateApplied(context, StateType.Texture);
         texture.removeFromIdCache(context.getGlContextRep());
     }
 
+    // scratch space for passing ids to GL, which is only ever used from one thread.
+    private static int[] getIdBuffer(final int size) {
+        if (tmp_idBuffer.length < size) {
+            tmp_idBuffer = new int[Math.max(size, tmp_idBuffer.length * 2)];
+        }
+        return tmp_idBuffer;
+    }
+
     public static void deleteTextureIds(final GL10 gl, final Collection<Integer> ids) {
         // ask for the current state record
         final RenderContext context = ContextManager.getCurrentContext();
         final TextureStateRecord record = (TextureStateRecord) context.getStateRecord(StateType.Texture);
 
-        final int[] buffer = new int[ids.size()];
+        final int[] buffer = getIdBuffer(ids.size());
         int index = 0;
         for (final Integer i : ids) {
             if (i != null) {
@@ -932,6 +956,7 @@ public abstract class AndroidTextureStateUtil {
         if (index > 0) {
             gl.glDeleteTextures(index, buffer, 0);
         }
+        AndroidStateVersions.invalidateApplied(context, StateType.Texture);
     }
 
     /**
@@ -946,6 +971,7 @@ public abstract class AndroidTextureStateUtil {
             // Set this to null because no current state really matches anymore
             context.setCurrentState(StateType.Texture, null);
         }
+        AndroidStateVersions.invalidateApplied(context, StateType.Texture);
         AndroidTextureStateUtil.checkAndSetUnit(gl, unit, record, caps);
 
         final int id = texture.getTextureIdForContext(context.getGlContextRep());
@@ -987,7 +1013,7 @@ public abstract class AndroidTextureStateUtil {
         throw new IllegalArgumentException("invalid cubemap face: " + face);
     }
 
-    private static int getGLWrap(final WrapMode wrap, final ContextCapabilities caps) {
+    public static int getGLWrap(final WrapMode wrap, final ContextCapabilities caps) {
         switch (wrap) {
             case Repeat:
                 return GL10.GL_REPEAT;
@@ -1043,7 +1069,7 @@ public abstract class AndroidTextureStateUtil {
         boolean original = true;
         while (height >= 1 || width >= 1) {
             // First of all, generate the texture from our bitmap and set it to the according level
-            GLUtils.texImage2D(texType, level, bitmap, 0);
+            AndroidRecordingGL.texImage2D(gl, texType, level, bitmap);
 
             // escape if this is the lowest level
             if (height == 1 || width == 1) {
@@ -1064,7 +1090,7 @@ public abstract class AndroidTextureStateUtil {
 
             // Clean up
             if (!original) {
-                bitmap.recycle();
+                AndroidRecordingGL.recycle(gl, bitmap);
             } else {
                 original = false;
             }
@@ -26,6 +26,9 @@ import javax.microedition.khronos.opengles.GL11;
 
 import com.ardor3d.math.Rectangle2;
 import com.ardor3d.math.type.ReadOnlyRectangle2;
+import com.ardor3d.renderer.RenderContext;
+import com.ardor3d.renderer.android.AndroidRenderContext;
+import com.ardor3d.renderer.android.AndroidRendererRecord;
 import com.ardor3d.renderer.state.record.RendererRecord;
 
 public class AndroidRendererUtil {
@@ -38,6 +41,34 @@ public class AndroidRendererUtil {
         }
     }
 
+    /** GL's initial GL_UNPACK_ALIGNMENT. */
+    public static final int DEFAULT_UNPACK_ALIGNMENT = 4;
+
+    public static void setUnpackAlignment(final GL10 gl, final RenderContext context, final int alignment) {
+        if (context instanceof AndroidRenderContext) {
+            final AndroidRendererRecord record = ((AndroidRenderContext) context).getAndroidRendererRecord();
+            if (record.unpackAlignment == alignment) {
+                record.avoided();
+                return;
+            }
+            record.unpackAlignment = alignment;
+        }
+        gl.glPixelStorei(GL10.GL_UNPACK_ALIGNMENT, alignment);
+    }
+
+    /**
+     * @return the shadowed GL_UNPACK_ALIGNMENT, or GL's initial value if it is not known.
+     */
+    public static int getUnpackAlignment(final RenderContext context) {
+        if (context instanceof AndroidRenderContext) {
+            final int alignment = ((AndroidRenderContext) context).getAndroidRendererRecord().unpackAlignment;
+            if (alignment != -1) {
+                return alignment;
+            }
+        }
+        return DEFAULT_UNPACK_ALIGNMENT;
+    }
+
     public static void setBoundVBO(final GL11 gl, final RendererRecord rendRecord, final int id) {
         if (!rendRecord.isVboValid() || rendRecord.getCurrentVboId() != id) {
             gl.glBindBuffer(GL11.GL_ARRAY_BUFFER, id);
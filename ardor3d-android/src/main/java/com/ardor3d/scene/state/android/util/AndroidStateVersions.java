@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.scene.state.android.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ardor3d.renderer.RenderContext;
+import com.ardor3d.renderer.android.AndroidRenderContext;
+import com.ardor3d.renderer.state.RenderState;
+import com.ardor3d.renderer.state.RenderState.StateType;
+
+/**
+ * Gives render states a version, increased whenever the state is found flagged by its setters with
+ * {@link RenderState#needsRefresh()}. Together with {@code AndroidRendererRecord#isApplied}, this lets the renderer
+ * skip applying a state that is already current in a context. Each renderer owns its versions and, like the renderer,
+ * only uses them from one thread at a time, so they are looked up by identity without locking.
+ * <p>
+ * The refresh flag may be cleared once the state has been applied by any renderer, so a renderer finding a flagged
+ * state also gives it a new stamp, shared by all renderers. Each renderer keeps the stamp it last saw with each version
+ * and counts the state as changed when the stamp moved on, leaving all other states as they are.
+ * <p>
+ * Changes a setter doesn't flag, such as edits to a texture's image or to a light, should be followed by
+ * {@link #touch(RenderState)} or {@code setNeedsRefresh(true)} on the state.
+ */
+public final class AndroidStateVersions {
+
+    /** States with a version before all are forgotten, counting as changed once more. */
+    private static final int MAX_VERSIONS = 4096;
+
+    // keyed by render state, the stamp given when last found flagged by any renderer.
+    private static final Map<RenderState, Integer> _stamps = new IdentityHashMap<RenderState, Integer>();
+    private static int _nextStamp = 1;
+
+    // increased when the stamps are forgotten, which makes every renderer forget its versions too.
+    private static final AtomicInteger _stampResets = new AtomicInteger();
+
+    // keyed by render state, the version and the stamp it was given at.
+    private final Map<RenderState, int[]> _versions = new IdentityHashMap<RenderState, int[]>();
+    private int _nextVersion = 1;
+    private int _seenStampResets = _stampResets.get();
+
+    /**
+     * @return the current version of the given state, increasing it first if the state needs a refresh or was found
+     *         flagged by another renderer since.
+     */
+    public int getVersion(final RenderState state) {
+        if (_stampResets.get() != _seenStampResets) {
+            forget();
+        }
+        final boolean flagged = state.needsRefresh();
+        final int stamp = flagged ? restamp(state) : getStamp(state);
+        int[] version = _versions.get(state);
+        if (version == null) {
+            if (_versions.size() >= MAX_VERSIONS) {
+                _versions.clear();
+            }
+            version = new int[] { _nextVersion++, stamp };
+            _versions.put(state, version);
+        } else if (flagged || version[1] != stamp) {
+            version[0] = _nextVersion++;
+            version[1] = stamp;
+        }
+        return version[0];
+    }
+
+    private static int getStamp(final RenderState state) {
+        synchronized (_stamps) {
+            final Integer stamp = _stamps.get(state);
+            return stamp != null ? stamp : 0;
+        }
+    }
+
+    private static int restamp(final RenderState state) {
+        synchronized (_stamps) {
+            if (_stamps.size() >= MAX_VERSIONS) {
+                _stamps.clear();
+                _stampResets.incrementAndGet();
+            }
+            final int stamp = _nextStamp++;
+            _stamps.put(state, stamp);
+            return stamp;
+        }
+    }
+
+    // versions are never handed out twice, so forgotten states don't match what was applied before.
+    private void forget() {
+        _versions.clear();
+        _seenStampResets = _stampResets.get();
+    }
+
+    /**
+     * Make the given state count as changed, so it is applied again in every context.
+     */
+    public static void touch(final RenderState state) {
+        state.setNeedsRefresh(true);
+    }
+
+    /**
+     * Forget which state of the given type was last applied in the context, e.g. after changing its GL state directly.
+     */
+    public static void invalidateApplied(final RenderContext context, final StateType type) {
+        if (context instanceof AndroidRenderContext) {
+            ((AndroidRenderContext) context).getAndroidRendererRecord().invalidateApplied(type);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.scenegraph.android;
+
+import java.nio.FloatBuffer;
+
+import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.bounding.BoundingVolume;
+import com.ardor3d.math.type.ReadOnlyColorRGBA;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.Camera;
+import com.ardor3d.renderer.Camera.ProjectionMode;
+import com.ardor3d.renderer.Renderer;
+import com.ardor3d.renderer.android.AndroidRenderer;
+import com.ardor3d.renderer.state.RenderState.StateType;
+import com.ardor3d.scenegraph.AbstractBufferData.VBOAccessMode;
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.Renderable;
+import com.ardor3d.scenegraph.event.DirtyType;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * A set of points drawn as sprites, each with its own position, color and size, for particle effects. The points are
+ * kept interleaved in one buffer that is streamed to a single VBO and drawn with a point size array (see
+ * {@link AndroidRenderer#drawPointSprites(FloatBufferData, int)}), so each particle costs one vertex rather than the
+ * three to six of triangle or quad particles. Texture coordinates are generated across each sprite.
+ * <p>
+ * Sizes are in local units, and are attenuated with the distance from the camera through point parameters derived
+ * from the current camera, so sprites scale like the geometry around them up to the maximum point size, which the
+ * hardware may clamp further. Contexts without point size arrays, such as OpenGL ES 2.0, draw the fallback mesh
+ * instead if one is set, e.g. the triangle geometry of a particle system with its cull hint set to Always.
+ */
+public class AndroidPointSpriteMesh extends Mesh {
+
+    private FloatBufferData _points;
+    private int _pointCount;
+    private Mesh _fallback;
+    private float _minPointSize = 1;
+    private float _maxPointSize = 256;
+    private final FloatBuffer _attenuation = BufferUtils.createFloatBuffer(3);
+
+    public AndroidPointSpriteMesh(final String name, final int maxPoints) {
+        super(name);
+        setMaxPoints(maxPoints);
+        setModelBound(new BoundingBox());
+    }
+
+    /**
+     * Reallocate the point buffer to hold the given number of points, dropping the current points.
+     */
+    public void setMaxPoints(final int maxPoints) {
+        _points = new FloatBufferData(BufferUtils.createFloatBuffer(maxPoints * AndroidRenderer.POINT_SPRITE_FLOATS),
+                AndroidRenderer.POINT_SPRITE_FLOATS);
+        _points.setVboAccessMode(VBOAccessMode.StreamDraw);
+        _pointCount = 0;
+    }
+
+    public int getMaxPoints() {
+        return _points.getBuffer().capacity() / AndroidRenderer.POINT_SPRITE_FLOATS;
+    }
+
+    /**
+     * Set a point. Call {@link #setPointCount(int)} once all points are set.
+     *
+     * @param size
+     *            the width of the sprite, in local units.
+     */
+    public void setPoint(final int index, final ReadOnlyVector3 position, final ReadOnlyColorRGBA color,
+            final float size) {
+        final FloatBuffer buffer = _points.getBuffer();
+        int i = index * AndroidRenderer.POINT_SPRITE_FLOATS;
+        if (i + AndroidRenderer.POINT_SPRITE_FLOATS > buffer.limit()) {
+            buffer.clear();
+        }
+        buffer.put(i++, position.getXf()).put(i++, position.getYf()).put(i++, position.getZf());
+        buffer.put(i++, color.getRed()).put(i++, color.getGreen()).put(i++, color.getBlue()).put(i++, color.getAlpha());
+        buffer.put(i, size);
+    }
+
+    /**
+     * Set the number of points to draw, the first ones set, and have them uploaded and bounded again.
+     */
+    public void setPointCount(final int count) {
+        _pointCount = Math.min(count, getMaxPoints());
+        _points.getBuffer().limit(_pointCount * AndroidRenderer.POINT_SPRITE_FLOATS).rewind();
+        _points.setNeedsRefresh(true);
+        updateModelBound();
+    }
+
+    public int getPointCount() {
+        return _pointCount;
+    }
+
+    /**
+     * @return the interleaved points, {@link AndroidRenderer#POINT_SPRITE_FLOATS} floats each.
+     */
+    public FloatBufferData getPoints() {
+        return _points;
+    }
+
+    /**
+     * @param fallback
+     *            the mesh to draw in contexts that can't draw the sprites, or null to draw nothing there.
+     */
+    public void setFallback(final Mesh fallback) {
+        _fallback = fallback;
+    }
+
+    public Mesh getFallback() {
+        return _fallback;
+    }
+
+    public void setMinPointSize(final float minPointSize) {
+        _minPointSize = minPointSize;
+    }
+
+    public float getMinPointSize() {
+        return _minPointSize;
+    }
+
+    /**
+     * @param maxPointSize
+     *            the largest sprite size in pixels, clamping sprites close to the camera.
+     */
+    public void setMaxPointSize(final float maxPointSize) {
+        _maxPointSize = maxPointSize;
+    }
+
+    public float getMaxPointSize() {
+        return _maxPointSize;
+    }
+
+    @Override
+    public void updateModelBound() {
+        final BoundingVolume bound = getModelBound();
+        if (!(bound instanceof BoundingBox) || _points == null) {
+            return;
+        }
+        final FloatBuffer buffer = _points.getBuffer();
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < _pointCount; i++) {
+            final int offset = i * AndroidRenderer.POINT_SPRITE_FLOATS;
+            final float radius = buffer.get(offset + 7) * .5f;
+            final float x = buffer.get(offset), y = buffer.get(offset + 1), z = buffer.get(offset + 2);
+            minX = Math.min(minX, x - radius);
+            minY = Math.min(minY, y - radius);
+            minZ = Math.min(minZ, z - radius);
+            maxX = Math.max(maxX, x + radius);
+            maxY = Math.max(maxY, y + radius);
+            maxZ = Math.max(maxZ, z + radius);
+        }
+        final BoundingBox box = (BoundingBox) bound;
+        if (_pointCount == 0) {
+            box.setCenter(0, 0, 0);
+            box.setXExtent(0);
+            box.setYExtent(0);
+            box.setZExtent(0);
+        } else {
+            box.setCenter((minX + maxX) * .5, (minY + maxY) * .5, (minZ + maxZ) * .5);
+            box.setXExtent((maxX - minX) * .5);
+            box.setYExtent((maxY - minY) * .5);
+            box.setZExtent((maxZ - minZ) * .5);
+        }
+        markDirty(DirtyType.Bounding);
+    }
+
+    @Override
+    public void render(final Renderer renderer) {
+        if (!(renderer instanceof AndroidRenderer) || !((AndroidRenderer) renderer).isPointSizeArraySupported()) {
+            if (_fallback != null) {
+                renderer.draw((Renderable) _fallback);
+            }
+            return;
+        }
+        if (_pointCount == 0) {
+            return;
+        }
+
+        for (final StateType type : StateType.values) {
+            renderer.applyState(type, getWorldRenderState(type));
+        }
+
+        final boolean transformed = renderer.doTransforms(getWorldTransform());
+        updateAttenuation(Camera.getCurrentCamera());
+        renderer.setupPointParameters(1, false, true, true, _attenuation, _minPointSize, _maxPointSize);
+        ((AndroidRenderer) renderer).drawPointSprites(_points, _pointCount);
+        if (transformed) {
+            renderer.undoTransforms(getWorldTransform());
+        }
+    }
+
+    /**
+     * Point sizes are divided by sqrt(a + b * d + c * d^2) at eye distance d; pick the coefficients that turn local
+     * units into pixels at that distance.
+     */
+    private void updateAttenuation(final Camera camera) {
+        final ReadOnlyVector3 scale = getWorldScale();
+        final double worldScale = Math.max(Math.abs(scale.getX()), Math.max(Math.abs(scale.getY()), Math.abs(scale
+                .getZ())));
+        final double viewportHeight = camera.getHeight() * (camera.getViewPortTop() - camera.getViewPortBottom());
+        // world units spanned by a pixel, at a distance of 1 in perspective.
+        double unitsPerPixel = (camera.getFrustumTop() - camera.getFrustumBottom()) / viewportHeight;
+        if (camera.getProjectionMode() == ProjectionMode.Parallel) {
+            unitsPerPixel /= worldScale;
+            _attenuation.put(0, (float) (unitsPerPixel * unitsPerPixel)).put(1, 0).put(2, 0);
+        } else {
+            unitsPerPixel /= camera.getFrustumNear() * worldScale;
+            _attenuation.put(0, 0).put(1, 0).put(2, (float) (unitsPerPixel * unitsPerPixel));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.scenegraph.android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.ardor3d.renderer.Renderer;
+import com.ardor3d.renderer.android.AndroidRenderer;
+import com.ardor3d.scenegraph.AbstractBufferData;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.MeshData;
+import com.ardor3d.scenegraph.Node;
+import com.ardor3d.scenegraph.Renderable;
+import com.ardor3d.scenegraph.Spatial;
+import com.ardor3d.scenegraph.event.DirtyEventListener;
+import com.ardor3d.scenegraph.event.DirtyType;
+import com.ardor3d.scenegraph.hint.CullHint;
+
+/**
+ * A node that records the drawing of everything below it once, into a render list standing in for a display list
+ * (see {@code AndroidRenderer#startDisplayList()}), and replays that list in later frames instead of traversing,
+ * culling and setting up each mesh again.
+ * <p>
+ * The list is compiled again before the next draw whenever this node or a descendant is attached, detached, moved,
+ * has its bounds updated or its render states changed, and whenever a recorded mesh has its buffers replaced or flagged
+ * for refresh. A list missing a mesh whose data wasn't ready, such as int indices still being converted in the
+ * background, is also compiled again in the following frames. Call {@link #invalidate()} after changing a cull hint
+ * below this node, or when the GL context was lost. This node uses its {@link DirtyEventListener} slot for that, so
+ * don't set a listener of your own on it.
+ * <p>
+ * Descendants are only culled as a whole, by this node's bounds, and are drawn in traversal order rather than through
+ * the render queue, so this suits static, opaque content. Renderers without render lists draw the children as usual.
+ */
+public class AndroidRenderListNode extends Node {
+
+    private int _listId;
+    private boolean _dirty = true;
+    private boolean _unsupported;
+
+    // the meshes recorded into the list, the buffers they were recorded with and whether each was clean once compiled.
+    // Buffers flagged even after compiling are drawn from client memory, which the list reads directly.
+    private final List<Mesh> _recordedMeshes = new ArrayList<Mesh>();
+    private final List<AbstractBufferData<?>> _recordedBuffers = new ArrayList<AbstractBufferData<?>>();
+    private final List<AbstractBufferData<?>> _currentBuffers = new ArrayList<AbstractBufferData<?>>();
+    private boolean[] _recordedClean = new boolean[0];
+
+    public AndroidRenderListNode() {
+        this("renderList");
+    }
+
+    public AndroidRenderListNode(final String name) {
+        super(name);
+        setListener(new DirtyEventListener() {
+            public boolean spatialDirty(final Spatial spatial, final DirtyType dirtyType) {
+                // world transforms are recorded, so moving this node counts as well.
+                _dirty = true;
+                return false;
+            }
+
+            public boolean spatialClean(final Spatial spatial, final DirtyType dirtyType) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Compile the list again before the next draw.
+     */
+    public void invalidate() {
+        _dirty = true;
+    }
+
+    /**
+     * @return the id of the current render list, or 0 if none was compiled yet.
+     */
+    public int getListId() {
+        return _listId;
+    }
+
+    @Override
+    public void draw(final Renderer r) {
+        if (_unsupported) {
+            super.draw(r);
+            return;
+        }
+        if (_dirty || _listId <= 0 || isStale()) {
+            if (_listId > 0) {
+                r.deleteDisplayLists(Collections.singletonList(_listId));
+                _listId = 0;
+            }
+            final int id = r.startDisplayList();
+            if (id <= 0) {
+                _unsupported = true;
+                super.draw(r);
+                return;
+            }
+            _recordedMeshes.clear();
+            for (int i = 0, max = getNumberOfChildren(); i < max; i++) {
+                record(getChild(i), r);
+            }
+            r.endDisplayList();
+            _listId = id;
+            _dirty = r instanceof AndroidRenderer && !((AndroidRenderer) r).isDisplayListComplete(id);
+            rememberBuffers();
+        }
+        r.renderDisplayList(_listId);
+    }
+
+    private void record(final Spatial spatial, final Renderer r) {
+        if (spatial == null || spatial.getSceneHints().getCullHint() == CullHint.Always) {
+            return;
+        }
+        if (spatial instanceof Node) {
+            // nested render list nodes are recorded into this list, as lists can't be compiled within one another.
+            final Node node = (Node) spatial;
+            for (int i = 0, max = node.getNumberOfChildren(); i < max; i++) {
+                record(node.getChild(i), r);
+            }
+        } else if (spatial instanceof Renderable) {
+            // straight to the renderer, queued renderables would be drawn outside the list.
+            r.draw((Renderable) spatial);
+            if (spatial instanceof Mesh) {
+                _recordedMeshes.add((Mesh) spatial);
+            }
+        } else {
+            spatial.draw(r);
+        }
+    }
+
+    private void rememberBuffers() {
+        _recordedBuffers.clear();
+        for (int i = 0, max = _recordedMeshes.size(); i < max; i++) {
+            addBuffers(_recordedMeshes.get(i), _recordedBuffers);
+        }
+        if (_recordedClean.length < _recordedBuffers.size()) {
+            _recordedClean = new boolean[_recordedBuffers.size()];
+        }
+        for (int i = 0, max = _recordedBuffers.size(); i < max; i++) {
+            final AbstractBufferData<?> buffer = _recordedBuffers.get(i);
+            _recordedClean[i] = buffer == null || !buffer.isNeedsRefresh();
+        }
+    }
+
+    /**
+     * @return true if a recorded mesh has had a buffer replaced, or flagged for refresh since the list was compiled.
+     */
+    private boolean isStale() {
+        _currentBuffers.clear();
+        for (int i = 0, max = _recordedMeshes.size(); i < max; i++) {
+            addBuffers(_recordedMeshes.get(i), _currentBuffers);
+        }
+        if (_currentBuffers.size() != _recordedBuffers.size()) {
+            return true;
+        }
+        for (int i = 0, max = _currentBuffers.size(); i < max; i++) {
+            final AbstractBufferData<?> buffer = _currentBuffers.get(i);
+            if (buffer != _recordedBuffers.get(i) || buffer != null && _recordedClean[i] && buffer.isNeedsRefresh()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addBuffers(final Mesh mesh, final List<AbstractBufferData<?>> store) {
+        final MeshData data = mesh.getMeshData();
+        store.add(data.getVertexCoords());
+        store.add(data.getNormalCoords());
+        store.add(data.getColorCoords());
+        for (int unit = 0; unit < data.getNumberOfUnits(); unit++) {
+            store.add(data.getTextureCoords(unit));
+        }
+        store.add(data.getIndices());
+    }
+}
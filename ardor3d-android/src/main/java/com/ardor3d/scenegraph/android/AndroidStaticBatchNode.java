@@ -0,0 +1,436 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.scenegraph.android;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.math.ColorRGBA;
+import com.ardor3d.math.Vector3;
+import com.ardor3d.math.type.ReadOnlyColorRGBA;
+import com.ardor3d.math.type.ReadOnlyTransform;
+import com.ardor3d.renderer.IndexMode;
+import com.ardor3d.renderer.Renderer;
+import com.ardor3d.renderer.state.LightState;
+import com.ardor3d.renderer.state.RenderState;
+import com.ardor3d.renderer.state.RenderState.StateType;
+import com.ardor3d.renderer.state.TextureState;
+import com.ardor3d.scenegraph.FloatBufferData;
+import com.ardor3d.scenegraph.IndexBufferData;
+import com.ardor3d.scenegraph.Line;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.MeshData;
+import com.ardor3d.scenegraph.Node;
+import com.ardor3d.scenegraph.Point;
+import com.ardor3d.scenegraph.Spatial;
+import com.ardor3d.scenegraph.event.DirtyEventListener;
+import com.ardor3d.scenegraph.event.DirtyType;
+import com.ardor3d.scenegraph.hint.CullHint;
+import com.ardor3d.scenegraph.hint.DataMode;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * A node that draws the static meshes below it as a few merged batches instead of one draw call each. Meshes with the
+ * same effective render states and vertex layout have their vertices transformed into the space of this node and
+ * packed into one interleaved VBO and one index buffer per batch; batches are drawn with the world transform of this
+ * node, so moving the node itself does not rebuild them.
+ * <p>
+ * Batches are rebuilt before the next draw whenever a descendant is attached, detached, moved, has its bounds updated
+ * or its render states changed. Call {@link #invalidate()} after editing member buffers in place, changing a member's
+ * cull hint, or changing render states above this node. This node uses its {@link DirtyEventListener} slot for that,
+ * so don't set a listener of your own on it.
+ * <p>
+ * Meshes with a single section of triangles, lines or points are batched; any other spatial is drawn as usual.
+ */
+public class AndroidStaticBatchNode extends Node {
+
+    /** Batches are split so their indices fit in 16 bits. */
+    public static final int MAX_BATCH_VERTICES = 65536;
+
+    private final List<Mesh> _batches = new ArrayList<Mesh>();
+    private final List<Spatial> _unbatched = new ArrayList<Spatial>();
+    private boolean _dirty = true;
+    private int _batchedMeshes;
+
+    private final Vector3 _vector = new Vector3();
+
+    public AndroidStaticBatchNode() {
+        this("batch");
+    }
+
+    public AndroidStaticBatchNode(final String name) {
+        super(name);
+        setListener(new DirtyEventListener() {
+            public boolean spatialDirty(final Spatial spatial, final DirtyType dirtyType) {
+                // the batches are drawn relative to this node, so only changes below it matter.
+                if (spatial != AndroidStaticBatchNode.this || dirtyType == DirtyType.RenderState
+                        || dirtyType == DirtyType.Attached) {
+                    _dirty = true;
+                }
+                return false;
+            }
+
+            public boolean spatialClean(final Spatial spatial, final DirtyType dirtyType) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Rebuild the batches before the next draw.
+     */
+    public void invalidate() {
+        _dirty = true;
+    }
+
+    public int getBatchCount() {
+        return _batches.size();
+    }
+
+    /**
+     * @return the number of meshes drawn as part of a batch.
+     */
+    public int getBatchedMeshCount() {
+        return _batchedMeshes;
+    }
+
+    @Override
+    public void draw(final Renderer r) {
+        if (_dirty) {
+            rebuild(r);
+        }
+
+        for (int i = 0, max = _batches.size(); i < max; i++) {
+            final Mesh batch = _batches.get(i);
+            batch.setWorldTransform(getWorldTransform());
+            batch.updateWorldBound(false);
+            batch.onDraw(r);
+        }
+        for (int i = 0, max = _unbatched.size(); i < max; i++) {
+            _unbatched.get(i).onDraw(r);
+        }
+    }
+
+    private void rebuild(final Renderer r) {
+        _dirty = false;
+        for (final Mesh batch : _batches) {
+            final MeshData data = batch.getMeshData();
+            r.deleteVBOs(data.getInterleavedData());
+            r.deleteVBOs(data.getIndices());
+        }
+        _batches.clear();
+        _unbatched.clear();
+        _batchedMeshes = 0;
+
+        // meshes grouped by batch key, in the order they were found.
+        final Map<BatchKey, List<Mesh>> groups = new HashMap<BatchKey, List<Mesh>>();
+        final List<BatchKey> order = new ArrayList<BatchKey>();
+        for (int i = 0, max = getNumberOfChildren(); i < max; i++) {
+            collect(getChild(i), groups, order);
+        }
+
+        for (final BatchKey key : order) {
+            final List<Mesh> members = groups.get(key);
+            if (members.size() == 1) {
+                // nothing to merge it with.
+                _unbatched.add(members.get(0));
+                continue;
+            }
+            int start = 0, vertices = 0;
+            for (int i = 0; i < members.size(); i++) {
+                final int count = members.get(i).getMeshData().getVertexCount();
+                if (vertices + count > MAX_BATCH_VERTICES && i > start) {
+                    _batches.add(merge(key, members.subList(start, i), vertices));
+                    start = i;
+                    vertices = 0;
+                }
+                vertices += count;
+            }
+            _batches.add(merge(key, members.subList(start, members.size()), vertices));
+            _batchedMeshes += members.size();
+        }
+    }
+
+    private void collect(final Spatial spatial, final Map<BatchKey, List<Mesh>> groups, final List<BatchKey> order) {
+        if (spatial == null || spatial.getSceneHints().getCullHint() == CullHint.Always) {
+            return;
+        }
+        if (spatial instanceof Node && !(spatial instanceof AndroidStaticBatchNode)) {
+            final Node node = (Node) spatial;
+            for (int i = 0, max = node.getNumberOfChildren(); i < max; i++) {
+                collect(node.getChild(i), groups, order);
+            }
+            return;
+        }
+
+        final BatchKey key = spatial instanceof Mesh ? BatchKey.create((Mesh) spatial) : null;
+        if (key == null) {
+            _unbatched.add(spatial);
+            return;
+        }
+        List<Mesh> members = groups.get(key);
+        if (members == null) {
+            members = new ArrayList<Mesh>();
+            groups.put(key, members);
+            order.add(key);
+        }
+        members.add((Mesh) spatial);
+    }
+
+    private Mesh merge(final BatchKey key, final List<Mesh> members, final int vertexCount) {
+        final Mesh first = members.get(0);
+        final FloatBuffer vertices = BufferUtils.createVector3Buffer(vertexCount);
+        final FloatBuffer normals = key._normalSize != 0 ? BufferUtils.createVector3Buffer(vertexCount) : null;
+        final FloatBuffer colors = key._colorSize != 0 ? BufferUtils.createFloatBuffer(vertexCount
+                * key._colorSize) : null;
+        final FloatBuffer[] texCoords = new FloatBuffer[key._texCoordSizes.length];
+        for (int unit = 0; unit < texCoords.length; unit++) {
+            if (key._texCoordSizes[unit] != 0) {
+                texCoords[unit] = BufferUtils.createFloatBuffer(vertexCount * key._texCoordSizes[unit]);
+            }
+        }
+
+        int indexCount = 0;
+        for (final Mesh mesh : members) {
+            final IndexBufferData<?> indices = mesh.getMeshData().getIndices();
+            indexCount += indices != null ? indices.getBufferLimit() : mesh.getMeshData().getVertexCount();
+        }
+        final IndexBufferData<?> indices = BufferUtils.createIndexBufferData(indexCount, vertexCount - 1);
+
+        final ReadOnlyTransform nodeTransform = getWorldTransform();
+        int base = 0;
+        for (final Mesh mesh : members) {
+            final MeshData data = mesh.getMeshData();
+            final ReadOnlyTransform transform = mesh.getWorldTransform();
+            final int count = data.getVertexCount();
+
+            final FloatBuffer srcVertices = data.getVertexBuffer();
+            final FloatBuffer srcNormals = normals != null ? data.getNormalBuffer() : null;
+            for (int v = 0; v < count; v++) {
+                _vector.set(srcVertices.get(v * 3), srcVertices.get(v * 3 + 1), srcVertices.get(v * 3 + 2));
+                nodeTransform.applyInverse(transform.applyForward(_vector));
+                vertices.put(_vector.getXf()).put(_vector.getYf()).put(_vector.getZf());
+
+                if (srcNormals != null) {
+                    _vector.set(srcNormals.get(v * 3), srcNormals.get(v * 3 + 1), srcNormals.get(v * 3 + 2));
+                    nodeTransform.applyInverseVector(transform.applyForwardVector(_vector)).normalizeLocal();
+                    normals.put(_vector.getXf()).put(_vector.getYf()).put(_vector.getZf());
+                }
+            }
+
+            if (colors != null) {
+                copy(data.getColorBuffer(), colors, count * key._colorSize);
+            }
+            for (int unit = 0; unit < texCoords.length; unit++) {
+                if (texCoords[unit] != null) {
+                    copy(data.getTextureBuffer(unit), texCoords[unit], count * key._texCoordSizes[unit]);
+                }
+            }
+
+            final IndexBufferData<?> srcIndices = data.getIndices();
+            if (srcIndices != null) {
+                for (int i = 0, max = srcIndices.getBufferLimit(); i < max; i++) {
+                    indices.put(base + srcIndices.get(i));
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    indices.put(base + i);
+                }
+            }
+            base += count;
+        }
+
+        final Mesh batch = new Mesh(getName() + "-batch" + _batches.size());
+        final MeshData data = batch.getMeshData();
+        data.setVertexBuffer(vertices);
+        data.setNormalBuffer(normals);
+        data.setColorBuffer(colors);
+        for (int unit = 0; unit < texCoords.length; unit++) {
+            if (texCoords[unit] != null) {
+                data.setTextureCoords(new FloatBufferData(texCoords[unit], key._texCoordSizes[unit]), unit);
+            }
+        }
+        data.setIndices(indices);
+        data.setIndexMode(key._mode);
+
+        batch.getSceneHints().set(first.getSceneHints());
+        batch.getSceneHints().setDataMode(DataMode.VBOInterleaved);
+        batch.getSceneHints().setCullHint(CullHint.Dynamic);
+        batch.setDefaultColor(first.getDefaultColor());
+        for (final StateType type : StateType.values()) {
+            final RenderState state = first.getWorldRenderState(type);
+            if (state != null) {
+                batch.setRenderState(state);
+            }
+        }
+        batch.updateWorldRenderStates(false);
+        batch.setModelBound(new BoundingBox());
+        batch.updateModelBound();
+        return batch;
+    }
+
+    private static void copy(final FloatBuffer source, final FloatBuffer store, final int count) {
+        for (int i = 0; i < count; i++) {
+            store.put(source.get(i));
+        }
+    }
+
+    /**
+     * What meshes must share to be merged: their effective render states, vertex layout, index mode and render
+     * bucket. Light and texture states are compared by contents, as every mesh gets its own combined copy of them.
+     */
+    private static class BatchKey {
+        private final RenderState[] _states = new RenderState[StateType.values().length];
+        private IndexMode _mode;
+        private Object _bucket;
+        private int _normalSize, _colorSize;
+        private int[] _texCoordSizes;
+        private ReadOnlyColorRGBA _defaultColor;
+        private int _hash;
+
+        /**
+         * @return the key of the given mesh, or null if it can't be batched.
+         */
+        static BatchKey create(final Mesh mesh) {
+            // lines and points set up line and point parameters of their own.
+            if (mesh instanceof Line || mesh instanceof Point) {
+                return null;
+            }
+            final MeshData data = mesh.getMeshData();
+            final IndexMode mode = data.getIndexMode(0);
+            if (data.getVertexBuffer() == null || data.getVertexCoords().getValuesPerTuple() != 3
+                    || data.getIndexLengths() != null && data.getIndexLengths().length > 1
+                    || mode != IndexMode.Triangles && mode != IndexMode.Lines && mode != IndexMode.Points
+                    || data.getVertexCount() > MAX_BATCH_VERTICES) {
+                return null;
+            }
+
+            final BatchKey key = new BatchKey();
+            key._mode = mode;
+            key._bucket = mesh.getSceneHints().getRenderBucketType();
+            key._normalSize = data.getNormalBuffer() != null ? 3 : 0;
+            key._colorSize = data.getColorBuffer() != null ? data.getColorCoords().getValuesPerTuple() : 0;
+            if (key._colorSize == 0) {
+                key._defaultColor = new ColorRGBA(mesh.getDefaultColor());
+            }
+            key._texCoordSizes = new int[data.getNumberOfUnits()];
+            for (int unit = 0; unit < key._texCoordSizes.length; unit++) {
+                final FloatBufferData coords = data.getTextureCoords(unit);
+                key._texCoordSizes[unit] = coords != null && coords.getBuffer() != null ? coords.getValuesPerTuple()
+                        : 0;
+            }
+
+            int hash = mode.hashCode() * 31 + key._bucket.hashCode();
+            hash = hash * 31 + key._normalSize * 7 + key._colorSize;
+            hash = hash * 31 + Arrays.hashCode(key._texCoordSizes);
+            for (final StateType type : StateType.values()) {
+                final RenderState state = mesh.getWorldRenderState(type);
+                key._states[type.ordinal()] = state;
+                hash = hash * 31 + stateHash(state);
+            }
+            key._hash = hash;
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof BatchKey)) {
+                return false;
+            }
+            final BatchKey other = (BatchKey) o;
+            if (_hash != other._hash || _mode != other._mode || !_bucket.equals(other._bucket)
+                    || _normalSize != other._normalSize || _colorSize != other._colorSize
+                    || !Arrays.equals(_texCoordSizes, other._texCoordSizes)
+                    || (_defaultColor == null ? other._defaultColor != null : !_defaultColor
+                            .equals(other._defaultColor))) {
+                return false;
+            }
+            for (int i = 0; i < _states.length; i++) {
+                if (!statesMatch(_states[i], other._states[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int stateHash(final RenderState state) {
+            if (state instanceof LightState) {
+                final LightState lights = (LightState) state;
+                int hash = (lights.isEnabled() ? 1 : 0) + 31 * lights.getLightMask();
+                for (int i = 0; i < lights.getNumberOfChildren(); i++) {
+                    hash = hash * 31 + System.identityHashCode(lights.get(i));
+                }
+                return hash;
+            } else if (state instanceof TextureState) {
+                final TextureState textures = (TextureState) state;
+                int hash = textures.isEnabled() ? 1 : 0;
+                for (int i = 0; i <= textures.getMaxTextureIndexUsed(); i++) {
+                    hash = hash * 31 + System.identityHashCode(textures.getTexture(i));
+                }
+                return hash;
+            }
+            return System.identityHashCode(state);
+        }
+
+        private static boolean statesMatch(final RenderState a, final RenderState b) {
+            if (a == b) {
+                return true;
+            } else if (a instanceof LightState && b instanceof LightState) {
+                final LightState la = (LightState) a, lb = (LightState) b;
+                if (la.isEnabled() != lb.isEnabled() || la.getNumberOfChildren() != lb.getNumberOfChildren()
+                        || la.getTwoSidedLighting() != lb.getTwoSidedLighting()
+                        || la.getLocalViewer() != lb.getLocalViewer()
+                        || la.getSeparateSpecular() != lb.getSeparateSpecular()
+                        || la.getLightMask() != lb.getLightMask()
+                        || !la.getGlobalAmbient().equals(lb.getGlobalAmbient())) {
+                    return false;
+                }
+                for (int i = 0; i < la.getNumberOfChildren(); i++) {
+                    if (la.get(i) != lb.get(i)) {
+                        return false;
+                    }
+                }
+                return true;
+            } else if (a instanceof TextureState && b instanceof TextureState) {
+                final TextureState ta = (TextureState) a, tb = (TextureState) b;
+                if (ta.isEnabled() != tb.isEnabled() || ta.getMaxTextureIndexUsed() != tb.getMaxTextureIndexUsed()) {
+                    return false;
+                }
+                for (int i = 0; i <= ta.getMaxTextureIndexUsed(); i++) {
+                    if (ta.getTexture(i) != tb.getTexture(i)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package android.util;
+
+/**
+ * Stands in for the android.jar stub, which throws, when running the renderer on a desktop VM. Test classes come first
+ * on the test class path, so this is the one loaded.
+ */
+public final class Log {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    private Log() {}
+
+    public static int v(final String tag, final String msg) {
+        return println(VERBOSE, tag, msg, null);
+    }
+
+    public static int v(final String tag, final String msg, final Throwable tr) {
+        return println(VERBOSE, tag, msg, tr);
+    }
+
+    public static int d(final String tag, final String msg) {
+        return println(DEBUG, tag, msg, null);
+    }
+
+    public static int d(final String tag, final String msg, final Throwable tr) {
+        return println(DEBUG, tag, msg, tr);
+    }
+
+    public static int i(final String tag, final String msg) {
+        return println(INFO, tag, msg, null);
+    }
+
+    public static int i(final String tag, final String msg, final Throwable tr) {
+        return println(INFO, tag, msg, tr);
+    }
+
+    public static int w(final String tag, final String msg) {
+        return println(WARN, tag, msg, null);
+    }
+
+    public static int w(final String tag, final String msg, final Throwable tr) {
+        return println(WARN, tag, msg, tr);
+    }
+
+    public static int w(final String tag, final Throwable tr) {
+        return println(WARN, tag, "", tr);
+    }
+
+    public static int e(final String tag, final String msg) {
+        return println(ERROR, tag, msg, null);
+    }
+
+    public static int e(final String tag, final String msg, final Throwable tr) {
+        return println(ERROR, tag, msg, tr);
+    }
+
+    public static boolean isLoggable(final String tag, final int level) {
+        return true;
+    }
+
+    private static int println(final int priority, final String tag, final String msg, final Throwable tr) {
+        System.out.println(priority + "/" + tag + ": " + msg);
+        if (tr != null) {
+            tr.printStackTrace(System.out);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Stands in for the android.jar stub, which throws, when running the renderer on a desktop VM. Keys are kept sorted,
+ * as on Android, so lookups don't box.
+ */
+public class SparseArray<E> {
+
+    private int[] _keys = new int[10];
+    private Object[] _values = new Object[10];
+    private int _size;
+
+    public E get(final int key) {
+        return get(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(final int key, final E valueIfKeyNotFound) {
+        final int i = Arrays.binarySearch(_keys, 0, _size, key);
+        return i >= 0 ? (E) _values[i] : valueIfKeyNotFound;
+    }
+
+    public void put(final int key, final E value) {
+        int i = Arrays.binarySearch(_keys, 0, _size, key);
+        if (i >= 0) {
+            _values[i] = value;
+            return;
+        }
+        i = ~i;
+        if (_size == _keys.length) {
+            _keys = Arrays.copyOf(_keys, _size * 2);
+            _values = Arrays.copyOf(_values, _size * 2);
+        }
+        System.arraycopy(_keys, i, _keys, i + 1, _size - i);
+        System.arraycopy(_values, i, _values, i + 1, _size - i);
+        _keys[i] = key;
+        _values[i] = value;
+        _size++;
+    }
+
+    public void delete(final int key) {
+        final int i = Arrays.binarySearch(_keys, 0, _size, key);
+        if (i >= 0) {
+            removeAt(i);
+        }
+    }
+
+    public void remove(final int key) {
+        delete(key);
+    }
+
+    public void removeAt(final int index) {
+        System.arraycopy(_keys, index + 1, _keys, index, _size - index - 1);
+        System.arraycopy(_values, index + 1, _values, index, _size - index - 1);
+        _values[--_size] = null;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public int keyAt(final int index) {
+        return _keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E valueAt(final int index) {
+        return (E) _values[index];
+    }
+
+    public int indexOfKey(final int key) {
+        return Arrays.binarySearch(_keys, 0, _size, key);
+    }
+
+    public void clear() {
+        Arrays.fill(_values, 0, _size, null);
+        _size = 0;
+    }
+}
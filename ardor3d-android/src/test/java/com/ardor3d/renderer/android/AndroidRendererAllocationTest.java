@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ardor3d.math.Vector3;
+import com.ardor3d.renderer.ContextManager;
+import com.ardor3d.renderer.Renderer;
+import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.shape.Box;
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Draws a simple mesh against a {@link StubGL11} and checks that warm frames allocate nothing, directly and through an
+ * {@link AndroidRecordingGL}. Counts bytes allocated by the test thread, which needs a HotSpot based VM; the tests are
+ * skipped elsewhere. On devices, see {@link com.ardor3d.framework.android.AndroidCanvasRenderer#setCheckAllocations}.
+ */
+public class AndroidRendererAllocationTest {
+
+    /** Frames drawn before counting, enough for caches and pools to fill and the JIT to settle. */
+    private static final int WARM_FRAMES = 20000;
+
+    private static final int CHECKED_FRAMES = 100;
+
+    private ThreadMXBean _threads;
+    private StubGL11 _gl;
+    private AndroidRenderer _renderer;
+    private Mesh _mesh;
+
+    @Before
+    public void setUp() {
+        _threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(_threads.isThreadAllocatedMemorySupported());
+        _threads.setThreadAllocatedMemoryEnabled(true);
+
+        _gl = new StubGL11();
+        _renderer = new AndroidRenderer();
+        _renderer.setGL(_gl);
+        ContextManager.addContext(this, new AndroidRenderContext(this, new AndroidContextCapabilities(_gl)));
+        ContextManager.switchContext(this);
+
+        _mesh = new Box("box", Vector3.ZERO, 1, 1, 1);
+        _mesh.updateWorldRenderStates(false);
+        _mesh.updateGeometricState(0);
+    }
+
+    @Test
+    public void testWarmFramesDoNotAllocate() {
+        for (int i = 0; i < WARM_FRAMES; i++) {
+            drawFrame();
+        }
+
+        final int drawCalls = _gl.getDrawCalls();
+        final long overhead = measureOverhead();
+        final long start = getAllocatedBytes();
+        for (int i = 0; i < CHECKED_FRAMES; i++) {
+            drawFrame();
+        }
+        final long allocated = getAllocatedBytes() - start - overhead;
+
+        assertTrue("nothing was drawn", _gl.getDrawCalls() > drawCalls);
+        assertEquals("bytes allocated by " + CHECKED_FRAMES + " warm frames", 0, allocated);
+    }
+
+    @Test
+    public void testWarmRecordedFramesDoNotAllocate() {
+        final AndroidRecordingGL recorder = new AndroidRecordingGL();
+        recorder.setDelegate(_gl);
+        _renderer.setGL(recorder.getGL());
+        final AndroidGLCommandBuffer commands = new AndroidGLCommandBuffer();
+
+        for (int i = 0; i < WARM_FRAMES; i++) {
+            drawRecordedFrame(recorder, commands);
+        }
+
+        final int drawCalls = _gl.getDrawCalls();
+        final long overhead = measureOverhead();
+        final long start = getAllocatedBytes();
+        for (int i = 0; i < CHECKED_FRAMES; i++) {
+            drawRecordedFrame(recorder, commands);
+        }
+        final long allocated = getAllocatedBytes() - start - overhead;
+
+        assertTrue("nothing was replayed", _gl.getDrawCalls() > drawCalls);
+        assertEquals("bytes allocated by " + CHECKED_FRAMES + " warm recorded frames", 0, allocated);
+    }
+
+    private void drawFrame() {
+        _renderer.clearBuffers(Renderer.BUFFER_COLOR_AND_DEPTH);
+        _mesh.render(_renderer);
+        _renderer.flushFrame(false);
+    }
+
+    private void drawRecordedFrame(final AndroidRecordingGL recorder, final AndroidGLCommandBuffer commands) {
+        recorder.beginRecording(commands);
+        drawFrame();
+        recorder.endRecording();
+        recorder.replay(commands);
+    }
+
+    private long getAllocatedBytes() {
+        return _threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // what reading the counter allocates by itself, if anything. The first reads may allocate while being compiled.
+    private long measureOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            final long start = getAllocatedBytes();
+            overhead = Math.min(overhead, getAllocatedBytes() - start);
+        }
+        return overhead;
+    }
+}
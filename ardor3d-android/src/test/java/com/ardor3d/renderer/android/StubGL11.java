@@ -0,0 +1,660 @@
+/**
+ * Copyright (c) 2009-2011 Ardor Labs, Inc. (http://ardorlabs.com/)
+ *   
+ * This file is part of Ardor3D-Android (http://ardor3d.com/).
+ *   
+ * Ardor3D-Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *   
+ * Ardor3D-Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *   
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Ardor3D-Android.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.ardor3d.renderer.android;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import javax.microedition.khronos.opengles.GL10;
+import javax.microedition.khronos.opengles.GL11;
+
+/**
+ * An OpenGL ES 1.1 context that draws nothing, for running the renderer off a device. Queries report a plain 1.1
+ * context without extensions, names are handed out in order and draw calls are counted.
+ */
+public class StubGL11 implements GL11 {
+
+    private int _nextName = 1;
+    private int _drawCalls;
+
+    public int getDrawCalls() {
+        return _drawCalls;
+    }
+
+    private static int getInteger(final int pname) {
+        switch (pname) {
+            case GL10.GL_MAX_TEXTURE_SIZE:
+                return 2048;
+            case GL10.GL_MAX_TEXTURE_UNITS:
+                return 2;
+            case GL11.GL_MAX_CLIP_PLANES:
+                return 6;
+            default:
+                return 0;
+        }
+    }
+
+    public void glActiveTexture(final int texture) {
+    }
+
+    public void glAlphaFunc(final int func, final float ref) {
+    }
+
+    public void glAlphaFuncx(final int func, final int ref) {
+    }
+
+    public void glBindTexture(final int target, final int texture) {
+    }
+
+    public void glBlendFunc(final int sfactor, final int dfactor) {
+    }
+
+    public void glClear(final int mask) {
+    }
+
+    public void glClearColor(final float red, final float green, final float blue, final float alpha) {
+    }
+
+    public void glClearColorx(final int red, final int green, final int blue, final int alpha) {
+    }
+
+    public void glClearDepthf(final float depth) {
+    }
+
+    public void glClearDepthx(final int depth) {
+    }
+
+    public void glClearStencil(final int s) {
+    }
+
+    public void glClientActiveTexture(final int texture) {
+    }
+
+    public void glColor4f(final float red, final float green, final float blue, final float alpha) {
+    }
+
+    public void glColor4x(final int red, final int green, final int blue, final int alpha) {
+    }
+
+    public void glColorMask(final boolean red, final boolean green, final boolean blue, final boolean alpha) {
+    }
+
+    public void glColorPointer(final int size, final int type, final int stride, final Buffer pointer) {
+    }
+
+    public void glCompressedTexImage2D(final int target, final int level, final int internalformat, final int width,
+            final int height, final int border, final int imageSize, final Buffer data) {
+    }
+
+    public void glCompressedTexSubImage2D(final int target, final int level, final int xoffset, final int yoffset,
+            final int width, final int height, final int format, final int imageSize, final Buffer data) {
+    }
+
+    public void glCopyTexImage2D(final int target, final int level, final int internalformat, final int x,
+            final int y, final int width, final int height, final int border) {
+    }
+
+    public void glCopyTexSubImage2D(final int target, final int level, final int xoffset, final int yoffset,
+            final int x, final int y, final int width, final int height) {
+    }
+
+    public void glCullFace(final int mode) {
+    }
+
+    public void glDeleteTextures(final int n, final int[] textures, final int offset) {
+    }
+
+    public void glDeleteTextures(final int n, final IntBuffer textures) {
+    }
+
+    public void glDepthFunc(final int func) {
+    }
+
+    public void glDepthMask(final boolean flag) {
+    }
+
+    public void glDepthRangef(final float zNear, final float zFar) {
+    }
+
+    public void glDepthRangex(final int zNear, final int zFar) {
+    }
+
+    public void glDisable(final int cap) {
+    }
+
+    public void glDisableClientState(final int array) {
+    }
+
+    public void glDrawArrays(final int mode, final int first, final int count) {
+        _drawCalls++;
+    }
+
+    public void glDrawElements(final int mode, final int count, final int type, final Buffer indices) {
+        _drawCalls++;
+    }
+
+    public void glEnable(final int cap) {
+    }
+
+    public void glEnableClientState(final int array) {
+    }
+
+    public void glFinish() {
+    }
+
+    public void glFlush() {
+    }
+
+    public void glFogf(final int pname, final float param) {
+    }
+
+    public void glFogfv(final int pname, final float[] params, final int offset) {
+    }
+
+    public void glFogfv(final int pname, final FloatBuffer params) {
+    }
+
+    public void glFogx(final int pname, final int param) {
+    }
+
+    public void glFogxv(final int pname, final int[] params, final int offset) {
+    }
+
+    public void glFogxv(final int pname, final IntBuffer params) {
+    }
+
+    public void glFrontFace(final int mode) {
+    }
+
+    public void glFrustumf(final float left, final float right, final float bottom, final float top,
+            final float zNear, final float zFar) {
+    }
+
+    public void glFrustumx(final int left, final int right, final int bottom, final int top, final int zNear,
+            final int zFar) {
+    }
+
+    public void glGenTextures(final int n, final int[] textures, final int offset) {
+        for (int i = 0; i < n; i++) {
+            textures[offset + i] = _nextName++;
+        }
+    }
+
+    public void glGenTextures(final int n, final IntBuffer textures) {
+        for (int i = 0; i < n; i++) {
+            textures.put(textures.position() + i, _nextName++);
+        }
+    }
+
+    public int glGetError() {
+        return GL10.GL_NO_ERROR;
+    }
+
+    public void glGetIntegerv(final int pname, final int[] params, final int offset) {
+        params[offset] = getInteger(pname);
+    }
+
+    public void glGetIntegerv(final int pname, final IntBuffer params) {
+        params.put(params.position(), getInteger(pname));
+    }
+
+    public String glGetString(final int name) {
+        return name == GL10.GL_VERSION ? "OpenGL ES-CM 1.1" : name == GL10.GL_EXTENSIONS ? "" : "stub";
+    }
+
+    public void glHint(final int target, final int mode) {
+    }
+
+    public void glLightModelf(final int pname, final float param) {
+    }
+
+    public void glLightModelfv(final int pname, final float[] params, final int offset) {
+    }
+
+    public void glLightModelfv(final int pname, final FloatBuffer params) {
+    }
+
+    public void glLightModelx(final int pname, final int param) {
+    }
+
+    public void glLightModelxv(final int pname, final int[] params, final int offset) {
+    }
+
+    public void glLightModelxv(final int pname, final IntBuffer params) {
+    }
+
+    public void glLightf(final int light, final int pname, final float param) {
+    }
+
+    public void glLightfv(final int light, final int pname, final float[] params, final int offset) {
+    }
+
+    public void glLightfv(final int light, final int pname, final FloatBuffer params) {
+    }
+
+    public void glLightx(final int light, final int pname, final int param) {
+    }
+
+    public void glLightxv(final int light, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glLightxv(final int light, final int pname, final IntBuffer params) {
+    }
+
+    public void glLineWidth(final float width) {
+    }
+
+    public void glLineWidthx(final int width) {
+    }
+
+    public void glLoadIdentity() {
+    }
+
+    public void glLoadMatrixf(final float[] m, final int offset) {
+    }
+
+    public void glLoadMatrixf(final FloatBuffer m) {
+    }
+
+    public void glLoadMatrixx(final int[] m, final int offset) {
+    }
+
+    public void glLoadMatrixx(final IntBuffer m) {
+    }
+
+    public void glLogicOp(final int opcode) {
+    }
+
+    public void glMaterialf(final int face, final int pname, final float param) {
+    }
+
+    public void glMaterialfv(final int face, final int pname, final float[] params, final int offset) {
+    }
+
+    public void glMaterialfv(final int face, final int pname, final FloatBuffer params) {
+    }
+
+    public void glMaterialx(final int face, final int pname, final int param) {
+    }
+
+    public void glMaterialxv(final int face, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glMaterialxv(final int face, final int pname, final IntBuffer params) {
+    }
+
+    public void glMatrixMode(final int mode) {
+    }
+
+    public void glMultMatrixf(final float[] m, final int offset) {
+    }
+
+    public void glMultMatrixf(final FloatBuffer m) {
+    }
+
+    public void glMultMatrixx(final int[] m, final int offset) {
+    }
+
+    public void glMultMatrixx(final IntBuffer m) {
+    }
+
+    public void glMultiTexCoord4f(final int target, final float s, final float t, final float r, final float q) {
+    }
+
+    public void glMultiTexCoord4x(final int target, final int s, final int t, final int r, final int q) {
+    }
+
+    public void glNormal3f(final float nx, final float ny, final float nz) {
+    }
+
+    public void glNormal3x(final int nx, final int ny, final int nz) {
+    }
+
+    public void glNormalPointer(final int type, final int stride, final Buffer pointer) {
+    }
+
+    public void glOrthof(final float left, final float right, final float bottom, final float top, final float zNear,
+            final float zFar) {
+    }
+
+    public void glOrthox(final int left, final int right, final int bottom, final int top, final int zNear,
+            final int zFar) {
+    }
+
+    public void glPixelStorei(final int pname, final int param) {
+    }
+
+    public void glPointSize(final float size) {
+    }
+
+    public void glPointSizex(final int size) {
+    }
+
+    public void glPolygonOffset(final float factor, final float units) {
+    }
+
+    public void glPolygonOffsetx(final int factor, final int units) {
+    }
+
+    public void glPopMatrix() {
+    }
+
+    public void glPushMatrix() {
+    }
+
+    public void glReadPixels(final int x, final int y, final int width, final int height, final int format,
+            final int type, final Buffer pixels) {
+    }
+
+    public void glRotatef(final float angle, final float x, final float y, final float z) {
+    }
+
+    public void glRotatex(final int angle, final int x, final int y, final int z) {
+    }
+
+    public void glSampleCoverage(final float value, final boolean invert) {
+    }
+
+    public void glSampleCoveragex(final int value, final boolean invert) {
+    }
+
+    public void glScalef(final float x, final float y, final float z) {
+    }
+
+    public void glScalex(final int x, final int y, final int z) {
+    }
+
+    public void glScissor(final int x, final int y, final int width, final int height) {
+    }
+
+    public void glShadeModel(final int mode) {
+    }
+
+    public void glStencilFunc(final int func, final int ref, final int mask) {
+    }
+
+    public void glStencilMask(final int mask) {
+    }
+
+    public void glStencilOp(final int fail, final int zfail, final int zpass) {
+    }
+
+    public void glTexCoordPointer(final int size, final int type, final int stride, final Buffer pointer) {
+    }
+
+    public void glTexEnvf(final int target, final int pname, final float param) {
+    }
+
+    public void glTexEnvfv(final int target, final int pname, final float[] params, final int offset) {
+    }
+
+    public void glTexEnvfv(final int target, final int pname, final FloatBuffer params) {
+    }
+
+    public void glTexEnvx(final int target, final int pname, final int param) {
+    }
+
+    public void glTexEnvxv(final int target, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glTexEnvxv(final int target, final int pname, final IntBuffer params) {
+    }
+
+    public void glTexImage2D(final int target, final int level, final int internalformat, final int width,
+            final int height, final int border, final int format, final int type, final Buffer pixels) {
+    }
+
+    public void glTexParameterf(final int target, final int pname, final float param) {
+    }
+
+    public void glTexParameterx(final int target, final int pname, final int param) {
+    }
+
+    public void glTexSubImage2D(final int target, final int level, final int xoffset, final int yoffset,
+            final int width, final int height, final int format, final int type, final Buffer pixels) {
+    }
+
+    public void glTranslatef(final float x, final float y, final float z) {
+    }
+
+    public void glTranslatex(final int x, final int y, final int z) {
+    }
+
+    public void glVertexPointer(final int size, final int type, final int stride, final Buffer pointer) {
+    }
+
+    public void glViewport(final int x, final int y, final int width, final int height) {
+    }
+
+    public void glGetPointerv(final int pname, final Buffer[] params) {
+    }
+
+    public void glBindBuffer(final int target, final int buffer) {
+    }
+
+    public void glBufferData(final int target, final int size, final Buffer data, final int usage) {
+    }
+
+    public void glBufferSubData(final int target, final int offset, final int size, final Buffer data) {
+    }
+
+    public void glClipPlanef(final int plane, final float[] equation, final int offset) {
+    }
+
+    public void glClipPlanef(final int plane, final FloatBuffer equation) {
+    }
+
+    public void glClipPlanex(final int plane, final int[] equation, final int offset) {
+    }
+
+    public void glClipPlanex(final int plane, final IntBuffer equation) {
+    }
+
+    public void glColor4ub(final byte red, final byte green, final byte blue, final byte alpha) {
+    }
+
+    public void glColorPointer(final int size, final int type, final int stride, final int offset) {
+    }
+
+    public void glDeleteBuffers(final int n, final int[] buffers, final int offset) {
+    }
+
+    public void glDeleteBuffers(final int n, final IntBuffer buffers) {
+    }
+
+    public void glDrawElements(final int mode, final int count, final int type, final int offset) {
+        _drawCalls++;
+    }
+
+    public void glGenBuffers(final int n, final int[] buffers, final int offset) {
+        for (int i = 0; i < n; i++) {
+            buffers[offset + i] = _nextName++;
+        }
+    }
+
+    public void glGenBuffers(final int n, final IntBuffer buffers) {
+        for (int i = 0; i < n; i++) {
+            buffers.put(buffers.position() + i, _nextName++);
+        }
+    }
+
+    public void glGetBooleanv(final int pname, final boolean[] params, final int offset) {
+    }
+
+    public void glGetBooleanv(final int pname, final IntBuffer params) {
+    }
+
+    public void glGetBufferParameteriv(final int target, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetBufferParameteriv(final int target, final int pname, final IntBuffer params) {
+    }
+
+    public void glGetClipPlanef(final int pname, final float[] eqn, final int offset) {
+    }
+
+    public void glGetClipPlanef(final int pname, final FloatBuffer eqn) {
+    }
+
+    public void glGetClipPlanex(final int pname, final int[] eqn, final int offset) {
+    }
+
+    public void glGetClipPlanex(final int pname, final IntBuffer eqn) {
+    }
+
+    public void glGetFixedv(final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetFixedv(final int pname, final IntBuffer params) {
+    }
+
+    public void glGetFloatv(final int pname, final float[] params, final int offset) {
+    }
+
+    public void glGetFloatv(final int pname, final FloatBuffer params) {
+    }
+
+    public void glGetLightfv(final int light, final int pname, final float[] params, final int offset) {
+    }
+
+    public void glGetLightfv(final int light, final int pname, final FloatBuffer params) {
+    }
+
+    public void glGetLightxv(final int light, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetLightxv(final int light, final int pname, final IntBuffer params) {
+    }
+
+    public void glGetMaterialfv(final int face, final int pname, final float[] params, final int offset) {
+    }
+
+    public void glGetMaterialfv(final int face, final int pname, final FloatBuffer params) {
+    }
+
+    public void glGetMaterialxv(final int face, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetMaterialxv(final int face, final int pname, final IntBuffer params) {
+    }
+
+    public void glGetTexEnviv(final int env, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetTexEnviv(final int env, final int pname, final IntBuffer params) {
+    }
+
+    public void glGetTexEnvxv(final int env, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetTexEnvxv(final int env, final int pname, final IntBuffer params) {
+    }
+
+    public void glGetTexParameterfv(final int target, final int pname, final float[] params, final int offset) {
+    }
+
+    public void glGetTexParameterfv(final int target, final int pname, final FloatBuffer params) {
+    }
+
+    public void glGetTexParameteriv(final int target, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetTexParameteriv(final int target, final int pname, final IntBuffer params) {
+    }
+
+    public void glGetTexParameterxv(final int target, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glGetTexParameterxv(final int target, final int pname, final IntBuffer params) {
+    }
+
+    public boolean glIsBuffer(final int buffer) {
+        return false;
+    }
+
+    public boolean glIsEnabled(final int cap) {
+        return false;
+    }
+
+    public boolean glIsTexture(final int texture) {
+        return false;
+    }
+
+    public void glNormalPointer(final int type, final int stride, final int offset) {
+    }
+
+    public void glPointParameterf(final int pname, final float param) {
+    }
+
+    public void glPointParameterfv(final int pname, final float[] params, final int offset) {
+    }
+
+    public void glPointParameterfv(final int pname, final FloatBuffer params) {
+    }
+
+    public void glPointParameterx(final int pname, final int param) {
+    }
+
+    public void glPointParameterxv(final int pname, final int[] params, final int offset) {
+    }
+
+    public void glPointParameterxv(final int pname, final IntBuffer params) {
+    }
+
+    public void glPointSizePointerOES(final int type, final int stride, final Buffer pointer) {
+    }
+
+    public void glTexCoordPointer(final int size, final int type, final int stride, final int offset) {
+    }
+
+    public void glTexEnvi(final int target, final int pname, final int param) {
+    }
+
+    public void glTexEnviv(final int target, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glTexEnviv(final int target, final int pname, final IntBuffer params) {
+    }
+
+    public void glTexParameterfv(final int target, final int pname, final float[] params, final int offset) {
+    }
+
+    public void glTexParameterfv(final int target, final int pname, final FloatBuffer params) {
+    }
+
+    public void glTexParameteri(final int target, final int pname, final int param) {
+    }
+
+    public void glTexParameteriv(final int target, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glTexParameteriv(final int target, final int pname, final IntBuffer params) {
+    }
+
+    public void glTexParameterxv(final int target, final int pname, final int[] params, final int offset) {
+    }
+
+    public void glTexParameterxv(final int target, final int pname, final IntBuffer params) {
+    }
+
+    public void glVertexPointer(final int size, final int type, final int stride, final int offset) {
+    }
+}